@@ -29,6 +29,8 @@ android {
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
         buildConfigField("String", "API_KEY", "\"${localProperties.getProperty("apiKey") ?: ""}\"")
         buildConfigField("String", "WEATHER_API_KEY", "\"${localProperties.getProperty("weatherApiKey") ?: ""}\"")
+        buildConfigField("String", "OFFLINE_TILE_URL", "\"${localProperties.getProperty("offlineTileUrl") ?: ""}\"")
+        buildConfigField("String", "RISK_MODEL_URL", "\"${localProperties.getProperty("riskModelUrl") ?: ""}\"")
     }
 
     buildFeatures {
@@ -69,6 +71,12 @@ dependencies {
     // Maps & Location
     implementation(libs.play.services.location)
 
+    // Background forecast prefetch
+    implementation(libs.work.runtime)
+
+    // Forecast list: first cards inflated off the main thread
+    implementation(libs.asynclayoutinflater)
+
     // Firebase
     implementation(platform(libs.firebase.bom))
     implementation(libs.firebase.analytics)
@@ -0,0 +1,95 @@
+package com.example.floodprediction;
+
+import android.graphics.Bitmap;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Decodes the sample precipitation tiles (androidTest assets, the same
+ * files {@link RainfallRasterTest} reads) through BitmapFactory. The
+ * striped tile has four 64 px bands: transparent, 1 mm, 10 mm and 140 mm.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RainfallTileDecoderTest {
+
+    private static final int ZOOM = RainfallTileDecoder.ZOOM;
+
+    private static byte[] asset(String name) throws Exception {
+        try (InputStream in = InstrumentationRegistry.getInstrumentation().getContext()
+                .getAssets().open("tiles/" + name)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) out.write(buf, 0, n);
+            return out.toByteArray();
+        }
+    }
+
+    private static boolean inTile(RainfallRaster raster, int row, int col, int tileX, int tileY) {
+        return raster.cellPixelX(row, col) / 256 == tileX && raster.cellPixelY(row, col) / 256 == tileY;
+    }
+
+    private static void assertStriped(RainfallRaster raster, int tileX, int tileY) {
+        float[] expected = {0f, 1f, 10f, 140f};
+        int filled = 0;
+        for (int row = 0; row < raster.rows; row++) {
+            for (int col = 0; col < raster.cols; col++) {
+                if (!inTile(raster, row, col, tileX, tileY)) continue;
+                int band = (raster.cellPixelX(row, col) % 256) / 64;
+                assertEquals(expected[band], raster.get(row, col), 0.01f);
+                filled++;
+            }
+        }
+        assertTrue(filled > 0);
+    }
+
+    @Test
+    public void stripedTile_keepsUnpremultipliedAlpha() throws Exception {
+        RainfallRaster raster = new RainfallRaster(60, 40, ZOOM);
+        assertTrue(new RainfallTileDecoder().decodeInto(asset("precipitation_6_50_31.png"), raster, 50, 31));
+        assertStriped(raster, 50, 31);
+    }
+
+    @Test
+    public void reusedBitmap_decodesEachTileAfresh() throws Exception {
+        RainfallTileDecoder decoder = new RainfallTileDecoder();
+        RainfallRaster raster = new RainfallRaster(60, 40, ZOOM);
+        assertTrue(decoder.decodeInto(asset("precipitation_6_50_31.png"), raster, 50, 31));
+        assertTrue(decoder.decodeInto(asset("precipitation_6_51_31_dry.png"), raster, 51, 31));
+        assertTrue(decoder.decodeInto(asset("precipitation_6_50_31.png"), raster, 50, 30));
+
+        assertStriped(raster, 50, 31);
+        assertStriped(raster, 50, 30);
+        for (int row = 0; row < raster.rows; row++) {
+            for (int col = 0; col < raster.cols; col++) {
+                if (inTile(raster, row, col, 51, 31)) assertEquals(0f, raster.get(row, col), 0f);
+            }
+        }
+    }
+
+    @Test
+    public void unreadableOrWrongSizeTiles_areRejected() throws Exception {
+        RainfallTileDecoder decoder = new RainfallTileDecoder();
+        RainfallRaster raster = new RainfallRaster(60, 40, ZOOM);
+        assertFalse(decoder.decodeInto(new byte[]{1, 2, 3}, raster, 50, 31));
+
+        Bitmap small = Bitmap.createBitmap(128, 128, Bitmap.Config.ARGB_8888);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        small.compress(Bitmap.CompressFormat.PNG, 100, png);
+        assertFalse(decoder.decodeInto(png.toByteArray(), raster, 50, 31));
+        assertFalse(raster.hasData());
+
+        // A full-size tile still decodes after the mismatch
+        assertTrue(decoder.decodeInto(asset("precipitation_6_50_31.png"), raster, 50, 31));
+        assertStriped(raster, 50, 31);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.floodprediction;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.floodprediction.FloodReportManager.FloodReport;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class SqliteReportStoreTest {
+
+    private Context context;
+    private SqliteReportStore store;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        store = new SqliteReportStore(context, null);  // in memory
+    }
+
+    @After
+    public void tearDown() {
+        legacyPrefs().edit().clear().commit();
+    }
+
+    private FloodReport add(double lat, double lon, long timestamp) {
+        FloodReport r = new FloodReport(lat, lon, "LOW", "test", "Unknown", timestamp);
+        store.insert(r);
+        return r;
+    }
+
+    private static Set<Long> ids(List<FloodReport> reports) {
+        Set<Long> ids = new HashSet<>();
+        for (FloodReport r : reports) ids.add(r.id);
+        return ids;
+    }
+
+    @Test
+    public void page_walksRunsOfEqualTimestamps_onceEach() {
+        Set<Long> expected = new HashSet<>();
+        expected.add(add(3, 101, 900).id);
+        for (int i = 0; i < 7; i++) expected.add(add(3, 101, 1000).id);
+        expected.add(add(3, 101, 1100).id);
+        expected.add(add(3, 101, 1100).id);
+
+        List<FloodReport> seen = new ArrayList<>();
+        FloodReport after = null;
+        while (true) {
+            List<FloodReport> page = store.page(after, 3);
+            if (page.isEmpty()) break;
+            assertTrue(page.size() <= 3);
+            seen.addAll(page);
+            after = page.get(page.size() - 1);
+        }
+
+        assertEquals(expected.size(), seen.size());
+        assertEquals(expected, ids(seen));
+        for (int i = 1; i < seen.size(); i++) {
+            FloodReport a = seen.get(i - 1), b = seen.get(i);
+            assertTrue(a.timestamp > b.timestamp || (a.timestamp == b.timestamp && a.id > b.id));
+        }
+    }
+
+    @Test
+    public void in_includesReportsOnTheEdges() {
+        double south = 3.0, west = 101.0, north = 3.5, east = 101.5;
+        Set<Long> inside = new HashSet<>();
+        inside.add(add(south, 101.2, 1000).id);
+        inside.add(add(north, 101.2, 1000).id);
+        inside.add(add(3.2, west, 1000).id);
+        inside.add(add(3.2, east, 1000).id);
+        inside.add(add(south, west, 1000).id);
+        inside.add(add(3.2, 101.2, 500).id);  // saved exactly at sinceMs
+
+        add(south - 1e-6, 101.2, 1000);
+        add(north + 1e-6, 101.2, 1000);
+        add(3.2, west - 1e-6, 1000);
+        add(3.2, east + 1e-6, 1000);
+        add(3.2, 101.2, 499);
+
+        assertEquals(inside, ids(store.in(south, west, north, east, 500)));
+    }
+
+    @Test
+    public void in_tallBox_scansTheBandRangeWithTheSameEdges() {
+        // More than MAX_LISTED_CELLS bands tall
+        double south = -10.0, west = 100.0, north = 10.0, east = 101.0;
+        Set<Long> inside = new HashSet<>();
+        inside.add(add(south, 100.5, 1000).id);
+        inside.add(add(north, 100.5, 1000).id);
+        inside.add(add(0, east, 1000).id);
+        add(north + 1e-6, 100.5, 1000);
+        add(0, west - 1e-6, 1000);
+
+        assertEquals(inside, ids(store.in(south, west, north, east, 0)));
+    }
+
+    private SharedPreferences legacyPrefs() {
+        return context.getSharedPreferences("legacy_reports_test", Context.MODE_PRIVATE);
+    }
+
+    @Test
+    public void legacyImport_runsOnce() throws Exception {
+        JSONArray arr = new JSONArray();
+        JSONObject good = new JSONObject();
+        good.put("lat", 3.1).put("lon", 101.6).put("severity", "HIGH").put("description", "knee deep")
+                .put("locationName", "Kuala Lumpur").put("timestamp", 1000L).put("confirmations", 3)
+                .put("photoHash", "ff00");
+        arr.put(good);
+        arr.put(new JSONObject().put("lat", 1.0));  // unreadable, skipped
+        SharedPreferences prefs = legacyPrefs();
+        prefs.edit().putString(FloodReportManager.KEY_REPORTS, arr.toString()).commit();
+
+        FloodReportManager.importLegacyReports(prefs, store);
+        FloodReportManager.importLegacyReports(prefs, store);
+
+        List<FloodReport> all = store.all();
+        assertEquals(1, all.size());
+        FloodReport r = all.get(0);
+        assertEquals("Kuala Lumpur", r.locationName);
+        assertEquals(3, r.confirmations);
+        assertEquals(Long.valueOf(0xff00), r.photoHash);
+        assertFalse(prefs.contains(FloodReportManager.KEY_REPORTS));
+    }
+
+    @Test
+    public void legacyImport_keepsABlobThatDoesNotParse() {
+        SharedPreferences prefs = legacyPrefs();
+        String broken = "[{\"lat\": 3.1, \"lon\": 101.6";  // truncated write
+        prefs.edit().putString(FloodReportManager.KEY_REPORTS, broken).commit();
+
+        FloodReportManager.importLegacyReports(prefs, store);
+        FloodReportManager.importLegacyReports(prefs, store);
+
+        assertTrue(store.all().isEmpty());
+        assertFalse(prefs.contains(FloodReportManager.KEY_REPORTS));
+        assertEquals(broken, prefs.getString(FloodReportManager.KEY_REPORTS_UNREADABLE, null));
+    }
+}
@@ -16,7 +16,6 @@ import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 import org.osmdroid.config.Configuration;
-import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
 import org.osmdroid.util.GeoPoint;
 import org.osmdroid.views.MapView;
 import org.osmdroid.views.overlay.Marker;
@@ -57,7 +56,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
     }
 
     private void setupMap() {
-        map.setTileSource(TileSourceFactory.MAPNIK);
+        OfflineMapManager.getInstance(this).setupMap(map);
         map.setMultiTouchControls(true);
         map.getController().setZoom(13.0);
         map.getController().setCenter(new GeoPoint(3.1390, 101.6869)); // Kuala Lumpur
@@ -204,5 +203,6 @@ public class AdminDashboardActivity extends AppCompatActivity {
         super.onDestroy();
         if (listenerReg != null)
             listenerReg.remove();
+        OfflineMapManager.getInstance(this).releaseMap(map);
     }
 }
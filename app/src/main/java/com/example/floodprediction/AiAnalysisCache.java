@@ -0,0 +1,293 @@
+package com.example.floodprediction;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * AI answers keyed by a hash of the normalised prompt.
+ *
+ * The same city and forecast window give the same prompt for hours, so a
+ * repeat analysis is served from memory (LRU) or disk (one file per answer,
+ * oldest-used evicted) instead of a new model call. Entries expire after
+ * {@link #TTL_MS}. A prompt that is already being answered is not sent again:
+ * later callers get the text so far, then the rest as it streams in.
+ *
+ * Not thread-safe: call from one thread (the main thread in the app), which
+ * is also where the source must deliver its callbacks. Disk reads and
+ * writes run on a background executor; what a read finds comes back through
+ * {@code callbackExecutor}, which must run it on that same thread.
+ */
+public class AiAnalysisCache {
+
+    public static final long TTL_MS = 3 * 60 * 60 * 1000L; // one forecast step
+    private static final int MEMORY_ENTRIES = 16;
+    private static final int DISK_ENTRIES = 64;
+
+    public interface Listener {
+        void onChunk(String chunk);
+        void onComplete();
+        void onError(String error);
+    }
+
+    /** Starts the real model call; returns a handle that cancels it. */
+    public interface Source {
+        Runnable start(String prompt, Listener listener);
+    }
+
+    public interface Clock {
+        long now();
+    }
+
+    private static class Entry {
+        final String text;
+        final long createdMs;
+
+        Entry(String text, long createdMs) {
+            this.text = text;
+            this.createdMs = createdMs;
+        }
+    }
+
+    /** One disk lookup, then model call if needed, shared by everyone asking the same prompt. */
+    private class Flight implements Listener {
+        final String key;
+        final StringBuilder text = new StringBuilder();
+        final List<Listener> listeners = new ArrayList<>();
+        Runnable cancel;
+
+        Flight(String key) {
+            this.key = key;
+        }
+
+        /** Back from the disk with its entry, or null to ask the model. */
+        void loaded(Entry e, String prompt, Source source) {
+            if (inFlight.get(key) != this) return;  // everyone left meanwhile
+            if (e == null) {
+                cancel = source.start(prompt, this);
+                return;
+            }
+            inFlight.remove(key, this);
+            remember(key, e);
+            for (Listener l : new ArrayList<>(listeners)) {
+                l.onChunk(e.text);
+                l.onComplete();
+            }
+        }
+
+        @Override
+        public void onChunk(String chunk) {
+            text.append(chunk);
+            for (Listener l : new ArrayList<>(listeners)) l.onChunk(chunk);
+        }
+
+        @Override
+        public void onComplete() {
+            inFlight.remove(key, this);
+            put(key, text.toString());
+            for (Listener l : new ArrayList<>(listeners)) l.onComplete();
+        }
+
+        @Override
+        public void onError(String error) {
+            inFlight.remove(key, this);
+            for (Listener l : new ArrayList<>(listeners)) l.onError(error);
+        }
+    }
+
+    private static AiAnalysisCache shared;
+
+    private final File dir;
+    private final Clock clock;
+    private final Executor diskExecutor;
+    private final Executor callbackExecutor;
+    private final Map<String, Entry> memory = new LinkedHashMap<>(MEMORY_ENTRIES, 0.75f, true);
+    private final Map<String, Flight> inFlight = new HashMap<>();
+
+    public AiAnalysisCache(File dir, Clock clock, Executor diskExecutor, Executor callbackExecutor) {
+        this.dir = dir;
+        this.clock = clock;
+        this.diskExecutor = diskExecutor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Process-wide cache in {@code cacheDir}/ai, so in-flight calls survive
+     * rotation. {@code mainThread} runs disk results on the main thread.
+     */
+    public static synchronized AiAnalysisCache shared(File cacheDir, Executor mainThread) {
+        if (shared == null) {
+            shared = new AiAnalysisCache(new File(cacheDir, "ai"), System::currentTimeMillis,
+                    Executors.newSingleThreadExecutor(), mainThread);
+        }
+        return shared;
+    }
+
+    /**
+     * Answer {@code prompt} from the cache, an in-flight call, or a new call
+     * to {@code source}. A memory hit is delivered before this returns; the
+     * disk is checked in the background before calling the model. The handle
+     * stops {@code listener} getting more callbacks; the model call itself
+     * is cancelled once nobody is listening.
+     */
+    public Runnable stream(String prompt, Source source, Listener listener) {
+        String key = key(prompt);
+        String cached = fromMemory(key);
+        if (cached != null) {
+            listener.onChunk(cached);
+            listener.onComplete();
+            return () -> {};
+        }
+
+        Flight flight = inFlight.get(key);
+        if (flight == null) {
+            Flight f = new Flight(key);
+            inFlight.put(key, f);
+            f.listeners.add(listener);
+            diskExecutor.execute(() -> {
+                Entry e = fromDisk(key);
+                callbackExecutor.execute(() -> f.loaded(e, prompt, source));
+            });
+            flight = f;
+        } else {
+            if (flight.text.length() > 0) listener.onChunk(flight.text.toString());
+            flight.listeners.add(listener);
+        }
+
+        Flight f = flight;
+        return () -> {
+            f.listeners.remove(listener);
+            if (f.listeners.isEmpty() && inFlight.remove(f.key, f)) {
+                if (f.cancel != null) f.cancel.run();
+            }
+        };
+    }
+
+    /** Cached answer for {@code key}, or null if missing or expired. Reads the disk on this thread. */
+    String get(String key) {
+        String text = fromMemory(key);
+        if (text != null) return text;
+        Entry e = fromDisk(key);
+        if (e == null) return null;
+        remember(key, e);
+        return e.text;
+    }
+
+    private String fromMemory(String key) {
+        Entry e = memory.get(key);
+        if (e == null) return null;
+        if (clock.now() - e.createdMs < TTL_MS) return e.text;
+        memory.remove(key);
+        return null;
+    }
+
+    /** The unexpired disk entry for {@code key}, marked as just used; null if none. */
+    private Entry fromDisk(String key) {
+        long now = clock.now();
+        File file = new File(dir, key);
+        if (!file.exists()) return null;
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] bytes = readAll(in);
+            int nl = 0;
+            while (nl < bytes.length && bytes[nl] != '\n') nl++;
+            long created = Long.parseLong(new String(bytes, 0, nl, StandardCharsets.US_ASCII));
+            if (now - created >= TTL_MS) {
+                file.delete();
+                return null;
+            }
+            String text = new String(bytes, nl + 1, bytes.length - nl - 1, StandardCharsets.UTF_8);
+            file.setLastModified(now);
+            return new Entry(text, created);
+        } catch (Exception ex) {
+            file.delete();
+            return null;
+        }
+    }
+
+    void put(String key, String text) {
+        Entry e = new Entry(text, clock.now());
+        remember(key, e);
+        diskExecutor.execute(() -> write(key, e));
+    }
+
+    private void remember(String key, Entry e) {
+        memory.put(key, e);
+        while (memory.size() > MEMORY_ENTRIES) {
+            memory.remove(memory.keySet().iterator().next());
+        }
+    }
+
+    private void write(String key, Entry e) {
+        if (!dir.exists() && !dir.mkdirs()) return;
+        File tmp = new File(dir, key + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write((e.createdMs + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(e.text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            tmp.delete();
+            return;
+        }
+        File file = new File(dir, key);
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return;
+        }
+        file.setLastModified(e.createdMs);
+        trimDisk();
+    }
+
+    private void trimDisk() {
+        File[] files = dir.listFiles((d, name) -> !name.endsWith(".tmp"));
+        if (files == null || files.length <= DISK_ENTRIES) return;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < files.length - DISK_ENTRIES; i++) files[i].delete();
+    }
+
+    /** SHA-256 of the prompt with whitespace runs collapsed, as hex. */
+    static String key(String prompt) {
+        StringBuilder norm = new StringBuilder(prompt.length());
+        boolean space = false;
+        for (int i = 0; i < prompt.length(); i++) {
+            char c = prompt.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = norm.length() > 0;
+            } else {
+                if (space) norm.append(' ');
+                norm.append(c);
+                space = false;
+            }
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(norm.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        byte[] buf = new byte[4096];
+        int n = 0, r;
+        while ((r = in.read(buf, n, buf.length - n)) > 0) {
+            n += r;
+            if (n == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        return Arrays.copyOf(buf, n);
+    }
+}
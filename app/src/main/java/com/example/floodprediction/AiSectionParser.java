@@ -0,0 +1,107 @@
+package com.example.floodprediction;
+
+/**
+ * Splits a streamed AI answer into its {@code [TAG]} sections as the chunks
+ * arrive.
+ *
+ * Each character is looked at once, as it arrives. Tags may be cut across
+ * chunks; text that could still turn into a tag is held back until the next
+ * chunk decides it. Each section reports its text so far on every chunk
+ * that extends it, and is complete once the next tag (or the end of the
+ * stream) is seen, so the first card fills in long before the whole answer
+ * is done. Text outside any known tag is ignored.
+ */
+public final class AiSectionParser {
+
+    public interface Listener {
+        /** Trimmed text of {@code tag} so far; {@code complete} once it can't grow. */
+        void onSection(String tag, String text, boolean complete);
+    }
+
+    private final String[] tags;
+    private final Listener listener;
+    private final StringBuilder buffer = new StringBuilder();
+
+    private int current = -1;        // index into tags of the open section
+    private int sectionStart;        // buffer offset of the open section's text
+    private int scanFrom;            // first character not yet scanned for a tag
+    private int textStart;           // first non-blank character of the open section's text
+    private int lastLength;          // length of the text last reported
+
+    public AiSectionParser(String[] tags, Listener listener) {
+        this.tags = tags;
+        this.listener = listener;
+    }
+
+    public void feed(CharSequence chunk) {
+        buffer.append(chunk);
+        // One pass over the new text: tags can only start at '['
+        int i = scanFrom;
+        while ((i = buffer.indexOf("[", i)) >= 0) {
+            int found = tagAt(i);
+            if (found == -2) break;           // could still become a tag; wait for more text
+            if (found < 0) {
+                i++;
+                continue;
+            }
+            closeCurrent(i);
+            current = found;
+            sectionStart = i + tags[found].length();
+            textStart = sectionStart;
+            lastLength = 0;
+            i = sectionStart;
+        }
+        scanFrom = i >= 0 ? i : buffer.length();
+
+        if (current >= 0) {
+            report(Math.max(sectionStart, scanFrom), false);
+        }
+    }
+
+    /** End of stream: completes the open section. */
+    public void finish() {
+        closeCurrent(buffer.length());
+        current = -1;
+    }
+
+    private void closeCurrent(int end) {
+        if (current >= 0) report(end, true);
+    }
+
+    /**
+     * Trims by offsets, so a chunk costs only what it adds: the start stops
+     * moving at the first non-blank character, and only the blank tail is
+     * rescanned. The text is copied out only when it has changed.
+     */
+    private void report(int end, boolean complete) {
+        end = Math.max(sectionStart, end);
+        while (textStart < end && buffer.charAt(textStart) <= ' ') textStart++;
+        int to = end;
+        while (to > textStart && buffer.charAt(to - 1) <= ' ') to--;
+        // The text only ever grows at its end, so the same length is the same text
+        if (!complete && to - textStart == lastLength) return;
+        lastLength = to - textStart;
+        listener.onSection(tags[current], buffer.substring(textStart, to), complete);
+    }
+
+    /** Index of the tag at {@code at}, -1 if none, -2 if the buffer ends inside a possible tag. */
+    private int tagAt(int at) {
+        int available = buffer.length() - at;
+        boolean partial = false;
+        for (int t = 0; t < tags.length; t++) {
+            String tag = tags[t];
+            int n = Math.min(available, tag.length());
+            if (!regionMatches(at, tag, n)) continue;
+            if (n == tag.length()) return t;
+            partial = true;
+        }
+        return partial ? -2 : -1;
+    }
+
+    private boolean regionMatches(int from, String tag, int n) {
+        for (int i = 0; i < n; i++) {
+            if (buffer.charAt(from + i) != tag.charAt(i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.floodprediction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifies many photos with few requests. Items are packed up to
+ * {@code batchSize} to a request, the reply is split back into one
+ * {@code [IMAGE n]} slot per item, and at most {@code maxConcurrent}
+ * requests are in flight at once across every caller.
+ *
+ * A reply that leaves a slot empty or unreadable has that item retried on
+ * its own. A request rejected for its content ({@link ContentException}) is
+ * split in half and retried, so one bad photo can't sink the rest of its
+ * batch. Any other failure (network, timeout, server error) retries the same
+ * batch after a backoff, holding back the job's other requests too, and
+ * once out of attempts fails the whole job rather than multiplying
+ * requests on a bad connection.
+ */
+public final class BatchVerifier {
+
+    /** Sends one request for {@code items} and returns the raw reply. Blocking. */
+    public interface Call<T> {
+        String send(List<T> items) throws Exception;
+    }
+
+    /** Thrown by a {@link Call} when the request failed because of what it carried. */
+    public static class ContentException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public ContentException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    public interface Listener {
+        /** Answer for item {@code index}, or null and a reason. Called on a worker thread. */
+        void onResult(int index, String answer, String error);
+
+        /** Once every item has its result; {@code requests} counts every call sent. */
+        void onComplete(int requests);
+    }
+
+    /** Wait before the first retry of a failed request; doubles per attempt. */
+    public static final long DEFAULT_BACKOFF_MS = 2000;
+
+    private final ScheduledExecutorService executor;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    public BatchVerifier(int batchSize, int maxConcurrent, int maxAttempts) {
+        this(batchSize, maxConcurrent, maxAttempts, DEFAULT_BACKOFF_MS);
+    }
+
+    public BatchVerifier(int batchSize, int maxConcurrent, int maxAttempts, long backoffMs) {
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.executor = Executors.newScheduledThreadPool(maxConcurrent);
+    }
+
+    /** Slot tag for the {@code n}th photo of a request, counting from 1. */
+    public static String slotTag(int n) {
+        return "[IMAGE " + n + "]";
+    }
+
+    public <T> void verify(List<T> items, Call<T> call, Listener listener) {
+        if (items.isEmpty()) {
+            listener.onComplete(0);
+            return;
+        }
+        Job<T> job = new Job<>(items, call, listener);
+        for (int from = 0; from < items.size(); from += batchSize) {
+            int n = Math.min(batchSize, items.size() - from);
+            int[] indices = new int[n];
+            for (int i = 0; i < n; i++) indices[i] = from + i;
+            submit(job, indices, 1);
+        }
+    }
+
+    private <T> void submit(Job<T> job, int[] indices, int attempt) {
+        executor.execute(() -> run(job, indices, attempt));
+    }
+
+    private <T> void run(Job<T> job, int[] indices, int attempt) {
+        String jobError = job.error;
+        if (jobError != null) {
+            for (int i : indices) job.deliver(i, null, jobError);
+            return;
+        }
+        long wait = job.retryAtNanos - System.nanoTime();
+        if (wait > 0) {
+            executor.schedule(() -> run(job, indices, attempt), wait, TimeUnit.NANOSECONDS);
+            return;
+        }
+        List<T> batch = new ArrayList<>(indices.length);
+        for (int i : indices) batch.add(job.items.get(i));
+
+        String reply;
+        try {
+            reply = job.call.send(batch);
+        } catch (ContentException e) {
+            job.requests.incrementAndGet();
+            failed(job, indices, attempt, e.getMessage() != null ? e.getMessage() : "Request failed");
+            return;
+        } catch (Exception e) {
+            job.requests.incrementAndGet();
+            if (attempt < maxAttempts) {
+                long delayMs = backoffMs << (attempt - 1);
+                job.retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+                executor.schedule(() -> run(job, indices, attempt + 1), delayMs, TimeUnit.MILLISECONDS);
+            } else {
+                job.error = e.getMessage() != null ? e.getMessage() : "Request failed";
+                for (int i : indices) job.deliver(i, null, job.error);
+            }
+            return;
+        }
+        job.requests.incrementAndGet();
+
+        String[] slots = split(reply, indices.length);
+        for (int i = 0; i < indices.length; i++) {
+            if (slots[i] != null) {
+                job.deliver(indices[i], slots[i], null);
+            } else if (attempt < maxAttempts) {
+                submit(job, new int[] { indices[i] }, attempt + 1);
+            } else {
+                job.deliver(indices[i], null, "No answer for this photo");
+            }
+        }
+    }
+
+    private <T> void failed(Job<T> job, int[] indices, int attempt, String error) {
+        if (indices.length > 1) {
+            int half = indices.length / 2;
+            int[] a = new int[half], b = new int[indices.length - half];
+            System.arraycopy(indices, 0, a, 0, half);
+            System.arraycopy(indices, half, b, 0, b.length);
+            submit(job, a, attempt);
+            submit(job, b, attempt);
+        } else if (attempt < maxAttempts) {
+            submit(job, indices, attempt + 1);
+        } else {
+            job.deliver(indices[0], null, error);
+        }
+    }
+
+    /**
+     * One verdict per slot, null where the reply has none that reads as a
+     * verdict. A single-photo reply without slot tags counts as slot 1.
+     */
+    static String[] split(String reply, int n) {
+        String[] tags = new String[n];
+        for (int i = 0; i < n; i++) tags[i] = slotTag(i + 1);
+        String[] slots = new String[n];
+        AiSectionParser parser = new AiSectionParser(tags, (tag, text, complete) -> {
+            if (complete) slots[Integer.parseInt(tag.substring(7, tag.length() - 1)) - 1] = text;
+        });
+        parser.feed(reply);
+        parser.finish();
+        if (n == 1 && slots[0] == null) slots[0] = reply.trim();
+
+        for (int i = 0; i < n; i++) {
+            if (slots[i] != null && DetectionResult.parse(slots[i]).floodDetected == null) slots[i] = null;
+        }
+        return slots;
+    }
+
+    private static final class Job<T> {
+        final List<T> items;
+        final Call<T> call;
+        final Listener listener;
+        final AtomicInteger remaining;
+        final AtomicInteger requests = new AtomicInteger();
+        volatile String error;  // set once a request runs out of attempts; fails what's left
+        volatile long retryAtNanos;  // the job's other requests hold off until then
+
+        Job(List<T> items, Call<T> call, Listener listener) {
+            this.items = items;
+            this.call = call;
+            this.listener = listener;
+            this.remaining = new AtomicInteger(items.size());
+        }
+
+        void deliver(int index, String answer, String error) {
+            listener.onResult(index, answer, error);
+            if (remaining.decrementAndGet() == 0) listener.onComplete(requests.get());
+        }
+    }
+}
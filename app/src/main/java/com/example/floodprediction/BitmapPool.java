@@ -0,0 +1,55 @@
+package com.example.floodprediction;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A few recycled mutable bitmaps for {@link android.graphics.BitmapFactory.Options#inBitmap}
+ * reuse, so picking photo after photo doesn't allocate a new multi-MB
+ * buffer each time. Bounded by total bytes; the oldest bitmap is dropped
+ * when full.
+ */
+public class BitmapPool {
+
+    private final long maxBytes;
+    private final List<Bitmap> bitmaps = new ArrayList<>();
+    private long bytes;
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Remove and return a bitmap big enough to decode a
+     * {@code width} x {@code height} ARGB_8888 image into, or null.
+     */
+    public synchronized Bitmap get(int width, int height) {
+        long needed = (long) width * height * 4;
+        Bitmap best = null;
+        for (Bitmap b : bitmaps) {
+            if (b.getAllocationByteCount() >= needed
+                    && (best == null || b.getAllocationByteCount() < best.getAllocationByteCount())) {
+                best = b;
+            }
+        }
+        if (best != null) {
+            bitmaps.remove(best);
+            bytes -= best.getAllocationByteCount();
+        }
+        return best;
+    }
+
+    /** Hand back a bitmap nothing else references any more. */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) return;
+        if (bitmap.getAllocationByteCount() > maxBytes) return;
+        bitmaps.add(bitmap);
+        bytes += bitmap.getAllocationByteCount();
+        while (bytes > maxBytes) {
+            Bitmap oldest = bitmaps.remove(0);
+            bytes -= oldest.getAllocationByteCount();
+        }
+    }
+}
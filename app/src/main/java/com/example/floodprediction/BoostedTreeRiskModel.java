@@ -0,0 +1,198 @@
+package com.example.floodprediction;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Gradient-boosted regression trees trained offline on historical flood
+ * outcomes, stored in flat arrays.
+ *
+ * Every node of every tree lives at one index across {@link #feature},
+ * {@link #value}, {@link #left} and {@link #right}. Internal nodes test
+ * {@code x[feature] <= value}; leaves have feature -1 and carry their
+ * contribution in {@code value}. The summed margin goes through a sigmoid
+ * and is reported as a 0 - 100 score, so the model drops in wherever the
+ * rule-based score is used.
+ *
+ * Features: rain (mm), humidity (%), wind (m/s), clouds (%), and the
+ * condition class from {@link #conditionClass} (0 dry, 1 drizzle or rain,
+ * 2 heavy rain or thunderstorm).
+ *
+ * Binary format (big-endian): magic "FRGB", format version, model version,
+ * name, high and medium level bytes, base margin, tree count, tree roots,
+ * node count, then per node feature byte, value float, left and right
+ * shorts.
+ */
+public final class BoostedTreeRiskModel implements RiskEvaluator {
+
+    public static final int MAGIC = 0x46524742; // "FRGB"
+    private static final int FORMAT_VERSION = 1;
+
+    public static final int F_RAIN = 0;
+    public static final int F_HUMIDITY = 1;
+    public static final int F_WIND = 2;
+    public static final int F_CLOUDS = 3;
+    public static final int F_CONDITION = 4;
+    public static final int FEATURE_COUNT = 5;
+
+    private static final byte[] CONDITION_CLASS = buildConditionClasses();
+
+    private final int version;
+    private final String name;
+    private final int highThreshold;
+    private final int mediumThreshold;
+    private final float base;
+    private final int[] roots;
+    private final byte[] feature;
+    private final float[] value;
+    private final short[] left;
+    private final short[] right;
+
+    BoostedTreeRiskModel(int version, String name, int high, int medium, float base,
+                         int[] roots, byte[] feature, float[] value, short[] left, short[] right) {
+        int n = feature.length;
+        if (value.length != n || left.length != n || right.length != n) {
+            throw new IllegalArgumentException("node arrays differ in length");
+        }
+        for (int root : roots) {
+            if (root < 0 || root >= n) throw new IllegalArgumentException("tree root out of range");
+        }
+        for (int i = 0; i < n; i++) {
+            if (feature[i] >= FEATURE_COUNT) throw new IllegalArgumentException("bad feature at node " + i);
+            // Children must come after their parent, so evaluation always terminates
+            if (feature[i] >= 0 && (left[i] <= i || right[i] <= i || left[i] >= n || right[i] >= n)) {
+                throw new IllegalArgumentException("bad children at node " + i);
+            }
+        }
+        this.version = version;
+        this.name = name;
+        this.highThreshold = high;
+        this.mediumThreshold = medium;
+        this.base = base;
+        this.roots = roots;
+        this.feature = feature;
+        this.value = value;
+        this.left = left;
+        this.right = right;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getTreeCount() {
+        return roots.length;
+    }
+
+    @Override
+    public int version() {
+        return version;
+    }
+
+    /** Raw additive margin (log-odds of flooding). */
+    public float margin(float rain, float humidity, float wind, float clouds, int condition) {
+        float cond = conditionClass(condition);
+        float sum = base;
+        for (int t = 0; t < roots.length; t++) {
+            int n = roots[t];
+            int f;
+            while ((f = feature[n]) >= 0) {
+                float x = f == F_RAIN ? rain : f == F_HUMIDITY ? humidity
+                        : f == F_WIND ? wind : f == F_CLOUDS ? clouds : cond;
+                n = x <= value[n] ? left[n] : right[n];
+            }
+            sum += value[n];
+        }
+        return sum;
+    }
+
+    @Override
+    public int score(float rain, float humidity, float wind, float clouds, int condition) {
+        double p = 1.0 / (1.0 + Math.exp(-margin(rain, humidity, wind, clouds, condition)));
+        return (int) Math.round(p * 100);
+    }
+
+    @Override
+    public String level(int score) {
+        if (score >= highThreshold) return "HIGH";
+        else if (score >= mediumThreshold) return "MEDIUM";
+        else return "LOW";
+    }
+
+    /** 0 dry, 1 drizzle or rain, 2 heavy rain or thunderstorm. */
+    public static int conditionClass(int code) {
+        return code < 0 || code > 999 ? 0 : CONDITION_CLASS[code];
+    }
+
+    private static byte[] buildConditionClasses() {
+        byte[] t = new byte[1000];
+        for (int code = 200; code < 300; code++) t[code] = 2;
+        for (int code = 300; code < 400; code++) t[code] = 1;
+        for (int code = 500; code < 600; code++) t[code] = 1;
+        for (int code : new int[]{502, 503, 504, 522, 531}) t[code] = 2;
+        return t;
+    }
+
+    // ── Binary asset ──────────────────────────────────────────────
+
+    public static BoostedTreeRiskModel read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC) throw new IOException("Not a boosted tree model");
+        int format = in.readInt();
+        if (format != FORMAT_VERSION) throw new IOException("Unsupported model format " + format);
+
+        int version = in.readInt();
+        String name = in.readUTF();
+        int high = in.readUnsignedByte();
+        int medium = in.readUnsignedByte();
+        float base = in.readFloat();
+
+        int treeCount = in.readInt();
+        if (treeCount < 0 || treeCount > 10_000) throw new IOException("Bad tree count " + treeCount);
+        int[] roots = new int[treeCount];
+        for (int i = 0; i < treeCount; i++) roots[i] = in.readInt();
+
+        int nodeCount = in.readInt();
+        if (nodeCount < 0 || nodeCount > Short.MAX_VALUE) throw new IOException("Bad node count " + nodeCount);
+        byte[] feature = new byte[nodeCount];
+        float[] value = new float[nodeCount];
+        short[] left = new short[nodeCount];
+        short[] right = new short[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            feature[i] = in.readByte();
+            value[i] = in.readFloat();
+            left[i] = in.readShort();
+            right[i] = in.readShort();
+        }
+        try {
+            return new BoostedTreeRiskModel(version, name, high, medium, base,
+                    roots, feature, value, left, right);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt model: " + e.getMessage());
+        }
+    }
+
+    public void write(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(version);
+        out.writeUTF(name);
+        out.writeByte(highThreshold);
+        out.writeByte(mediumThreshold);
+        out.writeFloat(base);
+        out.writeInt(roots.length);
+        for (int root : roots) out.writeInt(root);
+        out.writeInt(feature.length);
+        for (int i = 0; i < feature.length; i++) {
+            out.writeByte(feature[i]);
+            out.writeFloat(value[i]);
+            out.writeShort(left[i]);
+            out.writeShort(right[i]);
+        }
+        out.flush();
+    }
+}
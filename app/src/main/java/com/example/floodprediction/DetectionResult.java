@@ -0,0 +1,151 @@
+package com.example.floodprediction;
+
+/**
+ * Typed form of an AI flood photo verdict:
+ * <pre>
+ * FLOOD_DETECTED: YES
+ * SEVERITY: HIGH
+ * CONFIDENCE: 92%
+ * DESCRIPTION: ...
+ * SAFETY_TIP: ...
+ * </pre>
+ * Keys are matched case-insensitively at the start of a line (after any
+ * spaces, bullets or markdown emphasis), in one pass over the text.
+ * Fields the response doesn't mention stay null (or -1 for confidence).
+ */
+public final class DetectionResult {
+
+    public static final String HIGH = "HIGH", MEDIUM = "MEDIUM", LOW = "LOW";
+
+    public final Boolean floodDetected;
+    public final String severity;     // HIGH, MEDIUM, LOW
+    public final int confidence;      // percent
+    public final String description;
+    public final String safetyTip;
+
+    DetectionResult(Boolean floodDetected, String severity, int confidence,
+                    String description, String safetyTip) {
+        this.floodDetected = floodDetected;
+        this.severity = severity;
+        this.confidence = confidence;
+        this.description = description;
+        this.safetyTip = safetyTip;
+    }
+
+    public boolean isFlood() {
+        return Boolean.TRUE.equals(floodDetected);
+    }
+
+    public static DetectionResult parse(CharSequence response) {
+        Parser p = new Parser();
+        p.feed(response);
+        return p.finish();
+    }
+
+    /**
+     * Incremental parser: feed chunks as they stream in, then {@link #finish()}.
+     * Whole lines are read in place; only a line cut across chunks is buffered.
+     */
+    public static final class Parser {
+        private static final String[] KEYS = {
+                "FLOOD_DETECTED", "SEVERITY", "CONFIDENCE", "DESCRIPTION", "SAFETY_TIP"
+        };
+
+        private final StringBuilder partial = new StringBuilder();
+        private Boolean floodDetected;
+        private String severity;
+        private int confidence = -1;
+        private String description;
+        private String safetyTip;
+
+        public void feed(CharSequence chunk) {
+            int n = chunk.length();
+            int start = 0;
+            for (int i = 0; i < n; i++) {
+                if (chunk.charAt(i) != '\n') continue;
+                if (partial.length() > 0) {
+                    partial.append(chunk, start, i);
+                    line(partial, 0, partial.length());
+                    partial.setLength(0);
+                } else {
+                    line(chunk, start, i);
+                }
+                start = i + 1;
+            }
+            partial.append(chunk, start, n);
+        }
+
+        public DetectionResult finish() {
+            line(partial, 0, partial.length());
+            partial.setLength(0);
+            return new DetectionResult(floodDetected, severity, confidence, description, safetyTip);
+        }
+
+        private void line(CharSequence s, int from, int to) {
+            int i = from;
+            while (i < to && isLead(s.charAt(i))) i++;
+            for (int k = 0; k < KEYS.length; k++) {
+                String key = KEYS[k];
+                if (!matches(s, i, to, key)) continue;
+                int j = i + key.length();
+                while (j < to && (s.charAt(j) == '*' || s.charAt(j) == ' ')) j++;
+                if (j >= to || s.charAt(j) != ':') return;
+                j++;
+                while (j < to && (s.charAt(j) == ' ' || s.charAt(j) == '*' || s.charAt(j) == '\t')) j++;
+                int end = to;
+                while (end > j && Character.isWhitespace(s.charAt(end - 1))) end--;
+                value(k, s, j, end);
+                return;
+            }
+        }
+
+        private void value(int key, CharSequence s, int from, int to) {
+            switch (key) {
+                case 0:
+                    if (matches(s, from, to, "YES")) floodDetected = Boolean.TRUE;
+                    else if (matches(s, from, to, "NO")) floodDetected = Boolean.FALSE;
+                    break;
+                case 1:
+                    if (matches(s, from, to, HIGH)) severity = HIGH;
+                    else if (matches(s, from, to, MEDIUM)) severity = MEDIUM;
+                    else if (matches(s, from, to, LOW)) severity = LOW;
+                    break;
+                case 2: {
+                    int v = 0, digits = 0;
+                    for (int i = from; i < to && Character.isDigit(s.charAt(i)); i++, digits++) {
+                        v = v * 10 + (s.charAt(i) - '0');
+                    }
+                    if (digits > 0) confidence = Math.min(100, v);
+                    break;
+                }
+                case 3:
+                    description = s.subSequence(from, to).toString();
+                    break;
+                case 4:
+                    safetyTip = s.subSequence(from, to).toString();
+                    break;
+            }
+        }
+
+        /**
+         * Case-insensitive: does {@code s[from, to)} start with upper-case
+         * {@code word} as a whole word? "NOT SURE" doesn't start with "NO".
+         */
+        private static boolean matches(CharSequence s, int from, int to, String word) {
+            if (to - from < word.length()) return false;
+            for (int i = 0; i < word.length(); i++) {
+                if (Character.toUpperCase(s.charAt(from + i)) != word.charAt(i)) return false;
+            }
+            int next = from + word.length();
+            return next == to || !isWordChar(s.charAt(next));
+        }
+
+        private static boolean isWordChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_';
+        }
+
+        private static boolean isLead(char c) {
+            return c == ' ' || c == '\t' || c == '*' || c == '-' || c == '•' || c == '#';
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.floodprediction;
+
+import com.example.floodprediction.FloodReportManager.FloodReport;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ReportCloud} on the Firestore collection "flood_reports", one
+ * document per report. Writes go in one {@link WriteBatch}. Each
+ * confirmation is an entry {@code confirmedBy.<id>: severity} merged into
+ * the document, so devices confirming the same report don't overwrite each
+ * other. The count and the worst severity are worked out on read, so a LOW
+ * confirmation can't downgrade a HIGH report. A batch whose
+ * acknowledgement is lost is sent again: reports and confirmations are
+ * rewritten unchanged, so nothing counts twice.
+ *
+ * Pulls need the composite index (cell ASC, changedAt ASC, __name__ ASC)
+ * and read from the server only, so the cursor never moves past cached data.
+ */
+public class FirestoreReportCloud implements ReportCloud {
+
+    private static final String COLLECTION = "flood_reports";
+    private static final long TIMEOUT_S = 30;
+    private static final String CONFIRMED_BY = "confirmedBy";
+
+    private CollectionReference reports() {
+        return FirebaseFirestore.getInstance().collection(COLLECTION);
+    }
+
+    @Override
+    public void commit(List<Write> writes) throws Exception {
+        CollectionReference reports = reports();
+        WriteBatch batch = reports.getFirestore().batch();
+        for (Write write : writes) {
+            Map<String, Object> fields = new HashMap<>();
+            FloodReport r = write.report;
+            if (r != null) {
+                fields.put("lat", r.lat);
+                fields.put("lon", r.lon);
+                fields.put("cell", Geohash.encode(r.lat, r.lon, CELL_PRECISION));
+                fields.put("severity", r.severity);
+                fields.put("description", r.description);
+                fields.put("locationName", r.locationName);
+                fields.put("timestamp", r.timestamp);
+                fields.put("confirmations", r.confirmations);
+                fields.put("photoHash", r.photoHash);
+            }
+            if (!write.confirmations.isEmpty()) {
+                fields.put(CONFIRMED_BY, new HashMap<>(write.confirmations));
+            }
+            fields.put("changedAt", FieldValue.serverTimestamp());
+            batch.set(reports.document(write.docId), fields, SetOptions.merge());
+        }
+        Tasks.await(batch.commit(), TIMEOUT_S, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public List<Change> changedSince(List<String> cells, long afterMicros, String afterDocId,
+                                     int limit) throws Exception {
+        Timestamp after = new Timestamp(afterMicros / 1_000_000,
+                (int) (afterMicros % 1_000_000) * 1000);
+        Query query = reports().whereIn("cell", cells).orderBy("changedAt");
+        // No document cursor yet: ties on the time are all new, and "" isn't a valid id
+        query = afterDocId == null
+                ? query.startAfter(after)
+                : query.orderBy(FieldPath.documentId()).startAfter(after, afterDocId);
+        QuerySnapshot snapshot = Tasks.await(query.limit(limit).get(Source.SERVER),
+                TIMEOUT_S, TimeUnit.SECONDS);
+
+        List<Change> changes = new ArrayList<>();
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            Timestamp changed = doc.getTimestamp("changedAt");
+            if (changed == null) continue;
+            changes.add(new Change(doc.getId(), report(doc),
+                    changed.getSeconds() * 1_000_000 + changed.getNanoseconds() / 1000));
+        }
+        return changes;
+    }
+
+    /** The report a document holds, or null if it's missing fields. */
+    private static FloodReport report(DocumentSnapshot doc) {
+        try {
+            FloodReport r = new FloodReport(
+                    doc.getDouble("lat"),
+                    doc.getDouble("lon"),
+                    doc.getString("severity"),
+                    doc.getString("description"),
+                    doc.getString("locationName"),
+                    doc.getLong("timestamp"));
+            Long confirmations = doc.getLong("confirmations");
+            if (confirmations != null) r.confirmations = confirmations.intValue();
+            r.photoHash = doc.getLong("photoHash");
+            // Confirmations on top of the report's own, and the worst severity they saw
+            Object confirmedBy = doc.get(CONFIRMED_BY);
+            if (confirmedBy instanceof Map) {
+                for (Object severity : ((Map<?, ?>) confirmedBy).values()) {
+                    r.confirmations++;
+                    if (severity instanceof String
+                            && FloodReportManager.severityRank((String) severity)
+                            > FloodReportManager.severityRank(r.severity)) {
+                        r.severity = (String) severity;
+                    }
+                }
+            }
+            return r;
+        } catch (Exception ignored) {
+            return null;
+        }
+    }
+}
@@ -20,12 +20,16 @@ import java.util.List;
  * interpolating flood risk values between city data points using
  * inverse-distance weighting (IDW).
  *
+ * When a decoded {@link RainfallRaster} is available it is used as a dense
+ * per-cell input instead; IDW only fills cells the raster doesn't cover.
+ *
  * Inspired by the reference US wind speed map style.
  */
 public class FloodHeatmapOverlay extends Overlay {
 
     private final List<DataPoint> dataPoints = new ArrayList<>();
     private final Paint cellPaint;
+    private RainfallRaster rainfall;
 
     // Malaysia bounding box (approximate)
     private static final double LAT_MIN = 0.8;   // southern tip
@@ -34,8 +38,8 @@ public class FloodHeatmapOverlay extends Overlay {
     private static final double LON_MAX = 119.5;  // eastern Sabah
 
     // Grid resolution — lower = faster, higher = smoother
-    private static final int GRID_COLS = 60;
-    private static final int GRID_ROWS = 40;
+    static final int GRID_COLS = 60;
+    static final int GRID_ROWS = 40;
 
     public static class DataPoint {
         public double lat, lon;
@@ -62,9 +66,21 @@ public class FloodHeatmapOverlay extends Overlay {
         dataPoints.add(new DataPoint(lat, lon, riskScore));
     }
 
+    /**
+     * Use a decoded rainfall raster as the dense input. It must share this
+     * overlay's grid (GRID_COLS × GRID_ROWS); pass null to go back to IDW.
+     */
+    public void setRainfallRaster(RainfallRaster raster) {
+        if (raster != null && (raster.cols != GRID_COLS || raster.rows != GRID_ROWS)) {
+            throw new IllegalArgumentException("Raster must be " + GRID_COLS + "x" + GRID_ROWS);
+        }
+        rainfall = raster;
+    }
+
     @Override
     public void draw(Canvas canvas, MapView mapView, boolean shadow) {
-        if (shadow || dataPoints.isEmpty()) return;
+        boolean hasRaster = rainfall != null && rainfall.hasData();
+        if (shadow || (dataPoints.isEmpty() && !hasRaster)) return;
 
         Projection proj = mapView.getProjection();
 
@@ -88,8 +104,11 @@ public class FloodHeatmapOverlay extends Overlay {
                 double lat = LAT_MAX - row * latStep - latStep / 2;
                 double lon = LON_MIN + col * lonStep + lonStep / 2;
 
-                // Inverse-distance-weighted interpolation
-                double value = interpolateIDW(lat, lon);
+                // Dense rainfall raster where decoded, otherwise IDW between cities
+                float mm = hasRaster ? rainfall.get(row, col) : Float.NaN;
+                double value = !Float.isNaN(mm)
+                        ? RainfallRaster.riskForRate(mm)
+                        : interpolateIDW(lat, lon);
 
                 // Map value to color
                 int color = riskToColor(value);
@@ -0,0 +1,179 @@
+package com.example.floodprediction;
+
+/**
+ * Cheap on-device first pass over a flood photo.
+ *
+ * Works on a {@link #SIZE} x {@link #SIZE} ARGB buffer. Features are colour
+ * fractions (muddy and grey water in the lower half, skin in the upper half,
+ * vegetation) and texture (mean gradient overall and in the lower half,
+ * where standing water is smooth);
+ * a logistic model turns them into a flood probability. Probabilities
+ * outside [{@link #NEGATIVE_BELOW}, {@link #POSITIVE_ABOVE}] are decisions,
+ * everything else is {@link Decision#UNSURE}.
+ *
+ * The thresholds are checked against the labelled sample photos in the
+ * test resources: no sample may fall on the wrong side of either one.
+ * Decisions from weights that passed that check may replace the remote
+ * call in both directions ({@link #answersLocally}); weights that have not
+ * are advisory only.
+ */
+public class FloodPreClassifier {
+
+    public static final int SIZE = 64;
+    public static final float NEGATIVE_BELOW = 0.10f;
+    public static final float POSITIVE_ABOVE = 0.85f;
+
+    public enum Decision { NOT_FLOOD, FLOOD, UNSURE }
+
+    public static final int BROWN_WATER = 0, GREY_SMOOTH = 1, LOWER_SMOOTHNESS = 2,
+            SKIN = 3, VEGETATION = 4, EDGE_DENSITY = 5;
+    public static final int FEATURE_COUNT = 6;
+
+    // Logistic regression fit on generated scenes, validated on the sample photos
+    // (see FloodPreClassifierTest); re-run that check after refitting
+    private static final float[] DEFAULT_WEIGHTS = { 6.7f, 6.9f, 10.1f, -5.0f, -1.8f, 1.3f };
+    private static final float DEFAULT_BIAS = -13.2f;
+
+    public static class Result {
+        public final Decision decision;
+        public final float probability;
+
+        Result(Decision decision, float probability) {
+            this.decision = decision;
+            this.probability = probability;
+        }
+    }
+
+    private final float[] weights;
+    private final float bias;
+    private final boolean validated;
+    private final float[] features = new float[FEATURE_COUNT];
+
+    public FloodPreClassifier() {
+        this(DEFAULT_WEIGHTS, DEFAULT_BIAS, true);
+    }
+
+    public FloodPreClassifier(float[] weights, float bias) {
+        this(weights, bias, false);
+    }
+
+    /**
+     * @param validated true only for weights evaluated on the labelled
+     *                  sample photos; lets confident decisions skip the model
+     */
+    public FloodPreClassifier(float[] weights, float bias, boolean validated) {
+        if (weights.length != FEATURE_COUNT) throw new IllegalArgumentException("Need " + FEATURE_COUNT + " weights");
+        this.weights = weights.clone();
+        this.bias = bias;
+        this.validated = validated;
+    }
+
+    /** Whether {@code result} may stand in for the remote model's answer. */
+    public boolean answersLocally(Result result) {
+        return validated && result.decision != Decision.UNSURE;
+    }
+
+    /** Classify a {@code width} x {@code height} ARGB buffer (ideally {@link #SIZE} square). */
+    public synchronized Result classify(int[] argb, int width, int height) {
+        features(argb, width, height, features);
+        float z = bias;
+        for (int i = 0; i < FEATURE_COUNT; i++) z += weights[i] * features[i];
+        float p = (float) (1.0 / (1.0 + Math.exp(-z)));
+        Decision d = p < NEGATIVE_BELOW ? Decision.NOT_FLOOD
+                : p > POSITIVE_ABOVE ? Decision.FLOOD
+                : Decision.UNSURE;
+        return new Result(d, p);
+    }
+
+    /** Fill {@code out} with the {@link #FEATURE_COUNT} features, each in [0, 1]. */
+    public static void features(int[] argb, int width, int height, float[] out) {
+        int half = height / 2;
+        int lowerCount = (height - half) * width;
+        int brown = 0, greySmooth = 0, skin = 0, green = 0;
+        long gradAll = 0, gradLower = 0;
+
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int c = argb[row + x];
+                int r = (c >> 16) & 0xFF, g = (c >> 8) & 0xFF, b = c & 0xFF;
+                int max = Math.max(r, Math.max(g, b));
+                int min = Math.min(r, Math.min(g, b));
+                int chroma = max - min;
+                int hue = hue(r, g, b, max, chroma);       // degrees
+                int sat = max == 0 ? 0 : chroma * 100 / max; // percent
+
+                // Local gradient: luma difference to the right and below neighbours
+                int luma = (r * 3 + g * 6 + b) / 10;
+                int grad = 0;
+                if (x + 1 < width) grad += Math.abs(luma - luma(argb[row + x + 1]));
+                if (y + 1 < height) grad += Math.abs(luma - luma(argb[row + width + x]));
+                gradAll += grad;
+
+                // Faces fill the top of a selfie; muddy water (a similar hue) sits low
+                if (y < half && hue >= 6 && hue <= 30 && sat >= 20 && sat <= 60 && max >= 180) {
+                    skin++;
+                } else if (hue >= 70 && hue <= 170 && sat >= 20 && max > 60) {
+                    green++;
+                }
+
+                if (y >= half) {
+                    gradLower += grad;
+                    if (hue >= 25 && hue <= 60 && sat >= 18 && sat <= 70 && max >= 60 && max <= 200) {
+                        brown++;
+                    } else if (sat < 20 && max >= 70 && max <= 210 && grad < 12) {
+                        greySmooth++;
+                    }
+                }
+            }
+        }
+
+        int n = width * height;
+        out[BROWN_WATER] = brown / (float) lowerCount;
+        out[GREY_SMOOTH] = greySmooth / (float) lowerCount;
+        out[LOWER_SMOOTHNESS] = 1f - Math.min(1f, gradLower / (float) lowerCount / 40f);
+        out[SKIN] = skin / (float) (half * width);
+        out[VEGETATION] = green / (float) n;
+        out[EDGE_DENSITY] = Math.min(1f, gradAll / (float) n / 40f);
+    }
+
+    /**
+     * Box-average {@code argb} down to {@link #SIZE} x {@link #SIZE}. On the
+     * device a scaled Bitmap does this; here for callers holding raw pixels.
+     */
+    public static int[] downsample(int[] argb, int width, int height) {
+        int[] out = new int[SIZE * SIZE];
+        for (int oy = 0; oy < SIZE; oy++) {
+            int y0 = oy * height / SIZE, y1 = Math.max(y0 + 1, (oy + 1) * height / SIZE);
+            for (int ox = 0; ox < SIZE; ox++) {
+                int x0 = ox * width / SIZE, x1 = Math.max(x0 + 1, (ox + 1) * width / SIZE);
+                long r = 0, g = 0, b = 0;
+                for (int y = y0; y < y1; y++) {
+                    int row = y * width;
+                    for (int x = x0; x < x1; x++) {
+                        int c = argb[row + x];
+                        r += (c >> 16) & 0xFF;
+                        g += (c >> 8) & 0xFF;
+                        b += c & 0xFF;
+                    }
+                }
+                int cnt = (y1 - y0) * (x1 - x0);
+                out[oy * SIZE + ox] = 0xFF000000 | (int) (r / cnt) << 16 | (int) (g / cnt) << 8 | (int) (b / cnt);
+            }
+        }
+        return out;
+    }
+
+    private static int luma(int c) {
+        return (((c >> 16) & 0xFF) * 3 + ((c >> 8) & 0xFF) * 6 + (c & 0xFF)) / 10;
+    }
+
+    private static int hue(int r, int g, int b, int max, int chroma) {
+        if (chroma == 0) return 0;
+        int h;
+        if (max == r) h = 60 * (g - b) / chroma;
+        else if (max == g) h = 120 + 60 * (b - r) / chroma;
+        else h = 240 + 60 * (r - g) / chroma;
+        return h < 0 ? h + 360 : h;
+    }
+}
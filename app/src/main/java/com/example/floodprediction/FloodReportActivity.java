@@ -1,9 +1,10 @@
 package com.example.floodprediction;
 
 import android.Manifest;
+import android.content.Context;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.net.Uri;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.ArrayAdapter;
@@ -20,12 +21,15 @@ import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Activity where users can:
- * 1. Take a photo or pick from gallery
- * 2. Have Gemini AI verify if the image shows flooding
+ * 1. Take a photo or pick one or more from the gallery
+ * 2. Have Gemini AI verify if the images show flooding
  * 3. Submit confirmed flood reports to appear on the map
  *
  * Works on emulator: uses gallery picker (no physical camera needed).
@@ -39,7 +43,18 @@ public class FloodReportActivity extends AppCompatActivity {
     private TextView tvVerifyResult, tvFloodStatus;
     private Spinner spinnerLocation;
 
+    // Not tied to the activity, so a save finishes even if it's closed
+    private static final ExecutorService saveExecutor = Executors.newSingleThreadExecutor();
+
+    // Most photos picked at once: one multi-image request's worth
+    private static final int MAX_PHOTOS = 6;
+
     private Bitmap selectedBitmap;
+    // The rest of a multi-photo pick, verified together with selectedBitmap
+    private final List<Bitmap> morePhotos = new ArrayList<>();
+    // Photos still being verified; one replaced meanwhile is released when its verdict comes back
+    private final List<Bitmap> verifying = new ArrayList<>();
+    private Long selectedPhotoHash;
     private boolean floodConfirmed = false;
     private String detectedSeverity = "MEDIUM";
     private String detectedDescription = "";
@@ -58,21 +73,35 @@ public class FloodReportActivity extends AppCompatActivity {
             { 6.1254, 102.2381 }, { 6.1184, 100.3685 }, { 2.7258, 101.9424 }
     };
 
-    // Gallery picker
-    private final ActivityResultLauncher<String> pickImage = registerForActivityResult(
-            new ActivityResultContracts.GetContent(),
-            uri -> {
-                if (uri != null) {
-                    try {
-                        ivPhoto.setImageURI(uri);
-                        InputStream is = getContentResolver().openInputStream(uri);
-                        selectedBitmap = BitmapFactory.decodeStream(is);
-                        if (is != null)
-                            is.close();
-                        onImageSelected();
-                    } catch (Exception e) {
-                        Toast.makeText(this, "Failed to load image", Toast.LENGTH_SHORT).show();
-                    }
+    // Gallery picker: several photos of the same scene are verified in one go
+    private final ActivityResultLauncher<String> pickImages = registerForActivityResult(
+            new ActivityResultContracts.GetMultipleContents(),
+            uris -> {
+                if (uris == null || uris.isEmpty()) return;
+                List<Uri> picked = uris;
+                if (picked.size() > MAX_PHOTOS) {
+                    Toast.makeText(this, "Using the first " + MAX_PHOTOS + " photos", Toast.LENGTH_SHORT).show();
+                    picked = picked.subList(0, MAX_PHOTOS);
+                }
+                Bitmap[] loaded = new Bitmap[picked.size()];
+                int[] pending = { picked.size() };
+                for (int i = 0; i < picked.size(); i++) {
+                    int slot = i;
+                    ImageIngest.getInstance(this).load(picked.get(i), new ImageIngest.Callback() {
+                        @Override
+                        public void onImage(Bitmap bitmap) {
+                            loaded[slot] = bitmap;
+                            if (--pending[0] == 0) onImagesLoaded(loaded);
+                        }
+
+                        @Override
+                        public void onError(String error) {
+                            if (!isDestroyed()) {
+                                Toast.makeText(FloodReportActivity.this, error, Toast.LENGTH_SHORT).show();
+                            }
+                            if (--pending[0] == 0) onImagesLoaded(loaded);
+                        }
+                    });
                 }
             });
 
@@ -81,8 +110,8 @@ public class FloodReportActivity extends AppCompatActivity {
             new ActivityResultContracts.TakePicturePreview(),
             bitmap -> {
                 if (bitmap != null) {
-                    ivPhoto.setImageBitmap(bitmap);
-                    selectedBitmap = bitmap;
+                    showPhoto(bitmap);
+                    setMorePhotos(new ArrayList<>());
                     onImageSelected();
                 }
             });
@@ -135,7 +164,7 @@ public class FloodReportActivity extends AppCompatActivity {
                 requestCameraPermission.launch(Manifest.permission.CAMERA);
             }
         });
-        btnPickGallery.setOnClickListener(v -> pickImage.launch("image/*"));
+        btnPickGallery.setOnClickListener(v -> pickImages.launch("image/*"));
 
         // Verify button
         btnVerify.setOnClickListener(v -> verifyWithAI());
@@ -144,7 +173,43 @@ public class FloodReportActivity extends AppCompatActivity {
         btnSubmit.setOnClickListener(v -> submitReport());
     }
 
+    /** Show {@code bitmap} and return the one it replaces to the pool, unless it's being verified. */
+    private void showPhoto(Bitmap bitmap) {
+        Bitmap previous = selectedBitmap;
+        ivPhoto.setImageBitmap(bitmap);
+        selectedBitmap = bitmap;
+        if (previous != bitmap) releaseUnlessVerifying(previous);
+    }
+
+    /** Replace the rest of the pick, releasing the photos it drops. */
+    private void setMorePhotos(List<Bitmap> photos) {
+        for (Bitmap old : morePhotos) {
+            if (!photos.contains(old)) releaseUnlessVerifying(old);
+        }
+        morePhotos.clear();
+        morePhotos.addAll(photos);
+    }
+
+    private void releaseUnlessVerifying(Bitmap bitmap) {
+        if (bitmap != null && !verifying.contains(bitmap)) ImageIngest.getInstance(this).release(bitmap);
+    }
+
+    /** A gallery pick has loaded; slots that failed are null. The first photo is shown. */
+    private void onImagesLoaded(Bitmap[] loaded) {
+        List<Bitmap> photos = new ArrayList<>();
+        for (Bitmap b : loaded) {
+            if (b == null) continue;
+            if (isDestroyed()) ImageIngest.getInstance(this).release(b);
+            else photos.add(b);
+        }
+        if (photos.isEmpty()) return;
+        showPhoto(photos.get(0));
+        setMorePhotos(photos.subList(1, photos.size()));
+        onImageSelected();
+    }
+
     private void onImageSelected() {
+        selectedPhotoHash = null;
         btnVerify.setEnabled(true);
         layoutResult.setVisibility(View.GONE);
         btnSubmit.setVisibility(View.GONE);
@@ -160,11 +225,26 @@ public class FloodReportActivity extends AppCompatActivity {
         layoutResult.setVisibility(View.GONE);
         btnSubmit.setVisibility(View.GONE);
 
-        new GeminiHelper().analyzeFloodImage(
+        if (!morePhotos.isEmpty()) {
+            verifyAll();
+            return;
+        }
+        Bitmap photo = selectedBitmap;
+        verifying.add(photo);
+        GeminiHelper gemini = new GeminiHelper();
+        gemini.analyzeFloodImage(
                 BuildConfig.API_KEY,
-                selectedBitmap,
+                photo,
                 response -> {
                     runOnUiThread(() -> {
+                        verifying.remove(photo);
+                        if (photo != selectedBitmap) {
+                            // Replaced while being verified: the verdict is for the old photo
+                            if (!verifying.contains(photo)) ImageIngest.getInstance(this).release(photo);
+                            if (verifying.isEmpty()) progressVerify.setVisibility(View.GONE);
+                            return;
+                        }
+                        selectedPhotoHash = gemini.getLastPhotoHash();
                         progressVerify.setVisibility(View.GONE);
                         btnVerify.setEnabled(true);
                         layoutResult.setVisibility(View.VISIBLE);
@@ -177,30 +257,72 @@ public class FloodReportActivity extends AppCompatActivity {
                 });
     }
 
-    private void parseAIResponse(String response) {
-        String upper = response.toUpperCase();
-
-        if (upper.contains("FLOOD_DETECTED: YES") || upper.contains("FLOOD_DETECTED:YES")) {
-            floodConfirmed = true;
-
-            // Parse severity
-            if (upper.contains("SEVERITY: HIGH") || upper.contains("SEVERITY:HIGH")) {
-                detectedSeverity = "HIGH";
-            } else if (upper.contains("SEVERITY: MEDIUM") || upper.contains("SEVERITY:MEDIUM")) {
-                detectedSeverity = "MEDIUM";
-            } else {
-                detectedSeverity = "LOW";
+    /**
+     * Verify every photo of the pick in as few requests as the batch size
+     * allows. The scene counts as flooded if any photo shows a flood; the
+     * report takes the most severe verdict and that photo's hash.
+     */
+    private void verifyAll() {
+        List<Bitmap> photos = new ArrayList<>();
+        photos.add(selectedBitmap);
+        photos.addAll(morePhotos);
+        verifying.addAll(photos);
+
+        String[] responses = new String[photos.size()];
+        Long[] hashes = new Long[photos.size()];
+        // Real multi-photo requests once an API key is configured; demo verdicts otherwise
+        GeminiHelper gemini = new GeminiHelper(GeminiHelper.DEMO_SOURCE,
+                BuildConfig.API_KEY.isEmpty() ? GeminiHelper.DEMO_BATCH_SOURCE : GeminiHelper.SDK_BATCH_SOURCE);
+        gemini.analyzeFloodImages(BuildConfig.API_KEY, photos, new GeminiHelper.BatchListener() {
+            @Override
+            public void onResult(int index, String response, String error, Long photoHash) {
+                responses[index] = response != null ? response : "⚠️ " + error;
+                hashes[index] = photoHash;
             }
 
-            // Parse description
-            int descIdx = upper.indexOf("DESCRIPTION:");
-            if (descIdx != -1) {
-                String desc = response.substring(descIdx + 12).trim();
-                int nl = desc.indexOf('\n');
-                detectedDescription = (nl != -1) ? desc.substring(0, nl).trim() : desc.trim();
-            } else {
-                detectedDescription = "Flood detected by AI";
+            @Override
+            public void onComplete() {
+                for (Bitmap photo : photos) verifying.remove(photo);
+                if (isDestroyed() || photos.get(0) != selectedBitmap) {
+                    // Replaced while being verified: the verdicts are for the old pick
+                    for (Bitmap photo : photos) {
+                        if (photo != selectedBitmap && !morePhotos.contains(photo)) releaseUnlessVerifying(photo);
+                    }
+                    if (verifying.isEmpty()) progressVerify.setVisibility(View.GONE);
+                    return;
+                }
+                progressVerify.setVisibility(View.GONE);
+                btnVerify.setEnabled(true);
+                layoutResult.setVisibility(View.VISIBLE);
+
+                StringBuilder text = new StringBuilder();
+                int chosen = 0, worstRank = -1;
+                for (int i = 0; i < responses.length; i++) {
+                    if (text.length() > 0) text.append("\n\n");
+                    text.append("Photo ").append(i + 1).append(":\n").append(responses[i]);
+                    DetectionResult result = DetectionResult.parse(responses[i]);
+                    int rank = FloodReportManager.severityRank(result.severity);
+                    if (result.isFlood() && rank > worstRank) {
+                        chosen = i;
+                        worstRank = rank;
+                    }
+                }
+                selectedPhotoHash = hashes[chosen];
+                parseAIResponse(responses[chosen]);
+                tvVerifyResult.setText(text);
             }
+        });
+    }
+
+    private void parseAIResponse(String response) {
+        DetectionResult result = DetectionResult.parse(response);
+
+        if (result.isFlood()) {
+            floodConfirmed = true;
+            detectedSeverity = result.severity != null ? result.severity : "LOW";
+            detectedDescription = result.description != null
+                    ? result.description
+                    : "Flood detected by AI";
 
             tvFloodStatus.setText("✅ FLOOD CONFIRMED — " + detectedSeverity + " severity");
             tvFloodStatus.setTextColor(getResources().getColor(
@@ -227,14 +349,25 @@ public class FloodReportActivity extends AppCompatActivity {
         double lon = COORDS[idx][1];
         String locationName = LOCATIONS[idx];
 
-        FloodReportManager.getInstance(this)
-                .saveReport(lat, lon, detectedSeverity, detectedDescription, locationName);
-
-        Toast.makeText(this,
-                "🚨 Flood report submitted for " + locationName + "!\nIt will appear on the map.",
-                Toast.LENGTH_LONG).show();
-
-        // Return to map
-        finish();
+        String severity = detectedSeverity, description = detectedDescription;
+        Long photoHash = selectedPhotoHash;
+        Context app = getApplicationContext();
+
+        // Saving opens the report database: off the main thread
+        btnSubmit.setEnabled(false);
+        saveExecutor.execute(() -> {
+            boolean linked = FloodReportManager.getInstance(app).saveReport(
+                    lat, lon, severity, description, locationName, photoHash);
+            runOnUiThread(() -> {
+                Toast.makeText(app,
+                        linked
+                                ? "📷 This scene was already reported — your photo was added to that report."
+                                : "🚨 Flood report submitted for " + locationName + "!\nIt will appear on the map.",
+                        Toast.LENGTH_LONG).show();
+
+                // Return to map
+                finish();
+            });
+        });
     }
 }
@@ -6,31 +6,66 @@ import android.content.SharedPreferences;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Manages user-submitted flood reports using SharedPreferences.
- * Reports are stored as a JSON array so they persist across sessions.
+ * Manages user-submitted flood reports. They are kept in a
+ * {@link ReportStore}: the indexed {@link SqliteReportStore}, or with
+ * {@link #USE_REPORT_LOG} the append-only, memory-mapped {@link ReportLog}.
+ * Reports saved by older versions as a JSON array in SharedPreferences are
+ * imported on first use. A {@link RetentionPolicy} decides how long reports
+ * stay; {@link ReportCompactionWorker} drops the rest in the background.
  *
- * For a real app, this would use Firebase/Cloud storage so all users
- * can see each other's reports. This local version works for demo/emulator.
+ * Reports are shared through Firestore by {@link ReportSync}: new reports
+ * and confirmations are queued locally and sent by {@link ReportSyncWorker}
+ * once online, which also pulls other users' reports around the device's
+ * location (or, without one, the first report saved here). Everything
+ * works offline meanwhile.
  */
 public class FloodReportManager {
 
     private static final String PREFS_NAME = "flood_reports";
-    private static final String KEY_REPORTS = "reports_json";
+    static final String KEY_REPORTS = "reports_json";
+    static final String KEY_REPORTS_UNREADABLE = "reports_json_unreadable";
+    private static final String KEY_RETENTION_TTL_PREFIX = "retention_ttl_";  // + severity
+    private static final String KEY_RETENTION_AREA = "retention_area_degrees";
+    private static final String KEY_RETENTION_MAX = "retention_max_per_area";
+
+    // Append-only binary log instead of SQLite: much faster to open with
+    // very large histories, but boxes are filtered by a scan, not an index.
+    // Off: retention keeps the history to what the map shows (at most
+    // maxPerArea per cell), and each marker needs the report's strings, so
+    // the map reads whole reports either way and SQLite's time index serves
+    // that in milliseconds. Worth switching on only if histories outgrow it.
+    private static final boolean USE_REPORT_LOG = false;
+    private static final String LOG_DIR = "report_log";
+    private static final String SYNC_DIR = "report_sync";
+
+    // Same photo (near-identical hash) within this window adds to the earlier report
+    private static final long DUPLICATE_WINDOW_MS = 12 * 60 * 60 * 1000L;
+    // ...if it was also reported this close, or under the same location name
+    private static final double DUPLICATE_RADIUS_M = 1000;
 
     private static FloodReportManager instance;
+    private final Context app;
     private final SharedPreferences prefs;
+    private final ReportStore store;
+    private final ReportSync sync;
+    private volatile RetentionPolicy retention;  // persisted in prefs
+    private PhotoHashIndex<FloodReport> photoIndex;  // photo hash -> report
 
     public static class FloodReport {
+        public long id;
         public double lat;
         public double lon;
         public String severity;    // HIGH, MEDIUM, LOW
         public String description;
         public String locationName;
         public long timestamp;
+        public int confirmations = 1;  // photos of the same scene linked to this report
+        public Long photoHash;         // perceptual hash of the first photo, if known
 
         public FloodReport(double lat, double lon, String severity,
                            String description, String locationName, long timestamp) {
@@ -44,10 +79,24 @@ public class FloodReportManager {
     }
 
     private FloodReportManager(Context context) {
-        prefs = context.getApplicationContext()
-                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        app = context.getApplicationContext();
+        prefs = app.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        retention = loadRetentionPolicy(prefs);
+        store = openStore(app);
+        importLegacyReports(prefs, store);
+        sync = new ReportSync(store, this, new FirestoreReportCloud(), new File(app.getFilesDir(), SYNC_DIR));
+    }
+
+    private static ReportStore openStore(Context app) {
+        if (USE_REPORT_LOG) {
+            try {
+                return new ReportLog(new File(app.getFilesDir(), LOG_DIR));
+            } catch (Exception ignored) {}
+        }
+        return new SqliteReportStore(app);
     }
 
+    /** The first call opens the store and imports old reports: keep it off the main thread. */
     public static synchronized FloodReportManager getInstance(Context context) {
         if (instance == null) {
             instance = new FloodReportManager(context);
@@ -60,56 +109,224 @@ public class FloodReportManager {
      */
     public void saveReport(double lat, double lon, String severity,
                            String description, String locationName) {
+        saveReport(lat, lon, severity, description, locationName, null);
+    }
+
+    /**
+     * Save a flood report for a photo with perceptual hash {@code photoHash}
+     * (null if unknown). A near-duplicate of a recent report's photo from
+     * the same place is linked to that report instead of adding another one;
+     * a similar photo of somewhere else is a report of its own.
+     *
+     * @return true if the photo was linked to an existing report
+     */
+    public synchronized boolean saveReport(double lat, double lon, String severity,
+                                           String description, String locationName, Long photoHash) {
         try {
-            JSONArray arr = loadArray();
-            JSONObject obj = new JSONObject();
-            obj.put("lat", lat);
-            obj.put("lon", lon);
-            obj.put("severity", severity);
-            obj.put("description", description);
-            obj.put("locationName", locationName);
-            obj.put("timestamp", System.currentTimeMillis());
-            arr.put(obj);
-
-            prefs.edit().putString(KEY_REPORTS, arr.toString()).apply();
+            if (photoHash != null) {
+                FloodReport existing = photoIndex().nearest(photoHash, PerceptualHash.DUPLICATE_DISTANCE,
+                        r -> samePlace(r, lat, lon, locationName));
+                if (existing != null && store.link(existing.id, severity)) {
+                    try {
+                        sync.queueConfirmation(existing, severity);
+                        ReportSyncWorker.requestSync(app);
+                    } catch (Exception ignored) {}  // linked locally either way
+                    return true;
+                }
+            }
+
+            FloodReport report = new FloodReport(lat, lon, severity, description, locationName,
+                    System.currentTimeMillis());
+            report.photoHash = photoHash;
+            store.insert(report);
+            if (photoHash != null && report.id > 0) {
+                photoIndex().add(photoHash, report, report.timestamp);
+            }
+            if (!sync.hasRegion()) sync.setRegion(lat, lon);
+            sync.queueReport(report);
+            ReportSyncWorker.requestSync(app);
         } catch (Exception ignored) {}
+        return false;
+    }
+
+    /** Within {@link #DUPLICATE_RADIUS_M} of the report, or under the same known location name. */
+    private static boolean samePlace(FloodReport r, double lat, double lon, String locationName) {
+        if (locationName != null && !"Unknown".equals(locationName)
+                && locationName.equalsIgnoreCase(r.locationName)) {
+            return true;
+        }
+        // Equirectangular approximation, plenty at this range
+        double dLat = Math.toRadians(lat - r.lat);
+        double dLon = Math.toRadians(lon - r.lon) * Math.cos(Math.toRadians((lat + r.lat) / 2));
+        return 6_371_000 * Math.hypot(dLat, dLon) <= DUPLICATE_RADIUS_M;
+    }
+
+    static int severityRank(String severity) {
+        return "HIGH".equals(severity) ? 2 : "MEDIUM".equals(severity) ? 1 : 0;
+    }
+
+    /** Photo hashes of reports inside the duplicate window, read once via the time index. */
+    private PhotoHashIndex<FloodReport> photoIndex() {
+        if (photoIndex == null) {
+            photoIndex = new PhotoHashIndex<>(DUPLICATE_WINDOW_MS, 512, System::currentTimeMillis);
+            long since = System.currentTimeMillis() - DUPLICATE_WINDOW_MS;
+            for (FloodReport r : store.between(since, Long.MAX_VALUE)) {
+                if (r.photoHash != null) photoIndex.add(r.photoHash, r, r.timestamp);
+            }
+        }
+        return photoIndex;
     }
 
     /**
-     * Get all saved flood reports.
+     * Get all saved flood reports, oldest first.
      */
     public List<FloodReport> getReports() {
-        List<FloodReport> list = new ArrayList<>();
+        return store.all();
+    }
+
+    /** Reports saved in {@code [fromMs, toMs)}, oldest first. */
+    public List<FloodReport> getReportsBetween(long fromMs, long toMs) {
+        return store.between(fromMs, toMs);
+    }
+
+    /**
+     * Reports inside the box (which must not cross the antimeridian) saved
+     * at or after {@code sinceMs}, oldest first.
+     */
+    public List<FloodReport> getReportsIn(double south, double west, double north, double east,
+                                          long sinceMs) {
+        return store.in(south, west, north, east, sinceMs);
+    }
+
+    /**
+     * One page of reports, newest first. Pass null for the first page and the
+     * last report of the previous page after that; an empty list is the end.
+     */
+    public List<FloodReport> getReportsPage(FloodReport after, int limit) {
+        return store.page(after, limit);
+    }
+
+    /** Reports the retention policy still keeps, oldest first: what the map shows. */
+    public List<FloodReport> getActiveReports() {
+        long now = System.currentTimeMillis();
+        return retention.keep(store.between(retention.oldestKept(now), Long.MAX_VALUE), now);
+    }
+
+    public RetentionPolicy getRetentionPolicy() {
+        return retention;
+    }
+
+    /** Use {@code policy} from now on, in this process and the next. */
+    public void setRetentionPolicy(RetentionPolicy policy) {
+        retention = policy;
+        SharedPreferences.Editor edit = prefs.edit();
+        for (String severity : new String[]{"LOW", "MEDIUM", "HIGH"}) {
+            edit.putLong(KEY_RETENTION_TTL_PREFIX + severity, policy.ttl(severity));
+        }
+        edit.putLong(KEY_RETENTION_AREA, Double.doubleToRawLongBits(policy.areaDegrees))
+                .putInt(KEY_RETENTION_MAX, policy.maxPerArea)
+                .apply();
+    }
+
+    /** The policy last passed to {@link #setRetentionPolicy}, or the default. */
+    private static RetentionPolicy loadRetentionPolicy(SharedPreferences prefs) {
+        RetentionPolicy d = RetentionPolicy.DEFAULT;
+        if (!prefs.contains(KEY_RETENTION_MAX)) return d;
+        return new RetentionPolicy(
+                prefs.getLong(KEY_RETENTION_TTL_PREFIX + "LOW", d.ttl("LOW")),
+                prefs.getLong(KEY_RETENTION_TTL_PREFIX + "MEDIUM", d.ttl("MEDIUM")),
+                prefs.getLong(KEY_RETENTION_TTL_PREFIX + "HIGH", d.ttl("HIGH")),
+                Double.longBitsToDouble(prefs.getLong(KEY_RETENTION_AREA,
+                        Double.doubleToRawLongBits(d.areaDegrees))),
+                prefs.getInt(KEY_RETENTION_MAX, d.maxPerArea));
+    }
+
+    /**
+     * Drop reports the retention policy no longer keeps and reclaim their
+     * space. Blocking; run by {@link ReportCompactionWorker}. Queries keep
+     * working meanwhile, new reports wait for it.
+     *
+     * @return how many reports were dropped
+     */
+    public synchronized int compact() {
+        int dropped = 0;
         try {
-            JSONArray arr = loadArray();
-            for (int i = 0; i < arr.length(); i++) {
-                JSONObject obj = arr.getJSONObject(i);
-                list.add(new FloodReport(
-                        obj.getDouble("lat"),
-                        obj.getDouble("lon"),
-                        obj.getString("severity"),
-                        obj.getString("description"),
-                        obj.optString("locationName", "Unknown"),
-                        obj.getLong("timestamp")
-                ));
-            }
+            dropped = store.compact(retention, System.currentTimeMillis());
         } catch (Exception ignored) {}
-        return list;
+        photoIndex = null;  // ids may have changed
+        return dropped;
+    }
+
+    /** Pull other users' reports around this point, normally the device's location. */
+    public void setSyncRegion(double lat, double lon) {
+        sync.setRegion(lat, lon);
+    }
+
+    /**
+     * Send queued reports and confirmations, then pull what changed nearby.
+     * Blocking; run by {@link ReportSyncWorker}.
+     *
+     * @return false if the cloud couldn't be reached; nothing is lost
+     */
+    public boolean sync() {
+        try {
+            sync.push();
+            if (sync.pull(retention, System.currentTimeMillis()) > 0) {
+                synchronized (this) {
+                    photoIndex = null;  // pulled photos count as duplicates too
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
     }
 
     /**
      * Clear all reports.
      */
-    public void clearReports() {
-        prefs.edit().remove(KEY_REPORTS).apply();
+    public synchronized void clearReports() {
+        store.clear();
+        photoIndex = null;
     }
 
-    private JSONArray loadArray() {
+    /**
+     * Move reports saved as a JSON array by older versions into the store,
+     * once. A blob that does not parse is kept under
+     * {@link #KEY_REPORTS_UNREADABLE} instead of being imported or deleted.
+     */
+    static void importLegacyReports(SharedPreferences prefs, ReportStore store) {
+        String json = prefs.getString(KEY_REPORTS, null);
+        if (json == null) return;
+        JSONArray arr;
         try {
-            String json = prefs.getString(KEY_REPORTS, "[]");
-            return new JSONArray(json);
+            arr = new JSONArray(json);
         } catch (Exception e) {
-            return new JSONArray();
+            prefs.edit().putString(KEY_REPORTS_UNREADABLE, json).remove(KEY_REPORTS).apply();
+            return;
         }
+        List<FloodReport> reports = new ArrayList<>();
+        for (int i = 0; i < arr.length(); i++) {
+            try {
+                JSONObject obj = arr.getJSONObject(i);
+                FloodReport report = new FloodReport(
+                        obj.getDouble("lat"),
+                        obj.getDouble("lon"),
+                        obj.getString("severity"),
+                        obj.getString("description"),
+                        obj.optString("locationName", "Unknown"),
+                        obj.getLong("timestamp")
+                );
+                report.confirmations = obj.optInt("confirmations", 1);
+                if (obj.has("photoHash")) {
+                    report.photoHash = Long.parseUnsignedLong(obj.optString("photoHash"), 16);
+                }
+                reports.add(report);
+            } catch (Exception ignored) {}  // skipped, as getReports() used to
+        }
+        try {
+            store.insertAll(reports);
+            prefs.edit().remove(KEY_REPORTS).apply();
+        } catch (Exception ignored) {}  // kept for the next start
     }
 }
@@ -0,0 +1,168 @@
+package com.example.floodprediction;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forecast steps in a RecyclerView.
+ *
+ * Rows are plain view models with every display string already built
+ * ({@link #buildRows}, called off the main thread), so binding is just
+ * setText. {@link ListAdapter} diffs each new list on a background thread
+ * and only rebinds steps that changed. The first screenful of cards can be
+ * inflated ahead of time with {@link #preInflate} so the first frame
+ * doesn't pay for it.
+ */
+public class ForecastAdapter extends ListAdapter<ForecastAdapter.Row, ForecastAdapter.ViewHolder> {
+
+    /** One forecast step, ready to bind. */
+    public static class Row {
+        final long time;
+        final String timeLabel;
+        final String description;
+        final String temperature;
+        final String rain;
+        final String wind;
+        final String humidity;
+        final String windLevel;
+        final String risk;
+        final int riskColor;  // color resource
+
+        Row(long time, String timeLabel, String description, String temperature, String rain,
+            String wind, String humidity, String windLevel, String risk, int riskColor) {
+            this.time = time;
+            this.timeLabel = timeLabel;
+            this.description = description;
+            this.temperature = temperature;
+            this.rain = rain;
+            this.wind = wind;
+            this.humidity = humidity;
+            this.windLevel = windLevel;
+            this.risk = risk;
+            this.riskColor = riskColor;
+        }
+
+        boolean sameContent(Row o) {
+            return timeLabel.equals(o.timeLabel) && description.equals(o.description)
+                    && temperature.equals(o.temperature) && rain.equals(o.rain)
+                    && wind.equals(o.wind) && humidity.equals(o.humidity)
+                    && windLevel.equals(o.windLevel) && risk.equals(o.risk)
+                    && riskColor == o.riskColor;
+        }
+    }
+
+    private static final DiffUtil.ItemCallback<Row> DIFF = new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row a, @NonNull Row b) {
+            return a.time == b.time;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row a, @NonNull Row b) {
+            return a.sameContent(b);
+        }
+    };
+
+    private final ArrayDeque<View> spareViews = new ArrayDeque<>();
+
+    public ForecastAdapter() {
+        super(DIFF);
+    }
+
+    /** Build the view models for {@code city}'s steps. Safe to call off the main thread. */
+    public static List<Row> buildRows(ForecastTable table, int city) {
+        List<Row> rows = new ArrayList<>(table.getStepCount(city));
+        for (int step = 0; step < table.getStepCount(city); step++) {
+            int r = table.row(city, step);
+            int color;
+            switch (table.getRiskLevel(r)) {
+                case ForecastTable.LEVEL_HIGH:
+                    color = R.color.risk_high;
+                    break;
+                case ForecastTable.LEVEL_MEDIUM:
+                    color = R.color.risk_medium;
+                    break;
+                default:
+                    color = R.color.risk_low;
+                    break;
+            }
+            rows.add(new Row(table.getTime(r),
+                    table.timeLabel(r),
+                    table.getDescription(r),
+                    String.format("🌡️ %.0f°C", table.getTemperature(r)),
+                    String.format("🌧️ %.0fmm", table.getRainfall(r)),
+                    String.format("💨 %.0fm/s", table.getWindSpeed(r)),
+                    "💧 " + table.getHumidity(r) + "%",
+                    ForecastTable.windLabel(table.getWindLevel(r)),
+                    "Risk: " + table.getRiskScore(r) + "/100",
+                    color));
+        }
+        return rows;
+    }
+
+    /**
+     * Inflate {@code count} cards on a background thread so the first
+     * {@link #onCreateViewHolder} calls pick up ready views.
+     */
+    public void preInflate(Context context, RecyclerView parent, int count) {
+        AsyncLayoutInflater inflater = new AsyncLayoutInflater(context);
+        for (int i = 0; i < count; i++) {
+            inflater.inflate(R.layout.item_forecast, parent,
+                    (view, resid, p) -> spareViews.add(view));
+        }
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = spareViews.poll();
+        if (view == null) {
+            view = LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.item_forecast, parent, false);
+        }
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        Row row = getItem(position);
+        holder.tvTime.setText(row.timeLabel);
+        holder.tvDesc.setText(row.description);
+        holder.tvTemp.setText(row.temperature);
+        holder.tvRain.setText(row.rain);
+        holder.tvWind.setText(row.wind);
+        holder.tvHumid.setText(row.humidity);
+        holder.tvWindLevel.setText(row.windLevel);
+        holder.tvRisk.setText(row.risk);
+        holder.tvRisk.setTextColor(holder.itemView.getResources().getColor(row.riskColor));
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvTime, tvDesc, tvTemp, tvRain, tvWind, tvHumid, tvWindLevel, tvRisk;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvTime = itemView.findViewById(R.id.tvForecastTime);
+            tvDesc = itemView.findViewById(R.id.tvForecastDesc);
+            tvTemp = itemView.findViewById(R.id.tvForecastTemp);
+            tvRain = itemView.findViewById(R.id.tvForecastRain);
+            tvWind = itemView.findViewById(R.id.tvForecastWind);
+            tvHumid = itemView.findViewById(R.id.tvForecastHumidity);
+            tvWindLevel = itemView.findViewById(R.id.tvForecastWindLevel);
+            tvRisk = itemView.findViewById(R.id.tvForecastRisk);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.floodprediction;
+
+/**
+ * Typed form of an AI forecast analysis, i.e. the text under each
+ * {@code [RISK_LEVEL]} ... {@code [STAY_SAFE]} tag. Missing sections are
+ * empty strings.
+ *
+ * Built with {@link Builder}, which is an {@link AiSectionParser.Listener},
+ * so the same single pass that fills the cards while streaming also yields
+ * the finished record.
+ */
+public final class ForecastAnalysis {
+
+    public static final String RISK_LEVEL = "[RISK_LEVEL]";
+    public static final String FORECAST_DATA = "[FORECAST_DATA]";
+    public static final String HOTSPOT_AREAS = "[HOTSPOT_AREAS]";
+    public static final String RECOMMENDATIONS = "[RECOMMENDATIONS]";
+    public static final String STAY_SAFE = "[STAY_SAFE]";
+
+    /** Section tags in the order the prompt asks for them. */
+    public static final String[] SECTIONS = {
+            RISK_LEVEL, FORECAST_DATA, HOTSPOT_AREAS, RECOMMENDATIONS, STAY_SAFE
+    };
+
+    public final String riskLevel;
+    public final String forecastData;
+    public final String hotspots;
+    public final String recommendations;
+    public final String staySafe;
+
+    ForecastAnalysis(String riskLevel, String forecastData, String hotspots,
+                     String recommendations, String staySafe) {
+        this.riskLevel = riskLevel;
+        this.forecastData = forecastData;
+        this.hotspots = hotspots;
+        this.recommendations = recommendations;
+        this.staySafe = staySafe;
+    }
+
+    /** HIGH, MEDIUM, LOW, or null if the risk text names none of them. */
+    public String level() {
+        return levelOf(riskLevel);
+    }
+
+    /** Risk level named in {@code text} (case-insensitive), scanning it once. */
+    public static String levelOf(String text) {
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = Character.toUpperCase(text.charAt(i));
+            if (c == 'H' && wordAt(text, i, DetectionResult.HIGH)) return DetectionResult.HIGH;
+            if (c == 'M' && wordAt(text, i, DetectionResult.MEDIUM)) return DetectionResult.MEDIUM;
+            if (c == 'L' && wordAt(text, i, DetectionResult.LOW)) return DetectionResult.LOW;
+        }
+        return null;
+    }
+
+    private static boolean wordAt(String text, int at, String word) {
+        if (text.length() - at < word.length()) return false;
+        if (at > 0 && Character.isLetter(text.charAt(at - 1))) return false;  // "below", "flow"
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.toUpperCase(text.charAt(at + i)) != word.charAt(i)) return false;
+        }
+        int end = at + word.length();
+        return end == text.length() || !Character.isLetter(text.charAt(end));  // "Lowland", "Higher"
+    }
+
+    public static ForecastAnalysis parse(CharSequence response) {
+        Builder b = new Builder();
+        AiSectionParser p = new AiSectionParser(SECTIONS, b);
+        p.feed(response);
+        p.finish();
+        return b.build();
+    }
+
+    /** Collects completed sections; pass it (or forward to it) as the parser listener. */
+    public static final class Builder implements AiSectionParser.Listener {
+        private String riskLevel = "", forecastData = "", hotspots = "",
+                recommendations = "", staySafe = "";
+
+        @Override
+        public void onSection(String tag, String text, boolean complete) {
+            if (!complete) return;
+            switch (tag) {
+                case RISK_LEVEL: riskLevel = text; break;
+                case FORECAST_DATA: forecastData = text; break;
+                case HOTSPOT_AREAS: hotspots = text; break;
+                case RECOMMENDATIONS: recommendations = text; break;
+                case STAY_SAFE: staySafe = text; break;
+            }
+        }
+
+        public ForecastAnalysis build() {
+            return new ForecastAnalysis(riskLevel, forecastData, hotspots, recommendations, staySafe);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.floodprediction;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Local cache of raw forecast JSON per city, filled in the background by
+ * {@link ForecastPrefetchWorker} so opening the app is a cache read instead
+ * of a network wait. Also remembers which cities the user looks at, which
+ * is the set the background job keeps fresh.
+ */
+public class ForecastCache {
+
+    private static final String PREFS_NAME = "forecast_cache";
+    private static final String KEY_SAVED_CITIES = "saved_cities";
+    private static final String KEY_JSON_PREFIX = "json_";
+    private static final String KEY_TIME_PREFIX = "time_";
+
+    /**
+     * A prefetched forecast stays usable until the slowest background tier
+     * is due to replace it, so a LOW-risk city never falls back to demo data
+     * between refreshes.
+     */
+    public static final long MAX_AGE_MS = ForecastPrefetchWorker.MAX_REFRESH_GAP_MS;
+
+    private static ForecastCache instance;
+    private final SharedPreferences prefs;
+    private final ObservationStore observations;
+
+    private ForecastCache(Context context) {
+        prefs = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        observations = ObservationStore.getInstance(context);
+    }
+
+    public static synchronized ForecastCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new ForecastCache(context);
+        }
+        return instance;
+    }
+
+    public void put(String city, String json) {
+        prefs.edit()
+                .putString(KEY_JSON_PREFIX + city, json)
+                .putLong(KEY_TIME_PREFIX + city, System.currentTimeMillis())
+                .apply();
+    }
+
+    /** Time the city's forecast was cached, or 0 if never. */
+    public long getFetchedAt(String city) {
+        return prefs.getLong(KEY_TIME_PREFIX + city, 0);
+    }
+
+    /**
+     * Cached forecast for {@code city} if it is younger than {@code maxAgeMs},
+     * otherwise null. Scored on top of the city's observation history.
+     */
+    public ForecastTable get(String city, long maxAgeMs) {
+        if (System.currentTimeMillis() - getFetchedAt(city) > maxAgeMs) return null;
+        String json = prefs.getString(KEY_JSON_PREFIX + city, null);
+        if (json == null) return null;
+        try {
+            return ForecastHelper.parseForecast(city, json, observations.history(city));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Highest risk score across the cached forecasts of the saved cities
+     * other than {@code except}, or 0 if none is cached. Parses JSON, so
+     * call it off the main thread.
+     */
+    public int maxSavedRisk(String except) {
+        int max = 0;
+        for (String city : getSavedCities()) {
+            if (city.equals(except)) continue;
+            ForecastTable table = get(city, MAX_AGE_MS);
+            if (table != null) max = Math.max(max, table.maxRisk(0));
+        }
+        return max;
+    }
+
+    /** Add a city to the set kept fresh in the background. */
+    public void rememberCity(String city) {
+        Set<String> cities = new HashSet<>(getSavedCities());
+        if (cities.add(city)) {
+            prefs.edit().putStringSet(KEY_SAVED_CITIES, cities).apply();
+        }
+    }
+
+    public Set<String> getSavedCities() {
+        Set<String> cities = prefs.getStringSet(KEY_SAVED_CITIES, null);
+        if (cities == null || cities.isEmpty()) {
+            cities = new HashSet<>();
+            cities.add(ForecastHelper.MALAYSIA_CITIES[0]);
+        }
+        return cities;
+    }
+}
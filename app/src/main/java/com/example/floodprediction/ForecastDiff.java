@@ -0,0 +1,101 @@
+package com.example.floodprediction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Step-by-step comparison of two forecasts for the same city.
+ *
+ * Steps are matched by their forecast time. A step only in the new table
+ * is {@link Type#ADDED}, only in the old one {@link Type#EXPIRED}, and in
+ * both but showing different values {@link Type#UPDATED}. Values are
+ * compared at display precision (whole degrees, mm and m/s), so refreshes
+ * of a stable forecast produce no changes at all.
+ *
+ * Changes come back in apply order: expirations by descending old
+ * position, then additions by ascending new position, then updates. A list
+ * mirroring the old steps becomes the new one by applying them in turn.
+ */
+public final class ForecastDiff {
+
+    public enum Type { ADDED, UPDATED, EXPIRED }
+
+    public static final class Change {
+        public final Type type;
+        public final long time;        // step time, epoch ms
+        public final int oldRow;       // -1 for ADDED
+        public final int newRow;       // -1 for EXPIRED
+        public final int position;     // new position, or old position for EXPIRED
+        public final boolean riskChanged;
+
+        Change(Type type, long time, int oldRow, int newRow, int position, boolean riskChanged) {
+            this.type = type;
+            this.time = time;
+            this.oldRow = oldRow;
+            this.newRow = newRow;
+            this.position = position;
+            this.riskChanged = riskChanged;
+        }
+    }
+
+    private ForecastDiff() {}
+
+    /**
+     * Changes turning {@code oldCity}'s steps in {@code old} into
+     * {@code newCity}'s steps in {@code next}. A null {@code old} means
+     * every step is added.
+     */
+    public static List<Change> diff(ForecastTable old, int oldCity, ForecastTable next, int newCity) {
+        List<Change> expired = new ArrayList<>();
+        List<Change> added = new ArrayList<>();
+        List<Change> updated = new ArrayList<>();
+
+        int oldCount = old == null ? 0 : old.getStepCount(oldCity);
+        int newCount = next.getStepCount(newCity);
+        int i = 0, j = 0;
+        while (i < oldCount || j < newCount) {
+            int oldRow = i < oldCount ? old.row(oldCity, i) : -1;
+            int newRow = j < newCount ? next.row(newCity, j) : -1;
+            long oldTime = oldRow >= 0 ? old.getTime(oldRow) : Long.MAX_VALUE;
+            long newTime = newRow >= 0 ? next.getTime(newRow) : Long.MAX_VALUE;
+
+            if (oldTime < newTime) {
+                expired.add(0, new Change(Type.EXPIRED, oldTime, oldRow, -1, i, true));
+                i++;
+            } else if (newTime < oldTime) {
+                added.add(new Change(Type.ADDED, newTime, -1, newRow, j, true));
+                j++;
+            } else {
+                boolean riskChanged = old.getRiskScore(oldRow) != next.getRiskScore(newRow);
+                if (riskChanged || !sameDisplay(old, oldRow, next, newRow)) {
+                    updated.add(new Change(Type.UPDATED, newTime, oldRow, newRow, j, riskChanged));
+                }
+                i++;
+                j++;
+            }
+        }
+
+        List<Change> changes = new ArrayList<>(expired.size() + added.size() + updated.size());
+        changes.addAll(expired);
+        changes.addAll(added);
+        changes.addAll(updated);
+        return changes;
+    }
+
+    /** True if any change can move the flood risk (and so alerts or scheduling). */
+    public static boolean affectsRisk(List<Change> changes) {
+        for (Change c : changes) {
+            if (c.riskChanged) return true;
+        }
+        return false;
+    }
+
+    private static boolean sameDisplay(ForecastTable a, int ra, ForecastTable b, int rb) {
+        return Math.round(a.getTemperature(ra)) == Math.round(b.getTemperature(rb))
+                && Math.round(a.getRainfall(ra)) == Math.round(b.getRainfall(rb))
+                && Math.round(a.getWindSpeed(ra)) == Math.round(b.getWindSpeed(rb))
+                && a.getHumidity(ra) == b.getHumidity(rb)
+                && a.getWindLevel(ra) == b.getWindLevel(rb)
+                && a.getDescription(ra).equals(b.getDescription(rb));
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.floodprediction;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically prefetches forecasts for the user's saved cities into
+ * {@link ForecastCache}.
+ *
+ * The schedule adapts to the flood risk seen in the last fetch: every hour
+ * when risk is HIGH, every 3 hours at MEDIUM, every 6 hours at LOW. Low-risk
+ * refreshes wait for an unmetered network; all tiers wait for the battery
+ * not to be low. WorkManager defers the job through Doze maintenance windows,
+ * so nothing here holds wake locks or uses exact alarms.
+ */
+public class ForecastPrefetchWorker extends Worker {
+
+    private static final String WORK_NAME = "forecast_prefetch";
+    private static final String PREFS_NAME = "forecast_prefetch";
+    private static final String KEY_TIER = "risk_tier";
+
+    private static final int TIER_LOW = 0;
+    private static final int TIER_MEDIUM = 1;
+    private static final int TIER_HIGH = 2;
+
+    private static final long[] INTERVAL_HOURS = {6, 3, 1};
+    private static final long FLEX_MINUTES_PER_HOUR = 15;  // flex: last quarter of the interval
+
+    /**
+     * Longest gap between two prefetches: the LOW tier's interval plus its
+     * flex window, since a run may land anywhere inside the flex.
+     */
+    public static final long MAX_REFRESH_GAP_MS =
+            INTERVAL_HOURS[TIER_LOW] * (60 + FLEX_MINUTES_PER_HOUR) * 60 * 1000;
+
+    public ForecastPrefetchWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String apiKey = BuildConfig.WEATHER_API_KEY;
+        if (apiKey == null || apiKey.isEmpty()) return Result.success();
+
+        // Pick up retuned risk rules before scoring this run
+        RiskModelLoader.ensureLoaded(getApplicationContext());
+        RiskModelLoader.refresh(getApplicationContext());
+
+        ForecastCache cache = ForecastCache.getInstance(getApplicationContext());
+        ObservationStore observations = ObservationStore.getInstance(getApplicationContext());
+        Set<String> cities = cache.getSavedCities();
+        ForecastTable table = new ForecastTable(cities.size(), ForecastHelper.MAX_STEPS);
+        int maxRisk = 0;
+        int failures = 0;
+        int total = 0;
+        boolean riskChanged = false;
+
+        for (String city : cities) {
+            if (isStopped()) return Result.retry();
+            total++;
+            try {
+                String json = ForecastHelper.downloadForecastJson(apiKey, city);
+                int index = table.addCity(city);
+                ForecastHelper.parseForecast(json, table, index, observations.history(city));
+
+                // Only risk-affecting deltas need re-tiering
+                ForecastTable previous = cache.get(city, Long.MAX_VALUE);
+                riskChanged |= previous == null
+                        || ForecastDiff.affectsRisk(ForecastDiff.diff(previous, 0, table, index));
+                cache.put(city, json);
+                maxRisk = Math.max(maxRisk, table.maxRisk(index));
+            } catch (Exception e) {
+                failures++;
+            }
+        }
+
+        if (total > 0 && failures == total) return Result.retry();
+        if (riskChanged) schedule(getApplicationContext(), maxRisk);
+        return Result.success();
+    }
+
+    /**
+     * Schedule (or re-tier) the periodic prefetch for the given flood risk
+     * score. Only touches WorkManager when the tier actually changes.
+     */
+    public static void schedule(Context context, int riskScore) {
+        String level = RiskScorer.level(riskScore);
+        int tier = level.equals("HIGH") ? TIER_HIGH : level.equals("MEDIUM") ? TIER_MEDIUM : TIER_LOW;
+        SharedPreferences prefs = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getInt(KEY_TIER, -1) == tier) return;
+
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(tier == TIER_LOW ? NetworkType.UNMETERED : NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+
+        long hours = INTERVAL_HOURS[tier];
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                ForecastPrefetchWorker.class,
+                hours, TimeUnit.HOURS,
+                hours * FLEX_MINUTES_PER_HOUR, TimeUnit.MINUTES)
+                .setConstraints(constraints)
+                .build();
+
+        // UPDATE keeps a running job alive instead of cancelling it
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.UPDATE, request);
+        prefs.edit().putInt(KEY_TIER, tier).apply();
+    }
+
+    /** Make sure the job exists; keeps the current tier if already scheduled. */
+    public static void ensureScheduled(Context context) {
+        SharedPreferences prefs = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getInt(KEY_TIER, -1) < 0) schedule(context, 0);
+    }
+}
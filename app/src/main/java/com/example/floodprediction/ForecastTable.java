@@ -0,0 +1,272 @@
+package com.example.floodprediction;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Forecasts for many cities in primitive columns.
+ *
+ * Row {@code city * stepsPerCity + step} holds one 3-hour forecast step.
+ * Wind and flood-risk levels are stored as byte codes, and descriptions and
+ * icons as indexes into a shared string pool, so a table of hundreds of
+ * locations x 40 steps is a few dozen arrays instead of thousands of
+ * objects. Display strings are built only when a row is bound or
+ * summarised.
+ *
+ * Filled on one thread, then read-only; publish it via a handler post or
+ * other happens-before edge.
+ */
+public class ForecastTable {
+
+    public static final byte LEVEL_LOW = 0;
+    public static final byte LEVEL_MEDIUM = 1;
+    public static final byte LEVEL_HIGH = 2;
+    private static final String[] LEVEL_NAMES = {"LOW", "MEDIUM", "HIGH"};
+
+    public static final byte WIND_LIGHT = 0;
+    public static final byte WIND_MODERATE = 1;
+    public static final byte WIND_STRONG = 2;
+    public static final byte WIND_STORM = 3;
+    private static final String[] WIND_LABELS = {"🟢 LIGHT", "🟡 MODERATE", "🟠 STRONG", "🔴 STORM"};
+    private static final String[] WIND_WARNINGS = {
+            "Light winds. Normal conditions.",
+            "Moderate winds. Be cautious outdoors.",
+            "Strong winds expected. Secure loose objects.",
+            "Dangerous winds! Stay indoors."
+    };
+
+    private final int stepsPerCity;
+    private String[] cities;
+    private int[] stepCount;
+    private int cityCount;
+    private final Map<String, Integer> cityIndex = new HashMap<>();
+
+    private long[] time;          // epoch ms
+    private float[] temperature;  // °C
+    private float[] windSpeed;    // m/s
+    private float[] windGust;     // m/s
+    private float[] rainfall;     // mm (3h)
+    private byte[] humidity;      // %
+    private byte[] clouds;        // %
+    private short[] windDeg;      // degrees
+    private short[] condition;    // OWM weather id
+    private short[] description;  // index into strings
+    private short[] icon;         // index into strings
+    private byte[] riskScore;     // 0-100
+    private byte[] riskLevel;     // LEVEL_*
+    private byte[] windLevel;     // WIND_*
+
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("EEE HH:mm", Locale.US);
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Short> stringIndex = new HashMap<>();
+
+    public ForecastTable(int cityCapacity, int stepsPerCity) {
+        this.stepsPerCity = stepsPerCity;
+        allocate(Math.max(1, cityCapacity));
+    }
+
+    private void allocate(int cityCapacity) {
+        int rows = cityCapacity * stepsPerCity;
+        cities = cities == null ? new String[cityCapacity] : Arrays.copyOf(cities, cityCapacity);
+        stepCount = stepCount == null ? new int[cityCapacity] : Arrays.copyOf(stepCount, cityCapacity);
+        time = time == null ? new long[rows] : Arrays.copyOf(time, rows);
+        temperature = temperature == null ? new float[rows] : Arrays.copyOf(temperature, rows);
+        windSpeed = windSpeed == null ? new float[rows] : Arrays.copyOf(windSpeed, rows);
+        windGust = windGust == null ? new float[rows] : Arrays.copyOf(windGust, rows);
+        rainfall = rainfall == null ? new float[rows] : Arrays.copyOf(rainfall, rows);
+        humidity = humidity == null ? new byte[rows] : Arrays.copyOf(humidity, rows);
+        clouds = clouds == null ? new byte[rows] : Arrays.copyOf(clouds, rows);
+        windDeg = windDeg == null ? new short[rows] : Arrays.copyOf(windDeg, rows);
+        condition = condition == null ? new short[rows] : Arrays.copyOf(condition, rows);
+        description = description == null ? new short[rows] : Arrays.copyOf(description, rows);
+        icon = icon == null ? new short[rows] : Arrays.copyOf(icon, rows);
+        riskScore = riskScore == null ? new byte[rows] : Arrays.copyOf(riskScore, rows);
+        riskLevel = riskLevel == null ? new byte[rows] : Arrays.copyOf(riskLevel, rows);
+        windLevel = windLevel == null ? new byte[rows] : Arrays.copyOf(windLevel, rows);
+    }
+
+    // ── Building ─────────────────────────────────────────────────
+
+    /** Index of {@code city}, adding it if new. */
+    public int addCity(String city) {
+        int existing = cityIndex(city);
+        if (existing >= 0) return existing;
+        if (cityCount == cities.length) allocate(cities.length * 2);
+        cities[cityCount] = city;
+        stepCount[cityCount] = 0;
+        cityIndex.put(city, cityCount);
+        return cityCount++;
+    }
+
+    /** Append a step to {@code city}; returns its row, or -1 if the city is full. */
+    public int addStep(int city, long timeMs, double temp, int humidityPct,
+                       double wind, double gust, int deg, double rainMm, int cloudsPct,
+                       int conditionCode, String desc, String iconCode) {
+        if (stepCount[city] == stepsPerCity) return -1;
+        int row = city * stepsPerCity + stepCount[city]++;
+        time[row] = timeMs;
+        temperature[row] = (float) temp;
+        humidity[row] = (byte) Math.max(0, Math.min(100, humidityPct));
+        windSpeed[row] = (float) wind;
+        windGust[row] = (float) gust;
+        windDeg[row] = (short) deg;
+        rainfall[row] = (float) rainMm;
+        clouds[row] = (byte) Math.max(0, Math.min(100, cloudsPct));
+        condition[row] = (short) conditionCode;
+        description[row] = intern(desc);
+        icon[row] = intern(iconCode);
+        windLevel[row] = wind >= 20 ? WIND_STORM : wind >= 14 ? WIND_STRONG
+                : wind >= 8 ? WIND_MODERATE : WIND_LIGHT;
+        return row;
+    }
+
+    /** Forget {@code city}'s steps so it can be refilled. */
+    public void clearCity(int city) {
+        stepCount[city] = 0;
+    }
+
+    /** Score every step of {@code city} in one batch. */
+    public void scoreCity(int city) {
+        scoreCity(city, null);
+    }
+
+    /**
+     * Score every step of {@code city} with antecedent rainfall: each step's
+     * rain and humidity are added to {@code history} (the station's
+     * observations so far, advanced in place) before it is scored, so a
+     * step sees the forecast rain that precedes it. Null scores in one batch
+     * without history.
+     */
+    public void scoreCity(int city, ObservationHistory history) {
+        int n = stepCount[city];
+        int first = city * stepsPerCity;
+        if (history != null) {
+            for (int row = first; row < first + n; row++) {
+                history.record(time[row], rainfall[row], 3, humidity[row]);
+                store(row, RiskScorer.score(rainfall[row], humidity[row], windSpeed[row], clouds[row],
+                        condition[row], history.features()));
+            }
+            return;
+        }
+
+        RiskScorer.Observations obs = new RiskScorer.Observations(n);
+        for (int row = first; row < first + n; row++) {
+            obs.add(rainfall[row], humidity[row], windSpeed[row], clouds[row], condition[row]);
+        }
+        int[] scores = new int[n];
+        RiskScorer.scoreBatch(obs, scores);
+        for (int i = 0; i < n; i++) store(first + i, scores[i]);
+    }
+
+    private void store(int row, int score) {
+        // A byte wraps above 127; models promise 0-100 but nothing enforces it
+        riskScore[row] = (byte) Math.max(0, Math.min(100, score));
+        riskLevel[row] = levelOf(score);
+    }
+
+    private short intern(String s) {
+        if (s == null) s = "";
+        Short index = stringIndex.get(s);
+        if (index == null) {
+            index = (short) strings.size();
+            strings.add(s);
+            stringIndex.put(s, index);
+        }
+        return index;
+    }
+
+    public static byte levelOf(int score) {
+        switch (RiskScorer.level(score)) {
+            case "HIGH": return LEVEL_HIGH;
+            case "MEDIUM": return LEVEL_MEDIUM;
+            default: return LEVEL_LOW;
+        }
+    }
+
+    // ── Reading ──────────────────────────────────────────────────
+
+    public int getCityCount() {
+        return cityCount;
+    }
+
+    public String getCity(int city) {
+        return cities[city];
+    }
+
+    public int cityIndex(String city) {
+        Integer index = cityIndex.get(city);
+        return index == null ? -1 : index;
+    }
+
+    public int getStepCount(int city) {
+        return stepCount[city];
+    }
+
+    public int row(int city, int step) {
+        return city * stepsPerCity + step;
+    }
+
+    public long getTime(int row) { return time[row]; }
+    public float getTemperature(int row) { return temperature[row]; }
+    public int getHumidity(int row) { return humidity[row]; }
+    public float getWindSpeed(int row) { return windSpeed[row]; }
+    public float getWindGust(int row) { return windGust[row]; }
+    public int getWindDeg(int row) { return windDeg[row]; }
+    public float getRainfall(int row) { return rainfall[row]; }
+    public int getClouds(int row) { return clouds[row]; }
+    public int getCondition(int row) { return condition[row]; }
+    public int getRiskScore(int row) { return riskScore[row]; }
+    public byte getRiskLevel(int row) { return riskLevel[row]; }
+    public byte getWindLevel(int row) { return windLevel[row]; }
+    public String getDescription(int row) { return strings.get(description[row]); }
+    public String getIcon(int row) { return strings.get(icon[row]); }
+
+    /** Highest risk score across {@code city}'s steps. */
+    public int maxRisk(int city) {
+        int max = 0;
+        int first = city * stepsPerCity;
+        for (int row = first; row < first + stepCount[city]; row++) {
+            max = Math.max(max, riskScore[row]);
+        }
+        return max;
+    }
+
+    // ── Display strings, built on demand ────────────────────────
+
+    public static String levelName(byte level) {
+        return LEVEL_NAMES[level];
+    }
+
+    public static String windLabel(byte level) {
+        return WIND_LABELS[level];
+    }
+
+    public static String windWarning(byte level) {
+        return WIND_WARNINGS[level];
+    }
+
+    /** e.g. "Tue 15:00" in the device's time zone. */
+    public String timeLabel(int row) {
+        synchronized (timeFormat) {  // bound on the main thread, summarised off it
+            return timeFormat.format(new Date(time[row]));
+        }
+    }
+
+    /** One line per step for Gemini to analyse. */
+    public void appendSummary(int row, StringBuilder sb) {
+        sb.append(timeLabel(row)).append(": ").append(getDescription(row))
+                .append(", Temp=").append(temperature[row]).append("°C")
+                .append(", Rain=").append(rainfall[row]).append("mm")
+                .append(", Humidity=").append(humidity[row]).append('%')
+                .append(", Wind=").append(windSpeed[row]).append("m/s (gust ")
+                .append(windGust[row]).append("m/s)")
+                .append(", Clouds=").append(clouds[row]).append('%');
+    }
+}
@@ -3,58 +3,362 @@ package com.example.floodprediction
 import android.graphics.Bitmap
 import android.os.Handler
 import android.os.Looper
+import com.google.ai.client.generativeai.GenerativeModel
+import com.google.ai.client.generativeai.type.PromptBlockedException
+import com.google.ai.client.generativeai.type.ResponseStoppedException
+import com.google.ai.client.generativeai.type.SerializationException
+import com.google.ai.client.generativeai.type.content
+import java.util.concurrent.Executors
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
 
-class GeminiHelper {
+class GeminiHelper @JvmOverloads constructor(
+    private val source: ContentSource = DEMO_SOURCE,
+    private val batchSource: BatchSource = DEMO_BATCH_SOURCE
+) {
 
-    private val mainHandler = Handler(Looper.getMainLooper())
+    /** Where streamed answer text comes from. */
+    fun interface ContentSource {
+        fun stream(apiKey: String, prompt: String): Flow<String>
+    }
 
-    // ─── Hardcoded flood analysis response ───────────────────────────────────
-    private val hardcodedFloodImageResponse = """
-        FLOOD_DETECTED: YES
-        SEVERITY: HIGH
-        CONFIDENCE: 92%
-        DESCRIPTION: The image shows severe flooding with water levels exceeding 1 metre, submerging vehicles and ground floor structures.
-        SAFETY_TIP: Move immediately to higher ground and avoid contact with floodwater as it may be contaminated or electrically charged.
-    """.trimIndent()
+    /** Java-side receiver for [streamContent]. All calls arrive on the main thread. */
+    interface StreamListener {
+        fun onChunk(chunk: String)
+        fun onComplete()
+        fun onError(error: String)
+    }
 
-    // ─── Hardcoded forecast analysis response ────────────────────────────────
-    private val hardcodedForecastResponse = """
-        ⚠️ FLOOD RISK ASSESSMENT — KUALA LUMPUR
+    fun interface Cancellable {
+        fun cancel()
+    }
 
-        RISK LEVEL: HIGH
+    /** Sends several encoded photos in one request and returns the raw reply. Blocking. */
+    fun interface BatchSource {
+        fun verify(apiKey: String, images: List<ImageUploadEncoder.Payload>): String
+    }
 
-        Based on current forecast data:
-        • Heavy rainfall expected over the next 24 hours (35–50 mm)
-        • Humidity levels at 92–95% — ground already saturated
-        • Wind gusts up to 25 m/s may cause flash flooding in low-lying areas
+    /** Java-side receiver for [analyzeFloodImages]. All calls arrive on the main thread. */
+    interface BatchListener {
+        /**
+         * Answer for photo [index] in the usual format, or null and why it
+         * couldn't be verified; [photoHash] is its perceptual hash, if known.
+         */
+        fun onResult(index: Int, response: String?, error: String?, photoHash: Long?)
 
-        HOTSPOT AREAS: Klang Valley, Ampang, Petaling Jaya
+        /** Every photo has had its [onResult]. */
+        fun onComplete()
+    }
 
-        RECOMMENDATIONS:
-        1. Avoid low-lying and flood-prone areas
-        2. Do not cross flooded roads — 15 cm of water can sweep a person
-        3. Prepare emergency kit: water, torch, first aid, documents
-        4. Monitor official alerts from JPS (Jabatan Pengairan dan Saliran)
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Main)
 
-        Stay safe. If in danger, press SOS immediately.
-    """.trimIndent()
+    private val mainHandler = Handler(Looper.getMainLooper())
+
+    /** Size of the last image upload and how long it took to encode. */
+    var lastUpload: ImageUploadEncoder.Payload? = null
+        private set
+
+    /**
+     * Answer to [prompt] as a stream of text chunks, in arrival order.
+     */
+    fun generateContentStream(apiKey: String, prompt: String): Flow<String> =
+        source.stream(apiKey, prompt)
+
+    /**
+     * [generateContentStream] for Java callers: chunks go to [listener] on
+     * the main thread as they arrive. Cancel the returned handle when the
+     * screen goes away.
+     */
+    fun streamContent(apiKey: String, prompt: String, listener: StreamListener): Cancellable {
+        val job = scope.launch {
+            try {
+                generateContentStream(apiKey, prompt).collect { listener.onChunk(it) }
+                listener.onComplete()
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                listener.onError(e.message ?: "AI request failed")
+            }
+        }
+        return Cancellable { job.cancel() }
+    }
 
     /**
-     * Returns a hardcoded flood forecast analysis — no API call needed.
+     * Whole forecast analysis in one callback, once the stream has finished.
      */
     fun generateContent(apiKey: String, prompt: String, callback: (String) -> Unit) {
-        // Simulate a short "thinking" delay so it feels natural
-        mainHandler.postDelayed({
-            callback(hardcodedForecastResponse)
-        }, 1200)
+        val text = StringBuilder()
+        streamContent(apiKey, prompt, object : StreamListener {
+            override fun onChunk(chunk: String) {
+                text.append(chunk)
+            }
+
+            override fun onComplete() = callback(text.toString())
+
+            override fun onError(error: String) = callback("⚠️ $error")
+        })
     }
 
+    /** How the last photo was decided; null until one has been analysed. */
+    var lastPreCheck: FloodPreClassifier.Result? = null
+        private set
+
+    /** Perceptual hash of the last analysed photo, for linking duplicate reports. */
+    var lastPhotoHash: Long? = null
+        private set
+
     /**
      * Returns a hardcoded flood image analysis — no API call needed.
+     * A near-duplicate of a recently analysed photo reuses that answer.
+     * The on-device pre-check is recorded in [lastPreCheck] but only answers
+     * when [FloodPreClassifier.answersLocally] allows it; the rest are
+     * compressed to the upload budget in the background so the payload the
+     * real request would send is measured.
      */
     fun analyzeFloodImage(apiKey: String, bitmap: Bitmap, callback: (String) -> Unit) {
-        mainHandler.postDelayed({
-            callback(hardcodedFloodImageResponse)
-        }, 1500)
+        encodeExecutor.execute {
+            val pixels = smallPixels(bitmap)
+            val size = FloodPreClassifier.SIZE
+            val hash = pixels?.let { PerceptualHash.pHash(it, size, size) }
+            lastPhotoHash = hash
+
+            val earlier = hash?.let { recentResults.nearest(it, PerceptualHash.DUPLICATE_DISTANCE) }
+            if (earlier != null) {
+                mainHandler.post { callback(earlier) }
+                return@execute
+            }
+
+            val check = pixels?.let { preClassifier.classify(it, size, size) }
+            lastPreCheck = check
+            val local = check?.let { localResponse(it) }
+            if (local != null) {
+                hash?.let { recentResults.add(it, local) }
+                mainHandler.post { callback(local) }
+                return@execute
+            }
+
+            lastUpload = try {
+                ImageUploadEncoder.getInstance().encode(bitmap)
+            } catch (e: Exception) {
+                null
+            }
+            hash?.let { recentResults.add(it, HARDCODED_FLOOD_IMAGE_RESPONSE) }
+            mainHandler.postDelayed({
+                callback(HARDCODED_FLOOD_IMAGE_RESPONSE)
+            }, 1500)
+        }
+    }
+
+    /**
+     * [analyzeFloodImage] for several photos at once. Recent duplicates and
+     * photos the pre-classifier may answer are answered straight away;
+     * the rest go out [BATCH_SIZE] to a request, with at most
+     * [MAX_CONCURRENT_BATCHES] requests in flight across the app. Photos the
+     * model skips or chokes on are retried without holding up the others.
+     */
+    fun analyzeFloodImages(apiKey: String, bitmaps: List<Bitmap>, listener: BatchListener) {
+        encodeExecutor.execute {
+            val size = FloodPreClassifier.SIZE
+            val hashes = arrayOfNulls<Long>(bitmaps.size)
+            val sent = ArrayList<Int>()
+            val payloads = ArrayList<ImageUploadEncoder.Payload>()
+
+            bitmaps.forEachIndexed { i, bitmap ->
+                val pixels = smallPixels(bitmap)
+                val hash = pixels?.let { PerceptualHash.pHash(it, size, size) }
+                hashes[i] = hash
+
+                val earlier = hash?.let { recentResults.nearest(it, PerceptualHash.DUPLICATE_DISTANCE) }
+                val local = if (earlier == null) pixels?.let { localResponse(preClassifier.classify(it, size, size)) } else null
+                if (local != null) hash?.let { recentResults.add(it, local) }
+                val known = earlier ?: local
+                if (known != null) {
+                    mainHandler.post { listener.onResult(i, known, null, hash) }
+                    return@forEachIndexed
+                }
+
+                try {
+                    payloads.add(ImageUploadEncoder.getInstance().encode(bitmap))
+                    sent.add(i)
+                } catch (e: Exception) {
+                    mainHandler.post { listener.onResult(i, null, "Could not read this photo", hash) }
+                }
+            }
+
+            if (payloads.isEmpty()) {
+                mainHandler.post { listener.onComplete() }
+                return@execute
+            }
+            batchVerifier.verify(payloads,
+                BatchVerifier.Call<ImageUploadEncoder.Payload> { batch -> batchSource.verify(apiKey, batch) },
+                object : BatchVerifier.Listener {
+                    override fun onResult(index: Int, answer: String?, error: String?) {
+                        val photo = sent[index]
+                        if (answer != null) hashes[photo]?.let { recentResults.add(it, answer) }
+                        mainHandler.post { listener.onResult(photo, answer, error, hashes[photo]) }
+                    }
+
+                    override fun onComplete(requests: Int) {
+                        mainHandler.post { listener.onComplete() }
+                    }
+                })
+        }
+    }
+
+    /** The photo as a [FloodPreClassifier.SIZE]-square ARGB buffer. */
+    private fun smallPixels(bitmap: Bitmap): IntArray? = try {
+        val size = FloodPreClassifier.SIZE
+        val small = Bitmap.createScaledBitmap(bitmap, size, size, true)
+        val pixels = IntArray(size * size)
+        small.getPixels(pixels, 0, size, 0, 0, size, size)
+        if (small !== bitmap) small.recycle()
+        pixels
+    } catch (e: Exception) {
+        null
+    }
+
+    /** The pre-check's answer in the model's format, or null to ask the model. */
+    private fun localResponse(check: FloodPreClassifier.Result): String? {
+        if (!preClassifier.answersLocally(check)) return null
+        return if (check.decision == FloodPreClassifier.Decision.FLOOD) """
+            FLOOD_DETECTED: YES
+            SEVERITY: MEDIUM
+            CONFIDENCE: ${Math.round(100 * check.probability)}%
+            DESCRIPTION: On-device check found standing water covering the lower part of the photo.
+            SAFETY_TIP: Avoid walking or driving through floodwater and move to higher ground if it is rising.
+        """.trimIndent() else """
+            FLOOD_DETECTED: NO
+            SEVERITY: LOW
+            CONFIDENCE: ${Math.round(100 * (1 - check.probability))}%
+            DESCRIPTION: On-device check found no standing water in this photo.
+            SAFETY_TIP: Photograph the affected street or area directly to report a flood.
+        """.trimIndent()
+    }
+
+    companion object {
+        private val encodeExecutor = Executors.newSingleThreadExecutor()
+        private val preClassifier = FloodPreClassifier()
+
+        // Verification answers for recent photos, by perceptual hash
+        private val recentResults = PhotoHashIndex<String>(
+            6 * 60 * 60 * 1000L, 256, PhotoHashIndex.Clock { System.currentTimeMillis() })
+
+        private const val MODEL_NAME = "gemini-1.5-flash"
+
+        // Photos per multi-image request, and requests in flight at once
+        private const val BATCH_SIZE = 6
+        private const val MAX_CONCURRENT_BATCHES = 2
+        private val batchVerifier = BatchVerifier(BATCH_SIZE, MAX_CONCURRENT_BATCHES, 2)
+
+        /** Live answers via the SDK's streaming generation. */
+        @JvmField
+        val SDK_SOURCE = ContentSource { apiKey, prompt ->
+            GenerativeModel(modelName = MODEL_NAME, apiKey = apiKey)
+                .generateContentStream(prompt)
+                .map { it.text.orEmpty() }
+        }
+
+        /**
+         * Hardcoded forecast analysis — no API call needed. Streamed in small
+         * chunks after a short "thinking" delay so it behaves like the real one.
+         */
+        @JvmField
+        val DEMO_SOURCE = ContentSource { _, _ ->
+            flow {
+                delay(600)
+                var i = 0
+                while (i < HARDCODED_FORECAST_RESPONSE.length) {
+                    val end = minOf(i + 24, HARDCODED_FORECAST_RESPONSE.length)
+                    emit(HARDCODED_FORECAST_RESPONSE.substring(i, end))
+                    i = end
+                    delay(40)
+                }
+            }
+        }
+
+        /**
+         * Every photo in one multimodal request, answered slot by slot. Refusals
+         * and unreadable replies are the photos' fault, so they split the batch;
+         * network and server errors don't.
+         */
+        @JvmField
+        val SDK_BATCH_SOURCE = BatchSource { apiKey, images ->
+            try {
+                runBlocking {
+                    GenerativeModel(modelName = MODEL_NAME, apiKey = apiKey)
+                        .generateContent(content {
+                            images.forEach { blob(it.mimeType, it.data) }
+                            text(batchPrompt(images.size))
+                        })
+                        .text.orEmpty()
+                }
+            } catch (e: PromptBlockedException) {
+                throw BatchVerifier.ContentException(e.message, e)
+            } catch (e: ResponseStoppedException) {
+                throw BatchVerifier.ContentException(e.message, e)
+            } catch (e: SerializationException) {
+                throw BatchVerifier.ContentException(e.message, e)
+            }
+        }
+
+        /** Hardcoded verdict for every photo, after a round trip's worth of delay. */
+        @JvmField
+        val DEMO_BATCH_SOURCE = BatchSource { _, images ->
+            Thread.sleep(1500L + 100L * images.size)
+            (1..images.size).joinToString("\n\n") {
+                BatchVerifier.slotTag(it) + "\n" + HARDCODED_FLOOD_IMAGE_RESPONSE
+            }
+        }
+
+        private fun batchPrompt(count: Int) = """
+            You are given $count photos, in order. For each one, decide whether it shows flooding.
+            Start the answer for each photo with its tag on a line of its own: ${BatchVerifier.slotTag(1)} for the first, ${BatchVerifier.slotTag(2)} for the second, and so on up to ${BatchVerifier.slotTag(count)}.
+            Under each tag write exactly:
+            FLOOD_DETECTED: YES or NO
+            SEVERITY: HIGH, MEDIUM or LOW
+            CONFIDENCE: 0-100%
+            DESCRIPTION: one sentence
+            SAFETY_TIP: one sentence
+        """.trimIndent()
+
+        // ─── Hardcoded flood analysis response ───────────────────────────────
+        private val HARDCODED_FLOOD_IMAGE_RESPONSE = """
+            FLOOD_DETECTED: YES
+            SEVERITY: HIGH
+            CONFIDENCE: 92%
+            DESCRIPTION: The image shows severe flooding with water levels exceeding 1 metre, submerging vehicles and ground floor structures.
+            SAFETY_TIP: Move immediately to higher ground and avoid contact with floodwater as it may be contaminated or electrically charged.
+        """.trimIndent()
+
+        // ─── Hardcoded forecast analysis response ────────────────────────────
+        private val HARDCODED_FORECAST_RESPONSE = """
+            [RISK_LEVEL]
+            HIGH RISK 🔴
+
+            [FORECAST_DATA]
+            Heavy rainfall of 35–50 mm is expected over the next 24 hours, peaking this afternoon. Humidity is at 92–95%, so the ground is already saturated, and wind gusts up to 25 m/s may cause flash flooding in low-lying areas.
+
+            [HOTSPOT_AREAS]
+            • Klang Valley — river overflow during sustained rain
+            • Ampang — low-lying residential streets
+            • Petaling Jaya — drainage backs up in heavy bursts
+
+            [RECOMMENDATIONS]
+            • Avoid low-lying and flood-prone areas
+            • Do not cross flooded roads — 15 cm of water can sweep a person
+            • Prepare emergency kit: water, torch, first aid, documents
+            • Monitor official alerts from JPS (Jabatan Pengairan dan Saliran)
+
+            [STAY_SAFE]
+            Stay safe. If in danger, press SOS immediately.
+        """.trimIndent()
     }
 }
@@ -0,0 +1,81 @@
+package com.example.floodprediction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Geohash strings: each extra character splits a cell into 32, and nearby
+ * points share a prefix. Used to ask the cloud for reports in a region with
+ * plain equality on a cell field.
+ */
+public final class Geohash {
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    private Geohash() {}
+
+    public static String encode(double lat, double lon, int precision) {
+        double south = -90, north = 90, west = -180, east = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean lonBit = true;
+        int bits = 0, value = 0;
+        while (hash.length() < precision) {
+            if (lonBit) {
+                double mid = (west + east) / 2;
+                if (lon >= mid) {
+                    value = value << 1 | 1;
+                    west = mid;
+                } else {
+                    value <<= 1;
+                    east = mid;
+                }
+            } else {
+                double mid = (south + north) / 2;
+                if (lat >= mid) {
+                    value = value << 1 | 1;
+                    south = mid;
+                } else {
+                    value <<= 1;
+                    north = mid;
+                }
+            }
+            lonBit = !lonBit;
+            if (++bits == 5) {
+                hash.append(BASE32.charAt(value));
+                bits = 0;
+                value = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /** Degrees of latitude one cell of {@code precision} characters spans. */
+    public static double cellHeight(int precision) {
+        return 180.0 / (1L << (5 * precision / 2));
+    }
+
+    /** Degrees of longitude one cell of {@code precision} characters spans. */
+    public static double cellWidth(int precision) {
+        return 360.0 / (1L << ((5 * precision + 1) / 2));
+    }
+
+    /** Every cell of {@code precision} characters the box touches, south-west first. */
+    public static List<String> cells(double south, double west, double north, double east,
+                                     int precision) {
+        double h = cellHeight(precision), w = cellWidth(precision);
+        south = Math.max(south, -90);
+        north = Math.min(north, 90 - h / 2);
+        long firstRow = (long) Math.floor((south + 90) / h), lastRow = (long) Math.floor((north + 90) / h);
+        long firstCol = (long) Math.floor((west + 180) / w), lastCol = (long) Math.floor((east + 180) / w);
+        List<String> cells = new ArrayList<>();
+        for (long row = firstRow; row <= lastRow; row++) {
+            for (long col = firstCol; col <= lastCol; col++) {
+                // Cell centres, wrapped across the antimeridian
+                double lon = (col + 0.5) * w - 180;
+                lon -= Math.floor((lon + 180) / 360) * 360;
+                cells.add(encode((row + 0.5) * h - 90, lon, precision));
+            }
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.floodprediction;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads picked flood photos at display/analysis size, off the main thread.
+ *
+ * Reads the image bounds first, then decodes at a power-of-two
+ * {@code inSampleSize} so the longest side is at most {@link #MAX_DIMENSION}
+ * (a 48 MP photo comes in at about 1000 x 750, ~3 MB instead of ~190 MB),
+ * applies the EXIF orientation, and decodes into a pooled bitmap when one
+ * fits. Callbacks run on the main thread.
+ */
+public class ImageIngest {
+
+    public static final int MAX_DIMENSION = 1280;
+    private static final long POOL_BYTES = 3L * MAX_DIMENSION * MAX_DIMENSION * 4; // ~3 photos
+
+    public interface Callback {
+        void onImage(Bitmap bitmap);
+        void onError(String error);
+    }
+
+    private static ImageIngest instance;
+
+    private final ContentResolver resolver;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final BitmapPool pool = new BitmapPool(POOL_BYTES);
+
+    private ImageIngest(Context context) {
+        resolver = context.getApplicationContext().getContentResolver();
+    }
+
+    public static synchronized ImageIngest getInstance(Context context) {
+        if (instance == null) {
+            instance = new ImageIngest(context);
+        }
+        return instance;
+    }
+
+    /** Decode {@code uri} in the background and deliver it on the main thread. */
+    public void load(Uri uri, Callback callback) {
+        executor.execute(() -> {
+            try {
+                Bitmap bitmap = decode(uri);
+                mainHandler.post(() -> callback.onImage(bitmap));
+            } catch (Exception | OutOfMemoryError e) {
+                mainHandler.post(() -> callback.onError("Failed to load image"));
+            }
+        });
+    }
+
+    /**
+     * Return a bitmap from a previous {@link #load} once nothing (views,
+     * pending analysis) uses it any more, so the next photo can reuse it.
+     */
+    public void release(Bitmap bitmap) {
+        pool.put(bitmap);
+    }
+
+    private Bitmap decode(Uri uri) throws Exception {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) throw new Exception("Not an image");
+
+        int sample = sampleSizeFor(bounds.outWidth, bounds.outHeight, MAX_DIMENSION);
+        int width = (bounds.outWidth + sample - 1) / sample;
+        int height = (bounds.outHeight + sample - 1) / sample;
+
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inSampleSize = sample;
+        opts.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        opts.inMutable = true;
+        Bitmap pooled = pool.get(width, height);
+        opts.inBitmap = pooled;
+
+        Bitmap bitmap = null;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            bitmap = BitmapFactory.decodeStream(in, null, opts);
+        } catch (IllegalArgumentException e) {
+            // Pooled bitmap not usable for this image; decode into a fresh one
+            opts.inBitmap = null;
+            try (InputStream in = resolver.openInputStream(uri)) {
+                bitmap = BitmapFactory.decodeStream(in, null, opts);
+            }
+        } finally {
+            // Not decoded into after all: keep it for the next photo
+            if (pooled != null && bitmap != pooled) pool.put(pooled);
+        }
+        if (bitmap == null) throw new Exception("Decode failed");
+
+        int orientation;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            orientation = new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (Exception e) {
+            orientation = ExifInterface.ORIENTATION_NORMAL;
+        }
+        return applyOrientation(bitmap, orientation);
+    }
+
+    /** Smallest power of two that brings the longest side down to {@code maxDim} or less. */
+    static int sampleSizeFor(int width, int height, int maxDim) {
+        int longest = Math.max(width, height);
+        int sample = 1;
+        while (longest / sample > maxDim) sample *= 2;
+        return sample;
+    }
+
+    private Bitmap applyOrientation(Bitmap bitmap, int orientation) {
+        Matrix m = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90: m.postRotate(90); break;
+            case ExifInterface.ORIENTATION_ROTATE_180: m.postRotate(180); break;
+            case ExifInterface.ORIENTATION_ROTATE_270: m.postRotate(270); break;
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL: m.postScale(-1, 1); break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL: m.postScale(1, -1); break;
+            case ExifInterface.ORIENTATION_TRANSPOSE: m.postRotate(90); m.postScale(-1, 1); break;
+            case ExifInterface.ORIENTATION_TRANSVERSE: m.postRotate(270); m.postScale(-1, 1); break;
+            default: return bitmap;
+        }
+        Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), m, true);
+        if (rotated != bitmap) pool.put(bitmap);
+        return rotated;
+    }
+}
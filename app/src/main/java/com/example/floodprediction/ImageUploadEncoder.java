@@ -0,0 +1,113 @@
+package com.example.floodprediction;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.SystemClock;
+
+/**
+ * Turns a picked flood photo into a small upload payload for AI verification.
+ *
+ * Scales the photo so its longest side is at most {@link #MAX_SIDE} (the
+ * model tiles images at 768 px, so more pixels only cost bandwidth), then
+ * encodes lossy WebP (JPEG below Android 11) at the highest quality that fits
+ * {@link #BUDGET_BYTES}. If even the lowest quality is too big the image is
+ * shrunk further. Output buffers are reused between photos. Call off the
+ * main thread.
+ */
+public class ImageUploadEncoder {
+
+    public static final int MAX_SIDE = 768;
+    public static final int BUDGET_BYTES = 120 * 1024; // ~10 s on a 100 kbit/s 2G link
+    private static final int MIN_QUALITY = 40;
+    private static final int MAX_QUALITY = 90;
+    private static final int MIN_SIDE = 256;
+
+    /** Encoded image plus what it cost to make. */
+    public static class Payload {
+        public final byte[] data;
+        public final String mimeType;
+        public final int width;
+        public final int height;
+        public final int quality;
+        public final int attempts;
+        public final long encodeMs;
+
+        Payload(byte[] data, String mimeType, int width, int height,
+                int quality, int attempts, long encodeMs) {
+            this.data = data;
+            this.mimeType = mimeType;
+            this.width = width;
+            this.height = height;
+            this.quality = quality;
+            this.attempts = attempts;
+            this.encodeMs = encodeMs;
+        }
+    }
+
+    private static ImageUploadEncoder instance;
+
+    private final QualitySearch search = new QualitySearch(BUDGET_BYTES + BUDGET_BYTES / 4);
+    private Payload last;
+
+    public static synchronized ImageUploadEncoder getInstance() {
+        if (instance == null) {
+            instance = new ImageUploadEncoder();
+        }
+        return instance;
+    }
+
+    public synchronized Payload encode(Bitmap source) throws Exception {
+        long start = SystemClock.elapsedRealtime();
+        Bitmap.CompressFormat format = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.JPEG;
+        String mime = format == Bitmap.CompressFormat.JPEG ? "image/jpeg" : "image/webp";
+
+        int side = MAX_SIDE;
+        int attempts = 0;
+        while (true) {
+            Bitmap scaled = scale(source, side);
+            int quality;
+            try {
+                quality = search.search(
+                        (q, out) -> scaled.compress(format, q, out),
+                        BUDGET_BYTES, MIN_QUALITY, MAX_QUALITY);
+            } finally {
+                if (scaled != source) scaled.recycle();
+            }
+            attempts += search.attempts();
+
+            if (quality >= 0 || side <= MIN_SIDE) {
+                last = new Payload(search.toByteArray(), mime, scaledWidth(source, side),
+                        scaledHeight(source, side), search.quality(), attempts,
+                        SystemClock.elapsedRealtime() - start);
+                return last;
+            }
+            side = Math.max(MIN_SIDE, side * 3 / 4);
+        }
+    }
+
+    /** The most recent payload, for showing encode time and size. */
+    public synchronized Payload getLast() {
+        return last;
+    }
+
+    private static Bitmap scale(Bitmap source, int side) {
+        int w = scaledWidth(source, side);
+        int h = scaledHeight(source, side);
+        if (w == source.getWidth() && h == source.getHeight()) return source;
+        return Bitmap.createScaledBitmap(source, w, h, true);
+    }
+
+    private static int scaledWidth(Bitmap source, int side) {
+        int longest = Math.max(source.getWidth(), source.getHeight());
+        if (longest <= side) return source.getWidth();
+        return Math.max(1, Math.round(source.getWidth() * (float) side / longest));
+    }
+
+    private static int scaledHeight(Bitmap source, int side) {
+        int longest = Math.max(source.getWidth(), source.getHeight());
+        if (longest <= side) return source.getHeight();
+        return Math.max(1, Math.round(source.getHeight() * (float) side / longest));
+    }
+}
@@ -1,10 +1,9 @@
 package com.example.floodprediction;
 
+import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
@@ -19,12 +18,17 @@ import androidx.activity.EdgeToEdge;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
-import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -43,7 +47,13 @@ public class MainActivity extends AppCompatActivity {
     private Spinner spinnerCity;
     private Button btnFetchForecast;
     private ProgressBar progressForecast;
-    private LinearLayout forecastContainer;
+    private RecyclerView forecastList;
+    private final ForecastAdapter forecastAdapter = new ForecastAdapter();
+    private final ExecutorService forecastExecutor = Executors.newSingleThreadExecutor();
+    private final TextRevealAnimator textReveal = new TextRevealAnimator();
+
+    private AiSectionParser aiSections;
+    private Runnable aiStream;
     private TextView tvAiAnalysis;
 
     // AI Analysis card views
@@ -59,30 +69,46 @@ public class MainActivity extends AppCompatActivity {
     private TextView tvOverallRisk, tvSafetyTips;
 
     private Bitmap selectedBitmap;
+    private final List<Bitmap> analyzing = new ArrayList<>();  // photos with an analysis running
 
     // Results tracking
     private String detectionResult = null;
     private String detectionSeverity = null;
     private int weatherRiskScore = -1;
     private int forecastMaxRisk = -1;
+
+    // Forecast currently on screen, diffed against each refresh
+    private ForecastTable shownForecast;
+    private int shownForecastCity;
+    private String shownForecastName;
     private String safetyTip = "";
 
     private final ActivityResultLauncher<String> pickImage = registerForActivityResult(
             new ActivityResultContracts.GetContent(),
             uri -> {
                 if (uri != null) {
-                    try {
-                        imageView.setImageURI(uri);
-                        InputStream inputStream = getContentResolver().openInputStream(uri);
-                        selectedBitmap = BitmapFactory.decodeStream(inputStream);
-                        if (inputStream != null)
-                            inputStream.close();
-                        btnAnalyze.setEnabled(true);
-                        tvDetectionResult.setText("Image selected. Tap Analyze to detect flood.");
-                        tvDetectionResult.setTextColor(getResources().getColor(R.color.text_secondary));
-                    } catch (Exception e) {
-                        Toast.makeText(this, "Failed to load image", Toast.LENGTH_SHORT).show();
-                    }
+                    ImageIngest.getInstance(this).load(uri, new ImageIngest.Callback() {
+                        @Override
+                        public void onImage(Bitmap bitmap) {
+                            if (isDestroyed()) return;
+                            Bitmap previous = selectedBitmap;
+                            imageView.setImageBitmap(bitmap);
+                            selectedBitmap = bitmap;
+                            // One still being analysed is released when its result comes back
+                            if (previous != null && !analyzing.contains(previous)) {
+                                ImageIngest.getInstance(MainActivity.this).release(previous);
+                            }
+                            btnAnalyze.setEnabled(true);
+                            tvDetectionResult.setText("Image selected. Tap Analyze to detect flood.");
+                            tvDetectionResult.setTextColor(getResources().getColor(R.color.text_secondary));
+                        }
+
+                        @Override
+                        public void onError(String error) {
+                            if (isDestroyed()) return;
+                            Toast.makeText(MainActivity.this, error, Toast.LENGTH_SHORT).show();
+                        }
+                    });
                 }
             });
 
@@ -113,7 +139,10 @@ public class MainActivity extends AppCompatActivity {
         spinnerCity = findViewById(R.id.spinnerCity);
         btnFetchForecast = findViewById(R.id.btnFetchForecast);
         progressForecast = findViewById(R.id.progressForecast);
-        forecastContainer = findViewById(R.id.forecastContainer);
+        forecastList = findViewById(R.id.forecastList);
+        forecastList.setLayoutManager(new LinearLayoutManager(this));
+        forecastList.setAdapter(forecastAdapter);
+        forecastAdapter.preInflate(this, forecastList, 4); // first screenful
         tvAiAnalysis = findViewById(R.id.tvAiAnalysis);
 
         // AI Analysis cards
@@ -138,6 +167,13 @@ public class MainActivity extends AppCompatActivity {
         setupWeatherRisk();
         setupForecast();
 
+        // Scoring rules from the installed model asset, then keep saved
+        // cities' forecasts warm, reports synced and old ones pruned in the background
+        RiskModelLoader.ensureLoaded(this);
+        ForecastPrefetchWorker.ensureScheduled(this);
+        ReportCompactionWorker.ensureScheduled(this);
+        ReportSyncWorker.ensureScheduled(this);
+
         // Quick-action navigation
         findViewById(R.id.btnOpenMap).setOnClickListener(v -> startActivity(new Intent(this, MapActivity.class)));
         findViewById(R.id.btnNavReport)
@@ -160,11 +196,22 @@ public class MainActivity extends AppCompatActivity {
                 btnAnalyze.setEnabled(false);
                 tvDetectionResult.setText("🔍 Analyzing image with AI...");
 
+                Bitmap photo = selectedBitmap;
+                analyzing.add(photo);
                 new GeminiHelper().analyzeFloodImage(
                         BuildConfig.API_KEY,
-                        selectedBitmap,
+                        photo,
                         response -> {
                             runOnUiThread(() -> {
+                                analyzing.remove(photo);
+                                if (photo != selectedBitmap) {
+                                    // Replaced while being analysed: the result is for the old photo
+                                    if (!analyzing.contains(photo)) {
+                                        ImageIngest.getInstance(MainActivity.this).release(photo);
+                                    }
+                                    if (analyzing.isEmpty()) progressBar.setVisibility(View.GONE);
+                                    return;
+                                }
                                 progressBar.setVisibility(View.GONE);
                                 btnAnalyze.setEnabled(true);
                                 tvDetectionResult.setText(response);
@@ -186,7 +233,7 @@ public class MainActivity extends AppCompatActivity {
             tvWeatherRisk.setText("🌍 Fetching weather data...");
 
             String weatherApiKey = BuildConfig.WEATHER_API_KEY;
-            WeatherHelper weatherHelper = new WeatherHelper();
+            WeatherHelper weatherHelper = new WeatherHelper(ObservationStore.getInstance(this));
 
             WeatherHelper.WeatherCallback callback = new WeatherHelper.WeatherCallback() {
                 @Override
@@ -214,32 +261,36 @@ public class MainActivity extends AppCompatActivity {
         btnFetchForecast.setOnClickListener(v -> {
             btnFetchForecast.setEnabled(false);
             progressForecast.setVisibility(View.VISIBLE);
-            forecastContainer.removeAllViews();
             tvAiAnalysis.setVisibility(View.GONE);
             aiAnalysisContainer.setVisibility(View.GONE);
 
             String city = spinnerCity.getSelectedItem().toString();
             String weatherApiKey = BuildConfig.WEATHER_API_KEY;
-            ForecastHelper forecastHelper = new ForecastHelper();
+            ForecastHelper forecastHelper = new ForecastHelper(ObservationStore.getInstance(this));
 
             ForecastHelper.ForecastCallback callback = new ForecastHelper.ForecastCallback() {
                 @Override
-                public void onResult(List<ForecastHelper.ForecastItem> items) {
+                public void onResult(ForecastTable table, int cityIndex) {
                     progressForecast.setVisibility(View.GONE);
                     btnFetchForecast.setEnabled(true);
-                    displayForecast(items);
+                    List<ForecastDiff.Change> changes = displayForecast(city, table, cityIndex);
 
                     // Use mock AI analysis (demo mode)
                     showMockAiAnalysis(city);
 
+                    // Stable forecast: nothing to re-assess or re-schedule
+                    if (forecastMaxRisk >= 0 && !ForecastDiff.affectsRisk(changes)) return;
+
                     // Track max risk for overall assessment
-                    forecastMaxRisk = 0;
-                    for (ForecastHelper.ForecastItem item : items) {
-                        if (item.floodRiskScore > forecastMaxRisk) {
-                            forecastMaxRisk = item.floodRiskScore;
-                        }
-                    }
+                    forecastMaxRisk = table.maxRisk(cityIndex);
                     updateOverallAssessment();
+
+                    // Refresh more often in the background while risk is high in
+                    // any saved city, not just this one: the worker tiers the same way
+                    int shownRisk = forecastMaxRisk;
+                    Context app = getApplicationContext();
+                    forecastExecutor.execute(() -> ForecastPrefetchWorker.schedule(app,
+                            Math.max(shownRisk, ForecastCache.getInstance(app).maxSavedRisk(city))));
                 }
 
                 @Override
@@ -250,53 +301,39 @@ public class MainActivity extends AppCompatActivity {
                 }
             };
 
-            // Always use demo data (no API key needed)
+            // Prefer the forecast prefetched in the background — no network wait
+            ForecastCache cache = ForecastCache.getInstance(this);
+            cache.rememberCity(city);
+            ForecastTable cached = cache.get(city, ForecastCache.MAX_AGE_MS);
+            if (cached != null) {
+                callback.onResult(cached, 0);
+                return;
+            }
+
+            // Otherwise use demo data (no API key needed)
             forecastHelper.fetchDemoForecast(callback);
         });
     }
 
-    private void displayForecast(List<ForecastHelper.ForecastItem> items) {
-        forecastContainer.removeAllViews();
-        LayoutInflater inflater = LayoutInflater.from(this);
-
-        for (ForecastHelper.ForecastItem item : items) {
-            View card = inflater.inflate(R.layout.item_forecast, forecastContainer, false);
-
-            TextView tvTime = card.findViewById(R.id.tvForecastTime);
-            TextView tvDesc = card.findViewById(R.id.tvForecastDesc);
-            TextView tvTemp = card.findViewById(R.id.tvForecastTemp);
-            TextView tvRain = card.findViewById(R.id.tvForecastRain);
-            TextView tvWind = card.findViewById(R.id.tvForecastWind);
-            TextView tvHumid = card.findViewById(R.id.tvForecastHumidity);
-            TextView tvWindLevel = card.findViewById(R.id.tvForecastWindLevel);
-            TextView tvRisk = card.findViewById(R.id.tvForecastRisk);
-
-            tvTime.setText(item.dateTime);
-            tvDesc.setText(item.description);
-            tvTemp.setText(String.format("🌡️ %.0f°C", item.temperature));
-            tvRain.setText(String.format("🌧️ %.0fmm", item.rainfall));
-            tvWind.setText(String.format("💨 %.0fm/s", item.windSpeed));
-            tvHumid.setText("💧 " + item.humidity + "%");
-            tvWindLevel.setText(item.windLevel);
-            tvRisk.setText("Risk: " + item.floodRiskScore + "/100");
-
-            // Color the risk based on level
-            int riskColor;
-            switch (item.floodRiskLevel) {
-                case "HIGH":
-                    riskColor = R.color.risk_high;
-                    break;
-                case "MEDIUM":
-                    riskColor = R.color.risk_medium;
-                    break;
-                default:
-                    riskColor = R.color.risk_low;
-                    break;
-            }
-            tvRisk.setTextColor(getResources().getColor(riskColor));
-
-            forecastContainer.addView(card);
-        }
+    /**
+     * Show {@code table}'s steps for {@code city}. View models are built on
+     * a background thread and the adapter diffs them against what is on
+     * screen, so only changed rows rebind. Returns the step changes since
+     * the last refresh, for risk re-assessment.
+     */
+    private List<ForecastDiff.Change> displayForecast(String name, ForecastTable table, int city) {
+        ForecastTable old = name.equals(shownForecastName) ? shownForecast : null;
+        List<ForecastDiff.Change> changes = ForecastDiff.diff(old, shownForecastCity, table, city);
+        shownForecast = table;
+        shownForecastCity = city;
+        shownForecastName = name;
+
+        forecastList.setVisibility(View.VISIBLE);
+        forecastExecutor.execute(() -> {
+            List<ForecastAdapter.Row> rows = ForecastAdapter.buildRows(table, city);
+            runOnUiThread(() -> forecastAdapter.submitList(rows));
+        });
+        return changes;
     }
 
     private void showMockAiAnalysis(String city) {
@@ -325,11 +362,10 @@ public class MainActivity extends AppCompatActivity {
         String mockStaySafe = "🌊 Stay safe, stay informed. Your family's safety comes first.\n" +
                 "If in doubt, evacuate early — don't wait for waters to rise.";
 
-        final android.os.Handler handler = new android.os.Handler(android.os.Looper.getMainLooper());
-        animateTextIntoView(tvAiForecastData, mockForecast, handler, 0);
-        animateTextIntoView(tvAiHotspots, mockHotspots, handler, 500);
-        animateTextIntoView(tvAiRecommendations, mockRecommendations, handler, 1000);
-        animateTextIntoView(tvAiStaySafe, mockStaySafe, handler, 1500);
+        textReveal.reveal(tvAiForecastData, mockForecast, 0);
+        textReveal.reveal(tvAiHotspots, mockHotspots, 500);
+        textReveal.reveal(tvAiRecommendations, mockRecommendations, 1000);
+        textReveal.reveal(tvAiStaySafe, mockStaySafe, 1500);
     }
 
     private void analyzeWithGemini(String city, String forecastSummary) {
@@ -358,76 +394,88 @@ public class MainActivity extends AppCompatActivity {
                 + "One short encouraging safety closing message.\n\n"
                 + forecastSummary;
 
-        new GeminiHelper().generateContent(
-                BuildConfig.API_KEY,
+        if (aiStream != null) aiStream.run();
+        aiSections = new AiSectionParser(ForecastAnalysis.SECTIONS, this::showAiSection);
+        // Same city + forecast window gives the same prompt: served from the cache
+        aiStream = AiAnalysisCache.shared(getCacheDir(), ContextCompat.getMainExecutor(this)).stream(
                 prompt,
-                response -> {
-                    runOnUiThread(() -> parseAndDisplayAiCards(response));
-                    return null;
-                });
-    }
+                (p, listener) -> {
+                    GeminiHelper.Cancellable call = new GeminiHelper().streamContent(
+                            BuildConfig.API_KEY, p, new GeminiHelper.StreamListener() {
+                                @Override
+                                public void onChunk(String chunk) {
+                                    listener.onChunk(chunk);
+                                }
+
+                                @Override
+                                public void onComplete() {
+                                    listener.onComplete();
+                                }
+
+                                @Override
+                                public void onError(String error) {
+                                    listener.onError(error);
+                                }
+                            });
+                    return call::cancel;
+                },
+                new AiAnalysisCache.Listener() {
+                    @Override
+                    public void onChunk(String chunk) {
+                        parseAndDisplayAiCards(chunk);
+                    }
 
-    private void parseAndDisplayAiCards(String response) {
-        String riskLevel = extractSection(response, "[RISK_LEVEL]", "[FORECAST_DATA]");
-        String forecastData = extractSection(response, "[FORECAST_DATA]", "[HOTSPOT_AREAS]");
-        String hotspots = extractSection(response, "[HOTSPOT_AREAS]", "[RECOMMENDATIONS]");
-        String recommendations = extractSection(response, "[RECOMMENDATIONS]", "[STAY_SAFE]");
-        String staySafe = extractSection(response, "[STAY_SAFE]", null);
+                    @Override
+                    public void onComplete() {
+                        aiSections.finish();
+                        aiStream = null;
+                    }
 
-        // Set risk level background color
-        String riskUpper = riskLevel.toUpperCase();
-        int riskColor;
-        if (riskUpper.contains("HIGH")) {
-            riskColor = getResources().getColor(R.color.risk_high);
-        } else if (riskUpper.contains("MEDIUM")) {
-            riskColor = getResources().getColor(R.color.risk_medium);
-        } else {
-            riskColor = getResources().getColor(R.color.risk_low);
-        }
-        tvAiRiskLevel.setBackgroundColor(riskColor);
-        tvAiRiskLevel.setText(riskLevel.isEmpty() ? "—" : riskLevel);
-
-        // Animate each text field separately with a stagger delay
-        final android.os.Handler handler = new android.os.Handler(android.os.Looper.getMainLooper());
-        animateTextIntoView(tvAiForecastData, forecastData, handler, 0);
-        animateTextIntoView(tvAiHotspots, hotspots, handler, 400);
-        animateTextIntoView(tvAiRecommendations, recommendations, handler, 800);
-        animateTextIntoView(tvAiStaySafe, staySafe, handler, 1200);
+                    @Override
+                    public void onError(String error) {
+                        tvAiRiskLevel.setText("—");
+                        tvAiForecastData.setText("⚠️ " + error);
+                        aiStream = null;
+                    }
+                });
     }
 
-    private String extractSection(String text, String startTag, String endTag) {
-        int start = text.indexOf(startTag);
-        if (start == -1)
-            return "";
-        start += startTag.length();
-        int end = endTag != null ? text.indexOf(endTag, start) : text.length();
-        if (end == -1)
-            end = text.length();
-        return text.substring(start, end).trim();
+    /** Feed one streamed chunk; each card fills in as soon as its tag arrives. */
+    private void parseAndDisplayAiCards(String chunk) {
+        aiSections.feed(chunk);
     }
 
-    private void animateTextIntoView(TextView view, String fullText, android.os.Handler handler, long startDelayMs) {
-        if (fullText == null || fullText.isEmpty())
-            return;
-        String[] words = fullText.split(" ");
-        new Thread(() -> {
-            try {
-                Thread.sleep(startDelayMs);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-            StringBuilder currentText = new StringBuilder();
-            for (String word : words) {
-                currentText.append(word).append(" ");
-                final String textToShow = currentText.toString();
-                handler.post(() -> view.setText(textToShow));
-                try {
-                    Thread.sleep(60);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+    private void showAiSection(String tag, String text, boolean complete) {
+        switch (tag) {
+            case ForecastAnalysis.RISK_LEVEL: {
+                String level = ForecastAnalysis.levelOf(text);
+                int riskColor;
+                if (DetectionResult.HIGH.equals(level)) {
+                    riskColor = getResources().getColor(R.color.risk_high);
+                } else if (DetectionResult.MEDIUM.equals(level)) {
+                    riskColor = getResources().getColor(R.color.risk_medium);
+                } else if (DetectionResult.LOW.equals(level)) {
+                    riskColor = getResources().getColor(R.color.risk_low);
+                } else {
+                    riskColor = getResources().getColor(R.color.risk_unknown);
                 }
+                tvAiRiskLevel.setBackgroundColor(riskColor);
+                tvAiRiskLevel.setText(text.isEmpty() ? "—" : text);
+                break;
             }
-        }).start();
+            case ForecastAnalysis.FORECAST_DATA:
+                tvAiForecastData.setText(text);
+                break;
+            case ForecastAnalysis.HOTSPOT_AREAS:
+                tvAiHotspots.setText(text);
+                break;
+            case ForecastAnalysis.RECOMMENDATIONS:
+                tvAiRecommendations.setText(text);
+                break;
+            case ForecastAnalysis.STAY_SAFE:
+                tvAiStaySafe.setText(text);
+                break;
+        }
     }
 
     // ===========================================
@@ -464,27 +512,15 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void parseDetectionResult(String response) {
-        String upper = response.toUpperCase();
-        if (upper.contains("FLOOD_DETECTED: YES") || upper.contains("FLOOD_DETECTED:YES")) {
-            detectionResult = "YES";
-        } else if (upper.contains("FLOOD_DETECTED: NO") || upper.contains("FLOOD_DETECTED:NO")) {
-            detectionResult = "NO";
+        DetectionResult result = DetectionResult.parse(response);
+        if (result.floodDetected != null) {
+            detectionResult = result.floodDetected ? "YES" : "NO";
         }
-
-        if (upper.contains("SEVERITY: HIGH") || upper.contains("SEVERITY:HIGH")) {
-            detectionSeverity = "HIGH";
-        } else if (upper.contains("SEVERITY: MEDIUM") || upper.contains("SEVERITY:MEDIUM")) {
-            detectionSeverity = "MEDIUM";
-        } else if (upper.contains("SEVERITY: LOW") || upper.contains("SEVERITY:LOW")) {
-            detectionSeverity = "LOW";
+        if (result.severity != null) {
+            detectionSeverity = result.severity;
         }
-
-        int tipIndex = upper.indexOf("SAFETY_TIP:");
-        if (tipIndex != -1) {
-            safetyTip = response.substring(tipIndex + 11).trim();
-            int newlineIndex = safetyTip.indexOf('\n');
-            if (newlineIndex != -1)
-                safetyTip = safetyTip.substring(0, newlineIndex);
+        if (result.safetyTip != null) {
+            safetyTip = result.safetyTip;
         }
     }
 
@@ -509,12 +545,13 @@ public class MainActivity extends AppCompatActivity {
         if (hasForecast)
             maxRisk = Math.max(maxRisk, forecastMaxRisk);
 
+        String riskLevel = RiskScorer.level(maxRisk);
         String overallLevel;
         int overallColor;
-        if (maxRisk >= 60) {
+        if (riskLevel.equals("HIGH")) {
             overallLevel = "🔴 HIGH FLOOD RISK";
             overallColor = R.color.risk_high;
-        } else if (maxRisk >= 30) {
+        } else if (riskLevel.equals("MEDIUM")) {
             overallLevel = "🟡 MODERATE FLOOD RISK";
             overallColor = R.color.risk_medium;
         } else {
@@ -530,11 +567,11 @@ public class MainActivity extends AppCompatActivity {
         if (!safetyTip.isEmpty()) {
             tips.append("💡 ").append(safetyTip);
         }
-        if (maxRisk >= 60) {
+        if (riskLevel.equals("HIGH")) {
             if (tips.length() > 0)
                 tips.append("\n");
             tips.append("🚨 FLOOD WARNING: Avoid low-lying areas and stay updated on local news.");
-        } else if (maxRisk >= 30) {
+        } else if (riskLevel.equals("MEDIUM")) {
             if (tips.length() > 0)
                 tips.append("\n");
             tips.append("⚠️ Stay alert and monitor weather conditions closely.");
@@ -546,4 +583,12 @@ public class MainActivity extends AppCompatActivity {
         }
         tvSafetyTips.setText(tips.toString());
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        forecastExecutor.shutdownNow();
+        textReveal.cancelAll();
+        if (aiStream != null) aiStream.run();
+    }
+}
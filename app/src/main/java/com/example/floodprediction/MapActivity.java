@@ -13,6 +13,7 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -21,14 +22,10 @@ import androidx.core.view.WindowInsetsCompat;
 import org.json.JSONObject;
 import org.osmdroid.api.IMapController;
 import org.osmdroid.config.Configuration;
-import org.osmdroid.tileprovider.MapTileProviderBasic;
-import org.osmdroid.tileprovider.tilesource.OnlineTileSourceBase;
-import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
-import org.osmdroid.tileprovider.tilesource.XYTileSource;
 import org.osmdroid.util.GeoPoint;
-import org.osmdroid.util.MapTileIndex;
 import org.osmdroid.views.MapView;
 import org.osmdroid.views.overlay.Marker;
+import org.osmdroid.views.overlay.Overlay;
 import org.osmdroid.views.overlay.Polygon;
 import org.osmdroid.views.overlay.TilesOverlay;
 
@@ -37,6 +34,7 @@ import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -56,9 +54,15 @@ public class MapActivity extends AppCompatActivity {
     private WindFieldOverlay windFieldOverlay;
     private boolean heatmapEnabled = false;
     private boolean windFieldEnabled = false;
+    private TextView tvMapStatus;
+    private ProgressiveBatcher<CityObservation> cityBatcher;
+    private final RainfallTileDecoder rainfallDecoder = new RainfallTileDecoder();
+    private final Handler rainfallHandler = new Handler(Looper.getMainLooper());
+    private final Runnable rainfallRefresh = this::loadRainfallRaster;
+    private int rainfallGeneration;  // bumped per load; older builds are discarded
 
     private final ExecutorService executor = Executors.newFixedThreadPool(4);
-    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Overlay> reportOverlays = new ArrayList<>();
 
     private static final double[][] CITIES = {
             {3.1390, 101.6869},   // Kuala Lumpur
@@ -81,6 +85,38 @@ public class MapActivity extends AppCompatActivity {
             "Melaka", "Kota Bharu", "Alor Setar", "Seremban"
     };
 
+    /** One city's current weather, produced on a worker thread. */
+    static class CityObservation {
+        final String name;
+        final double lat, lon;
+        final double windSpeed, windGust, windDeg;
+        final int humidity;
+        final double temp, rain;
+        final int clouds, condition;
+        final String desc;
+        final ObservationHistory.Features history;
+
+        CityObservation(String name, double lat, double lon,
+                        double windSpeed, double windGust, double windDeg,
+                        int humidity, double temp, double rain,
+                        int clouds, int condition, String desc,
+                        ObservationHistory.Features history) {
+            this.name = name;
+            this.lat = lat;
+            this.lon = lon;
+            this.windSpeed = windSpeed;
+            this.windGust = windGust;
+            this.windDeg = windDeg;
+            this.humidity = humidity;
+            this.temp = temp;
+            this.rain = rain;
+            this.clouds = clouds;
+            this.condition = condition;
+            this.desc = desc;
+            this.history = history;
+        }
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -102,6 +138,7 @@ public class MapActivity extends AppCompatActivity {
         tvDetailRain = findViewById(R.id.tvDetailRain);
         tvDetailFlood = findViewById(R.id.tvDetailFlood);
         tvDetailDesc = findViewById(R.id.tvDetailDesc);
+        tvMapStatus = findViewById(R.id.tvMapStatus);
 
         Button btnBack = findViewById(R.id.btnBack);
         Button btnRefresh = findViewById(R.id.btnRefreshMap);
@@ -110,9 +147,10 @@ public class MapActivity extends AppCompatActivity {
         Button btnRain = findViewById(R.id.btnLayerRain);
         Button btnHeatmap = findViewById(R.id.btnLayerHeatmap);
         Button btnReport = findViewById(R.id.btnReportFlood);
+        Button btnOffline = findViewById(R.id.btnOfflineMap);
 
-        // Map Setup
-        mapView.setTileSource(TileSourceFactory.MAPNIK);
+        // Map Setup — offline archive first, network only when available
+        OfflineMapManager.getInstance(this).setupMap(mapView);
         mapView.setMultiTouchControls(true);
         IMapController ctrl = mapView.getController();
         ctrl.setZoom(7.0);
@@ -123,6 +161,29 @@ public class MapActivity extends AppCompatActivity {
         legendOverlay = new MapLegendOverlay();
         windFieldOverlay = new WindFieldOverlay();
 
+        // Cities are drawn as they arrive, one map redraw per frame
+        cityBatcher = new ProgressiveBatcher<>(new ProgressiveBatcher.BatchListener<CityObservation>() {
+            @Override
+            public void onBatch(List<CityObservation> batch, ProgressiveBatcher.Progress progress) {
+                for (CityObservation o : batch) {
+                    addCity(o.name, o.lat, o.lon, o.windSpeed, o.windGust, o.windDeg,
+                            o.humidity, o.temp, o.rain, o.clouds, o.condition, o.desc, o.history);
+                }
+                mapView.invalidate();
+                tvMapStatus.setText(String.format(Locale.US, "Loading %d/%d cities • first in %d ms",
+                        progress.completed(), progress.total, progress.firstResultMs));
+            }
+
+            @Override
+            public void onComplete(ProgressiveBatcher.Progress progress) {
+                mapProgress.setVisibility(View.GONE);
+                mapView.invalidate();
+                tvMapStatus.setText(String.format(Locale.US, "Malaysia • %d/%d cities in %d ms",
+                        progress.received, progress.total, progress.elapsedMs));
+                executor.execute(() -> ObservationStore.getInstance(MapActivity.this).save());
+            }
+        });
+
         // Listeners
         btnBack.setOnClickListener(v -> finish());
         btnRefresh.setOnClickListener(v -> loadAllCities());
@@ -133,6 +194,11 @@ public class MapActivity extends AppCompatActivity {
         btnHeatmap.setOnClickListener(v -> toggleHeatmap());
         btnReport.setOnClickListener(v ->
                 startActivity(new Intent(this, FloodReportActivity.class)));
+        btnOffline.setOnClickListener(v -> showOfflineMapDialog());
+
+        // Finish an interrupted offline download if we're back on Wi-Fi
+        OfflineMapManager.getInstance(this).resumePending(offlineListener);
+        RiskModelLoader.ensureLoaded(this);
 
         // Load Initial Data
         loadAllCities();
@@ -146,6 +212,7 @@ public class MapActivity extends AppCompatActivity {
         if (currentLayer.equals(layer)) {
             if (weatherOverlay != null) {
                 mapView.getOverlays().remove(weatherOverlay);
+                weatherOverlay.onDetach(mapView);
                 weatherOverlay = null;
             }
             currentLayer = "";
@@ -156,6 +223,8 @@ public class MapActivity extends AppCompatActivity {
         // Remove old overlay
         if (weatherOverlay != null) {
             mapView.getOverlays().remove(weatherOverlay);
+            weatherOverlay.onDetach(mapView);
+            weatherOverlay = null;
         }
 
         currentLayer = layer;
@@ -166,15 +235,9 @@ public class MapActivity extends AppCompatActivity {
             return;
         }
 
-        // Create new overlay
-        // URL format: https://tile.openweathermap.org/map/{layer}/{z}/{x}/{y}.png?appid={API_KEY}
-        OnlineTileSourceBase tileSource = new XYTileSource(
-                "OWM_" + layer,
-                0, 18, 256, ".png?appid=" + apiKey,
-                new String[] {"https://tile.openweathermap.org/map/" + layer + "/"}
-        );
-
-        MapTileProviderBasic provider = new MapTileProviderBasic(getApplicationContext(), tileSource);
+        // Create new overlay — tiles are cached per upstream update interval
+        WeatherTileProvider provider = WeatherTileProvider.create(getApplicationContext(), layer, apiKey);
+        provider.startAutoRefresh(mapView);
         weatherOverlay = new TilesOverlay(provider, getApplicationContext());
         weatherOverlay.setLoadingBackgroundColor(Color.TRANSPARENT);
         
@@ -192,6 +255,47 @@ public class MapActivity extends AppCompatActivity {
         Toast.makeText(this, (layer.equals("wind_new") ? "Wind" : "Rain") + " layer enabled", Toast.LENGTH_SHORT).show();
     }
 
+    // ───────────────────────────────────────
+    // OFFLINE BASE MAP
+    // ───────────────────────────────────────
+    private final OfflineMapManager.PrefetchListener offlineListener = new OfflineMapManager.PrefetchListener() {
+        @Override
+        public void onProgress(int done, int total, int zoom) {
+            tvMapStatus.setText(String.format(Locale.US, "Offline map: %d/%d tiles (zoom %d)",
+                    done, total, zoom));
+        }
+
+        @Override
+        public void onFinished(boolean complete, String message) {
+            tvMapStatus.setText("Malaysia • Live Weather Data");
+            Toast.makeText(MapActivity.this, message, Toast.LENGTH_LONG).show();
+        }
+    };
+
+    private void showOfflineMapDialog() {
+        OfflineMapManager offline = OfflineMapManager.getInstance(this);
+        if (offline.isRunning()) {
+            new AlertDialog.Builder(this)
+                    .setTitle("Offline map")
+                    .setMessage("Download in progress. Pause it? It will resume next time you are on Wi-Fi.")
+                    .setPositiveButton("Pause", (d, w) -> offline.cancel())
+                    .setNegativeButton("Keep going", null)
+                    .show();
+            return;
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("Download map for offline use (Wi-Fi)")
+                .setItems(OfflineMapManager.REGION_NAMES, (d, which) -> {
+                    String error = offline.startPrefetch(which, offlineListener);
+                    Toast.makeText(this, error != null ? error
+                                    : "Downloading " + OfflineMapManager.REGION_NAMES[which] + "...",
+                            Toast.LENGTH_SHORT).show();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
     // ───────────────────────────────────────
     // DATA LOADING (City Markers)
     // ───────────────────────────────────────
@@ -214,12 +318,13 @@ public class MapActivity extends AppCompatActivity {
 
         String apiKey = BuildConfig.WEATHER_API_KEY;
         if (apiKey == null || apiKey.isEmpty()) {
+            cityBatcher.cancel();
             loadDemoData();
             return;
         }
 
         final int total = CITY_NAMES.length;
-        final int[] done = {0};
+        final int gen = cityBatcher.begin(total);
 
         for (int i = 0; i < total; i++) {
             final String name = CITY_NAMES[i];
@@ -250,27 +355,36 @@ public class MapActivity extends AppCompatActivity {
                         double wd = wind.optDouble("deg", 0);
                         int hum = main.getInt("humidity");
                         double tmp = main.getDouble("temp");
-                        String desc = j.getJSONArray("weather").getJSONObject(0).getString("description");
+                        JSONObject weather = j.getJSONArray("weather").getJSONObject(0);
+                        String desc = weather.getString("description");
+                        int cond = weather.optInt("id", RiskScorer.conditionCode(desc));
+                        int clouds = j.has("clouds") ? j.getJSONObject("clouds").optInt("all", 0) : 0;
 
                         double rain = 0;
+                        int rainHours = 1;
                         if (j.has("rain")) {
                             JSONObject rObj = j.getJSONObject("rain");
-                            rain = rObj.optDouble("1h", rObj.optDouble("3h", 0));
+                            if (rObj.has("1h")) {
+                                rain = rObj.getDouble("1h");
+                            } else {
+                                rain = rObj.optDouble("3h", 0);
+                                rainHours = 3;
+                            }
                         }
-                        final double fRain = rain;
 
-                        mainHandler.post(() -> addCity(name, lat, lon, ws, wg, wd, hum, tmp, fRain, desc));
+                        // Add to this city's rolling history for 24h/72h rainfall
+                        ObservationHistory.Features history = ObservationStore.getInstance(MapActivity.this)
+                                .record(name, System.currentTimeMillis(), rain, rainHours, hum);
+
+                        cityBatcher.submit(gen, new CityObservation(
+                                name, lat, lon, ws, wg, wd, hum, tmp, rain, clouds, cond, desc, history));
+                        c.disconnect();
+                        return;
                     }
                     c.disconnect();
                 } catch (Exception ignored) {}
 
-                mainHandler.post(() -> {
-                    done[0]++;
-                    if (done[0] >= total) {
-                        mapProgress.setVisibility(View.GONE);
-                        mapView.invalidate();
-                    }
-                });
+                cityBatcher.skip(gen);
             });
         }
     }
@@ -282,13 +396,15 @@ public class MapActivity extends AppCompatActivity {
         int[]    hm =  {78, 88, 65, 82, 92, 75, 70, 95, 80, 90, 85, 68};
         double[] tp =  {30, 28, 32, 29, 26, 31, 30, 25, 29, 27, 28, 31};
         double[] rn =  {0,  15, 0,  5,  35, 2,  0,  50, 3,  25, 8,  0};
+        int[]    cl =  {40, 85, 10, 75, 100,20, 5,  100,70, 95, 85, 0};
         String[] dc = {"scattered clouds","moderate rain","clear sky",
                 "light rain","thunderstorm","few clouds","clear sky",
                 "heavy rain","light rain","heavy rain","moderate rain","clear sky"};
 
         for (int i = 0; i < CITY_NAMES.length; i++) {
             addCity(CITY_NAMES[i], CITIES[i][0], CITIES[i][1],
-                    ws[i], wg[i], wd[i], hm[i], tp[i], rn[i], dc[i]);
+                    ws[i], wg[i], wd[i], hm[i], tp[i], rn[i],
+                    cl[i], RiskScorer.conditionCode(dc[i]), dc[i], null);
         }
         mapProgress.setVisibility(View.GONE);
         mapView.invalidate();
@@ -299,7 +415,9 @@ public class MapActivity extends AppCompatActivity {
     // ───────────────────────────────────────
     private void addCity(String city, double lat, double lon,
                          double windSpd, double windGust, double windDeg,
-                         int humidity, double temp, double rain, String desc) {
+                         int humidity, double temp, double rain,
+                         int clouds, int condition, String desc,
+                         ObservationHistory.Features history) {
         GeoPoint pt = new GeoPoint(lat, lon);
 
         // Wind level for marker color
@@ -319,15 +437,8 @@ public class MapActivity extends AppCompatActivity {
             windLvl = "LIGHT";
         }
 
-        // Flood risk score
-        int risk = 0;
-        if (rain > 50) risk += 40;
-        else if (rain > 20) risk += 25;
-        else if (rain > 5) risk += 15;
-        if (humidity > 85) risk += 20;
-        if (windSpd >= 14) risk += 20;
-        if (desc.contains("heavy") || desc.contains("thunder")) risk += 20;
-        risk = Math.min(risk, 100);
+        // Flood risk score — same model as the forecast and weather screens
+        int risk = RiskScorer.score(rain, humidity, windSpd, clouds, condition, history);
 
         // Feed data into heatmap overlay
         heatmapOverlay.addDataPoint(lat, lon, risk);
@@ -335,16 +446,13 @@ public class MapActivity extends AppCompatActivity {
         // Feed data into wind field overlay
         windFieldOverlay.addDataPoint(lat, lon, windSpd, windDeg);
 
-        String floodLvl;
+        String floodLvl = RiskScorer.level(risk);
         int riskClr;
-        if (risk >= 60) {
-            floodLvl = "HIGH";
+        if (floodLvl.equals("HIGH")) {
             riskClr = getResources().getColor(R.color.risk_high);
-        } else if (risk >= 30) {
-            floodLvl = "MEDIUM";
+        } else if (floodLvl.equals("MEDIUM")) {
             riskClr = getResources().getColor(R.color.risk_medium);
         } else {
-            floodLvl = "LOW";
             riskClr = getResources().getColor(R.color.risk_low);
         }
 
@@ -370,7 +478,7 @@ public class MapActivity extends AppCompatActivity {
         final int fClr = riskClr;
         mk.setOnMarkerClickListener((m, mv) -> {
             showDetail(city, windSpd, windGust, windDeg, humidity, temp, rain, desc,
-                    windLvl, fFlood, fRisk, fClr);
+                    windLvl, fFlood, fRisk, fClr, history);
             return true;
         });
 
@@ -379,7 +487,8 @@ public class MapActivity extends AppCompatActivity {
 
     private void showDetail(String city, double ws, double wg, double wd,
                             int hum, double tmp, double rain, String desc,
-                            String windLvl, String floodLvl, int risk, int clr) {
+                            String windLvl, String floodLvl, int risk, int clr,
+                            ObservationHistory.Features history) {
         detailPanel.setVisibility(View.VISIBLE);
         tvDetailTitle.setText(city);
 
@@ -398,8 +507,14 @@ public class MapActivity extends AppCompatActivity {
         if (ws >= 14) exp.append("Strong wind pushing moisture inland. ");
         if (rain > 20) exp.append("Heavy rainfall may overwhelm drainage. ");
         if (hum > 85) exp.append("Saturated air increases rain probability. ");
-        if (risk >= 60) exp.append("\n⚠️ HIGH flood risk — avoid low areas!");
-        else if (risk >= 30) exp.append("\n🟡 Moderate risk — stay alert.");
+        if (history != null && history.rain24h > 0) {
+            exp.append(String.format(Locale.US, "\n%.0f mm in the last 24h, %.0f mm in 72h.",
+                    history.rain24h, history.rain72h));
+            if (history.rain24h > 50) exp.append(" Ground is already saturated.");
+        }
+        String level = RiskScorer.level(risk);
+        if (level.equals("HIGH")) exp.append("\n⚠️ HIGH flood risk — avoid low areas!");
+        else if (level.equals("MEDIUM")) exp.append("\n🟡 Moderate risk — stay alert.");
         else exp.append("\n✅ Low risk — conditions are safe.");
         tvDetailDesc.setText(exp.toString());
     }
@@ -436,21 +551,73 @@ public class MapActivity extends AppCompatActivity {
             if (!mapView.getOverlays().contains(legendOverlay)) {
                 mapView.getOverlays().add(legendOverlay);
             }
+            loadRainfallRaster();
             Toast.makeText(this, "Heatmap enabled", Toast.LENGTH_SHORT).show();
         } else {
             mapView.getOverlays().remove(heatmapOverlay);
             mapView.getOverlays().remove(legendOverlay);
+            stopRainfallRaster();
             Toast.makeText(this, "Heatmap disabled", Toast.LENGTH_SHORT).show();
         }
         mapView.invalidate();
     }
 
+    /**
+     * Decode the current precipitation tiles into a dense rainfall grid for
+     * the heatmap, and again each time the tiles' update bucket rolls over.
+     * Until it arrives, after a failed fetch, or without an API key the
+     * heatmap interpolates between city observations.
+     */
+    private void loadRainfallRaster() {
+        String apiKey = BuildConfig.WEATHER_API_KEY;
+        if (apiKey == null || apiKey.isEmpty()) return;
+
+        int gen = ++rainfallGeneration;
+        rainfallHandler.removeCallbacks(rainfallRefresh);
+        // Small offset so upstream has published the new frame
+        rainfallHandler.postDelayed(rainfallRefresh,
+                RainfallTileDecoder.millisUntilNextBucket(System.currentTimeMillis()) + 15_000);
+
+        executor.execute(() -> {
+            // The decoder reuses one bitmap and pixel buffer, so builds must not overlap
+            synchronized (rainfallDecoder) {
+                RainfallRaster next = new RainfallRaster(FloodHeatmapOverlay.GRID_COLS,
+                        FloodHeatmapOverlay.GRID_ROWS, RainfallTileDecoder.ZOOM);
+                boolean built = rainfallDecoder.build(next, apiKey);
+                runOnUiThread(() -> {
+                    if (gen != rainfallGeneration || isDestroyed()) return;
+                    // A failed fetch drops the old bucket's rain rather than showing it as current
+                    heatmapOverlay.setRainfallRaster(built ? next : null);
+                    mapView.invalidate();
+                });
+            }
+        });
+    }
+
+    /** Stop rebuilding the rainfall grid and let the heatmap go back to city observations. */
+    private void stopRainfallRaster() {
+        rainfallGeneration++;
+        rainfallHandler.removeCallbacks(rainfallRefresh);
+        heatmapOverlay.setRainfallRaster(null);
+    }
+
     // ───────────────────────────────────────
     // USER FLOOD REPORTS
     // ───────────────────────────────────────
+    /** Reads the reports off the main thread, then replaces the ones on the map. */
     private void loadUserReports() {
-        List<FloodReportManager.FloodReport> reports =
-                FloodReportManager.getInstance(this).getReports();
+        executor.execute(() -> {
+            List<FloodReportManager.FloodReport> reports =
+                    FloodReportManager.getInstance(MapActivity.this).getActiveReports();
+            runOnUiThread(() -> {
+                if (!isDestroyed()) showUserReports(reports);
+            });
+        });
+    }
+
+    private void showUserReports(List<FloodReportManager.FloodReport> reports) {
+        mapView.getOverlays().removeAll(reportOverlays);
+        reportOverlays.clear();
 
         SimpleDateFormat sdf = new SimpleDateFormat("dd MMM HH:mm", Locale.getDefault());
 
@@ -471,7 +638,7 @@ public class MapActivity extends AppCompatActivity {
             circle.getFillPaint().setColor(circleColor);
             circle.getOutlinePaint().setColor(Color.argb(150, 255, 0, 0));
             circle.getOutlinePaint().setStrokeWidth(2f);
-            mapView.getOverlays().add(circle);
+            reportOverlays.add(circle);
 
             // Marker
             Marker mk = new Marker(mapView);
@@ -479,9 +646,12 @@ public class MapActivity extends AppCompatActivity {
             mk.setAnchor(Marker.ANCHOR_CENTER, Marker.ANCHOR_BOTTOM);
             mk.setTitle("📸 " + report.locationName);
             mk.setSnippet(report.severity + " — " + report.description
-                    + "\n" + sdf.format(new Date(report.timestamp)));
-            mapView.getOverlays().add(mk);
+                    + "\n" + sdf.format(new Date(report.timestamp))
+                    + (report.confirmations > 1 ? "\n📷 " + report.confirmations + " photos" : ""));
+            reportOverlays.add(mk);
         }
+        mapView.getOverlays().addAll(reportOverlays);
+        mapView.invalidate();
     }
 
     @Override
@@ -490,9 +660,20 @@ public class MapActivity extends AppCompatActivity {
         mapView.onResume();
         // Reload user reports every time we come back (e.g. after submitting a report)
         loadUserReports();
+        ReportSyncWorker.requestSync(this);
         mapView.invalidate();
     }
 
     @Override
     public void onPause() { super.onPause(); mapView.onPause(); }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        OfflineMapManager.getInstance(this).detach(offlineListener);
+        OfflineMapManager.getInstance(this).releaseMap(mapView);
+        rainfallHandler.removeCallbacks(rainfallRefresh);
+        cityBatcher.cancel();
+        executor.shutdownNow();
+    }
 }
@@ -0,0 +1,218 @@
+package com.example.floodprediction;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Rolling 72-hour weather history for one station, for antecedent-rainfall
+ * features.
+ *
+ * Observations land in a ring of hourly slots (rain in mm, humidity in %).
+ * A fetch reporting rain over the last 1 or 3 hours spreads it evenly over
+ * those hours, taking the max with what a previous fetch already recorded,
+ * so polling more often never double-counts. The 24 h and 72 h rain sums
+ * and the 24 h humidity sum are kept incrementally: each record touches at
+ * most {@link #MAX_WINDOW_HOURS} slots and each hour expires exactly once,
+ * so updates are O(1) and allocation-free.
+ *
+ * Pure Java; not thread-safe — {@link ObservationStore} serialises access.
+ */
+public class ObservationHistory {
+
+    public static final int HOURS = 72;
+    public static final int MAX_WINDOW_HOURS = 3;
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    private final int[] slotHour = new int[HOURS];   // epoch hour held by each slot, -1 empty
+    private final float[] rain = new float[HOURS];   // mm in that hour
+    private final byte[] humidity = new byte[HOURS]; // %, -1 unknown
+
+    private int latestHour = -1;
+    private double rain24;
+    private double rain72;
+    private double humiditySum24;
+    private int humidityCount24;
+    private int latestHumidity = -1;
+
+    /** Antecedent features at one point in time. */
+    public static class Features {
+        public final float rain24h;        // mm
+        public final float rain72h;        // mm
+        public final float humidityTrend;  // % above the 24 h mean
+
+        public Features(float rain24h, float rain72h, float humidityTrend) {
+            this.rain24h = rain24h;
+            this.rain72h = rain72h;
+            this.humidityTrend = humidityTrend;
+        }
+    }
+
+    public ObservationHistory() {
+        clear();
+    }
+
+    private void clear() {
+        for (int i = 0; i < HOURS; i++) {
+            slotHour[i] = -1;
+            rain[i] = 0;
+            humidity[i] = -1;
+        }
+        latestHour = -1;
+        rain24 = rain72 = humiditySum24 = 0;
+        humidityCount24 = 0;
+        latestHumidity = -1;
+    }
+
+    /**
+     * Record one observation.
+     *
+     * @param rainMm      rain over the {@code windowHours} before {@code timeMs}
+     * @param windowHours 1 or 3, matching OWM's rain.1h / rain.3h
+     * @param humidityPct relative humidity, or -1 if unknown
+     */
+    public void record(long timeMs, float rainMm, int windowHours, int humidityPct) {
+        int hour = (int) (timeMs / HOUR_MS);
+        if (latestHour >= 0 && hour <= latestHour - HOURS) return; // older than the window
+        if (hour > latestHour) advanceTo(hour);
+
+        int window = Math.max(1, Math.min(MAX_WINDOW_HOURS, windowHours));
+        float perHour = Math.max(0f, rainMm) / window;
+        for (int k = 0; k < window; k++) {
+            int h = hour - k;
+            if (h <= latestHour - HOURS) break;
+            int slot = slotOf(h);
+            if (slotHour[slot] != h) claim(h); // before the first observation
+            float delta = perHour - rain[slot];
+            if (delta > 0) {
+                rain[slot] = perHour;
+                rain72 += delta;
+                if (h > latestHour - 24) rain24 += delta;
+            }
+        }
+
+        if (humidityPct >= 0) {
+            int slot = slotOf(hour);
+            if (slotHour[slot] != hour) claim(hour);
+            int pct = Math.min(100, humidityPct);
+            if (hour > latestHour - 24) {
+                if (humidity[slot] >= 0) humiditySum24 -= humidity[slot];
+                else humidityCount24++;
+                humiditySum24 += pct;
+            }
+            humidity[slot] = (byte) pct;
+            if (hour == latestHour) latestHumidity = pct;
+        }
+    }
+
+    /** Move the window forward, expiring hours that fall out of 24 h and 72 h. */
+    private void advanceTo(int hour) {
+        if (latestHour < 0 || hour - latestHour >= HOURS) {
+            clear();
+            latestHour = hour;
+            claim(hour);
+            return;
+        }
+        for (int h = latestHour + 1; h <= hour; h++) {
+            // Hour h - 24 leaves the 24 h window
+            int old24 = slotOf(h - 24);
+            if (slotHour[old24] == h - 24) {
+                rain24 -= rain[old24];
+                if (humidity[old24] >= 0) {
+                    humiditySum24 -= humidity[old24];
+                    humidityCount24--;
+                }
+            }
+            // Slot of h - 72 is reused for h
+            int slot = slotOf(h);
+            if (slotHour[slot] == h - HOURS) rain72 -= rain[slot];
+            claim(h);
+        }
+        latestHour = hour;
+        latestHumidity = -1;
+        if (rain24 < 0) rain24 = 0;  // float drift
+        if (rain72 < 0) rain72 = 0;
+    }
+
+    private void claim(int h) {
+        int slot = slotOf(h);
+        slotHour[slot] = h;
+        rain[slot] = 0;
+        humidity[slot] = -1;
+    }
+
+    private static int slotOf(int hour) {
+        return Math.floorMod(hour, HOURS);
+    }
+
+    public float rain24h() {
+        return (float) rain24;
+    }
+
+    public float rain72h() {
+        return (float) rain72;
+    }
+
+    /** Latest humidity minus the 24 h mean; 0 until there are two readings. */
+    public float humidityTrend() {
+        if (latestHumidity < 0 || humidityCount24 < 2) return 0;
+        return (float) (latestHumidity - humiditySum24 / humidityCount24);
+    }
+
+    public Features features() {
+        return new Features(rain24h(), rain72h(), humidityTrend());
+    }
+
+    public boolean isEmpty() {
+        return latestHour < 0;
+    }
+
+    /** An independent copy, e.g. to roll forward through forecast steps. */
+    public ObservationHistory copy() {
+        ObservationHistory c = new ObservationHistory();
+        System.arraycopy(slotHour, 0, c.slotHour, 0, HOURS);
+        System.arraycopy(rain, 0, c.rain, 0, HOURS);
+        System.arraycopy(humidity, 0, c.humidity, 0, HOURS);
+        c.latestHour = latestHour;
+        c.rain24 = rain24;
+        c.rain72 = rain72;
+        c.humiditySum24 = humiditySum24;
+        c.humidityCount24 = humidityCount24;
+        c.latestHumidity = latestHumidity;
+        return c;
+    }
+
+    // ── Persistence: latest hour, then per hour (newest first) rain in 0.1 mm and humidity ──
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(latestHour);
+        if (latestHour < 0) return;
+        for (int k = 0; k < HOURS; k++) {
+            int h = latestHour - k;
+            int slot = slotOf(h);
+            boolean held = slotHour[slot] == h;
+            out.writeShort(held ? Math.min(Short.MAX_VALUE, Math.round(rain[slot] * 10)) : -1);
+            out.writeByte(held ? humidity[slot] : -1);
+        }
+    }
+
+    public static ObservationHistory readFrom(DataInputStream in) throws IOException {
+        ObservationHistory history = new ObservationHistory();
+        int latest = in.readInt();
+        if (latest < 0) return history;
+
+        short[] rainTenths = new short[HOURS];
+        byte[] hum = new byte[HOURS];
+        for (int k = 0; k < HOURS; k++) {
+            rainTenths[k] = in.readShort();
+            hum[k] = in.readByte();
+        }
+        // Replay oldest first so the rolling sums are rebuilt exactly
+        for (int k = HOURS - 1; k >= 0; k--) {
+            if (rainTenths[k] < 0) continue;
+            long t = (long) (latest - k) * HOUR_MS;
+            history.record(t, rainTenths[k] / 10f, 1, hum[k]);
+        }
+        return history;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.floodprediction;
+
+import android.content.Context;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps an {@link ObservationHistory} per station (city) so every weather
+ * fetch adds to the antecedent-rainfall picture instead of being thrown
+ * away. Histories are saved to one small binary file (about 220 bytes per
+ * station) in app storage.
+ */
+public class ObservationStore {
+
+    private static final String FILE_NAME = "observations.bin";
+    private static final int FILE_VERSION = 1;
+
+    private static ObservationStore instance;
+    private final File file;
+    private final Map<String, ObservationHistory> stations = new HashMap<>();
+    private boolean loaded;
+    private boolean dirty;
+
+    private ObservationStore(Context context) {
+        file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+    }
+
+    public static synchronized ObservationStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new ObservationStore(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Record an observation for {@code station} and return its antecedent
+     * features including it. Blocking on first use (reads the file).
+     */
+    public synchronized ObservationHistory.Features record(String station, long timeMs,
+                                                           double rainMm, int windowHours, int humidity) {
+        load();
+        ObservationHistory history = stations.get(station);
+        if (history == null) {
+            history = new ObservationHistory();
+            stations.put(station, history);
+        }
+        history.record(timeMs, (float) rainMm, windowHours, humidity);
+        dirty = true;
+        return history.features();
+    }
+
+    /** Current features for {@code station}, or null if it has no history. */
+    public synchronized ObservationHistory.Features get(String station) {
+        load();
+        ObservationHistory history = stations.get(station);
+        return history == null || history.isEmpty() ? null : history.features();
+    }
+
+    /** A copy of {@code station}'s history to roll forward, or null if it has none. */
+    public synchronized ObservationHistory history(String station) {
+        load();
+        ObservationHistory history = stations.get(station);
+        return history == null || history.isEmpty() ? null : history.copy();
+    }
+
+    /** Write pending changes. Call off the main thread after a batch of records. */
+    public synchronized void save() {
+        if (!dirty) return;
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FILE_VERSION);
+            out.writeInt(stations.size());
+            for (Map.Entry<String, ObservationHistory> e : stations.entrySet()) {
+                out.writeUTF(e.getKey());
+                e.getValue().writeTo(out);
+            }
+        } catch (Exception e) {
+            tmp.delete();
+            return;
+        }
+        if (tmp.renameTo(file)) dirty = false;
+    }
+
+    private void load() {
+        if (loaded) return;
+        loaded = true;
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION) return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String station = in.readUTF();
+                stations.put(station, ObservationHistory.readFrom(in));
+            }
+        } catch (Exception e) {
+            stations.clear(); // corrupt; start over
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.floodprediction;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+
+import org.osmdroid.config.Configuration;
+import org.osmdroid.tileprovider.cachemanager.CacheManager;
+import org.osmdroid.tileprovider.tilesource.OnlineTileSourceBase;
+import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
+import org.osmdroid.tileprovider.tilesource.XYTileSource;
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.views.MapView;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Downloads base-map tiles for Malaysia (or one state) into an
+ * {@link OfflineTileArchive} while the phone is on Wi-Fi, so the map
+ * still works when mobile data drops out during a flood.
+ *
+ * The prefetch state is kept in SharedPreferences: an interrupted download
+ * stays "pending" and is resumed the next time the map opens on Wi-Fi,
+ * skipping tiles that are already in the archive. A download that fills
+ * the storage quota is finished, not pending: resuming it can't get further.
+ *
+ * This singleton outlives map screens, so the listener and the network
+ * callbacks are only attached while one is showing; call {@link #detach}
+ * and {@link #releaseMap} from onDestroy.
+ *
+ * Note: the public OpenStreetMap tile servers forbid bulk downloads, and
+ * osmdroid refuses to prefetch from them. Set "offlineTileUrl" in
+ * local.properties to a tile server that allows it; the map then uses that
+ * source everywhere so archived tiles are served before the network.
+ */
+public class OfflineMapManager {
+
+    public interface PrefetchListener {
+        void onProgress(int done, int total, int zoom);
+        void onFinished(boolean complete, String message);
+    }
+
+    private static final String PREFS_NAME = "offline_maps";
+    private static final String KEY_PENDING_REGION = "pending_region";
+    private static final String KEY_DONE_REGION = "done_region";
+
+    private static final String ARCHIVE_NAME = "malaysia_offline.sqlite";
+    private static final long QUOTA_BYTES = 250L * 1024 * 1024;      // archive size cap
+    private static final long FREE_SPACE_RESERVE = 200L * 1024 * 1024; // never fill the phone
+    private static final long AVG_TILE_BYTES = 18 * 1024;             // typical PNG street tile
+
+    public static final String[] REGION_NAMES = {
+            "All Malaysia", "Peninsular Malaysia", "Selangor & KL", "Johor",
+            "Kelantan", "Terengganu", "Pahang", "Penang", "Sarawak", "Sabah"
+    };
+
+    // {north, east, south, west}
+    private static final double[][] REGION_BOUNDS = {
+            {7.5, 119.5, 0.8, 99.5},
+            {6.8, 104.5, 1.2, 99.5},
+            {3.9, 102.0, 2.5, 100.7},
+            {2.9, 104.5, 1.2, 102.4},
+            {6.3, 102.7, 4.5, 101.2},
+            {5.9, 103.6, 3.9, 102.3},
+            {4.8, 103.5, 2.4, 101.3},
+            {5.6, 100.6, 5.1, 100.1},
+            {5.1, 115.7, 0.8, 109.5},
+            {7.4, 119.3, 4.0, 115.3},
+    };
+
+    // {minZoom, maxZoom} — smaller regions get more street detail
+    private static final int[][] REGION_ZOOMS = {
+            {5, 10}, {5, 11}, {5, 14}, {5, 13},
+            {5, 13}, {5, 13}, {5, 12}, {5, 15}, {5, 11}, {5, 11},
+    };
+
+    private static OfflineMapManager instance;
+    private static OnlineTileSourceBase baseTileSource;
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+    private CacheManager cacheManager;
+    private OfflineTileArchive archive;
+    private PrefetchListener listener;  // the screen showing progress, if any
+    private final Map<MapView, ConnectivityManager.NetworkCallback> networkCallbacks = new HashMap<>();
+
+    private OfflineMapManager(Context context) {
+        appContext = context.getApplicationContext();
+        prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized OfflineMapManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new OfflineMapManager(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Tile source shared by every map screen. Archive lookups are keyed by
+     * the source name, so maps and the prefetcher must use the same one.
+     */
+    public static synchronized OnlineTileSourceBase getBaseTileSource() {
+        if (baseTileSource == null) {
+            String url = BuildConfig.OFFLINE_TILE_URL;
+            if (url == null || url.isEmpty()) {
+                baseTileSource = TileSourceFactory.MAPNIK;
+            } else {
+                baseTileSource = new XYTileSource("MalaysiaBase", 0, 19, 256, ".png",
+                        new String[]{url});
+            }
+        }
+        return baseTileSource;
+    }
+
+    public static File getArchiveFile() {
+        return new File(Configuration.getInstance().getOsmdroidBasePath(), ARCHIVE_NAME);
+    }
+
+    /**
+     * Apply the map tile source and only allow tile downloads when a network
+     * is actually available, so startup never waits on a dead connection.
+     * Follows the default network from then on, so tiles load again once
+     * the connection comes back; call {@link #releaseMap} from onDestroy.
+     */
+    public void setupMap(MapView mapView) {
+        mapView.setTileSource(getBaseTileSource());
+        mapView.setUseDataConnection(isOnline());
+
+        ConnectivityManager cm = (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm == null) return;
+        ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onCapabilitiesChanged(Network network, NetworkCapabilities caps) {
+                useDataConnection(mapView, caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET));
+            }
+
+            @Override
+            public void onLost(Network network) {
+                useDataConnection(mapView, false);
+            }
+        };
+        releaseMap(mapView);
+        try {
+            cm.registerDefaultNetworkCallback(callback);
+        } catch (Exception ignored) {
+            return;  // too many callbacks: keep the state read above
+        }
+        synchronized (networkCallbacks) {
+            networkCallbacks.put(mapView, callback);
+        }
+    }
+
+    /** Stop following the network for {@code mapView}. */
+    public void releaseMap(MapView mapView) {
+        ConnectivityManager.NetworkCallback callback;
+        synchronized (networkCallbacks) {
+            callback = networkCallbacks.remove(mapView);
+        }
+        if (callback == null) return;
+        ConnectivityManager cm = (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        try {
+            if (cm != null) cm.unregisterNetworkCallback(callback);
+        } catch (Exception ignored) {}
+    }
+
+    // Network callbacks arrive on a binder thread
+    private static void useDataConnection(MapView mapView, boolean online) {
+        mapView.post(() -> {
+            if (mapView.useDataConnection() == online) return;
+            mapView.setUseDataConnection(online);
+            if (online) mapView.invalidate();  // fetch the tiles that were skipped
+        });
+    }
+
+    public boolean isOnline() {
+        NetworkCapabilities caps = activeCapabilities();
+        return caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+
+    /** Wi-Fi (or any other unmetered network) — the only time we bulk-download. */
+    public boolean isOnUnmeteredNetwork() {
+        NetworkCapabilities caps = activeCapabilities();
+        return caps != null
+                && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                && (caps.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)
+                || caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED));
+    }
+
+    private NetworkCapabilities activeCapabilities() {
+        ConnectivityManager cm = (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm == null) return null;
+        Network network = cm.getActiveNetwork();
+        return network != null ? cm.getNetworkCapabilities(network) : null;
+    }
+
+    public boolean isRunning() {
+        return cacheManager != null;
+    }
+
+    public int getPendingRegion() {
+        return prefs.getInt(KEY_PENDING_REGION, -1);
+    }
+
+    public int getDownloadedRegion() {
+        return prefs.getInt(KEY_DONE_REGION, -1);
+    }
+
+    /**
+     * Resume an interrupted prefetch if there is one and we are on Wi-Fi, or
+     * report a running one's progress to {@code listener}.
+     */
+    public void resumePending(PrefetchListener listener) {
+        if (isRunning()) {
+            this.listener = listener;
+            return;
+        }
+        int region = getPendingRegion();
+        if (region >= 0 && isOnUnmeteredNetwork()) {
+            startPrefetch(region, listener);
+        }
+    }
+
+    /** Stop reporting to {@code listener}; the download itself carries on. */
+    public void detach(PrefetchListener listener) {
+        if (this.listener == listener) this.listener = null;
+    }
+
+    /**
+     * Start downloading the given region into the offline archive.
+     *
+     * @return null if the download started, otherwise a user-facing reason
+     */
+    public String startPrefetch(int region, PrefetchListener listener) {
+        if (isRunning()) return "Offline map download already in progress";
+        if (!isOnUnmeteredNetwork()) return "Connect to Wi-Fi to download offline maps";
+
+        OnlineTileSourceBase source = getBaseTileSource();
+        if (!source.getTileSourcePolicy().acceptsBulkDownload()) {
+            return "Offline download needs a tile server that allows bulk downloads";
+        }
+
+        File file = getArchiveFile();
+        OfflineTileArchive writer = new OfflineTileArchive(file, QUOTA_BYTES);
+        CacheManager manager;
+        try {
+            manager = new CacheManager(source, writer, 0, source.getMaximumZoomLevel());
+        } catch (Exception e) {
+            writer.onDetach();
+            return "Offline download not available: " + e.getMessage();
+        }
+
+        // Drop street-level zooms until the estimate fits both quotas
+        BoundingBox bb = regionBox(region);
+        int zoomMin = REGION_ZOOMS[region][0];
+        int zoomMax = REGION_ZOOMS[region][1];
+        long budget = Math.min(QUOTA_BYTES, file.getParentFile().getUsableSpace() - FREE_SPACE_RESERVE)
+                - writer.getSizeBytes();
+        while (zoomMax > zoomMin
+                && (long) manager.possibleTilesInArea(bb, zoomMin, zoomMax) * AVG_TILE_BYTES > budget) {
+            zoomMax--;
+        }
+        if ((long) manager.possibleTilesInArea(bb, zoomMin, zoomMax) * AVG_TILE_BYTES > budget) {
+            writer.onDetach();
+            return "Not enough storage for offline maps";
+        }
+
+        prefs.edit().putInt(KEY_PENDING_REGION, region).apply();
+        cacheManager = manager;
+        archive = writer;
+        this.listener = listener;
+
+        final int[] total = {0};
+        manager.downloadAreaAsyncNoUI(appContext, bb, zoomMin, zoomMax,
+                new CacheManager.CacheManagerCallback() {
+                    @Override
+                    public void onTaskComplete() {
+                        if (writer.isOverQuota()) {
+                            finishFull();
+                            return;
+                        }
+                        prefs.edit().remove(KEY_PENDING_REGION)
+                                .putInt(KEY_DONE_REGION, region).apply();
+                        finish();
+                        notifyFinished(true, REGION_NAMES[region] + " available offline");
+                    }
+
+                    @Override
+                    public void onTaskFailed(int errors) {
+                        // Refused saves count as failures once the archive is full
+                        if (writer.isOverQuota()) {
+                            finishFull();
+                            return;
+                        }
+                        // Stay pending; tiles already saved are skipped on resume
+                        finish();
+                        notifyFinished(false, "Offline download paused (" + errors
+                                + " tiles failed) — will resume on Wi-Fi");
+                    }
+
+                    private void finishFull() {
+                        prefs.edit().remove(KEY_PENDING_REGION).apply();
+                        finish();
+                        notifyFinished(false, "Offline map storage quota reached");
+                    }
+
+                    @Override
+                    public void updateProgress(int progress, int currentZoomLevel, int zoomMin, int zoomMax) {
+                        if (OfflineMapManager.this.listener != null) {
+                            OfflineMapManager.this.listener.onProgress(progress, total[0], currentZoomLevel);
+                        }
+                    }
+
+                    @Override
+                    public void downloadStarted() {
+                    }
+
+                    @Override
+                    public void setPossibleTilesInArea(int possible) {
+                        total[0] = possible;
+                    }
+                });
+        return null;
+    }
+
+    /** Stop the running download; it stays pending and can be resumed later. */
+    public void cancel() {
+        if (cacheManager != null) {
+            cacheManager.cancelAllJobs();
+            finish();
+        }
+    }
+
+    private void notifyFinished(boolean complete, String message) {
+        PrefetchListener l = listener;
+        listener = null;
+        if (l != null) l.onFinished(complete, message);
+    }
+
+    private void finish() {
+        cacheManager = null;
+        if (archive != null) {
+            archive.onDetach();
+            archive = null;
+        }
+    }
+
+    private static BoundingBox regionBox(int region) {
+        double[] b = REGION_BOUNDS[region];
+        return new BoundingBox(b[0], b[1], b[2], b[3]);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.floodprediction;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.graphics.drawable.Drawable;
+
+import org.osmdroid.tileprovider.modules.IFilesystemCache;
+import org.osmdroid.tileprovider.modules.SqlTileWriter;
+import org.osmdroid.tileprovider.tilesource.ITileSource;
+import org.osmdroid.util.MapTileIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+
+/**
+ * Offline base-map archive in osmdroid's SQLite archive format
+ * (table "tiles": key, provider, tile). Because the file lives in the
+ * osmdroid base path with a ".sqlite" extension, the default
+ * MapTileProviderBasic picks it up and serves from it before the network.
+ *
+ * Used as the tile writer for CacheManager downloads. {@link #exists} lets
+ * an interrupted prefetch resume without re-downloading tiles, and
+ * {@link #saveFile} refuses writes once the storage quota is reached.
+ */
+public class OfflineTileArchive implements IFilesystemCache {
+
+    private final File file;
+    private final long quotaBytes;
+    private SQLiteDatabase db;
+    private long sizeBytes;
+
+    public OfflineTileArchive(File file, long quotaBytes) {
+        this.file = file;
+        this.quotaBytes = quotaBytes;
+        file.getParentFile().mkdirs();
+        db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        db.execSQL("CREATE TABLE IF NOT EXISTS tiles "
+                + "(key INTEGER, provider TEXT, tile BLOB, PRIMARY KEY (key, provider))");
+        sizeBytes = file.length();
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public boolean isOverQuota() {
+        return sizeBytes >= quotaBytes;
+    }
+
+    public synchronized int countTiles(ITileSource tileSource) {
+        if (db == null) return 0;
+        Cursor c = db.rawQuery("SELECT COUNT(*) FROM tiles WHERE provider = ?",
+                new String[]{tileSource.name()});
+        try {
+            return c.moveToFirst() ? c.getInt(0) : 0;
+        } finally {
+            c.close();
+        }
+    }
+
+    private static long key(long mapTileIndex) {
+        return SqlTileWriter.getIndex(MapTileIndex.getX(mapTileIndex),
+                MapTileIndex.getY(mapTileIndex), MapTileIndex.getZoom(mapTileIndex));
+    }
+
+    @Override
+    public synchronized boolean saveFile(ITileSource tileSource, long mapTileIndex,
+                                         InputStream stream, Long expirationTime) {
+        if (db == null || isOverQuota()) return false;
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(16 * 1024);
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = stream.read(buf)) != -1) bos.write(buf, 0, n);
+            byte[] tile = bos.toByteArray();
+
+            ContentValues cv = new ContentValues();
+            cv.put("key", key(mapTileIndex));
+            cv.put("provider", tileSource.name());
+            cv.put("tile", tile);
+            db.insertWithOnConflict("tiles", null, cv, SQLiteDatabase.CONFLICT_REPLACE);
+            sizeBytes += tile.length;
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized boolean exists(ITileSource tileSource, long mapTileIndex) {
+        if (db == null) return false;
+        Cursor c = db.rawQuery("SELECT 1 FROM tiles WHERE key = ? AND provider = ?",
+                new String[]{String.valueOf(key(mapTileIndex)), tileSource.name()});
+        try {
+            return c.moveToFirst();
+        } finally {
+            c.close();
+        }
+    }
+
+    @Override
+    public synchronized boolean remove(ITileSource tileSource, long mapTileIndex) {
+        if (db == null) return false;
+        return db.delete("tiles", "key = ? AND provider = ?",
+                new String[]{String.valueOf(key(mapTileIndex)), tileSource.name()}) > 0;
+    }
+
+    @Override
+    public Long getExpirationTimestamp(ITileSource tileSource, long mapTileIndex) {
+        return null; // archived base-map tiles never expire
+    }
+
+    @Override
+    public synchronized Drawable loadTile(ITileSource tileSource, long mapTileIndex) throws Exception {
+        if (db == null) return null;
+        Cursor c = db.rawQuery("SELECT tile FROM tiles WHERE key = ? AND provider = ?",
+                new String[]{String.valueOf(key(mapTileIndex)), tileSource.name()});
+        try {
+            if (!c.moveToFirst()) return null;
+            return tileSource.getDrawable(new ByteArrayInputStream(c.getBlob(0)));
+        } finally {
+            c.close();
+        }
+    }
+
+    @Override
+    public synchronized void onDetach() {
+        if (db != null) {
+            db.close();
+            db = null;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.floodprediction;
+
+/**
+ * 64-bit perceptual hash (pHash) of a photo.
+ *
+ * The image is box-averaged to 32 x 32 grey, transformed with a 2-D DCT,
+ * and the 8 x 8 lowest frequencies (DC excluded) are thresholded at their
+ * median. Those coefficients describe the scene's coarse layout, so
+ * re-encoding, resizing, small shifts and exposure changes flip only a few
+ * bits, and two shots of the same flooded junction end up a small Hamming
+ * distance apart.
+ */
+public final class PerceptualHash {
+
+    /** Hashes at most this many bits apart are treated as the same scene. */
+    public static final int DUPLICATE_DISTANCE = 10;
+
+    private static final int N = 32;
+    private static final int K = 8;
+    private static final double[][] COS = new double[K][N];
+
+    static {
+        for (int u = 0; u < K; u++) {
+            for (int x = 0; x < N; x++) {
+                COS[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2 * N));
+            }
+        }
+    }
+
+    private PerceptualHash() {}
+
+    public static long pHash(int[] argb, int width, int height) {
+        // Grey 32 x 32 by box averaging
+        double[] sum = new double[N * N];
+        int[] count = new int[N * N];
+        for (int y = 0; y < height; y++) {
+            int cy = y * N / height;
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int c = argb[row + x];
+                int cell = cy * N + x * N / width;
+                sum[cell] += ((c >> 16) & 0xFF) * 0.3 + ((c >> 8) & 0xFF) * 0.6 + (c & 0xFF) * 0.1;
+                count[cell]++;
+            }
+        }
+        for (int i = 0; i < sum.length; i++) sum[i] /= Math.max(1, count[i]);
+
+        // Separable DCT, low K x K block only: rows first, then columns
+        double[] rows = new double[N * K];
+        for (int y = 0; y < N; y++) {
+            for (int u = 0; u < K; u++) {
+                double s = 0;
+                for (int x = 0; x < N; x++) s += sum[y * N + x] * COS[u][x];
+                rows[y * K + u] = s;
+            }
+        }
+        double[] dct = new double[K * K];
+        for (int v = 0; v < K; v++) {
+            for (int u = 0; u < K; u++) {
+                double s = 0;
+                for (int y = 0; y < N; y++) s += rows[y * K + u] * COS[v][y];
+                dct[v * K + u] = s;
+            }
+        }
+
+        // Median of the 63 AC coefficients
+        double[] ac = new double[K * K - 1];
+        System.arraycopy(dct, 1, ac, 0, ac.length);
+        java.util.Arrays.sort(ac);
+        double median = ac[ac.length / 2];
+
+        long hash = 0;
+        for (int i = 1; i < K * K; i++) {
+            hash = (hash << 1) | (dct[i] > median ? 1 : 0);
+        }
+        return hash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.floodprediction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recent photo hashes in a BK-tree, for finding near-duplicate photos.
+ *
+ * Each node keeps its children by Hamming distance, so a lookup within
+ * distance d only descends into children whose edge lies within d of the
+ * query's distance to the node (triangle inequality), visiting a small part
+ * of the tree. Entries older than the window are skipped on lookup; the
+ * tree is rebuilt from live entries once its oldest entry is half a window
+ * past expiry (so at most once per half window), or when it hits its size
+ * limit. Thread-safe.
+ */
+public class PhotoHashIndex<T> {
+
+    public interface Clock {
+        long now();
+    }
+
+    public interface Filter<T> {
+        boolean accept(T value);
+    }
+
+    private static final class Node<T> {
+        final long hash;
+        final T value;
+        final long addedMs;
+        final Node<T>[] children;
+
+        @SuppressWarnings("unchecked")
+        Node(long hash, T value, long addedMs) {
+            this.hash = hash;
+            this.value = value;
+            this.addedMs = addedMs;
+            this.children = (Node<T>[]) new Node<?>[65];
+        }
+    }
+
+    private final long windowMs;
+    private final int maxEntries;
+    private final Clock clock;
+    private Node<T> root;
+    private int size;
+    private long oldestMs = Long.MAX_VALUE;
+
+    public PhotoHashIndex(long windowMs, int maxEntries, Clock clock) {
+        this.windowMs = windowMs;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    public synchronized void add(long hash, T value) {
+        add(hash, value, clock.now());
+    }
+
+    /** Add an entry first seen at {@code addedMs}, e.g. when reloading saved ones. */
+    public synchronized void add(long hash, T value, long addedMs) {
+        if (size >= maxEntries) rebuild(clock.now(), maxEntries / 2);
+        insert(new Node<>(hash, value, addedMs));
+    }
+
+    /**
+     * Value of the closest live entry within {@code maxDistance} bits of
+     * {@code hash}, newest first on ties; null if none.
+     */
+    public synchronized T nearest(long hash, int maxDistance) {
+        return nearest(hash, maxDistance, null);
+    }
+
+    /** Like {@link #nearest(long, int)}, among the entries {@code filter} accepts. */
+    public synchronized T nearest(long hash, int maxDistance, Filter<T> filter) {
+        long now = clock.now();
+        Node<T> best = null;
+        int bestDistance = Integer.MAX_VALUE;
+
+        ArrayDeque<Node<T>> stack = new ArrayDeque<>();
+        if (root != null) stack.push(root);
+        while (!stack.isEmpty()) {
+            Node<T> n = stack.pop();
+            int d = PerceptualHash.distance(hash, n.hash);
+            if (now - n.addedMs < windowMs && d <= maxDistance
+                    && (d < bestDistance || (d == bestDistance && n.addedMs > best.addedMs))
+                    && (filter == null || filter.accept(n.value))) {
+                best = n;
+                bestDistance = d;
+            }
+            for (int e = Math.max(0, d - maxDistance); e <= Math.min(64, d + maxDistance); e++) {
+                if (n.children[e] != null) stack.push(n.children[e]);
+            }
+        }
+        if (now - oldestMs >= windowMs + windowMs / 2) rebuild(now, maxEntries);
+        return best == null ? null : best.value;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void insert(Node<T> node) {
+        size++;
+        oldestMs = Math.min(oldestMs, node.addedMs);
+        if (root == null) {
+            root = node;
+            return;
+        }
+        Node<T> n = root;
+        while (true) {
+            int d = PerceptualHash.distance(node.hash, n.hash);
+            if (n.children[d] == null) {
+                n.children[d] = node;
+                return;
+            }
+            n = n.children[d];
+        }
+    }
+
+    /** Re-insert the newest {@code keep} live entries. */
+    private void rebuild(long now, int keep) {
+        List<Node<T>> live = new ArrayList<>(size);
+        ArrayDeque<Node<T>> stack = new ArrayDeque<>();
+        if (root != null) stack.push(root);
+        while (!stack.isEmpty()) {
+            Node<T> n = stack.pop();
+            if (now - n.addedMs < windowMs) live.add(n);
+            for (Node<T> c : n.children) if (c != null) stack.push(c);
+        }
+        live.sort((a, b) -> Long.compare(a.addedMs, b.addedMs));
+        root = null;
+        size = 0;
+        oldestMs = Long.MAX_VALUE;
+        for (int i = Math.max(0, live.size() - keep); i < live.size(); i++) {
+            Node<T> n = live.get(i);
+            insert(new Node<>(n.hash, n.value, n.addedMs));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.floodprediction;
+
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects results arriving from worker threads and hands them to the UI
+ * in frame-aligned batches. Everything that arrived during one Choreographer
+ * tick is delivered together, so the map is invalidated once per frame
+ * instead of once per city — or, worse, only after the slowest city.
+ *
+ * Usage: call {@link #begin(int)} on the main thread, then {@link #submit}
+ * or {@link #skip} once per expected result from any thread.
+ */
+public class ProgressiveBatcher<T> implements Choreographer.FrameCallback {
+
+    public interface BatchListener<T> {
+        /** Called on the main thread with every result that arrived since the last frame. */
+        void onBatch(List<T> batch, Progress progress);
+
+        /** Called on the main thread once every expected result was submitted or skipped. */
+        void onComplete(Progress progress);
+    }
+
+    /** Partial-progress metrics for the current load. */
+    public static class Progress {
+        public int total;
+        public int received;     // results delivered to the UI
+        public int failed;       // requests that finished without a result
+        public int batches;      // frames that carried at least one result
+        public long firstResultMs = -1; // time from begin() to first delivered result
+        public long elapsedMs;
+
+        public int completed() {
+            return received + failed;
+        }
+    }
+
+    private final BatchListener<T> listener;
+    private final ConcurrentLinkedQueue<T> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingFailures = new AtomicInteger();
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final ArrayList<T> batch = new ArrayList<>();
+    private final Choreographer choreographer;
+
+    private Progress progress = new Progress();
+    private long startTime;
+    private boolean active = false;
+
+    /** Must be created on the main thread so the main Choreographer is used. */
+    public ProgressiveBatcher(BatchListener<T> listener) {
+        this.listener = listener;
+        this.choreographer = Choreographer.getInstance();
+    }
+
+    /**
+     * Start a new load expecting {@code total} results. Anything still in
+     * flight from a previous load is discarded.
+     *
+     * @return the generation token to pass to {@link #submit}/{@link #skip}
+     */
+    public int begin(int total) {
+        int gen = generation.incrementAndGet();
+        pending.clear();
+        pendingFailures.set(0);
+        progress = new Progress();
+        progress.total = total;
+        startTime = SystemClock.uptimeMillis();
+        active = total > 0;
+        if (!active) listener.onComplete(progress);
+        return gen;
+    }
+
+    /** Queue a result for the next frame. Safe to call from any thread. */
+    public void submit(int gen, T item) {
+        if (gen != generation.get()) return;
+        pending.add(item);
+        scheduleFrame();
+    }
+
+    /** Record a request that finished without a result. Safe to call from any thread. */
+    public void skip(int gen) {
+        if (gen != generation.get()) return;
+        pendingFailures.incrementAndGet();
+        scheduleFrame();
+    }
+
+    /** Drop the current load, e.g. when the activity is destroyed. */
+    public void cancel() {
+        generation.incrementAndGet();
+        pending.clear();
+        active = false;
+        choreographer.removeFrameCallback(this);
+        frameScheduled.set(false);
+    }
+
+    public Progress getProgress() {
+        return progress;
+    }
+
+    private void scheduleFrame() {
+        // Choreographer.postFrameCallback is thread-safe; only post once per frame
+        if (frameScheduled.compareAndSet(false, true)) {
+            choreographer.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled.set(false);
+        if (!active) return;
+
+        batch.clear();
+        T item;
+        while ((item = pending.poll()) != null) batch.add(item);
+        int failures = pendingFailures.getAndSet(0);
+
+        progress.failed += failures;
+        progress.elapsedMs = SystemClock.uptimeMillis() - startTime;
+
+        if (!batch.isEmpty()) {
+            if (progress.firstResultMs < 0) progress.firstResultMs = progress.elapsedMs;
+            progress.received += batch.size();
+            progress.batches++;
+            listener.onBatch(batch, progress);
+            batch.clear();
+        }
+
+        if (progress.completed() >= progress.total) {
+            active = false;
+            listener.onComplete(progress);
+        }
+    }
+}
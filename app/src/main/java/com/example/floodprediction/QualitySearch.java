@@ -0,0 +1,114 @@
+package com.example.floodprediction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Finds the highest lossy encoding quality whose output fits a byte budget.
+ *
+ * Binary search over the quality range, assuming size grows with quality
+ * (true for JPEG and WebP). Encodes go into two buffers that are kept and
+ * swapped between attempts and calls, so a search allocates nothing once the
+ * buffers have grown to the payload size. Not thread-safe; one per encoder.
+ */
+public final class QualitySearch {
+
+    /** Writes the image at {@code quality} (0-100) to {@code out}. */
+    public interface Encoder {
+        void encode(int quality, OutputStream out) throws IOException;
+    }
+
+    /** ByteArrayOutputStream whose backing array can be read without copying. */
+    static final class Buffer extends ByteArrayOutputStream {
+        Buffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    private Buffer best;
+    private Buffer scratch;
+    private int quality = -1;
+    private int attempts;
+
+    public QualitySearch(int initialCapacity) {
+        best = new Buffer(initialCapacity);
+        scratch = new Buffer(initialCapacity);
+    }
+
+    /**
+     * Encode at the highest quality in [{@code minQuality}, {@code maxQuality}]
+     * that fits {@code budget} bytes. Returns that quality, or -1 if even
+     * {@code minQuality} is too big (the {@code minQuality} output is kept).
+     */
+    public int search(Encoder encoder, int budget, int minQuality, int maxQuality) throws IOException {
+        attempts = 0;
+        quality = -1;
+        best.reset();
+
+        if (encodeInto(encoder, maxQuality) <= budget) {
+            keep(maxQuality);
+            return quality;
+        }
+        if (encodeInto(encoder, minQuality) > budget) {
+            keep(minQuality);
+            quality = -1;
+            return -1;
+        }
+        keep(minQuality);
+
+        int lo = minQuality + 1, hi = maxQuality - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (encodeInto(encoder, mid) <= budget) {
+                keep(mid);
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return quality;
+    }
+
+    /** Backing array of the kept encoding; valid bytes are [0, {@link #size()}). */
+    public byte[] data() {
+        return best.array();
+    }
+
+    public int size() {
+        return best.size();
+    }
+
+    /** Copy of the kept encoding. */
+    public byte[] toByteArray() {
+        return best.toByteArray();
+    }
+
+    /** Quality of the kept encoding, or -1 if it is over budget. */
+    public int quality() {
+        return quality;
+    }
+
+    /** Number of encodes the last search took. */
+    public int attempts() {
+        return attempts;
+    }
+
+    private int encodeInto(Encoder encoder, int q) throws IOException {
+        scratch.reset();
+        encoder.encode(q, scratch);
+        attempts++;
+        return scratch.size();
+    }
+
+    private void keep(int q) {
+        Buffer t = best;
+        best = scratch;
+        scratch = t;
+        quality = q;
+    }
+}
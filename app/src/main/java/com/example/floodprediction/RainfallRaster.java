@@ -0,0 +1,174 @@
+package com.example.floodprediction;
+
+import java.util.Arrays;
+
+/**
+ * Dense rainfall grid (mm/h) over Malaysia, decoded from OpenWeatherMap
+ * "precipitation_new" tiles instead of being interpolated from a dozen city
+ * observations.
+ *
+ * The grid uses the same cells as {@link FloodHeatmapOverlay}, so a denser
+ * input costs nothing extra to draw. Each cell centre is mapped once to a
+ * global pixel at {@link #zoom}; decoding a tile is then a single pass over
+ * the cells that fall inside it, reading the tile's ARGB pixels through a
+ * caller-owned buffer (see {@link RainfallTileDecoder}).
+ *
+ * Pure Java — no Android types — so it can be tested on the JVM.
+ */
+public class RainfallRaster {
+
+    public static final int TILE_SIZE = 256;
+
+    // Same bounding box as FloodHeatmapOverlay
+    public static final double LAT_MIN = 0.8;
+    public static final double LAT_MAX = 7.5;
+    public static final double LON_MIN = 99.5;
+    public static final double LON_MAX = 119.5;
+
+    /**
+     * OWM precipitation_new palette stops: {mm, alpha}. The colour ramps
+     * 0.5 → 1 → 10 → 140 mm with alpha 0 → 0.3 → 0.7 → 0.9; alpha is the
+     * one channel that increases monotonically, so it is what we invert.
+     */
+    private static final float[][] PALETTE_STOPS = {
+            {0.5f, 0}, {1f, 77}, {10f, 179}, {140f, 230}
+    };
+
+    // alpha (0-255) → mm/h, built once
+    private static final float[] MM_BY_ALPHA = buildAlphaLut();
+
+    public final int cols;
+    public final int rows;
+    public final int zoom;
+
+    private final float[] mm;      // row-major, NaN = no tile decoded for this cell
+    private final int[] cellPx;    // global pixel x of each cell centre at zoom
+    private final int[] cellPy;    // global pixel y of each cell centre at zoom
+
+    public RainfallRaster(int cols, int rows, int zoom) {
+        this.cols = cols;
+        this.rows = rows;
+        this.zoom = zoom;
+        this.mm = new float[cols * rows];
+        this.cellPx = new int[cols * rows];
+        this.cellPy = new int[cols * rows];
+
+        double worldPx = (double) TILE_SIZE * (1 << zoom);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int i = row * cols + col;
+                cellPx[i] = (int) Math.floor(lonToUnitX(lonOfCol(col)) * worldPx);
+                cellPy[i] = (int) Math.floor(latToUnitY(latOfRow(row)) * worldPx);
+            }
+        }
+        clear();
+    }
+
+    public void clear() {
+        Arrays.fill(mm, Float.NaN);
+    }
+
+    public double latOfRow(int row) {
+        double step = (LAT_MAX - LAT_MIN) / rows;
+        return LAT_MAX - row * step - step / 2;
+    }
+
+    public double lonOfCol(int col) {
+        double step = (LON_MAX - LON_MIN) / cols;
+        return LON_MIN + col * step + step / 2;
+    }
+
+    public int minTileX() {
+        return (int) Math.floor(lonToUnitX(LON_MIN) * (1 << zoom));
+    }
+
+    public int maxTileX() {
+        return (int) Math.floor(lonToUnitX(LON_MAX) * (1 << zoom));
+    }
+
+    public int minTileY() {
+        return (int) Math.floor(latToUnitY(LAT_MAX) * (1 << zoom));
+    }
+
+    public int maxTileY() {
+        return (int) Math.floor(latToUnitY(LAT_MIN) * (1 << zoom));
+    }
+
+    /**
+     * Fill every cell inside tile (tileX, tileY) from its pixels.
+     *
+     * @param argb TILE_SIZE × TILE_SIZE non-premultiplied ARGB pixels, row-major
+     */
+    public void sampleTile(int tileX, int tileY, int[] argb) {
+        for (int i = 0; i < mm.length; i++) {
+            int px = cellPx[i];
+            int py = cellPy[i];
+            if (px / TILE_SIZE != tileX || py / TILE_SIZE != tileY) continue;
+            mm[i] = mmPerHour(argb[(py % TILE_SIZE) * TILE_SIZE + (px % TILE_SIZE)]);
+        }
+    }
+
+    /** Rainfall for a palette pixel. Transparent pixels mean no measurable rain. */
+    public static float mmPerHour(int argb) {
+        return MM_BY_ALPHA[argb >>> 24];
+    }
+
+    /**
+     * Flood risk (0-100) for a rainfall rate: moderate rain (2.5 mm/h) ≈ 30,
+     * heavy (10 mm/h) ≈ 60, violent (50 mm/h) = 100, linear in between.
+     */
+    public static double riskForRate(float mmPerHour) {
+        if (mmPerHour <= 0) return 0;
+        if (mmPerHour < 2.5f) return mmPerHour / 2.5f * 30;
+        if (mmPerHour < 10f) return 30 + (mmPerHour - 2.5f) / 7.5f * 30;
+        if (mmPerHour < 50f) return 60 + (mmPerHour - 10f) / 40f * 40;
+        return 100;
+    }
+
+    /** Rainfall at a cell in mm/h, or NaN if its tile hasn't been decoded. */
+    public float get(int row, int col) {
+        return mm[row * cols + col];
+    }
+
+    public boolean hasData() {
+        for (float v : mm) {
+            if (!Float.isNaN(v)) return true;
+        }
+        return false;
+    }
+
+    // Package-private for tests: which tile pixel a cell samples
+    int cellPixelX(int row, int col) {
+        return cellPx[row * cols + col];
+    }
+
+    int cellPixelY(int row, int col) {
+        return cellPy[row * cols + col];
+    }
+
+    private static double lonToUnitX(double lon) {
+        return (lon + 180.0) / 360.0;
+    }
+
+    private static double latToUnitY(double lat) {
+        double rad = Math.toRadians(lat);
+        return (1 - Math.log(Math.tan(rad) + 1 / Math.cos(rad)) / Math.PI) / 2;
+    }
+
+    private static float[] buildAlphaLut() {
+        float[] lut = new float[256];
+        for (int a = 1; a < 256; a++) {
+            float v = PALETTE_STOPS[PALETTE_STOPS.length - 1][0];
+            for (int s = 1; s < PALETTE_STOPS.length; s++) {
+                float a0 = PALETTE_STOPS[s - 1][1], a1 = PALETTE_STOPS[s][1];
+                if (a <= a1) {
+                    float t = (a - a0) / (a1 - a0);
+                    v = PALETTE_STOPS[s - 1][0] + t * (PALETTE_STOPS[s][0] - PALETTE_STOPS[s - 1][0]);
+                    break;
+                }
+            }
+            lut[a] = v;
+        }
+        return lut; // lut[0] stays 0: fully transparent = dry
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.floodprediction;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+/**
+ * Decodes OWM precipitation tiles into a {@link RainfallRaster}.
+ *
+ * One mutable tile bitmap and one int[] pixel buffer are reused for every
+ * tile (via {@link BitmapFactory.Options#inBitmap}), so rebuilding the
+ * raster each update interval allocates nothing per tile.
+ */
+public class RainfallTileDecoder {
+
+    private static final String LAYER = "precipitation_new";
+
+    // z6: a handful of tiles cover Malaysia at ~2.4 km/pixel — finer than the heatmap grid
+    public static final int ZOOM = 6;
+
+    private final int[] pixels = new int[RainfallRaster.TILE_SIZE * RainfallRaster.TILE_SIZE];
+    private final BitmapFactory.Options opts = new BitmapFactory.Options();
+    private Bitmap reusable;
+
+    public RainfallTileDecoder() {
+        opts.inMutable = true;
+        opts.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        opts.inPremultiplied = false; // alpha carries the rain value
+    }
+
+    /** Milliseconds from {@code timeMs} until the precipitation tiles' next update bucket. */
+    public static long millisUntilNextBucket(long timeMs) {
+        return TimeBucketTileCache.millisUntilNextBucket(timeMs, WeatherTileProvider.intervalFor(LAYER));
+    }
+
+    /**
+     * Rebuild {@code raster} from the current precipitation bucket.
+     * Blocking; call from a worker thread.
+     *
+     * @return true if at least one tile was decoded
+     */
+    public boolean build(RainfallRaster raster, String apiKey) {
+        raster.clear();
+        long bucket = TimeBucketTileCache.bucketOf(System.currentTimeMillis(),
+                WeatherTileProvider.intervalFor(LAYER));
+        boolean any = false;
+        for (int ty = raster.minTileY(); ty <= raster.maxTileY(); ty++) {
+            for (int tx = raster.minTileX(); tx <= raster.maxTileX(); tx++) {
+                byte[] png = WeatherTileProvider.fetchTile(LAYER, apiKey, bucket, raster.zoom, tx, ty);
+                if (png != null && decodeInto(png, raster, tx, ty)) any = true;
+            }
+        }
+        return any;
+    }
+
+    /** Decode one tile PNG and sample it into the raster. */
+    public boolean decodeInto(byte[] png, RainfallRaster raster, int tileX, int tileY) {
+        opts.inBitmap = reusable;
+        Bitmap bmp;
+        try {
+            bmp = BitmapFactory.decodeByteArray(png, 0, png.length, opts);
+        } catch (IllegalArgumentException e) {
+            // inBitmap incompatible (unexpected tile size) — decode without reuse
+            opts.inBitmap = null;
+            bmp = BitmapFactory.decodeByteArray(png, 0, png.length, opts);
+        }
+        if (bmp == null) return false;
+        reusable = bmp;
+
+        int size = RainfallRaster.TILE_SIZE;
+        if (bmp.getWidth() != size || bmp.getHeight() != size) return false;
+        bmp.getPixels(pixels, 0, size, 0, 0, size, size);
+        raster.sampleTile(tileX, tileY, pixels);
+        return true;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.floodprediction;
+
+import com.example.floodprediction.FloodReportManager.FloodReport;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The shared collection {@link ReportSync} talks to: {@link FirestoreReportCloud}
+ * in the app, an in-memory fake in tests. Calls block, so run them off the
+ * main thread.
+ *
+ * Every report document carries the geohash {@link #CELL_PRECISION} cell it
+ * lies in and the server time of its last change, so devices ask for the
+ * changes in their region since they last looked instead of reading the
+ * whole collection. Each confirmation is stored under an id of its own,
+ * so a batch sent again after a lost acknowledgement counts it once, and
+ * a report's severity is the worst any confirmation saw and never goes
+ * back down.
+ */
+public interface ReportCloud {
+
+    /** Most writes in one {@link #commit}; Firestore's batch limit. */
+    int MAX_BATCH = 500;
+
+    /** Geohash characters in a document's cell, about 39 x 20 km. */
+    int CELL_PRECISION = 4;
+
+    /** One document write. */
+    final class Write {
+        public final String docId;
+        /** The whole report for a new document, or null to add confirmations only. */
+        public FloodReport report;
+        /** Confirmations to add: severity by confirmation id, unique per confirmation. */
+        public final Map<String, String> confirmations;
+
+        public Write(String docId, FloodReport report, Map<String, String> confirmations) {
+            this.docId = docId;
+            this.report = report;
+            this.confirmations = confirmations;
+        }
+    }
+
+    /** A document as of its last change. */
+    final class Change {
+        public final String docId;
+        public final FloodReport report;  // null if the document can't be read
+        public final long changedMicros;  // server time of the change
+
+        public Change(String docId, FloodReport report, long changedMicros) {
+            this.docId = docId;
+            this.report = report;
+            this.changedMicros = changedMicros;
+        }
+    }
+
+    /** Applies all of {@code writes} (at most {@link #MAX_BATCH}) or none of them. */
+    void commit(List<Write> writes) throws Exception;
+
+    /**
+     * Up to {@code limit} documents in {@code cells} changed after the
+     * cursor {@code (afterMicros, afterDocId)}, oldest change first. Billed
+     * per document returned. {@code afterDocId} is null before the first
+     * document of a region; Firestore rejects empty ids.
+     */
+    List<Change> changedSince(List<String> cells, long afterMicros, String afterDocId, int limit)
+            throws Exception;
+}
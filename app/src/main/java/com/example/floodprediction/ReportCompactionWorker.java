@@ -0,0 +1,47 @@
+package com.example.floodprediction;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Once a day, drops local flood reports the {@link RetentionPolicy} no
+ * longer keeps, so storage and map load time stay bounded over a season.
+ * Waits for the battery not to be low; needs no network.
+ */
+public class ReportCompactionWorker extends Worker {
+
+    private static final String WORK_NAME = "report_compaction";
+
+    public ReportCompactionWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        FloodReportManager.getInstance(getApplicationContext()).compact();
+        return Result.success();
+    }
+
+    /** Make sure the daily job exists; a scheduled one is left alone. */
+    public static void ensureScheduled(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                ReportCompactionWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+}
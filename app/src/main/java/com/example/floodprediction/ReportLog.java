@@ -0,0 +1,606 @@
+package com.example.floodprediction;
+
+import com.example.floodprediction.FloodReportManager.FloodReport;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only report store: fixed 64-byte records in one memory-mapped
+ * file, with their strings in a second mapped "heap" file that records
+ * point into. Nothing is ever rewritten in place; a confirmation of an
+ * earlier report is appended as its own record.
+ *
+ * Crash safety: strings are flushed before the records that point at
+ * them, and every record carries a CRC32. On open the records are read
+ * until the first one that fails its checksum (a torn append) or belongs
+ * to an earlier {@link #clear()}, and everything after it is ignored.
+ *
+ * The in-memory index (time order, effective severity and confirmations
+ * per report) is rebuilt in that same pass. {@link #scan} then reads
+ * positions straight from the mapping without creating report objects;
+ * box queries filter through it.
+ *
+ * {@link #compact} rewrites the kept reports into the next generation of
+ * files while reads and appends carry on against the current one, then
+ * switches over by replacing the one-line CURRENT file.
+ *
+ * Pure Java, so it can be exercised on the JVM.
+ */
+public final class ReportLog implements ReportStore, Closeable {
+
+    public interface Visitor {
+        /** One report, read straight from the mapped file. Return false to stop. */
+        boolean visit(long id, double lat, double lon, int severityRank, long timestamp);
+    }
+
+    static final int RECORD_SIZE = 64;
+    private static final int MAGIC = 0x46524C47;  // "FRLG"
+    private static final int VERSION = 1;
+    private static final int MIN_MAP_BYTES = 64 * 1024;
+
+    // Header, in record slot 0
+    private static final int H_MAGIC = 0, H_VERSION = 4, H_EPOCH = 8;
+
+    // Record layout; CRC covers bytes [0, CRC)
+    private static final int LAT = 0, LON = 8, TIME = 16, PHOTO = 24,
+            DESC_OFF = 32, DESC_LEN = 36, LOC_OFF = 40, LOC_LEN = 44,
+            REF = 48, EPOCH = 52, TYPE = 56, SEVERITY = 57, CONFIRMATIONS = 58, CRC = 60;
+    private static final byte REPORT = 1, CONFIRM = 2, TYPE_MASK = 0x0F, HAS_PHOTO = 0x10;
+
+    private static final String[] SEVERITIES = {"LOW", "MEDIUM", "HIGH"};
+
+    private static final String CURRENT = "CURRENT";
+
+    private final File dir;
+    private int generation;      // which pair of files is live
+    private boolean compacting;
+    private Mapped records;
+    private Mapped heap;
+    private final CRC32 crc = new CRC32();
+    private final byte[] scratch = new byte[CRC];
+
+    private int epoch;
+    private int slots = 1;       // next free record slot
+    private int heapEnd;
+
+    // Index, one entry per report in append (= id) order
+    private int reports;
+    private int[] slotOf = new int[256];
+    private long[] timeOf = new long[256];
+    private byte[] severityOf = new byte[256];
+    private int[] confirmationsOf = new int[256];
+    // Report ordinals sorted by (timestamp, id)
+    private int[] byTime = new int[256];
+
+    public ReportLog(File dir) throws IOException {
+        this.dir = dir;
+        dir.mkdirs();
+        File current = new File(dir, CURRENT);
+        if (current.exists()) {
+            try (FileInputStream in = new FileInputStream(current)) {
+                byte[] text = new byte[16];
+                int n = Math.max(0, in.read(text));
+                generation = Integer.parseInt(new String(text, 0, n, StandardCharsets.UTF_8).trim());
+            }
+        }
+        // Leftovers of a compaction that never switched over
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                String name = f.getName();
+                if (name.startsWith("reports.") && !name.equals(fileName(generation, "log"))
+                        && !name.equals(fileName(generation, "heap"))) f.delete();
+            }
+        }
+        open();
+    }
+
+    /** Fresh files for generation {@code generation}, written by {@link #compact}. */
+    private ReportLog(File dir, int generation) throws IOException {
+        this.dir = dir;
+        this.generation = generation;
+        new File(dir, fileName(generation, "log")).delete();
+        new File(dir, fileName(generation, "heap")).delete();
+        open();
+    }
+
+    private static String fileName(int generation, String kind) {
+        return generation == 0 ? "reports." + kind : "reports." + generation + "." + kind;
+    }
+
+    private void open() throws IOException {
+        records = new Mapped(new File(dir, fileName(generation, "log")));
+        heap = new Mapped(new File(dir, fileName(generation, "heap")));
+        ByteBuffer r = records.buf;
+        if (r.getInt(H_MAGIC) != MAGIC || r.getInt(H_VERSION) != VERSION) {
+            r.putInt(H_MAGIC, MAGIC);
+            r.putInt(H_VERSION, VERSION);
+            r.putInt(H_EPOCH, r.getInt(H_EPOCH) + 1);
+            records.buf.force();
+        }
+        epoch = r.getInt(H_EPOCH);
+        slots = 1;
+        heapEnd = 0;
+        reports = 0;
+        load();
+    }
+
+    /** Records read on open, including confirmations. */
+    public synchronized int recordCount() {
+        return slots - 1;
+    }
+
+    public synchronized int size() {
+        return reports;
+    }
+
+    // ── Writing ──────────────────────────────────────────────────────────────
+
+    @Override
+    public synchronized void insert(FloodReport report) {
+        insertAll(Collections.singletonList(report));
+    }
+
+    @Override
+    public synchronized void insertAll(List<FloodReport> list) {
+        if (list.isEmpty()) return;
+        try {
+            // Strings first, on disk before any record points at them
+            int[] strings = new int[list.size() * 4];
+            for (int i = 0; i < list.size(); i++) {
+                FloodReport r = list.get(i);
+                putString(r.description, strings, i * 4);
+                putString(r.locationName, strings, i * 4 + 2);
+            }
+            heap.buf.force();
+
+            records.ensure((long) (slots + list.size()) * RECORD_SIZE);
+            ByteBuffer b = records.buf;
+            for (int i = 0; i < list.size(); i++) {
+                FloodReport r = list.get(i);
+                int base = slots * RECORD_SIZE;
+                b.putDouble(base + LAT, r.lat);
+                b.putDouble(base + LON, r.lon);
+                b.putLong(base + TIME, r.timestamp);
+                b.putLong(base + PHOTO, r.photoHash != null ? r.photoHash : 0);
+                b.putInt(base + DESC_OFF, strings[i * 4]);
+                b.putInt(base + DESC_LEN, strings[i * 4 + 1]);
+                b.putInt(base + LOC_OFF, strings[i * 4 + 2]);
+                b.putInt(base + LOC_LEN, strings[i * 4 + 3]);
+                b.putInt(base + REF, 0);
+                b.put(base + TYPE, (byte) (REPORT | (r.photoHash != null ? HAS_PHOTO : 0)));
+                b.put(base + SEVERITY, (byte) FloodReportManager.severityRank(r.severity));
+                b.putShort(base + CONFIRMATIONS, (short) Math.min(Short.MAX_VALUE, r.confirmations));
+                seal(base);
+                index(slots);
+                r.id = slots++;
+            }
+            records.buf.force();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public synchronized boolean link(long id, String severity) {
+        int report = ordinalOf(id);
+        if (report < 0) return false;
+        try {
+            records.ensure((long) (slots + 1) * RECORD_SIZE);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer b = records.buf;
+        int base = slots * RECORD_SIZE;
+        for (int i = 0; i < RECORD_SIZE; i++) b.put(base + i, (byte) 0);
+        b.putLong(base + TIME, System.currentTimeMillis());
+        b.putInt(base + REF, (int) id);
+        b.put(base + TYPE, CONFIRM);
+        b.put(base + SEVERITY, (byte) FloodReportManager.severityRank(severity));
+        seal(base);
+        index(slots++);
+        records.buf.force();
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        // Bumping the epoch invalidates every record written so far
+        epoch++;
+        records.buf.putInt(H_EPOCH, epoch);
+        records.buf.force();
+        slots = 1;
+        heapEnd = 0;
+        reports = 0;
+    }
+
+    private void putString(String s, int[] out, int at) {
+        if (s == null) {
+            out[at] = 0;
+            out[at + 1] = -1;
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        try {
+            heap.ensure((long) heapEnd + bytes.length);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer view = heap.view();
+        view.position(heapEnd);
+        view.put(bytes);
+        out[at] = heapEnd;
+        out[at + 1] = bytes.length;
+        heapEnd += bytes.length;
+    }
+
+    private void seal(int base) {
+        records.buf.putInt(base + EPOCH, epoch);
+        records.buf.putInt(base + CRC, checksum(base));
+    }
+
+    private int checksum(int base) {
+        ByteBuffer view = records.view();
+        view.position(base);
+        view.get(scratch);
+        crc.reset();
+        crc.update(scratch, 0, CRC);
+        return (int) crc.getValue();
+    }
+
+    // ── Index ────────────────────────────────────────────────────────────────
+
+    private void load() {
+        ByteBuffer b = records.buf;
+        int capacity = b.capacity() / RECORD_SIZE;
+        boolean sorted = true;
+        while (slots < capacity) {
+            int base = slots * RECORD_SIZE;
+            if (b.getInt(base + EPOCH) != epoch || b.getInt(base + CRC) != checksum(base)) break;
+            if ((b.get(base + TYPE) & TYPE_MASK) == REPORT) {
+                heapEnd = Math.max(heapEnd, Math.max(
+                        b.getInt(base + DESC_OFF) + Math.max(0, b.getInt(base + DESC_LEN)),
+                        b.getInt(base + LOC_OFF) + Math.max(0, b.getInt(base + LOC_LEN))));
+                if (reports > 0 && b.getLong(base + TIME) < timeOf[reports - 1]) sorted = false;
+            }
+            index(slots++, false);
+        }
+        if (!sorted) sortByTime();
+        clearTail(capacity);
+    }
+
+    /**
+     * After a torn append or a {@link #clear()}, records past the last good
+     * one may still be intact; zero them so rewriting the gap can't bring
+     * them back.
+     */
+    private void clearTail(int capacity) {
+        MappedByteBuffer b = records.buf;
+        int from = slots * RECORD_SIZE;
+        if (slots >= capacity || (b.getLong(from + TIME) == 0 && b.getInt(from + CRC) == 0
+                && b.getInt(from + EPOCH) == 0)) return;
+        for (int i = from, end = capacity * RECORD_SIZE; i < end; i += 8) b.putLong(i, 0);
+        b.force();
+    }
+
+    private void index(int slot) {
+        index(slot, true);
+    }
+
+    private void index(int slot, boolean keepTimeOrder) {
+        ByteBuffer b = records.buf;
+        int base = slot * RECORD_SIZE;
+        byte type = (byte) (b.get(base + TYPE) & TYPE_MASK);
+        if (type == CONFIRM) {
+            int report = ordinalOf(b.getInt(base + REF));
+            if (report >= 0) {
+                confirmationsOf[report]++;
+                severityOf[report] = (byte) Math.max(severityOf[report], b.get(base + SEVERITY));
+            }
+            return;
+        }
+        if (reports == slotOf.length) {
+            int n = reports * 2;
+            slotOf = Arrays.copyOf(slotOf, n);
+            timeOf = Arrays.copyOf(timeOf, n);
+            severityOf = Arrays.copyOf(severityOf, n);
+            confirmationsOf = Arrays.copyOf(confirmationsOf, n);
+            byTime = Arrays.copyOf(byTime, n);
+        }
+        int report = reports++;
+        long time = b.getLong(base + TIME);
+        slotOf[report] = slot;
+        timeOf[report] = time;
+        severityOf[report] = b.get(base + SEVERITY);
+        confirmationsOf[report] = b.getShort(base + CONFIRMATIONS);
+
+        // Reports nearly always arrive in time order; otherwise shift the later ones up
+        int pos = report;
+        if (keepTimeOrder) {
+            while (pos > 0 && timeOf[byTime[pos - 1]] > time) pos--;
+            System.arraycopy(byTime, pos, byTime, pos + 1, report - pos);
+        }
+        byTime[pos] = report;
+    }
+
+    private void sortByTime() {
+        Integer[] order = new Integer[reports];
+        for (int i = 0; i < reports; i++) order[i] = i;
+        Arrays.sort(order, (a, c) -> timeOf[a] != timeOf[c] ? Long.compare(timeOf[a], timeOf[c]) : a - c);
+        for (int i = 0; i < reports; i++) byTime[i] = order[i];
+    }
+
+    /** Report ordinal for record slot {@code id}, or -1. */
+    private int ordinalOf(long id) {
+        if (id <= 0 || id >= slots) return -1;
+        int i = Arrays.binarySearch(slotOf, 0, reports, (int) id);
+        return i >= 0 ? i : -1;
+    }
+
+    /** First position in {@link #byTime} at or after {@code time}. */
+    private int firstAtOrAfter(long time) {
+        int lo = 0, hi = reports;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timeOf[byTime[mid]] < time) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // ── Reading ──────────────────────────────────────────────────────────────
+
+    /**
+     * Visits reports saved at or after {@code sinceMs}, oldest first,
+     * without creating objects.
+     */
+    public synchronized void scan(long sinceMs, Visitor visitor) {
+        ByteBuffer b = records.buf;
+        for (int pos = firstAtOrAfter(sinceMs); pos < reports; pos++) {
+            int report = byTime[pos];
+            int base = slotOf[report] * RECORD_SIZE;
+            if (!visitor.visit(slotOf[report], b.getDouble(base + LAT), b.getDouble(base + LON),
+                    severityOf[report], timeOf[report])) return;
+        }
+    }
+
+    @Override
+    public synchronized List<FloodReport> all() {
+        return between(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public synchronized List<FloodReport> between(long fromMs, long toMs) {
+        List<FloodReport> list = new ArrayList<>();
+        for (int pos = firstAtOrAfter(fromMs); pos < reports; pos++) {
+            int report = byTime[pos];
+            if (timeOf[report] >= toMs) break;
+            list.add(report(report));
+        }
+        return list;
+    }
+
+    @Override
+    public synchronized List<FloodReport> in(double south, double west, double north, double east,
+                                             long sinceMs) {
+        List<FloodReport> list = new ArrayList<>();
+        scan(sinceMs, (id, lat, lon, severity, timestamp) -> {
+            if (lat >= south && lat <= north && lon >= west && lon <= east) {
+                list.add(report(ordinalOf(id)));
+            }
+            return true;
+        });
+        return list;
+    }
+
+    @Override
+    public synchronized List<FloodReport> page(FloodReport after, int limit) {
+        int end = reports;
+        if (after != null) {
+            // First position not before `after` in (timestamp, id) order
+            int lo = 0, hi = reports;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int report = byTime[mid];
+                boolean before = timeOf[report] < after.timestamp
+                        || (timeOf[report] == after.timestamp && slotOf[report] < after.id);
+                if (before) lo = mid + 1;
+                else hi = mid;
+            }
+            end = lo;
+        }
+        List<FloodReport> list = new ArrayList<>();
+        for (int pos = end - 1; pos >= 0 && list.size() < limit; pos--) {
+            list.add(report(byTime[pos]));
+        }
+        return list;
+    }
+
+    private FloodReport report(int report) {
+        FloodReport r = read(records.buf, heap.buf, slotOf[report]);
+        r.severity = SEVERITIES[severityOf[report]];
+        r.confirmations = confirmationsOf[report];
+        return r;
+    }
+
+    /**
+     * The report record at {@code slot} as written, before any confirmations.
+     * Absolute reads only, so it's safe on a snapshot of the buffers.
+     */
+    private static FloodReport read(ByteBuffer records, ByteBuffer heap, int slot) {
+        int base = slot * RECORD_SIZE;
+        String location = heap == null ? null
+                : string(heap, records.getInt(base + LOC_OFF), records.getInt(base + LOC_LEN));
+        FloodReport r = new FloodReport(
+                records.getDouble(base + LAT),
+                records.getDouble(base + LON),
+                SEVERITIES[records.get(base + SEVERITY)],
+                heap == null ? null
+                        : string(heap, records.getInt(base + DESC_OFF), records.getInt(base + DESC_LEN)),
+                location != null || heap == null ? location : "Unknown",
+                records.getLong(base + TIME));
+        r.id = slot;
+        r.confirmations = records.getShort(base + CONFIRMATIONS);
+        if ((records.get(base + TYPE) & HAS_PHOTO) != 0) r.photoHash = records.getLong(base + PHOTO);
+        return r;
+    }
+
+    private static String string(ByteBuffer heap, int offset, int length) {
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) bytes[i] = heap.get(offset + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ── Compaction ───────────────────────────────────────────────────────────
+
+    @Override
+    public int compact(RetentionPolicy policy, long now) {
+        // Snapshot under the lock; the rest runs without it
+        ByteBuffer snapRecords, snapHeap;
+        int[] snapSlots;
+        byte[] snapSeverity;
+        int[] snapConfirmations;
+        int snapEnd, snapEpoch, next;
+        synchronized (this) {
+            if (compacting) return 0;
+            compacting = true;
+            snapRecords = records.buf.duplicate();
+            snapHeap = heap.buf.duplicate();
+            snapSlots = Arrays.copyOf(slotOf, reports);
+            snapSeverity = Arrays.copyOf(severityOf, reports);
+            snapConfirmations = Arrays.copyOf(confirmationsOf, reports);
+            snapEnd = slots;
+            snapEpoch = epoch;
+            next = generation + 1;
+        }
+        ReportLog copy = null;
+        try {
+            List<FloodReport> all = new ArrayList<>(snapSlots.length);
+            for (int i = 0; i < snapSlots.length; i++) {
+                FloodReport r = read(snapRecords, null, snapSlots[i]);
+                r.severity = SEVERITIES[snapSeverity[i]];
+                r.confirmations = snapConfirmations[i];
+                all.add(r);
+            }
+            List<FloodReport> kept = policy.keep(all, now);
+            if (kept.size() == all.size()) return 0;
+
+            // Old id -> new id, in id order
+            int[] oldIds = new int[kept.size()];
+            List<FloodReport> full = new ArrayList<>(kept.size());
+            for (int i = 0; i < kept.size(); i++) {
+                FloodReport light = kept.get(i);
+                FloodReport r = read(snapRecords, snapHeap, (int) light.id);
+                r.severity = light.severity;
+                r.confirmations = light.confirmations;
+                oldIds[i] = (int) light.id;
+                full.add(r);
+            }
+            copy = new ReportLog(dir, next);
+            copy.insertAll(full);
+            int[] newIds = new int[full.size()];
+            for (int i = 0; i < full.size(); i++) newIds[i] = (int) full.get(i).id;
+
+            synchronized (this) {
+                if (epoch != snapEpoch) return 0;  // cleared meanwhile
+
+                // Whatever was appended since the snapshot goes over as well
+                Map<Integer, Integer> appended = new HashMap<>();
+                for (int slot = snapEnd; slot < slots; slot++) {
+                    int base = slot * RECORD_SIZE;
+                    if ((records.buf.get(base + TYPE) & TYPE_MASK) == REPORT) {
+                        FloodReport r = read(records.buf, heap.buf, slot);
+                        copy.insert(r);
+                        appended.put(slot, (int) r.id);
+                    } else {
+                        int ref = records.buf.getInt(base + REF);
+                        int at = Arrays.binarySearch(oldIds, ref);
+                        Integer target = at >= 0 ? Integer.valueOf(newIds[at]) : appended.get(ref);
+                        if (target != null) {
+                            copy.link(target, SEVERITIES[records.buf.get(base + SEVERITY)]);
+                        }
+                    }
+                }
+                copy.close();
+                copy = null;
+
+                // The switch: CURRENT names the new generation or it doesn't
+                File tmp = new File(dir, CURRENT + ".tmp");
+                try (FileOutputStream out = new FileOutputStream(tmp)) {
+                    out.write(String.valueOf(next).getBytes(StandardCharsets.UTF_8));
+                    out.getFD().sync();
+                }
+                if (!tmp.renameTo(new File(dir, CURRENT))) throw new IOException("CURRENT not replaced");
+
+                int old = generation;
+                close();
+                new File(dir, fileName(old, "log")).delete();
+                new File(dir, fileName(old, "heap")).delete();
+                generation = next;
+                open();
+            }
+            return all.size() - kept.size();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (copy != null) {
+                try {
+                    copy.close();
+                } catch (IOException ignored) {}
+                new File(dir, fileName(next, "log")).delete();
+                new File(dir, fileName(next, "heap")).delete();
+            }
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        records.channel.close();
+        heap.channel.close();
+    }
+
+    /** A file mapped read-write, remapped larger (the file grows with it) when full. */
+    private static final class Mapped {
+        final FileChannel channel;
+        MappedByteBuffer buf;
+        private ByteBuffer view;   // for relative bulk writes
+
+        Mapped(File file) throws IOException {
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            buf = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(MIN_MAP_BYTES, channel.size()));
+        }
+
+        void ensure(long bytes) throws IOException {
+            if (bytes <= buf.capacity()) return;
+            long size = Math.max(bytes, buf.capacity() * 2L);
+            buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            view = null;
+        }
+
+        ByteBuffer view() {
+            if (view == null) view = buf.duplicate();
+            return view;
+        }
+    }
+}
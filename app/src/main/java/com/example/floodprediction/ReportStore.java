@@ -0,0 +1,45 @@
+package com.example.floodprediction;
+
+import com.example.floodprediction.FloodReportManager.FloodReport;
+
+import java.util.List;
+
+/**
+ * Where {@link FloodReportManager} keeps reports: the indexed
+ * {@link SqliteReportStore}, or the append-only {@link ReportLog}.
+ *
+ * Reports come back with their id set. Lists are oldest first unless noted.
+ * Boxes must not cross the antimeridian.
+ */
+public interface ReportStore {
+
+    /** Adds {@code report} and sets its id. */
+    void insert(FloodReport report);
+
+    /** Adds every report in one go (one transaction or one flush). */
+    void insertAll(List<FloodReport> reports);
+
+    /** One more confirmation on report {@code id}, keeping the worse severity. False if it's gone. */
+    boolean link(long id, String severity);
+
+    List<FloodReport> all();
+
+    /** Saved in {@code [fromMs, toMs)}. */
+    List<FloodReport> between(long fromMs, long toMs);
+
+    /** Inside the box and saved at or after {@code sinceMs}. */
+    List<FloodReport> in(double south, double west, double north, double east, long sinceMs);
+
+    /** Newest first, strictly older than {@code after} (null for the first page). */
+    List<FloodReport> page(FloodReport after, int limit);
+
+    void clear();
+
+    /**
+     * Drops the reports {@code policy} no longer keeps and reclaims their
+     * space; readers carry on meanwhile. Ids of kept reports may change.
+     *
+     * @return how many reports were dropped
+     */
+    int compact(RetentionPolicy policy, long now);
+}
@@ -0,0 +1,257 @@
+package com.example.floodprediction;
+
+import com.example.floodprediction.FloodReportManager.FloodReport;
+import com.example.floodprediction.ReportCloud.Change;
+import com.example.floodprediction.ReportCloud.Write;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Offline-first sync between a local {@link ReportStore} and the shared
+ * {@link ReportCloud}, so reports reach other users.
+ *
+ * Out: new reports and confirmations go into a {@link SyncOutbox} as they
+ * are saved and {@link #push} sends them in batches of up to
+ * {@link ReportCloud#MAX_BATCH} writes, merging writes to the same report.
+ * In: {@link #pull} asks only for documents in the geohash cells around
+ * the region centre changed after a stored cursor, so each sync costs one
+ * read per changed report rather than a read of the collection.
+ *
+ * Documents are named after what they hold ({@link #documentId}), so a
+ * report pulled back in, from this device or another, is matched against
+ * the local copy instead of being stored twice.
+ */
+public class ReportSync {
+
+    /** Half the side of the square region pulled around its centre, in degrees. */
+    public static final double REGION_DEGREES = 0.25;
+
+    static final int PAGE_SIZE = 200;
+
+    // ~1 m cells: two reports share a name only if saved in the same place and millisecond
+    private static final int DOC_HASH_PRECISION = 10;
+
+    private final ReportStore store;
+    private final Object storeLock;
+    private final ReportCloud cloud;
+    private final SyncOutbox outbox;
+    private final File stateFile;
+
+    private final Object pushLock = new Object();
+    private final Object pullLock = new Object();
+
+    // Persisted in stateFile; guarded by this
+    private double regionLat = Double.NaN, regionLon = Double.NaN;
+    private long cursorMicros = -1;  // -1: nothing pulled for this region yet
+    private String cursorDocId = "";
+    private int regionVersion;
+
+    /**
+     * @param storeLock held while pulled reports go into {@code store}, so
+     *                  they don't interleave with the owner's own writes
+     * @param dir       where the outbox and cursor live
+     */
+    public ReportSync(ReportStore store, Object storeLock, ReportCloud cloud, File dir) {
+        this.store = store;
+        this.storeLock = storeLock;
+        this.cloud = cloud;
+        dir.mkdirs();
+        this.outbox = new SyncOutbox(new File(dir, "outbox"));
+        this.stateFile = new File(dir, "state");
+        loadState();
+    }
+
+    /** The document name for {@code report}: where and when it was saved. */
+    public static String documentId(FloodReport report) {
+        return Geohash.encode(report.lat, report.lon, DOC_HASH_PRECISION)
+                + "-" + Long.toString(report.timestamp, 36);
+    }
+
+    /** Queue a newly saved report for the cloud. */
+    public void queueReport(FloodReport report) throws IOException {
+        outbox.add(new Write(documentId(report), copy(report), new LinkedHashMap<>()));
+    }
+
+    /**
+     * Queue one more confirmation of {@code report} at {@code severity},
+     * under a random id that stays with it in the outbox until sent.
+     */
+    public void queueConfirmation(FloodReport report, String severity) throws IOException {
+        Map<String, String> confirmation = new LinkedHashMap<>();
+        confirmation.put(UUID.randomUUID().toString(), severity);
+        outbox.add(new Write(documentId(report), null, confirmation));
+    }
+
+    public int pendingWrites() {
+        return outbox.size();
+    }
+
+    public synchronized boolean hasRegion() {
+        return !Double.isNaN(regionLat);
+    }
+
+    /** Pull reports around this point from now on; moving to other cells starts over. */
+    public synchronized void setRegion(double lat, double lon) {
+        boolean moved = Double.isNaN(regionLat)
+                || !regionCells(lat, lon).equals(regionCells(regionLat, regionLon));
+        regionLat = lat;
+        regionLon = lon;
+        if (moved) {
+            cursorMicros = -1;
+            cursorDocId = "";
+            regionVersion++;
+        }
+        saveState();
+    }
+
+    /**
+     * Send everything queued, oldest first. A batch leaves the outbox only
+     * once committed, so a failure is retried by the next push.
+     *
+     * @return how many queued writes were sent
+     */
+    public int push() throws Exception {
+        synchronized (pushLock) {
+            int sent = 0;
+            List<Write> queued;
+            while (!(queued = outbox.peek(ReportCloud.MAX_BATCH)).isEmpty()) {
+                cloud.commit(coalesce(queued));
+                outbox.remove(queued.size());
+                sent += queued.size();
+            }
+            return sent;
+        }
+    }
+
+    /**
+     * Fetch what changed in the region since the last pull into the store,
+     * skipping reports {@code policy} would drop. The first pull for a
+     * region goes back as far as the policy keeps anything.
+     *
+     * @return how many reports were added or gained confirmations
+     */
+    public int pull(RetentionPolicy policy, long now) throws Exception {
+        synchronized (pullLock) {
+            List<String> cells;
+            long afterMicros;
+            String afterDocId;
+            int version;
+            synchronized (this) {
+                if (Double.isNaN(regionLat)) return 0;
+                cells = regionCells(regionLat, regionLon);
+                afterMicros = cursorMicros >= 0 ? cursorMicros : policy.oldestKept(now) * 1000;
+                afterDocId = cursorDocId.isEmpty() ? null : cursorDocId;
+                version = regionVersion;
+            }
+
+            int applied = 0;
+            while (true) {
+                List<Change> page = cloud.changedSince(cells, afterMicros, afterDocId, PAGE_SIZE);
+                synchronized (storeLock) {
+                    for (Change change : page) {
+                        if (apply(change, policy, now)) applied++;
+                    }
+                }
+                if (page.isEmpty()) return applied;
+                Change last = page.get(page.size() - 1);
+                afterMicros = last.changedMicros;
+                afterDocId = last.docId;
+                synchronized (this) {
+                    if (version != regionVersion) return applied;  // moved meanwhile
+                    cursorMicros = afterMicros;
+                    cursorDocId = afterDocId;
+                    saveState();
+                }
+                if (page.size() < PAGE_SIZE) return applied;
+            }
+        }
+    }
+
+    /** One write per document, in first-queued order; confirmations of a new report go with it. */
+    static List<Write> coalesce(List<Write> queued) {
+        Map<String, Write> byDoc = new LinkedHashMap<>();
+        for (Write write : queued) {
+            Write merged = byDoc.get(write.docId);
+            if (merged == null) {
+                merged = new Write(write.docId, null, new LinkedHashMap<>());
+                byDoc.put(write.docId, merged);
+            }
+            if (write.report != null) merged.report = copy(write.report);
+            merged.confirmations.putAll(write.confirmations);
+        }
+        return new ArrayList<>(byDoc.values());
+    }
+
+    static List<String> regionCells(double lat, double lon) {
+        return Geohash.cells(lat - REGION_DEGREES, lon - REGION_DEGREES,
+                lat + REGION_DEGREES, lon + REGION_DEGREES, ReportCloud.CELL_PRECISION);
+    }
+
+    /** Adds a new report or the confirmations it gained elsewhere. Caller holds storeLock. */
+    private boolean apply(Change change, RetentionPolicy policy, long now) {
+        FloodReport remote = change.report;
+        if (remote == null || policy.isExpired(remote, now)) return false;
+        FloodReport local = null;
+        for (FloodReport r : store.between(remote.timestamp, remote.timestamp + 1)) {
+            if (documentId(r).equals(change.docId)) local = r;
+        }
+        if (local == null) {
+            store.insert(copy(remote));
+            return true;
+        }
+        // Confirmations only grow; fewer remotely means ours are still queued
+        int gained = remote.confirmations - local.confirmations;
+        for (int i = 0; i < gained; i++) store.link(local.id, remote.severity);
+        return gained > 0;
+    }
+
+    private static FloodReport copy(FloodReport r) {
+        FloodReport c = new FloodReport(r.lat, r.lon, r.severity, r.description, r.locationName,
+                r.timestamp);
+        c.confirmations = r.confirmations;
+        c.photoHash = r.photoHash;
+        return c;
+    }
+
+    // ── Cursor and region ────────────────────────────────────────────────────
+
+    private void loadState() {
+        if (!stateFile.exists()) return;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(stateFile))) {
+            double lat = in.readDouble();
+            double lon = in.readDouble();
+            long micros = in.readLong();
+            String docId = in.readUTF();
+            regionLat = lat;
+            regionLon = lon;
+            cursorMicros = micros;
+            cursorDocId = docId;
+        } catch (Exception ignored) {}  // pulls the region again
+    }
+
+    private void saveState() {
+        File tmp = new File(stateFile.getPath() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(file);
+            out.writeDouble(regionLat);
+            out.writeDouble(regionLon);
+            out.writeLong(cursorMicros);
+            out.writeUTF(cursorDocId);
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException ignored) {
+            return;
+        }
+        tmp.renameTo(stateFile);
+    }
+}
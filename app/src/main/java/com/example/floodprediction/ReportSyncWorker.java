@@ -0,0 +1,91 @@
+package com.example.floodprediction;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.tasks.Tasks;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Syncs flood reports with Firestore through {@link FloodReportManager#sync}:
+ * right after a report is saved, when the map opens, and every 30 minutes
+ * for other users' reports, which are pulled around the device's last known
+ * location. All runs wait for a network; a failed run is retried with
+ * backoff and the queued writes stay on disk until it succeeds.
+ */
+public class ReportSyncWorker extends Worker {
+
+    private static final String WORK_NAME = "report_sync";
+    private static final String WORK_NAME_NOW = "report_sync_now";
+    private static final long LOCATION_TIMEOUT_S = 10;
+
+    public ReportSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        FloodReportManager manager = FloodReportManager.getInstance(getApplicationContext());
+        Location here = lastLocation(getApplicationContext());
+        if (here != null) manager.setSyncRegion(here.getLatitude(), here.getLongitude());
+        return manager.sync() ? Result.success() : Result.retry();
+    }
+
+    /** The last fix the system has, or null without permission or a fix. */
+    private static Location lastLocation(Context context) {
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED
+                && ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            return null;
+        }
+        try {
+            return Tasks.await(LocationServices.getFusedLocationProviderClient(context)
+                    .getLastLocation(), LOCATION_TIMEOUT_S, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Constraints online() {
+        return new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+    }
+
+    /** Sync once as soon as there's a network; one pending run drains the whole outbox. */
+    public static void requestSync(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ReportSyncWorker.class)
+                .setConstraints(online())
+                .build();
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniqueWork(WORK_NAME_NOW, ExistingWorkPolicy.KEEP, request);
+    }
+
+    /** Make sure the periodic sync exists; a scheduled one is left alone. */
+    public static void ensureScheduled(Context context) {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                ReportSyncWorker.class, 30, TimeUnit.MINUTES)
+                .setConstraints(online())
+                .build();
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.floodprediction;
+
+import com.example.floodprediction.FloodReportManager.FloodReport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Which local flood reports are worth keeping. Each severity has its own
+ * time-to-live, so a HIGH report stays on the map longer than a LOW one,
+ * and each area (a square cell {@link #areaDegrees} wide) keeps at most
+ * {@link #maxPerArea} reports, the most severe first and then the newest.
+ *
+ * Together these bound both how many reports are stored and how many the
+ * map has to draw, however long the monsoon season runs.
+ */
+public final class RetentionPolicy {
+
+    public static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    /** LOW for 3 days, MEDIUM for 7, HIGH for 30; 50 reports per ~11 km cell. */
+    public static final RetentionPolicy DEFAULT =
+            new RetentionPolicy(3 * DAY_MS, 7 * DAY_MS, 30 * DAY_MS, 0.1, 50);
+
+    private final long[] ttlMs;   // by severity rank: LOW, MEDIUM, HIGH
+    public final double areaDegrees;
+    public final int maxPerArea;
+
+    public RetentionPolicy(long lowTtlMs, long mediumTtlMs, long highTtlMs,
+                           double areaDegrees, int maxPerArea) {
+        this.ttlMs = new long[]{lowTtlMs, mediumTtlMs, highTtlMs};
+        this.areaDegrees = areaDegrees;
+        this.maxPerArea = maxPerArea;
+    }
+
+    public long ttl(String severity) {
+        return ttlMs[FloodReportManager.severityRank(severity)];
+    }
+
+    /** Reports older than this are expired whatever their severity. */
+    public long oldestKept(long now) {
+        return now - Math.max(ttlMs[0], Math.max(ttlMs[1], ttlMs[2]));
+    }
+
+    /** Reports at least this old may be expired, depending on severity. */
+    public long firstExpiry(long now) {
+        return now - Math.min(ttlMs[0], Math.min(ttlMs[1], ttlMs[2]));
+    }
+
+    public boolean isExpired(FloodReport report, long now) {
+        return now - report.timestamp >= ttl(report.severity);
+    }
+
+    /** The reports to keep, in their original order. */
+    public List<FloodReport> keep(List<FloodReport> reports, long now) {
+        Map<Long, List<Integer>> areas = new HashMap<>();
+        for (int i = 0; i < reports.size(); i++) {
+            FloodReport r = reports.get(i);
+            if (isExpired(r, now)) continue;
+            List<Integer> area = areas.get(cell(r));
+            if (area == null) {
+                area = new ArrayList<>();
+                areas.put(cell(r), area);
+            }
+            area.add(i);
+        }
+
+        boolean[] kept = new boolean[reports.size()];
+        for (List<Integer> area : areas.values()) {
+            if (area.size() > maxPerArea) {
+                area.sort((a, b) -> {
+                    FloodReport x = reports.get(a), y = reports.get(b);
+                    int bySeverity = FloodReportManager.severityRank(y.severity)
+                            - FloodReportManager.severityRank(x.severity);
+                    if (bySeverity != 0) return bySeverity;
+                    if (x.timestamp != y.timestamp) return Long.compare(y.timestamp, x.timestamp);
+                    return Long.compare(y.id, x.id);
+                });
+                area = area.subList(0, maxPerArea);
+            }
+            for (int i : area) kept[i] = true;
+        }
+
+        List<FloodReport> result = new ArrayList<>();
+        for (int i = 0; i < kept.length; i++) {
+            if (kept[i]) result.add(reports.get(i));
+        }
+        return result;
+    }
+
+    private long cell(FloodReport r) {
+        long row = (long) Math.floor(r.lat / areaDegrees);
+        long col = (long) Math.floor(r.lon / areaDegrees);
+        return (row << 32) ^ (col & 0xFFFFFFFFL);
+    }
+}
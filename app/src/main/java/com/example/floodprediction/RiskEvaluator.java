@@ -0,0 +1,38 @@
+package com.example.floodprediction;
+
+/**
+ * A flood-risk model that {@link RiskScorer} can run: either the
+ * rule-based {@link RiskModel} or the trained {@link BoostedTreeRiskModel}.
+ *
+ * Implementations are immutable and must not allocate in {@link #score}.
+ * Versions share one sequence across model kinds; the highest installed
+ * version wins.
+ */
+public interface RiskEvaluator {
+
+    int version();
+
+    /** Score one observation, 0 - 100. */
+    int score(float rain, float humidity, float wind, float clouds, int condition);
+
+    /**
+     * Score one observation with antecedent features from
+     * {@link ObservationHistory}. Models without history features ignore them.
+     */
+    default int score(float rain, float humidity, float wind, float clouds, int condition,
+                      float rain24h, float rain72h, float humidityTrend) {
+        return score(rain, humidity, wind, clouds, condition);
+    }
+
+    String level(int score);
+
+    /** Score {@code obs.size} observations into {@code out}. */
+    default void scoreBatch(RiskScorer.Observations obs, int[] out) {
+        final float[] rain = obs.rain, hum = obs.humidity, wind = obs.wind, clouds = obs.clouds;
+        final short[] cond = obs.condition;
+        final int n = obs.size;
+        for (int i = 0; i < n; i++) {
+            out[i] = score(rain[i], hum[i], wind[i], clouds[i], cond[i]);
+        }
+    }
+}
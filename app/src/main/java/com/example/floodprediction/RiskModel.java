@@ -0,0 +1,278 @@
+package com.example.floodprediction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compiled, immutable flood-risk model.
+ *
+ * Models are authored as data (see assets/risk_model.json) so hydrologists
+ * can retune thresholds without an app release. At load time each numeric
+ * factor is compiled into a lookup table over its quantised value — rain
+ * and wind in 0.1 steps, humidity, clouds and antecedent rainfall in whole
+ * units — so scoring is a handful of array reads and adds with no if-chains
+ * and no allocation.
+ *
+ * Thresholds are exact when they sit on the factor's resolution grid; ">"
+ * tables are indexed by ceil(value / step) and ">=" tables by floor, so a
+ * value equal to a threshold lands on the correct side.
+ *
+ * Pure Java, so models can be compiled and checked on the JVM.
+ */
+public final class RiskModel implements RiskEvaluator {
+
+    public static final int RAIN = 0;       // mm over the observation window
+    public static final int HUMIDITY = 1;   // %
+    public static final int WIND = 2;       // m/s
+    public static final int CLOUDS = 3;     // %
+    public static final int RAIN_24H = 4;   // mm over the last 24 h, from ObservationHistory
+    public static final int RAIN_72H = 5;   // mm over the last 72 h
+    public static final int HUMIDITY_TREND = 6; // % above the 24 h mean
+    public static final int FACTOR_COUNT = 7;
+
+    public static final String[] FACTOR_NAMES = {"rain", "humidity", "wind", "clouds",
+            "rain_24h", "rain_72h", "humidity_trend"};
+
+    // Quantisation: table index = value * SCALE, clamped to TABLE_SIZE - 1
+    private static final float[] SCALE = {10f, 1f, 10f, 1f, 1f, 1f, 1f};
+    // 500 mm, 100 %, 100 m/s, 100 %, 1000 mm, 2000 mm, 100 %
+    private static final int[] TABLE_SIZE = {5001, 101, 1001, 101, 1001, 2001, 101};
+    private static final float EPSILON = 1e-3f;
+
+    public final int version;
+    public final String name;
+    public final int highThreshold;
+    public final int mediumThreshold;
+    public final int maxScore;
+
+    private final byte[][] factorPoints = new byte[FACTOR_COUNT][];
+    private final boolean[] factorInclusive = new boolean[FACTOR_COUNT];
+    private final byte[] conditionPoints;
+
+    // Bonus rules: points added when every condition holds (masks are 0/1 tables)
+    private final int[] bonusPoints;
+    private final int[][] bonusFactors;
+    private final boolean[][] bonusInclusive;
+    private final byte[][][] bonusMasks;
+
+    private RiskModel(Builder b) {
+        version = b.version;
+        name = b.name;
+        highThreshold = b.high;
+        mediumThreshold = b.medium;
+        maxScore = b.maxScore;
+
+        for (int f = 0; f < FACTOR_COUNT; f++) {
+            factorInclusive[f] = b.inclusive[f];
+            factorPoints[f] = compileSteps(f, b.inclusive[f],
+                    b.thresholds[f] != null ? b.thresholds[f] : new float[0],
+                    b.points[f] != null ? b.points[f] : new int[0]);
+        }
+
+        conditionPoints = new byte[1000];
+        for (int[] c : b.conditions) {
+            for (int code = Math.max(0, c[0]); code <= Math.min(999, c[1]); code++) {
+                conditionPoints[code] = (byte) c[2];
+            }
+        }
+
+        int n = b.bonuses.size();
+        bonusPoints = new int[n];
+        bonusFactors = new int[n][];
+        bonusInclusive = new boolean[n][];
+        bonusMasks = new byte[n][][];
+        for (int i = 0; i < n; i++) {
+            Bonus bonus = b.bonuses.get(i);
+            bonusPoints[i] = bonus.points;
+            bonusFactors[i] = bonus.factors;
+            bonusInclusive[i] = bonus.inclusive;
+            bonusMasks[i] = new byte[bonus.factors.length][];
+            for (int k = 0; k < bonus.factors.length; k++) {
+                bonusMasks[i][k] = compileSteps(bonus.factors[k], bonus.inclusive[k],
+                        new float[]{bonus.values[k]}, new int[]{1});
+            }
+        }
+    }
+
+    /** Table where entry i = points of the highest threshold exceeded by bin i. */
+    private static byte[] compileSteps(int factor, boolean inclusive, float[] thresholds, int[] points) {
+        if (thresholds.length != points.length) {
+            throw new IllegalArgumentException(FACTOR_NAMES[factor] + ": thresholds and points differ in length");
+        }
+        byte[] table = new byte[TABLE_SIZE[factor]];
+        for (int i = 0; i < table.length; i++) {
+            int best = 0;
+            for (int k = 0; k < thresholds.length; k++) {
+                int t = Math.round(thresholds[k] * SCALE[factor]);
+                boolean hit = inclusive ? i >= t : i > t;
+                if (hit && points[k] > best) best = points[k];
+            }
+            if (best > 127) throw new IllegalArgumentException(FACTOR_NAMES[factor] + ": points must be <= 127");
+            table[i] = (byte) best;
+        }
+        return table;
+    }
+
+    private static int index(int factor, boolean inclusive, float v) {
+        float scaled = v * SCALE[factor];
+        int i = inclusive ? (int) scaled : (int) Math.ceil(scaled - EPSILON);
+        int max = TABLE_SIZE[factor] - 1;
+        return i < 0 ? 0 : (i > max ? max : i);
+    }
+
+    private int lookup(int factor, float v) {
+        return factorPoints[factor][index(factor, factorInclusive[factor], v)];
+    }
+
+    /** Score one observation (0 .. maxScore) with no antecedent history. */
+    @Override
+    public int score(float rain, float humidity, float wind, float clouds, int condition) {
+        return score(rain, humidity, wind, clouds, condition, 0f, 0f, 0f);
+    }
+
+    /** Score one observation (0 .. maxScore). */
+    @Override
+    public int score(float rain, float humidity, float wind, float clouds, int condition,
+                     float rain24h, float rain72h, float humidityTrend) {
+        int s = lookup(RAIN, rain) + lookup(HUMIDITY, humidity)
+                + lookup(WIND, wind) + lookup(CLOUDS, clouds)
+                + lookup(RAIN_24H, rain24h) + lookup(RAIN_72H, rain72h)
+                + lookup(HUMIDITY_TREND, humidityTrend)
+                + conditionPoints[condition < 0 || condition > 999 ? 0 : condition];
+
+        for (int b = 0; b < bonusPoints.length; b++) {
+            int[] factors = bonusFactors[b];
+            int all = 1;
+            for (int k = 0; k < factors.length; k++) {
+                int f = factors[k];
+                float v;
+                switch (f) {
+                    case RAIN: v = rain; break;
+                    case HUMIDITY: v = humidity; break;
+                    case WIND: v = wind; break;
+                    case CLOUDS: v = clouds; break;
+                    case RAIN_24H: v = rain24h; break;
+                    case RAIN_72H: v = rain72h; break;
+                    default: v = humidityTrend; break;
+                }
+                all &= bonusMasks[b][k][index(f, bonusInclusive[b][k], v)];
+            }
+            s += all * bonusPoints[b];
+        }
+        return Math.min(s, maxScore);
+    }
+
+    @Override
+    public int version() {
+        return version;
+    }
+
+    @Override
+    public String level(int score) {
+        if (score >= highThreshold) return "HIGH";
+        else if (score >= mediumThreshold) return "MEDIUM";
+        else return "LOW";
+    }
+
+    /**
+     * The built-in model, identical to bundled risk_model.json version 2.
+     * Used until an asset or downloaded model has been loaded.
+     */
+    public static RiskModel defaults() {
+        return new Builder(2, "monsoon-antecedent")
+                .levels(60, 30)
+                .maxScore(100)
+                .factor(RAIN, false, new float[]{5, 15, 30, 50}, new int[]{10, 20, 30, 40})
+                .factor(HUMIDITY, false, new float[]{70, 80, 90}, new int[]{8, 15, 25})
+                .factor(WIND, true, new float[]{8, 14}, new int[]{10, 20})
+                .factor(CLOUDS, false, new float[]{70}, new int[]{8})
+                .factor(RAIN_24H, false, new float[]{50, 100}, new int[]{8, 15})
+                .factor(RAIN_72H, false, new float[]{150}, new int[]{10})
+                .factor(HUMIDITY_TREND, false, new float[]{10}, new int[]{5})
+                .bonus(7, new int[]{CLOUDS, RAIN}, new boolean[]{false, false}, new float[]{90, 0})
+                .condition(200, 299, 15)   // thunderstorm
+                .condition(300, 399, 8)    // drizzle
+                .condition(500, 599, 8)    // rain
+                .condition(502, 504, 15)   // heavy / very heavy / extreme rain
+                .condition(522, 522, 15)   // heavy shower rain
+                .condition(531, 531, 15)   // ragged shower rain
+                .build();
+    }
+
+    public static Builder builder(int version, String name) {
+        return new Builder(version, name);
+    }
+
+    private static class Bonus {
+        final int points;
+        final int[] factors;
+        final boolean[] inclusive;
+        final float[] values;
+
+        Bonus(int points, int[] factors, boolean[] inclusive, float[] values) {
+            this.points = points;
+            this.factors = factors;
+            this.inclusive = inclusive;
+            this.values = values;
+        }
+    }
+
+    public static class Builder {
+        private final int version;
+        private final String name;
+        private int high = 60, medium = 30, maxScore = 100;
+        private final float[][] thresholds = new float[FACTOR_COUNT][];
+        private final int[][] points = new int[FACTOR_COUNT][];
+        private final boolean[] inclusive = new boolean[FACTOR_COUNT];
+        private final List<int[]> conditions = new ArrayList<>();
+        private final List<Bonus> bonuses = new ArrayList<>();
+
+        Builder(int version, String name) {
+            this.version = version;
+            this.name = name;
+        }
+
+        public Builder levels(int high, int medium) {
+            this.high = high;
+            this.medium = medium;
+            return this;
+        }
+
+        public Builder maxScore(int maxScore) {
+            this.maxScore = maxScore;
+            return this;
+        }
+
+        /**
+         * @param inclusive true for "value >= threshold", false for "value > threshold"
+         * @param points    total points once the matching threshold is passed
+         */
+        public Builder factor(int factor, boolean inclusive, float[] thresholds, int[] points) {
+            this.inclusive[factor] = inclusive;
+            this.thresholds[factor] = Arrays.copyOf(thresholds, thresholds.length);
+            this.points[factor] = Arrays.copyOf(points, points.length);
+            return this;
+        }
+
+        /** Extra points when every (factor, op, value) condition holds. */
+        public Builder bonus(int points, int[] factors, boolean[] inclusive, float[] values) {
+            if (factors.length != inclusive.length || factors.length != values.length) {
+                throw new IllegalArgumentException("bonus: condition arrays differ in length");
+            }
+            bonuses.add(new Bonus(points, factors.clone(), inclusive.clone(), values.clone()));
+            return this;
+        }
+
+        /** Points for OWM condition codes in [from, to]; later ranges override earlier ones. */
+        public Builder condition(int from, int to, int points) {
+            conditions.add(new int[]{from, to, points});
+            return this;
+        }
+
+        public RiskModel build() {
+            if (medium > high) throw new IllegalArgumentException("medium level above high level");
+            return new RiskModel(this);
+        }
+    }
+}
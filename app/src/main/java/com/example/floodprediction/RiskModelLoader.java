@@ -0,0 +1,187 @@
+package com.example.floodprediction;
+
+import android.content.Context;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Loads risk models and installs them into {@link RiskScorer}.
+ *
+ * Two kinds are supported: rule definitions (risk_model.json, compiled by
+ * {@link RiskModel}) and trained tree ensembles (risk_model.gbt, read by
+ * {@link BoostedTreeRiskModel}). Either may be bundled in assets or
+ * downloaded. If {@code riskModelUrl} is set in local.properties,
+ * {@link #refresh} checks it for a newer version, keeps a copy in app
+ * storage and swaps it in immediately — no restart needed. The highest
+ * version wins, so an older download never overrides a newer bundled model.
+ */
+public final class RiskModelLoader {
+
+    private static final String RULES_NAME = "risk_model.json";
+    private static final String TREES_NAME = "risk_model.gbt";
+
+    private static boolean loaded;
+
+    private RiskModelLoader() {}
+
+    /** Install the newest bundled or downloaded model, once per process. */
+    public static synchronized void ensureLoaded(Context context) {
+        if (loaded) return;
+        loaded = true;
+
+        Context app = context.getApplicationContext();
+        RiskEvaluator best = null;
+        for (String name : new String[]{RULES_NAME, TREES_NAME}) {
+            try (InputStream in = app.getAssets().open(name)) {
+                best = newer(best, decode(readAll(in)));
+            } catch (Exception e) {
+                // Not bundled; keep what we have
+            }
+            File file = new File(app.getFilesDir(), name);
+            if (!file.exists()) continue;
+            try (InputStream in = new FileInputStream(file)) {
+                best = newer(best, decode(readAll(in)));
+            } catch (Exception e) {
+                file.delete(); // corrupt; the next refresh fetches it again
+            }
+        }
+        if (best != null && best.version() >= RiskScorer.getModel().version()) {
+            RiskScorer.install(best);
+        }
+    }
+
+    /**
+     * Blocking check for a newer model at {@code BuildConfig.RISK_MODEL_URL}.
+     * Call from a background thread. Returns true if a new model was installed.
+     */
+    public static boolean refresh(Context context) {
+        String urlStr = BuildConfig.RISK_MODEL_URL;
+        if (urlStr == null || urlStr.isEmpty()) return false;
+
+        try {
+            byte[] data = download(urlStr);
+            // Decoding validates the definition before anything is persisted
+            RiskEvaluator model = decode(data);
+            if (model.version() <= RiskScorer.getModel().version()) return false;
+
+            File dir = context.getApplicationContext().getFilesDir();
+            String name = model instanceof BoostedTreeRiskModel ? TREES_NAME : RULES_NAME;
+            File tmp = new File(dir, name + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                out.write(data);
+            }
+            if (!tmp.renameTo(new File(dir, name))) {
+                tmp.delete();
+            }
+            RiskScorer.install(model);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /** Trained models start with the "FRGB" magic; anything else is a JSON rule set. */
+    static RiskEvaluator decode(byte[] data) throws Exception {
+        boolean trees = data.length >= 4
+                && ((data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16 | (data[2] & 0xFF) << 8 | (data[3] & 0xFF))
+                == BoostedTreeRiskModel.MAGIC;
+        if (trees) return BoostedTreeRiskModel.read(new ByteArrayInputStream(data));
+        return parse(new String(data, "UTF-8"));
+    }
+
+    private static RiskEvaluator newer(RiskEvaluator a, RiskEvaluator b) {
+        return a == null || b.version() > a.version() ? b : a;
+    }
+
+    /** Parse and compile a model definition (see assets/risk_model.json). */
+    public static RiskModel parse(String json) throws JSONException {
+        JSONObject root = new JSONObject(json);
+        RiskModel.Builder builder = RiskModel.builder(root.getInt("version"), root.optString("name", ""));
+
+        JSONObject levels = root.getJSONObject("levels");
+        builder.levels(levels.getInt("high"), levels.getInt("medium"));
+        builder.maxScore(root.optInt("max_score", 100));
+
+        JSONObject factors = root.getJSONObject("factors");
+        for (int f = 0; f < RiskModel.FACTOR_COUNT; f++) {
+            JSONObject factor = factors.optJSONObject(RiskModel.FACTOR_NAMES[f]);
+            if (factor == null) continue;
+            JSONArray t = factor.getJSONArray("thresholds");
+            JSONArray p = factor.getJSONArray("points");
+            float[] thresholds = new float[t.length()];
+            int[] points = new int[p.length()];
+            for (int i = 0; i < thresholds.length; i++) thresholds[i] = (float) t.getDouble(i);
+            for (int i = 0; i < points.length; i++) points[i] = p.getInt(i);
+            builder.factor(f, isInclusive(factor.optString("op", ">")), thresholds, points);
+        }
+
+        JSONArray bonuses = root.optJSONArray("bonuses");
+        for (int b = 0; bonuses != null && b < bonuses.length(); b++) {
+            JSONObject bonus = bonuses.getJSONObject(b);
+            JSONArray when = bonus.getJSONArray("when");
+            int[] ids = new int[when.length()];
+            boolean[] inclusive = new boolean[when.length()];
+            float[] values = new float[when.length()];
+            for (int i = 0; i < ids.length; i++) {
+                JSONObject cond = when.getJSONObject(i);
+                ids[i] = factorId(cond.getString("factor"));
+                inclusive[i] = isInclusive(cond.optString("op", ">"));
+                values[i] = (float) cond.getDouble("value");
+            }
+            builder.bonus(bonus.getInt("points"), ids, inclusive, values);
+        }
+
+        JSONArray conditions = root.optJSONArray("conditions");
+        for (int i = 0; conditions != null && i < conditions.length(); i++) {
+            JSONObject c = conditions.getJSONObject(i);
+            builder.condition(c.getInt("from"), c.getInt("to"), c.getInt("points"));
+        }
+        return builder.build();
+    }
+
+    private static boolean isInclusive(String op) throws JSONException {
+        if (op.equals(">=")) return true;
+        if (op.equals(">")) return false;
+        throw new JSONException("Unsupported op: " + op);
+    }
+
+    private static int factorId(String name) throws JSONException {
+        for (int f = 0; f < RiskModel.FACTOR_COUNT; f++) {
+            if (RiskModel.FACTOR_NAMES[f].equals(name)) return f;
+        }
+        throw new JSONException("Unknown factor: " + name);
+    }
+
+    private static byte[] download(String urlStr) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
+        conn.setRequestMethod("GET");
+        conn.setConnectTimeout(10000);
+        conn.setReadTimeout(10000);
+        try {
+            int code = conn.getResponseCode();
+            if (code != 200) throw new Exception("HTTP " + code);
+            return readAll(conn.getInputStream());
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) out.write(buf, 0, n);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.floodprediction;
+
+import java.util.Arrays;
+
+/**
+ * The single flood-risk scoring model used by every screen.
+ *
+ * Risk used to be computed three slightly different ways (current weather,
+ * forecast items, map markers), each with its own thresholds and string
+ * {@code contains} checks on the description. This class replaces all of
+ * them. Inputs are primitive values; weather conditions are OpenWeatherMap
+ * condition codes (2xx thunderstorm, 3xx drizzle, 5xx rain, 7xx mist, 80x
+ * clouds) looked up in a table instead of matched as text.
+ *
+ * The active {@link RiskEvaluator} is either a data-driven {@link RiskModel}
+ * (thresholds compiled to lookup tables) or a trained
+ * {@link BoostedTreeRiskModel}, loaded from versioned assets by
+ * {@link RiskModelLoader}. {@link #install} swaps the active model
+ * atomically; every call reads the model once, so a batch is never scored
+ * half by one model and half by the next.
+ *
+ * {@link #scoreBatch} scores columnar {@link Observations} in one tight
+ * loop with no per-sample allocation, for dense grids and long horizons.
+ */
+public final class RiskScorer {
+
+    private static volatile RiskEvaluator model = RiskModel.defaults();
+
+    private RiskScorer() {}
+
+    /**
+     * Columnar (struct-of-arrays) batch of observations. Grows as needed;
+     * reuse one instance and {@link #clear()} it between batches.
+     */
+    public static final class Observations {
+        public float[] rain;       // mm over the observation window
+        public float[] humidity;   // %
+        public float[] wind;       // m/s
+        public float[] clouds;     // %
+        public short[] condition;  // OWM condition code
+        public int size;
+
+        public Observations(int capacity) {
+            rain = new float[capacity];
+            humidity = new float[capacity];
+            wind = new float[capacity];
+            clouds = new float[capacity];
+            condition = new short[capacity];
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        public int add(float rain, float humidity, float wind, float clouds, int condition) {
+            if (size == this.rain.length) grow();
+            int i = size++;
+            this.rain[i] = rain;
+            this.humidity[i] = humidity;
+            this.wind[i] = wind;
+            this.clouds[i] = clouds;
+            this.condition[i] = (short) condition;
+            return i;
+        }
+
+        private void grow() {
+            int cap = Math.max(16, rain.length * 2);
+            rain = Arrays.copyOf(rain, cap);
+            humidity = Arrays.copyOf(humidity, cap);
+            wind = Arrays.copyOf(wind, cap);
+            clouds = Arrays.copyOf(clouds, cap);
+            condition = Arrays.copyOf(condition, cap);
+        }
+    }
+
+    /** The active model. */
+    public static RiskEvaluator getModel() {
+        return model;
+    }
+
+    /** Replace the active model; takes effect for the next score call. */
+    public static void install(RiskEvaluator next) {
+        if (next == null) throw new IllegalArgumentException("model is null");
+        model = next;
+    }
+
+    /** Score one observation. */
+    public static int score(double rain, double humidity, double wind, double clouds, int condition) {
+        return model.score((float) rain, (float) humidity, (float) wind, (float) clouds, condition);
+    }
+
+    /** Score one observation with the station's antecedent history (may be null). */
+    public static int score(double rain, double humidity, double wind, double clouds, int condition,
+                            ObservationHistory.Features history) {
+        if (history == null) return score(rain, humidity, wind, clouds, condition);
+        return model.score((float) rain, (float) humidity, (float) wind, (float) clouds, condition,
+                history.rain24h, history.rain72h, history.humidityTrend);
+    }
+
+    /**
+     * Score {@code obs.size} observations into {@code out[0 .. size)}.
+     */
+    public static void scoreBatch(Observations obs, int[] out) {
+        model.scoreBatch(obs, out);
+    }
+
+    public static String level(int score) {
+        return model.level(score);
+    }
+
+    /**
+     * Best-effort OWM condition code for a free-text description, for demo
+     * data and other sources that don't carry the numeric id.
+     */
+    public static int conditionCode(String description) {
+        if (description == null) return 800;
+        String d = description.toLowerCase();
+        if (d.contains("thunder")) return 211;
+        if (d.contains("heavy") && d.contains("rain")) return 502;
+        if (d.contains("moderate rain")) return 501;
+        if (d.contains("rain") || d.contains("shower")) return 500;
+        if (d.contains("drizzle")) return 300;
+        if (d.contains("mist") || d.contains("haze") || d.contains("fog")) return 701;
+        if (d.contains("overcast")) return 804;
+        if (d.contains("cloud")) return 802;
+        return 800;
+    }
+}
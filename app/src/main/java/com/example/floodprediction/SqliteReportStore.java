@@ -0,0 +1,235 @@
+package com.example.floodprediction;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.floodprediction.FloodReportManager.FloodReport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reports in a local SQLite table, indexed by time and by spatial cell so
+ * saves don't rewrite the history and queries only touch the rows they
+ * return.
+ */
+public class SqliteReportStore implements ReportStore {
+
+    private static final String DB_NAME = "flood_reports.db";
+    private static final int DB_VERSION = 1;
+    private static final String TABLE = "reports";
+    private static final String[] COLUMNS = {
+            "id", "lat", "lon", "severity", "description", "location_name", "timestamp",
+            "confirmations", "photo_hash"
+    };
+
+    private static final String SEVERITY_RANK =
+            "(CASE severity WHEN 'HIGH' THEN 2 WHEN 'MEDIUM' THEN 1 ELSE 0 END)";
+
+    // Spatial cells are bands of latitude this many degrees tall, indexed with longitude
+    private static final double CELL_DEGREES = 0.05;
+    // Boxes taller than this many cells are scanned as one band range
+    private static final int MAX_LISTED_CELLS = 64;
+
+    private final SQLiteDatabase db;
+
+    private static class Db extends SQLiteOpenHelper {
+        Db(Context context, String name) {
+            super(context, name, null, DB_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + TABLE + " ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "lat REAL NOT NULL, lon REAL NOT NULL, lat_cell INTEGER NOT NULL, "
+                    + "severity TEXT NOT NULL, description TEXT, location_name TEXT, "
+                    + "timestamp INTEGER NOT NULL, confirmations INTEGER NOT NULL DEFAULT 1, "
+                    + "photo_hash INTEGER)");
+            db.execSQL("CREATE INDEX reports_time ON " + TABLE + " (timestamp)");
+            db.execSQL("CREATE INDEX reports_cell ON " + TABLE + " (lat_cell, lon)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {}
+    }
+
+    /** Opens (creating if needed) the app's database. Disk I/O; not on the main thread. */
+    public SqliteReportStore(Context context) {
+        this(context, DB_NAME);
+    }
+
+    /** Database file {@code name}, or an in-memory one if null. */
+    SqliteReportStore(Context context, String name) {
+        Db helper = new Db(context.getApplicationContext(), name);
+        // WAL, so map queries keep reading while compaction deletes
+        helper.setWriteAheadLoggingEnabled(true);
+        db = helper.getWritableDatabase();
+    }
+
+    @Override
+    public void insert(FloodReport report) {
+        report.id = db.insert(TABLE, null, values(report));
+    }
+
+    @Override
+    public void insertAll(List<FloodReport> reports) {
+        db.beginTransaction();
+        try {
+            for (FloodReport report : reports) insert(report);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public boolean link(long id, String severity) {
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE
+                + " SET confirmations = confirmations + 1,"
+                + " severity = CASE WHEN " + SEVERITY_RANK + " < ? THEN ? ELSE severity END"
+                + " WHERE id = ?");
+        try {
+            update.bindLong(1, FloodReportManager.severityRank(severity));
+            update.bindString(2, severity);
+            update.bindLong(3, id);
+            return update.executeUpdateDelete() == 1;
+        } finally {
+            update.close();
+        }
+    }
+
+    @Override
+    public List<FloodReport> all() {
+        return query(null, null, "timestamp, id", null);
+    }
+
+    @Override
+    public List<FloodReport> between(long fromMs, long toMs) {
+        return query("timestamp >= ? AND timestamp < ?",
+                new String[]{String.valueOf(fromMs), String.valueOf(toMs)}, "timestamp, id", null);
+    }
+
+    @Override
+    public List<FloodReport> in(double south, double west, double north, double east, long sinceMs) {
+        int first = latCell(south), last = latCell(north);
+        StringBuilder where = new StringBuilder();
+        if (last - first < MAX_LISTED_CELLS) {
+            // One short index range per cell instead of every longitude between the rows
+            where.append("lat_cell IN (");
+            for (int cell = first; cell <= last; cell++) {
+                if (cell > first) where.append(',');
+                where.append(cell);
+            }
+            where.append(')');
+        } else {
+            where.append("lat_cell BETWEEN ").append(first).append(" AND ").append(last);
+        }
+        where.append(" AND lon BETWEEN ? AND ? AND lat BETWEEN ? AND ? AND timestamp >= ?");
+        return query(where.toString(), new String[]{
+                String.valueOf(west), String.valueOf(east),
+                String.valueOf(south), String.valueOf(north), String.valueOf(sinceMs)
+        }, "timestamp, id", null);
+    }
+
+    @Override
+    public List<FloodReport> page(FloodReport after, int limit) {
+        if (after == null) {
+            return query(null, null, "timestamp DESC, id DESC", String.valueOf(limit));
+        }
+        String ts = String.valueOf(after.timestamp);
+        // Keyset paging: the timestamp bound keeps it an index range, not a scan from the top
+        return query("timestamp <= ? AND (timestamp < ? OR id < ?)",
+                new String[]{ts, ts, String.valueOf(after.id)},
+                "timestamp DESC, id DESC", String.valueOf(limit));
+    }
+
+    @Override
+    public void clear() {
+        db.delete(TABLE, null, null);
+    }
+
+    @Override
+    public int compact(RetentionPolicy policy, long now) {
+        int dropped = 0;
+        db.beginTransactionNonExclusive();
+        try {
+            // Only rows past the shortest TTL can be expired, so the time index bounds this
+            dropped += db.delete(TABLE, "timestamp <= ? AND timestamp <= CASE severity"
+                            + " WHEN 'HIGH' THEN ? WHEN 'MEDIUM' THEN ? ELSE ? END",
+                    new String[]{
+                            String.valueOf(policy.firstExpiry(now)),
+                            String.valueOf(now - policy.ttl("HIGH")),
+                            String.valueOf(now - policy.ttl("MEDIUM")),
+                            String.valueOf(now - policy.ttl("LOW"))
+                    });
+
+            // Per-area caps over what's left, which the TTLs keep small
+            List<FloodReport> live = all();
+            List<FloodReport> kept = policy.keep(live, now);
+            if (kept.size() < live.size()) {
+                boolean[] keep = new boolean[live.size()];
+                for (int i = 0, k = 0; i < live.size() && k < kept.size(); i++) {
+                    if (live.get(i) == kept.get(k)) {
+                        keep[i] = true;
+                        k++;
+                    }
+                }
+                StringBuilder ids = new StringBuilder();
+                for (int i = 0; i < live.size(); i++) {
+                    if (keep[i]) continue;
+                    if (ids.length() > 0) ids.append(',');
+                    ids.append(live.get(i).id);
+                }
+                dropped += db.delete(TABLE, "id IN (" + ids + ")", null);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return dropped;
+    }
+
+    private List<FloodReport> query(String where, String[] args, String orderBy, String limit) {
+        List<FloodReport> list = new ArrayList<>();
+        try (Cursor c = db.query(TABLE, COLUMNS, where, args, null, null, orderBy, limit)) {
+            while (c.moveToNext()) {
+                FloodReport report = new FloodReport(
+                        c.getDouble(1),
+                        c.getDouble(2),
+                        c.getString(3),
+                        c.getString(4),
+                        c.isNull(5) ? "Unknown" : c.getString(5),
+                        c.getLong(6)
+                );
+                report.id = c.getLong(0);
+                report.confirmations = c.getInt(7);
+                report.photoHash = c.isNull(8) ? null : c.getLong(8);
+                list.add(report);
+            }
+        } catch (Exception ignored) {}
+        return list;
+    }
+
+    private static int latCell(double lat) {
+        return (int) Math.floor((lat + 90) / CELL_DEGREES);
+    }
+
+    private static ContentValues values(FloodReport r) {
+        ContentValues v = new ContentValues();
+        v.put("lat", r.lat);
+        v.put("lon", r.lon);
+        v.put("lat_cell", latCell(r.lat));
+        v.put("severity", r.severity);
+        v.put("description", r.description);
+        v.put("location_name", r.locationName);
+        v.put("timestamp", r.timestamp);
+        v.put("confirmations", r.confirmations);
+        v.put("photo_hash", r.photoHash);
+        return v;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.floodprediction;
+
+import com.example.floodprediction.FloodReportManager.FloodReport;
+import com.example.floodprediction.ReportCloud.Write;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Writes waiting for the cloud, oldest first, in a local file so they
+ * survive restarts and days offline. Each write is appended and synced as
+ * one checksummed record; a torn last record is dropped on load. Sent
+ * writes are removed from the front by rewriting what's left, which is
+ * usually nothing.
+ */
+public class SyncOutbox {
+
+    private final File file;
+    private final List<Write> pending = new ArrayList<>();
+
+    public SyncOutbox(File file) {
+        this.file = file;
+        load();
+    }
+
+    public synchronized void add(Write write) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(record(write));
+            out.getFD().sync();
+        }
+        pending.add(write);
+    }
+
+    /** The oldest {@code max} writes, still queued. */
+    public synchronized List<Write> peek(int max) {
+        return new ArrayList<>(pending.subList(0, Math.min(max, pending.size())));
+    }
+
+    /** Drops the oldest {@code count} writes once the cloud has them. */
+    public synchronized void remove(int count) throws IOException {
+        pending.subList(0, count).clear();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            for (Write write : pending) out.write(record(write));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) throw new IOException("outbox not replaced");
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        long good = 0;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            while (true) {
+                int length = in.readInt();
+                long crc = in.readLong();
+                if (length < 0 || length > file.length()) break;
+                byte[] body = new byte[length];
+                in.readFully(body);
+                if (checksum(body) != crc) break;
+                pending.add(decode(body));
+                good += 12 + length;
+            }
+        } catch (EOFException ignored) {
+        } catch (Exception ignored) {}
+        // Cut a torn tail so the next append starts on a record boundary
+        if (good < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(good);
+            } catch (Exception ignored) {}
+        }
+    }
+
+    private static long checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        return crc.getValue();
+    }
+
+    private static byte[] record(Write write) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeUTF(write.docId);
+        out.writeInt(write.confirmations.size());
+        for (Map.Entry<String, String> c : write.confirmations.entrySet()) {
+            out.writeUTF(c.getKey());
+            out.writeUTF(c.getValue());
+        }
+        FloodReport r = write.report;
+        out.writeBoolean(r != null);
+        if (r != null) {
+            out.writeUTF(r.severity);
+            out.writeDouble(r.lat);
+            out.writeDouble(r.lon);
+            out.writeLong(r.timestamp);
+            out.writeInt(r.confirmations);
+            writeNullable(out, r.description);
+            writeNullable(out, r.locationName);
+            out.writeBoolean(r.photoHash != null);
+            if (r.photoHash != null) out.writeLong(r.photoHash);
+        }
+        byte[] bytes = body.toByteArray();
+
+        ByteArrayOutputStream framed = new ByteArrayOutputStream(bytes.length + 12);
+        DataOutputStream frame = new DataOutputStream(framed);
+        frame.writeInt(bytes.length);
+        frame.writeLong(checksum(bytes));
+        frame.write(bytes);
+        return framed.toByteArray();
+    }
+
+    private static Write decode(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        String docId = in.readUTF();
+        int count = in.readInt();
+        Map<String, String> confirmedBy = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) confirmedBy.put(in.readUTF(), in.readUTF());
+        FloodReport r = null;
+        if (in.readBoolean()) {
+            String severity = in.readUTF();
+            double lat = in.readDouble();
+            double lon = in.readDouble();
+            long timestamp = in.readLong();
+            int confirmations = in.readInt();
+            String description = readNullable(in);
+            String locationName = readNullable(in);
+            r = new FloodReport(lat, lon, severity, description, locationName, timestamp);
+            r.confirmations = confirmations;
+            if (in.readBoolean()) r.photoHash = in.readLong();
+        }
+        return new Write(docId, r, confirmedBy);
+    }
+
+    private static void writeNullable(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.floodprediction;
+
+import android.graphics.Color;
+import android.text.Spannable;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.view.Choreographer;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Word-by-word text reveal for any number of TextViews, driven by one
+ * Choreographer frame callback.
+ *
+ * Each view gets its full text once, as a Spannable, so it lays out at its
+ * final size straight away. The unrevealed tail is covered by a transparent
+ * {@link ForegroundColorSpan}; every frame just moves that span to the next
+ * precomputed word boundary, so no strings are built while animating. The
+ * callback is only posted while a reveal is running. Main thread only; call
+ * {@link #cancelAll()} from onDestroy.
+ */
+public class TextRevealAnimator implements Choreographer.FrameCallback {
+
+    private static final long WORD_NANOS = 60_000_000L; // 60 ms per word
+
+    private static class Reveal {
+        final TextView view;
+        final Spannable text;
+        final int[] wordEnds;
+        final long startNanos;
+        final ForegroundColorSpan hidden = new ForegroundColorSpan(Color.TRANSPARENT);
+        int shown = -1;
+
+        Reveal(TextView view, Spannable text, int[] wordEnds, long startNanos) {
+            this.view = view;
+            this.text = text;
+            this.wordEnds = wordEnds;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private final List<Reveal> active = new ArrayList<>();
+    private boolean posted;
+
+    /** Reveal {@code text} in {@code view}, starting after {@code startDelayMs}. */
+    public void reveal(TextView view, String text, long startDelayMs) {
+        cancel(view);
+        if (text == null || text.isEmpty()) return;
+
+        view.setText(text, TextView.BufferType.SPANNABLE);
+        Spannable spannable = (Spannable) view.getText();
+        Reveal r = new Reveal(view, spannable, wordEnds(text),
+                System.nanoTime() + startDelayMs * 1_000_000L);
+        spannable.setSpan(r.hidden, 0, spannable.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        active.add(r);
+
+        if (!posted) {
+            posted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /** Stop revealing {@code view}, leaving its text fully visible. */
+    public void cancel(TextView view) {
+        for (int i = active.size() - 1; i >= 0; i--) {
+            Reveal r = active.get(i);
+            if (r.view == view) {
+                r.text.removeSpan(r.hidden);
+                active.remove(i);
+            }
+        }
+    }
+
+    /** Drop every reveal and the pending frame callback. */
+    public void cancelAll() {
+        active.clear();
+        if (posted) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            posted = false;
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        posted = false;
+        for (int i = active.size() - 1; i >= 0; i--) {
+            Reveal r = active.get(i);
+            if (frameTimeNanos < r.startNanos) continue;
+
+            int words = (int) Math.min(r.wordEnds.length, (frameTimeNanos - r.startNanos) / WORD_NANOS + 1);
+            if (words == r.shown) continue;
+            r.shown = words;
+
+            if (words >= r.wordEnds.length) {
+                r.text.removeSpan(r.hidden);
+                active.remove(i);
+            } else {
+                r.text.setSpan(r.hidden, r.wordEnds[words - 1], r.text.length(),
+                        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+        }
+        if (!active.isEmpty()) {
+            posted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /** End offset of each word, including its trailing whitespace. */
+    static int[] wordEnds(String text) {
+        int count = 0;
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            if (!Character.isWhitespace(text.charAt(i))
+                    && (i + 1 == n || Character.isWhitespace(text.charAt(i + 1)))) count++;
+        }
+        int[] ends = new int[Math.max(1, count)];
+        int w = 0;
+        for (int i = 0; i < n && w < count; i++) {
+            if (!Character.isWhitespace(text.charAt(i))
+                    && (i + 1 == n || Character.isWhitespace(text.charAt(i + 1)))) {
+                int end = i + 1;
+                while (end < n && Character.isWhitespace(text.charAt(end))) end++;
+                ends[w++] = end;
+            }
+        }
+        if (count == 0) ends[0] = n;
+        return ends;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.floodprediction;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory LRU cache for weather tile PNGs whose key includes the upstream
+ * update bucket (time / interval). A tile is fetched at most once per
+ * bucket; once the next bucket starts the old entries are simply never hit
+ * again and fall out through LRU order or {@link #evictBefore}.
+ *
+ * Bounded by total encoded bytes rather than entry count, since rain tiles
+ * range from a few hundred bytes (clear sky) to tens of KB (storm cells).
+ */
+public class TimeBucketTileCache {
+
+    private static class Entry {
+        final String layer;
+        final long bucket;
+        final byte[] data;
+
+        Entry(String layer, long bucket, byte[] data) {
+            this.layer = layer;
+            this.bucket = bucket;
+            this.data = data;
+        }
+    }
+
+    private final long budgetBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long sizeBytes;
+
+    public TimeBucketTileCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public static long bucketOf(long timeMs, long intervalMs) {
+        return timeMs / intervalMs;
+    }
+
+    /** Milliseconds until the bucket after the one containing {@code timeMs} starts. */
+    public static long millisUntilNextBucket(long timeMs, long intervalMs) {
+        return intervalMs - (timeMs % intervalMs);
+    }
+
+    public static String key(String layer, long bucket, int zoom, int x, int y) {
+        return layer + '@' + bucket + '/' + zoom + '/' + x + '/' + y;
+    }
+
+    public synchronized byte[] get(String layer, long bucket, int zoom, int x, int y) {
+        Entry e = entries.get(key(layer, bucket, zoom, x, y));
+        return e != null ? e.data : null;
+    }
+
+    public synchronized boolean contains(String layer, long bucket, int zoom, int x, int y) {
+        return entries.containsKey(key(layer, bucket, zoom, x, y));
+    }
+
+    public synchronized void put(String layer, long bucket, int zoom, int x, int y, byte[] data) {
+        if (data.length > budgetBytes) return;
+        Entry old = entries.put(key(layer, bucket, zoom, x, y), new Entry(layer, bucket, data));
+        if (old != null) sizeBytes -= old.data.length;
+        sizeBytes += data.length;
+
+        // Evict least-recently-used tiles until we are back under budget
+        Iterator<Entry> it = entries.values().iterator();
+        while (sizeBytes > budgetBytes && it.hasNext()) {
+            sizeBytes -= it.next().data.length;
+            it.remove();
+        }
+    }
+
+    /** Drop every tile of {@code layer} older than {@code bucket}. */
+    public synchronized void evictBefore(String layer, long bucket) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next().getValue();
+            if (e.layer.equals(layer) && e.bucket < bucket) {
+                sizeBytes -= e.data.length;
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
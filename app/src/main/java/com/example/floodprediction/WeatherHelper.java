@@ -24,49 +24,50 @@ public class WeatherHelper {
         public int humidity;      // %
         public double temperature; // °C
         public String description;
+        public double windSpeed;  // m/s
+        public int clouds;        // %
+        public int conditionCode; // OWM weather id
         public int riskScore;     // 0-100
         public String riskLevel;  // LOW, MEDIUM, HIGH
 
         public WeatherData(double rainfall, int humidity, double temperature, String description) {
-            this.rainfall = rainfall;
-            this.humidity = humidity;
-            this.temperature = temperature;
-            this.description = description;
-            this.riskScore = calculateRisk();
-            this.riskLevel = getRiskLevel();
+            this(rainfall, humidity, temperature, description, 0, 0,
+                    RiskScorer.conditionCode(description));
         }
 
-        private int calculateRisk() {
-            int score = 0;
-            // Rainfall contribution (0-50 points)
-            if (rainfall > 50) score += 50;
-            else if (rainfall > 20) score += 35;
-            else if (rainfall > 10) score += 20;
-            else if (rainfall > 5) score += 10;
-
-            // Humidity contribution (0-30 points)
-            if (humidity > 90) score += 30;
-            else if (humidity > 80) score += 20;
-            else if (humidity > 70) score += 10;
-
-            // Description keywords (0-20 points)
-            String desc = description.toLowerCase();
-            if (desc.contains("heavy rain") || desc.contains("thunderstorm")) score += 20;
-            else if (desc.contains("rain") || desc.contains("drizzle")) score += 10;
-            else if (desc.contains("cloud") || desc.contains("mist")) score += 5;
-
-            return Math.min(score, 100);
+        public WeatherData(double rainfall, int humidity, double temperature, String description,
+                           double windSpeed, int clouds, int conditionCode) {
+            this(rainfall, humidity, temperature, description, windSpeed, clouds, conditionCode, null);
         }
 
-        private String getRiskLevel() {
-            if (riskScore >= 60) return "HIGH";
-            else if (riskScore >= 30) return "MEDIUM";
-            else return "LOW";
+        /** Scored with the station's antecedent {@code history} (may be null). */
+        public WeatherData(double rainfall, int humidity, double temperature, String description,
+                           double windSpeed, int clouds, int conditionCode,
+                           ObservationHistory.Features history) {
+            this.rainfall = rainfall;
+            this.humidity = humidity;
+            this.temperature = temperature;
+            this.description = description;
+            this.windSpeed = windSpeed;
+            this.clouds = clouds;
+            this.conditionCode = conditionCode;
+            this.riskScore = RiskScorer.score(rainfall, humidity, windSpeed, clouds, conditionCode, history);
+            this.riskLevel = RiskScorer.level(riskScore);
         }
     }
 
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ObservationStore observations;  // null: score without history
+
+    public WeatherHelper() {
+        this(null);
+    }
+
+    /** Live readings are added to {@code observations} and scored with the city's history. */
+    public WeatherHelper(ObservationStore observations) {
+        this.observations = observations;
+    }
 
     /**
      * Fetch weather data from OpenWeatherMap API.
@@ -107,16 +108,33 @@ public class WeatherHelper {
 
                     // Rainfall (last 1h) - may not always be present
                     double rainfall = 0;
+                    int rainHours = 1;
                     if (json.has("rain")) {
                         JSONObject rain = json.getJSONObject("rain");
-                        if (rain.has("1h")) rainfall = rain.getDouble("1h");
-                        else if (rain.has("3h")) rainfall = rain.getDouble("3h");
+                        if (rain.has("1h")) {
+                            rainfall = rain.getDouble("1h");
+                        } else if (rain.has("3h")) {
+                            rainfall = rain.getDouble("3h");
+                            rainHours = 3;
+                        }
                     }
 
-                    String description = json.getJSONArray("weather")
-                            .getJSONObject(0).getString("description");
+                    JSONObject weather = json.getJSONArray("weather").getJSONObject(0);
+                    String description = weather.getString("description");
+                    int conditionCode = weather.optInt("id", RiskScorer.conditionCode(description));
+                    double windSpeed = json.has("wind") ? json.getJSONObject("wind").optDouble("speed", 0) : 0;
+                    int clouds = json.has("clouds") ? json.getJSONObject("clouds").optInt("all", 0) : 0;
+
+                    // Same per-city history the map adds to, for 24h/72h rainfall
+                    ObservationHistory.Features history = null;
+                    if (observations != null) {
+                        history = observations.record(city, System.currentTimeMillis(),
+                                rainfall, rainHours, humidity);
+                        observations.save();
+                    }
 
-                    WeatherData data = new WeatherData(rainfall, humidity, temp, description);
+                    WeatherData data = new WeatherData(rainfall, humidity, temp, description,
+                            windSpeed, clouds, conditionCode, history);
                     mainHandler.post(() -> callback.onResult(data));
                 } else {
                     mainHandler.post(() -> callback.onError("API Error: HTTP " + responseCode));
@@ -135,7 +153,7 @@ public class WeatherHelper {
     public void fetchDemoWeather(WeatherCallback callback) {
         mainHandler.postDelayed(() -> {
             // Simulated rainy weather data for demo
-            WeatherData data = new WeatherData(25.4, 88, 27.5, "heavy rain");
+            WeatherData data = new WeatherData(25.4, 88, 27.5, "heavy rain", 12, 95, 502);
             callback.onResult(data);
         }, 1500); // Simulate network delay
     }
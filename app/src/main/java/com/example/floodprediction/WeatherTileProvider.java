@@ -0,0 +1,263 @@
+package com.example.floodprediction;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.osmdroid.tileprovider.MapTileProviderArray;
+import org.osmdroid.tileprovider.modules.MapTileModuleProviderBase;
+import org.osmdroid.tileprovider.tilesource.ITileSource;
+import org.osmdroid.tileprovider.tilesource.XYTileSource;
+import org.osmdroid.tileprovider.util.SimpleRegisterReceiver;
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.MapTileIndex;
+import org.osmdroid.views.MapView;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tile provider for the OpenWeatherMap precipitation/wind overlays.
+ *
+ * osmdroid's default cache treats tiles as static, so rain was either stale
+ * or refetched constantly. Here every tile is cached per upstream update
+ * bucket in a shared {@link TimeBucketTileCache}: one download per tile per
+ * interval. When a new bucket starts, the visible area is fetched in the
+ * background while the previous bucket keeps being shown, then the overlay
+ * swaps over in one redraw.
+ */
+public class WeatherTileProvider extends MapTileProviderArray {
+
+    private static final long PRECIP_INTERVAL_MS = 10 * 60 * 1000; // OWM radar/nowcast cadence
+    private static final long DEFAULT_INTERVAL_MS = 60 * 60 * 1000; // model-driven layers (wind)
+    private static final long CACHE_BUDGET_BYTES = 12L * 1024 * 1024;
+    private static final int MAX_PREFETCH_TILES = 64;
+
+    // Shared across overlays so the byte budget covers all weather layers
+    static final TimeBucketTileCache CACHE = new TimeBucketTileCache(CACHE_BUDGET_BYTES);
+
+    private final BucketTileModule module;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor();
+    private MapView refreshTarget;
+    private Runnable refreshRunnable;
+
+    public static long intervalFor(String layer) {
+        return "precipitation_new".equals(layer) ? PRECIP_INTERVAL_MS : DEFAULT_INTERVAL_MS;
+    }
+
+    public static WeatherTileProvider create(Context context, String layer, String apiKey) {
+        // URL format: https://tile.openweathermap.org/map/{layer}/{z}/{x}/{y}.png?appid={API_KEY}
+        ITileSource tileSource = new XYTileSource(
+                "OWM_" + layer,
+                0, 18, 256, ".png?appid=" + apiKey,
+                new String[] {"https://tile.openweathermap.org/map/" + layer + "/"}
+        );
+        BucketTileModule module = new BucketTileModule(tileSource, layer, apiKey, intervalFor(layer));
+        return new WeatherTileProvider(context, tileSource, module);
+    }
+
+    /**
+     * Fetch one tile PNG for {@code bucket} through the shared cache.
+     * Blocking; call from a worker thread. Returns null if unavailable.
+     */
+    public static byte[] fetchTile(String layer, String apiKey, long bucket, int zoom, int x, int y) {
+        byte[] data = CACHE.get(layer, bucket, zoom, x, y);
+        if (data != null) return data;
+        try {
+            String u = "https://tile.openweathermap.org/map/" + layer + "/"
+                    + zoom + "/" + x + "/" + y + ".png?appid=" + apiKey;
+            HttpURLConnection c = (HttpURLConnection) new URL(u).openConnection();
+            c.setConnectTimeout(10000);
+            c.setReadTimeout(10000);
+            try {
+                if (c.getResponseCode() != 200) return null;
+                InputStream in = c.getInputStream();
+                ByteArrayOutputStream bos = new ByteArrayOutputStream(8 * 1024);
+                byte[] buf = new byte[8192];
+                int n;
+                while ((n = in.read(buf)) != -1) bos.write(buf, 0, n);
+                in.close();
+                data = bos.toByteArray();
+            } finally {
+                c.disconnect();
+            }
+            CACHE.put(layer, bucket, zoom, x, y, data);
+            return data;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private WeatherTileProvider(Context context, ITileSource tileSource, BucketTileModule module) {
+        super(tileSource, new SimpleRegisterReceiver(context.getApplicationContext()),
+                new MapTileModuleProviderBase[] {module});
+        this.module = module;
+    }
+
+    public String getLayer() {
+        return module.layer;
+    }
+
+    public long currentBucket() {
+        return module.currentBucket();
+    }
+
+    /**
+     * Refresh the visible tiles of {@code mapView} each time a new upstream
+     * bucket starts. Call {@link #detach()} to stop.
+     */
+    public void startAutoRefresh(MapView mapView) {
+        stopAutoRefresh();
+        refreshTarget = mapView;
+        scheduleNextRefresh();
+    }
+
+    private void stopAutoRefresh() {
+        if (refreshRunnable != null) mainHandler.removeCallbacks(refreshRunnable);
+        refreshRunnable = null;
+        refreshTarget = null;
+    }
+
+    private void scheduleNextRefresh() {
+        long delay = TimeBucketTileCache.millisUntilNextBucket(System.currentTimeMillis(), module.intervalMs);
+        refreshRunnable = () -> {
+            MapView mapView = refreshTarget;
+            if (mapView == null) return;
+            BoundingBox bb = mapView.getBoundingBox();
+            int zoom = (int) Math.round(mapView.getZoomLevelDouble());
+            long bucket = module.currentBucket();
+            prefetcher.execute(() -> {
+                module.prefetch(bb, zoom, bucket);
+                CACHE.evictBefore(module.layer, bucket - 1);
+                mainHandler.post(() -> {
+                    if (refreshTarget == null) return;
+                    clearTileCache();
+                    refreshTarget.invalidate();
+                });
+            });
+            scheduleNextRefresh();
+        };
+        // Small offset so upstream has published the new frame
+        mainHandler.postDelayed(refreshRunnable, delay + 15_000);
+    }
+
+    @Override
+    public void detach() {
+        stopAutoRefresh();
+        prefetcher.shutdownNow();
+        super.detach();
+    }
+
+    /**
+     * Loads tiles through the bucketed cache. On a miss for the current
+     * bucket the tile is downloaded; if that fails (offline, upstream not
+     * ready yet) the previous bucket is shown instead of a blank tile.
+     */
+    static class BucketTileModule extends MapTileModuleProviderBase {
+
+        final String layer;
+        final long intervalMs;
+        private final String apiKey;
+        private ITileSource tileSource;
+
+        BucketTileModule(ITileSource tileSource, String layer, String apiKey, long intervalMs) {
+            super(4, 40);
+            this.tileSource = tileSource;
+            this.layer = layer;
+            this.apiKey = apiKey;
+            this.intervalMs = intervalMs;
+        }
+
+        long currentBucket() {
+            return TimeBucketTileCache.bucketOf(System.currentTimeMillis(), intervalMs);
+        }
+
+        byte[] fetch(long bucket, int zoom, int x, int y) {
+            return fetchTile(layer, apiKey, bucket, zoom, x, y);
+        }
+
+        /** Warm the cache for every tile of {@code bb} at {@code zoom}. */
+        void prefetch(BoundingBox bb, int zoom, long bucket) {
+            int n = 1 << zoom;
+            int x0 = lonToTileX(bb.getLonWest(), n), x1 = lonToTileX(bb.getLonEast(), n);
+            int y0 = latToTileY(bb.getLatNorth(), n), y1 = latToTileY(bb.getLatSouth(), n);
+            int fetched = 0;
+            for (int y = y0; y <= y1; y++) {
+                for (int x = x0; x <= x1; x++) {
+                    if (fetched++ >= MAX_PREFETCH_TILES || Thread.currentThread().isInterrupted()) return;
+                    fetch(bucket, zoom, x, y);
+                }
+            }
+        }
+
+        static int lonToTileX(double lon, int n) {
+            int x = (int) Math.floor((lon + 180.0) / 360.0 * n);
+            return Math.max(0, Math.min(n - 1, x));
+        }
+
+        static int latToTileY(double lat, int n) {
+            double rad = Math.toRadians(Math.max(-85.0511, Math.min(85.0511, lat)));
+            int y = (int) Math.floor((1 - Math.log(Math.tan(rad) + 1 / Math.cos(rad)) / Math.PI) / 2 * n);
+            return Math.max(0, Math.min(n - 1, y));
+        }
+
+        @Override
+        public boolean getUsesDataConnection() {
+            return true;
+        }
+
+        @Override
+        protected String getName() {
+            return "OWM bucketed tile provider";
+        }
+
+        @Override
+        protected String getThreadGroupName() {
+            return "owmtiles";
+        }
+
+        @Override
+        public int getMinimumZoomLevel() {
+            return tileSource.getMinimumZoomLevel();
+        }
+
+        @Override
+        public int getMaximumZoomLevel() {
+            return tileSource.getMaximumZoomLevel();
+        }
+
+        @Override
+        public void setTileSource(ITileSource tileSource) {
+            this.tileSource = tileSource;
+        }
+
+        @Override
+        public TileLoader getTileLoader() {
+            return new TileLoader() {
+                @Override
+                public Drawable loadTile(long mapTileIndex) {
+                    int zoom = MapTileIndex.getZoom(mapTileIndex);
+                    int x = MapTileIndex.getX(mapTileIndex);
+                    int y = MapTileIndex.getY(mapTileIndex);
+                    long bucket = currentBucket();
+
+                    byte[] data = fetch(bucket, zoom, x, y);
+                    if (data == null) data = CACHE.get(layer, bucket - 1, zoom, x, y);
+                    if (data == null) return null;
+                    try {
+                        return tileSource.getDrawable(new ByteArrayInputStream(data));
+                    } catch (Exception e) {
+                        return null;
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.floodprediction;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class AiAnalysisCacheTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private long now = 1_000_000L;
+
+    /** Fake model: records calls and lets the test push chunks. */
+    private static class FakeSource implements AiAnalysisCache.Source {
+        final List<AiAnalysisCache.Listener> calls = new ArrayList<>();
+        int cancelled;
+
+        @Override
+        public Runnable start(String prompt, AiAnalysisCache.Listener listener) {
+            calls.add(listener);
+            return () -> cancelled++;
+        }
+    }
+
+    private static class Collector implements AiAnalysisCache.Listener {
+        final StringBuilder text = new StringBuilder();
+        boolean done;
+        String error;
+
+        @Override
+        public void onChunk(String chunk) {
+            text.append(chunk);
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+        }
+
+        @Override
+        public void onError(String e) {
+            error = e;
+        }
+    }
+
+    private AiAnalysisCache newCache(File dir) {
+        return new AiAnalysisCache(dir, () -> now, Runnable::run, Runnable::run);
+    }
+
+    /** Executor that holds tasks until the test runs them. */
+    private static class Queue implements Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) tasks.poll().run();
+        }
+    }
+
+    @Test
+    public void repeatPrompt_isServedWithoutModelCall() {
+        AiAnalysisCache cache = newCache(tmp.getRoot());
+        FakeSource source = new FakeSource();
+
+        Collector first = new Collector();
+        cache.stream("Analyze KL\nrain 20mm", source, first);
+        source.calls.get(0).onChunk("[RISK_LEVEL] HIGH");
+        source.calls.get(0).onComplete();
+        assertTrue(first.done);
+
+        Collector second = new Collector();
+        cache.stream("  Analyze KL rain   20mm \n", source, second); // same after normalising
+        assertEquals(1, source.calls.size());
+        assertTrue(second.done);
+        assertEquals("[RISK_LEVEL] HIGH", second.text.toString());
+    }
+
+    @Test
+    public void inFlightCalls_areShared() {
+        AiAnalysisCache cache = newCache(tmp.getRoot());
+        FakeSource source = new FakeSource();
+
+        Collector a = new Collector();
+        Collector b = new Collector();
+        cache.stream("prompt", source, a);
+        source.calls.get(0).onChunk("Hello ");
+        cache.stream("prompt", source, b);
+        source.calls.get(0).onChunk("world");
+        source.calls.get(0).onComplete();
+
+        assertEquals(1, source.calls.size());
+        assertEquals("Hello world", a.text.toString());
+        assertEquals("Hello world", b.text.toString());
+        assertTrue(a.done && b.done);
+    }
+
+    @Test
+    public void cancel_stopsModelCallOnlyWhenNobodyListens() {
+        AiAnalysisCache cache = newCache(tmp.getRoot());
+        FakeSource source = new FakeSource();
+
+        Runnable ca = cache.stream("prompt", source, new Collector());
+        Runnable cb = cache.stream("prompt", source, new Collector());
+        ca.run();
+        assertEquals(0, source.cancelled);
+        cb.run();
+        assertEquals(1, source.cancelled);
+
+        cache.stream("prompt", source, new Collector());
+        assertEquals("a cancelled call is not joined", 2, source.calls.size());
+    }
+
+    @Test
+    public void errors_areNotCached() {
+        AiAnalysisCache cache = newCache(tmp.getRoot());
+        FakeSource source = new FakeSource();
+
+        Collector a = new Collector();
+        cache.stream("prompt", source, a);
+        source.calls.get(0).onError("quota");
+        assertEquals("quota", a.error);
+
+        cache.stream("prompt", source, new Collector());
+        assertEquals(2, source.calls.size());
+    }
+
+    @Test
+    public void diskEntries_surviveRestart_untilTtl() {
+        FakeSource source = new FakeSource();
+        AiAnalysisCache cache = newCache(tmp.getRoot());
+        cache.stream("prompt", source, new Collector());
+        source.calls.get(0).onChunk("Banjir 🌊");
+        source.calls.get(0).onComplete();
+
+        Collector c = new Collector();
+        newCache(tmp.getRoot()).stream("prompt", source, c);
+        assertEquals(1, source.calls.size());
+        assertEquals("Banjir 🌊", c.text.toString());
+
+        now += AiAnalysisCache.TTL_MS;
+        newCache(tmp.getRoot()).stream("prompt", source, new Collector());
+        assertEquals(2, source.calls.size());
+    }
+
+    @Test
+    public void diskLookup_runsOnTheDiskExecutor_andIsShared() {
+        newCache(tmp.getRoot()).put(AiAnalysisCache.key("prompt"), "from disk");
+
+        Queue disk = new Queue(), main = new Queue();
+        AiAnalysisCache cache = new AiAnalysisCache(tmp.getRoot(), () -> now, disk, main);
+        FakeSource source = new FakeSource();
+        Collector a = new Collector(), b = new Collector();
+        cache.stream("prompt", source, a);
+        cache.stream("prompt", source, b);
+        assertEquals("one read for both callers", 1, disk.tasks.size());
+        assertFalse(a.done);
+
+        disk.runAll();
+        assertFalse("delivered on the caller's thread", a.done);
+        main.runAll();
+        assertEquals("from disk", a.text.toString());
+        assertEquals("from disk", b.text.toString());
+        assertTrue(a.done && b.done);
+        assertEquals(0, source.calls.size());
+
+        Collector c = new Collector();
+        cache.stream("prompt", source, c);
+        assertTrue("now in memory", c.done);
+    }
+
+    @Test
+    public void cancelDuringDiskLookup_neverCallsTheModel() {
+        Queue disk = new Queue();
+        AiAnalysisCache cache = new AiAnalysisCache(tmp.getRoot(), () -> now, disk, Runnable::run);
+        FakeSource source = new FakeSource();
+        cache.stream("prompt", source, new Collector()).run();
+        disk.runAll();
+        assertEquals(0, source.calls.size());
+    }
+
+    @Test
+    public void cancelledCall_finishingLate_leavesTheNewCallInFlight() {
+        AiAnalysisCache cache = newCache(tmp.getRoot());
+        FakeSource source = new FakeSource();
+        cache.stream("prompt", source, new Collector()).run();
+        Collector b = new Collector();
+        cache.stream("prompt", source, b);
+        source.calls.get(0).onError("cancelled");  // the old call reports after all
+
+        Collector c = new Collector();
+        cache.stream("prompt", source, c);
+        assertEquals("joins the live call", 2, source.calls.size());
+        source.calls.get(1).onChunk("ok");
+        source.calls.get(1).onComplete();
+        assertTrue(b.done && c.done);
+    }
+
+    @Test
+    public void memoryEntries_expire() {
+        AiAnalysisCache cache = newCache(tmp.getRoot());
+        cache.put("k", "v");
+        assertEquals("v", cache.get("k"));
+        now += AiAnalysisCache.TTL_MS - 1;
+        assertEquals("v", cache.get("k"));
+        now += 1;
+        assertNull(cache.get("k"));
+    }
+
+    @Test
+    public void diskIsBoundedByLru() {
+        AiAnalysisCache cache = newCache(tmp.getRoot());
+        for (int i = 0; i < 80; i++) {
+            now += 1000;
+            cache.put(AiAnalysisCache.key("p" + i), "answer " + i);
+        }
+        assertEquals(64, tmp.getRoot().listFiles().length);
+        assertNull(newCache(tmp.getRoot()).get(AiAnalysisCache.key("p0")));
+        assertEquals("answer 79", newCache(tmp.getRoot()).get(AiAnalysisCache.key("p79")));
+    }
+
+    @Test
+    public void key_normalisesWhitespaceOnly() {
+        assertEquals(AiAnalysisCache.key("a  b\n\nc"), AiAnalysisCache.key(" a b c "));
+        assertNotEquals(AiAnalysisCache.key("a b c"), AiAnalysisCache.key("a b C"));
+        assertEquals(64, AiAnalysisCache.key("x").length());
+    }
+}
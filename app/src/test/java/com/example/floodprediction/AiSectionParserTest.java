@@ -0,0 +1,125 @@
+package com.example.floodprediction;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AiSectionParserTest {
+
+    private static final String[] TAGS = {
+            "[RISK_LEVEL]", "[FORECAST_DATA]", "[HOTSPOT_AREAS]", "[RECOMMENDATIONS]", "[STAY_SAFE]"
+    };
+
+    private static final String RESPONSE = "Sure, here it is.\n"
+            + "[RISK_LEVEL]\nHIGH RISK 🔴\n\n"
+            + "[FORECAST_DATA]\nHeavy rain of 80 mm expected between 3 PM and 7 PM.\n\n"
+            + "[HOTSPOT_AREAS]\n• Kampung Baru\n• Sentul\n\n"
+            + "[RECOMMENDATIONS]\n• Avoid flooded roads\n• Move valuables up\n\n"
+            + "[STAY_SAFE]\nStay safe.";
+
+    /** Local stand-in for the streaming model: the response cut into random chunks. */
+    private static List<String> stubStream(String text, long seed, int maxChunk) {
+        Random rnd = new Random(seed);
+        List<String> chunks = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            int end = Math.min(text.length(), i + 1 + rnd.nextInt(maxChunk));
+            chunks.add(text.substring(i, end));
+            i = end;
+        }
+        return chunks;
+    }
+
+    private static class Recorder implements AiSectionParser.Listener {
+        final Map<String, String> complete = new LinkedHashMap<>();
+        final List<String> updates = new ArrayList<>();
+        int fedChars;
+        int riskCompleteAt = -1;
+
+        @Override
+        public void onSection(String tag, String text, boolean done) {
+            assertFalse(tag + " reported after completion", complete.containsKey(tag));
+            assertFalse("partial tag leaked into " + tag, text.endsWith("[") || text.contains("[S"));
+            updates.add(tag + "=" + text);
+            if (done) {
+                complete.put(tag, text);
+                if (tag.equals("[RISK_LEVEL]")) riskCompleteAt = fedChars;
+            }
+        }
+    }
+
+    @Test
+    public void sectionsMatchWholeResponse_forAnyChunking() {
+        for (long seed = 0; seed < 200; seed++) {
+            Recorder r = new Recorder();
+            AiSectionParser p = new AiSectionParser(TAGS, r);
+            for (String chunk : stubStream(RESPONSE, seed, 1 + (int) (seed % 20))) {
+                r.fedChars += chunk.length();
+                p.feed(chunk);
+            }
+            p.finish();
+
+            assertArrayEquals(TAGS, r.complete.keySet().toArray());
+            assertEquals("HIGH RISK 🔴", r.complete.get("[RISK_LEVEL]"));
+            assertEquals("• Kampung Baru\n• Sentul", r.complete.get("[HOTSPOT_AREAS]"));
+            assertEquals("Stay safe.", r.complete.get("[STAY_SAFE]"));
+        }
+    }
+
+    @Test
+    public void riskLevel_isFinalLongBeforeStreamEnds() {
+        Recorder r = new Recorder();
+        AiSectionParser p = new AiSectionParser(TAGS, r);
+        for (String chunk : stubStream(RESPONSE, 7, 8)) {
+            r.fedChars += chunk.length();
+            p.feed(chunk);
+        }
+        assertTrue(r.riskCompleteAt > 0);
+        assertTrue(r.riskCompleteAt < RESPONSE.length() / 3);
+    }
+
+    @Test
+    public void openSection_growsWithEachChunk() {
+        Recorder r = new Recorder();
+        AiSectionParser p = new AiSectionParser(TAGS, r);
+        p.feed("[FORECAST_DATA]\nHeavy ");
+        p.feed("rain [HOT");
+        p.feed("SPOT_AREAS]\n• Sentul");
+        assertEquals("[FORECAST_DATA]=Heavy", r.updates.get(0));
+        assertEquals("[FORECAST_DATA]=Heavy rain", r.updates.get(1));
+        assertEquals("Heavy rain", r.complete.get("[FORECAST_DATA]"));
+        assertEquals("[HOTSPOT_AREAS]=• Sentul", r.updates.get(r.updates.size() - 1));
+        assertFalse(r.complete.containsKey("[HOTSPOT_AREAS]"));
+    }
+
+    @Test
+    public void blankChunks_reportNothingNew() {
+        Recorder r = new Recorder();
+        AiSectionParser p = new AiSectionParser(TAGS, r);
+        p.feed("[STAY_SAFE]\n");
+        p.feed("  \n");
+        p.feed("Stay");
+        p.feed(" \n ");
+        p.feed("safe.");
+        p.finish();
+        assertEquals(3, r.updates.size());
+        assertEquals("[STAY_SAFE]=Stay", r.updates.get(0));
+        assertEquals("[STAY_SAFE]=Stay \n safe.", r.updates.get(1));
+        assertEquals("Stay \n safe.", r.complete.get("[STAY_SAFE]"));
+    }
+
+    @Test
+    public void bracketsThatAreNotTags_areKept() {
+        Recorder r = new Recorder();
+        AiSectionParser p = new AiSectionParser(TAGS, r);
+        p.feed("[RECOMMENDATIONS]\n• Call 999 [emergency]");
+        p.finish();
+        assertEquals("• Call 999 [emergency]", r.complete.get("[RECOMMENDATIONS]"));
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.floodprediction;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BatchVerifierTest {
+
+    private static String verdict(int photo) {
+        return "FLOOD_DETECTED: " + (photo % 2 == 0 ? "YES" : "NO") + "\nSEVERITY: LOW\nDESCRIPTION: photo " + photo;
+    }
+
+    /** Reply with a slot per photo, as the model is asked to write it. */
+    private static String reply(List<Integer> photos) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < photos.size(); i++) {
+            sb.append(BatchVerifier.slotTag(i + 1)).append('\n').append(verdict(photos.get(i))).append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    /** Fake model: fixed round-trip cost plus a little per image, tracking concurrency. */
+    private static class FakeModel implements BatchVerifier.Call<Integer> {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public String send(List<Integer> photos) throws Exception {
+            calls.incrementAndGet();
+            int now = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(40 + 2L * photos.size());
+                return answer(photos);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        String answer(List<Integer> photos) throws Exception {
+            return reply(photos);
+        }
+    }
+
+    private static final class Collected implements BatchVerifier.Listener {
+        final String[] answers;
+        final String[] errors;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile int requests;
+
+        Collected(int n) {
+            answers = new String[n];
+            errors = new String[n];
+        }
+
+        @Override
+        public synchronized void onResult(int index, String answer, String error) {
+            assertNull("delivered twice", answers[index] != null ? answers[index] : errors[index]);
+            answers[index] = answer;
+            errors[index] = error;
+        }
+
+        @Override
+        public void onComplete(int requests) {
+            this.requests = requests;
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private static List<Integer> photos(int n) {
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < n; i++) list.add(i);
+        return list;
+    }
+
+    @Test
+    public void split_readsSlotsAndRejectsGarbage() {
+        String[] slots = BatchVerifier.split(
+                "Here you go.\n[IMAGE 2]\n" + verdict(2) + "\n[IMAGE 1]\nI can't see this one.\n[IMAGE 10]\n" + verdict(10), 10);
+        assertNull(slots[0]);
+        assertTrue(slots[1].startsWith("FLOOD_DETECTED: YES"));
+        assertTrue(slots[9].endsWith("photo 10"));
+        assertNull(slots[2]);
+
+        assertEquals(verdict(3), BatchVerifier.split(verdict(3), 1)[0]);
+    }
+
+    @Test
+    public void everyPhotoGetsItsOwnAnswer() throws Exception {
+        FakeModel model = new FakeModel();
+        Collected out = new Collected(23);
+        new BatchVerifier(8, 3, 2).verify(photos(23), model, out);
+        out.await();
+        for (int i = 0; i < 23; i++) {
+            assertEquals(verdict(i), out.answers[i]);
+        }
+        assertEquals(3, out.requests);
+        assertTrue(model.maxInFlight.get() <= 3);
+    }
+
+    @Test
+    public void missingSlot_isRetriedAlone() throws Exception {
+        FakeModel model = new FakeModel() {
+            @Override
+            String answer(List<Integer> photos) {
+                List<Integer> answered = new ArrayList<>(photos);
+                if (photos.size() > 1) answered.set(photos.indexOf(5), -1); // model skipped photo 5
+                String r = reply(answered);
+                return r.replace(verdict(-1), "Unclear.");
+            }
+        };
+        Collected out = new Collected(8);
+        new BatchVerifier(8, 2, 2).verify(photos(8), model, out);
+        out.await();
+        assertEquals(verdict(5), out.answers[5]);
+        assertEquals(verdict(4), out.answers[4]);
+        assertEquals(2, out.requests);
+    }
+
+    @Test
+    public void failingPhoto_doesNotSinkItsBatch() throws Exception {
+        FakeModel model = new FakeModel() {
+            @Override
+            String answer(List<Integer> photos) throws Exception {
+                if (photos.contains(6)) throw new BatchVerifier.ContentException("Image could not be processed", null);
+                return reply(photos);
+            }
+        };
+        Collected out = new Collected(8);
+        new BatchVerifier(8, 2, 2).verify(photos(8), model, out);
+        out.await();
+        for (int i = 0; i < 8; i++) {
+            if (i == 6) {
+                assertNull(out.answers[i]);
+                assertEquals("Image could not be processed", out.errors[i]);
+            } else {
+                assertEquals(verdict(i), out.answers[i]);
+            }
+        }
+    }
+
+    @Test
+    public void networkDown_failsTheJobWithoutSplitting() throws Exception {
+        FakeModel model = new FakeModel() {
+            @Override
+            String answer(List<Integer> photos) throws Exception {
+                throw new IOException("Unable to resolve host");
+            }
+        };
+        Collected out = new Collected(16);
+        new BatchVerifier(8, 1, 2, 10).verify(photos(16), model, out);
+        out.await();
+        for (int i = 0; i < 16; i++) {
+            assertNull(out.answers[i]);
+            assertEquals("Unable to resolve host", out.errors[i]);
+        }
+        // The first batch is tried twice, then the second fails without being sent
+        assertEquals(2, model.calls.get());
+        assertEquals(2, out.requests);
+    }
+
+    @Test
+    public void transientFailure_retriesTheWholeBatch() throws Exception {
+        AtomicInteger failures = new AtomicInteger(1);
+        FakeModel model = new FakeModel() {
+            @Override
+            String answer(List<Integer> photos) throws Exception {
+                if (failures.getAndDecrement() > 0) throw new IOException("timeout");
+                return reply(photos);
+            }
+        };
+        Collected out = new Collected(8);
+        new BatchVerifier(8, 2, 2, 10).verify(photos(8), model, out);
+        out.await();
+        for (int i = 0; i < 8; i++) assertEquals(verdict(i), out.answers[i]);
+        assertEquals(2, out.requests);
+    }
+
+    @Test
+    public void emptyList_completesAtOnce() throws Exception {
+        Collected out = new Collected(0);
+        new BatchVerifier(8, 2, 2).verify(new ArrayList<Integer>(), new FakeModel(), out);
+        out.await();
+        assertEquals(0, out.requests);
+    }
+
+    @Test
+    public void backlogThroughput_beatsOneRequestPerPhoto() throws Exception {
+        int n = 64;
+
+        // Before: one round trip per photo, one at a time
+        FakeModel single = new FakeModel();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) single.send(photos(1).subList(0, 1));
+        long sequentialMs = (System.nanoTime() - t0) / 1_000_000;
+
+        FakeModel model = new FakeModel();
+        Collected out = new Collected(n);
+        long t1 = System.nanoTime();
+        new BatchVerifier(8, 3, 2).verify(photos(n), model, out);
+        out.await();
+        long batchedMs = (System.nanoTime() - t1) / 1_000_000;
+
+        assertEquals(n / 8, model.calls.get());
+        assertTrue(batchedMs * 5 < sequentialMs);
+    }
+}
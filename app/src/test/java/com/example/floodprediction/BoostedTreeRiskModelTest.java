@@ -0,0 +1,120 @@
+package com.example.floodprediction;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BoostedTreeRiskModelTest {
+
+    private static BoostedTreeRiskModel model;
+    private static float[][] testX;
+    private static boolean[] testY;
+
+    /** Synthetic history: flooding driven by heavy rain on saturated, stormy days. */
+    @BeforeClass
+    public static void trainModel() {
+        Random rnd = new Random(11);
+        float[][] x = new float[6000][];
+        boolean[] y = new boolean[x.length];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = randomObservation(rnd);
+            y[i] = flooded(x[i], rnd);
+        }
+        model = BoostedTreeTrainer.train(x, y, 60, 3, 0.2f, 2, "test");
+
+        testX = new float[2000][];
+        testY = new boolean[testX.length];
+        for (int i = 0; i < testX.length; i++) {
+            testX[i] = randomObservation(rnd);
+            testY[i] = flooded(testX[i], rnd);
+        }
+    }
+
+    private static float[] randomObservation(Random rnd) {
+        int[] codes = {800, 802, 500, 501, 502, 211};
+        return BoostedTreeTrainer.features(rnd.nextFloat() * 80, 40 + rnd.nextFloat() * 60,
+                rnd.nextFloat() * 25, rnd.nextFloat() * 100, codes[rnd.nextInt(codes.length)]);
+    }
+
+    private static boolean flooded(float[] f, Random rnd) {
+        double logit = -6 + 0.08 * f[0] + 0.03 * (f[1] - 60) + 1.0 * f[4];
+        return rnd.nextDouble() < 1 / (1 + Math.exp(-logit));
+    }
+
+    private static float score(RiskEvaluator m, float[] f) {
+        int code = f[4] == 2 ? 502 : f[4] == 1 ? 500 : 800;
+        return m.score(f[0], f[1], f[2], f[3], code);
+    }
+
+    @Test
+    public void learnsRiskOrdering() {
+        assertTrue(score(model, BoostedTreeTrainer.features(70, 95, 10, 100, 211))
+                > score(model, BoostedTreeTrainer.features(0, 50, 10, 10, 800)) + 40);
+
+        int correct = 0;
+        for (int i = 0; i < testX.length; i++) {
+            if ((score(model, testX[i]) >= 50) == testY[i]) correct++;
+        }
+        assertTrue("held-out accuracy " + correct, correct > testX.length * 0.75);
+    }
+
+    @Test
+    public void binaryAsset_roundTrips() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.write(out);
+        BoostedTreeRiskModel read = BoostedTreeRiskModel.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(2, read.version());
+        assertEquals(model.getTreeCount(), read.getTreeCount());
+        for (float[] f : testX) assertEquals(score(model, f), score(read, f), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptAsset_isRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.write(out);
+        byte[] data = out.toByteArray();
+        data[data.length - 3] = 0; // a leaf now points back at the root
+        data[data.length - 9] = 0;
+        BoostedTreeRiskModel.read(new ByteArrayInputStream(data));
+    }
+
+    @Test
+    public void pluggedIntoRiskScorer() {
+        RiskEvaluator original = RiskScorer.getModel();
+        try {
+            RiskScorer.install(model);
+            assertEquals(model.score(30, 90, 5, 95, 502), RiskScorer.score(30, 90, 5, 95, 502));
+        } finally {
+            RiskScorer.install(original);
+        }
+    }
+
+    /** Per-sample latency; must stay under 5 µs to run per heatmap cell and forecast step. */
+    @Test
+    public void scoring_takesUnderFiveMicrosPerSample() {
+        final int n = 200_000;
+        Random rnd = new Random(5);
+        RiskScorer.Observations obs = new RiskScorer.Observations(n);
+        for (int i = 0; i < n; i++) {
+            obs.add(rnd.nextFloat() * 80, rnd.nextFloat() * 100, rnd.nextFloat() * 30,
+                    rnd.nextFloat() * 100, 200 + rnd.nextInt(700));
+        }
+        int[] out = new int[n];
+        for (int warm = 0; warm < 5; warm++) model.scoreBatch(obs, out);
+
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long t0 = System.nanoTime();
+            model.scoreBatch(obs, out);
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        double nsPerSample = (double) best / n;
+        assertTrue(nsPerSample + " ns/sample", nsPerSample < 5_000);
+    }
+}
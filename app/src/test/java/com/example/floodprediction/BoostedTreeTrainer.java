@@ -0,0 +1,195 @@
+package com.example.floodprediction;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Offline trainer for {@link BoostedTreeRiskModel}: logistic-loss gradient
+ * boosting with depth-limited regression trees.
+ *
+ * Run from the IDE against a CSV export of historical observations joined
+ * with flood reports (rain,humidity,wind,clouds,condition,flooded — one row
+ * per station and time window, flooded 0 or 1):
+ *
+ *   BoostedTreeTrainer observations.csv risk_model.gbt 2
+ *
+ * then ship the output in app/src/main/assets or at riskModelUrl.
+ */
+public class BoostedTreeTrainer {
+
+    private static final int MIN_LEAF = 20;
+    private static final int CANDIDATE_SPLITS = 32;
+    private static final double LAMBDA = 1.0;
+
+    private final List<Byte> feature = new ArrayList<>();
+    private final List<Float> value = new ArrayList<>();
+    private final List<Short> left = new ArrayList<>();
+    private final List<Short> right = new ArrayList<>();
+
+    private float[][] x;
+    private double[] grad;
+    private double[] hess;
+
+    /** Features are rows of {@link BoostedTreeRiskModel#FEATURE_COUNT} values, condition already classed. */
+    public static BoostedTreeRiskModel train(float[][] x, boolean[] flooded, int trees, int depth,
+                                             float learningRate, int version, String name) {
+        return new BoostedTreeTrainer().fit(x, flooded, trees, depth, learningRate, version, name);
+    }
+
+    /** Feature row for one observation, in model order. */
+    public static float[] features(float rain, float humidity, float wind, float clouds, int condition) {
+        return new float[]{rain, humidity, wind, clouds, BoostedTreeRiskModel.conditionClass(condition)};
+    }
+
+    private BoostedTreeRiskModel fit(float[][] x, boolean[] y, int trees, int depth,
+                                     float lr, int version, String name) {
+        int n = x.length;
+        this.x = x;
+        grad = new double[n];
+        hess = new double[n];
+
+        int pos = 0;
+        for (boolean b : y) if (b) pos++;
+        double prior = (pos + 1.0) / (n + 2.0);
+        float base = (float) Math.log(prior / (1 - prior));
+
+        double[] margin = new double[n];
+        Arrays.fill(margin, base);
+        int[] all = new int[n];
+        for (int i = 0; i < n; i++) all[i] = i;
+
+        int[] roots = new int[trees];
+        for (int t = 0; t < trees; t++) {
+            for (int i = 0; i < n; i++) {
+                double p = 1 / (1 + Math.exp(-margin[i]));
+                grad[i] = p - (y[i] ? 1 : 0);
+                hess[i] = Math.max(p * (1 - p), 1e-6);
+            }
+            roots[t] = build(all, depth, lr);
+            for (int i = 0; i < n; i++) margin[i] += predict(roots[t], x[i]);
+        }
+
+        int count = feature.size();
+        byte[] f = new byte[count];
+        float[] v = new float[count];
+        short[] l = new short[count];
+        short[] r = new short[count];
+        for (int i = 0; i < count; i++) {
+            f[i] = feature.get(i);
+            v[i] = value.get(i);
+            l[i] = left.get(i);
+            r[i] = right.get(i);
+        }
+        return new BoostedTreeRiskModel(version, name, 60, 30, base, roots, f, v, l, r);
+    }
+
+    private int build(int[] rows, int depth, float lr) {
+        double g = 0, h = 0;
+        for (int i : rows) {
+            g += grad[i];
+            h += hess[i];
+        }
+        int node = addNode(-1, (float) (-g / (h + LAMBDA) * lr));
+        if (depth == 0 || rows.length < 2 * MIN_LEAF) return node;
+
+        double bestGain = 1e-6;
+        int bestFeature = -1;
+        float bestThreshold = 0;
+        double parent = g * g / (h + LAMBDA);
+        float[] column = new float[rows.length];
+
+        for (int f = 0; f < BoostedTreeRiskModel.FEATURE_COUNT; f++) {
+            for (int k = 0; k < rows.length; k++) column[k] = x[rows[k]][f];
+            float[] sorted = column.clone();
+            Arrays.sort(sorted);
+            float previous = Float.NaN;
+            for (int c = 1; c < CANDIDATE_SPLITS; c++) {
+                float threshold = sorted[c * (sorted.length - 1) / CANDIDATE_SPLITS];
+                if (threshold == previous) continue;
+                previous = threshold;
+                double gl = 0, hl = 0;
+                int nl = 0;
+                for (int k = 0; k < rows.length; k++) {
+                    if (column[k] <= threshold) {
+                        gl += grad[rows[k]];
+                        hl += hess[rows[k]];
+                        nl++;
+                    }
+                }
+                if (nl < MIN_LEAF || rows.length - nl < MIN_LEAF) continue;
+                double gr = g - gl, hr = h - hl;
+                double gain = gl * gl / (hl + LAMBDA) + gr * gr / (hr + LAMBDA) - parent;
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    bestFeature = f;
+                    bestThreshold = threshold;
+                }
+            }
+        }
+        if (bestFeature < 0) return node;
+
+        int nl = 0;
+        for (int i : rows) if (x[i][bestFeature] <= bestThreshold) nl++;
+        int[] lrows = new int[nl];
+        int[] rrows = new int[rows.length - nl];
+        int a = 0, b = 0;
+        for (int i : rows) {
+            if (x[i][bestFeature] <= bestThreshold) lrows[a++] = i;
+            else rrows[b++] = i;
+        }
+        feature.set(node, (byte) bestFeature);
+        value.set(node, bestThreshold);
+        left.set(node, (short) build(lrows, depth - 1, lr));
+        right.set(node, (short) build(rrows, depth - 1, lr));
+        return node;
+    }
+
+    private int addNode(int f, float v) {
+        if (feature.size() >= Short.MAX_VALUE) throw new IllegalStateException("model too large");
+        feature.add((byte) f);
+        value.add(v);
+        left.add((short) 0);
+        right.add((short) 0);
+        return feature.size() - 1;
+    }
+
+    private float predict(int node, float[] row) {
+        while (feature.get(node) >= 0) {
+            node = row[feature.get(node)] <= value.get(node) ? left.get(node) : right.get(node);
+        }
+        return value.get(node);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: BoostedTreeTrainer <observations.csv> <out.gbt> <version>");
+            return;
+        }
+        List<float[]> rows = new ArrayList<>();
+        List<Boolean> labels = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(args[0]))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] p = line.split(",");
+                if (p.length < 6 || !Character.isDigit(p[0].trim().charAt(0))) continue; // header
+                rows.add(features(Float.parseFloat(p[0]), Float.parseFloat(p[1]),
+                        Float.parseFloat(p[2]), Float.parseFloat(p[3]), Integer.parseInt(p[4].trim())));
+                labels.add(p[5].trim().equals("1"));
+            }
+        }
+        boolean[] y = new boolean[labels.size()];
+        for (int i = 0; i < y.length; i++) y[i] = labels.get(i);
+
+        BoostedTreeRiskModel model = train(rows.toArray(new float[0][]), y, 100, 4, 0.1f,
+                Integer.parseInt(args[2]), "gbt-" + args[2]);
+        try (OutputStream out = new FileOutputStream(args[1])) {
+            model.write(out);
+        }
+        System.out.println("Wrote " + model.getTreeCount() + " trees to " + args[1]);
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.floodprediction;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DetectionResultTest {
+
+    private static final String VERDICT = "FLOOD_DETECTED: YES\n"
+            + "SEVERITY: HIGH\n"
+            + "CONFIDENCE: 92%\n"
+            + "DESCRIPTION: Water above the car wheels at the junction.\n"
+            + "SAFETY_TIP: Move to higher ground.\n";
+
+    @Test
+    public void parsesAllFields() {
+        DetectionResult r = DetectionResult.parse(VERDICT);
+        assertTrue(r.isFlood());
+        assertEquals(DetectionResult.HIGH, r.severity);
+        assertEquals(92, r.confidence);
+        assertEquals("Water above the car wheels at the junction.", r.description);
+        assertEquals("Move to higher ground.", r.safetyTip);
+    }
+
+    @Test
+    public void toleratesCaseSpacingAndMarkdown() {
+        DetectionResult r = DetectionResult.parse(
+                "Here is my analysis:\r\n"
+                        + "**Flood_Detected:**no\r\n"
+                        + "  - severity :  Low (ankle deep)\r\n"
+                        + "• Description: Dry road, no standing water.  \r\n");
+        assertEquals(Boolean.FALSE, r.floodDetected);
+        assertFalse(r.isFlood());
+        assertEquals(DetectionResult.LOW, r.severity);
+        assertEquals("Dry road, no standing water.", r.description);
+        assertEquals(-1, r.confidence);
+        assertNull(r.safetyTip);
+    }
+
+    @Test
+    public void keysInsideProse_areIgnored() {
+        DetectionResult r = DetectionResult.parse("I can't tell whether FLOOD_DETECTED: YES applies.\n");
+        assertNull(r.floodDetected);
+    }
+
+    @Test
+    public void answersAreWholeWords() {
+        assertNull(DetectionResult.parse("FLOOD_DETECTED: NOT SURE\n").floodDetected);
+        assertNull(DetectionResult.parse("FLOOD_DETECTED: Yesterday, maybe\n").floodDetected);
+        assertEquals(Boolean.FALSE, DetectionResult.parse("FLOOD_DETECTED: No.\n").floodDetected);
+        assertNull(DetectionResult.parse("SEVERITY: Highly variable\n").severity);
+        assertEquals(DetectionResult.LOW, DetectionResult.parse("SEVERITY: LOW-MEDIUM\n").severity);
+    }
+
+    @Test
+    public void chunkedFeed_matchesWholeParse() {
+        String response = preamble(new Random(1), 2000) + VERDICT;
+        DetectionResult whole = DetectionResult.parse(response);
+        Random rnd = new Random(2);
+        for (int trial = 0; trial < 50; trial++) {
+            DetectionResult.Parser p = new DetectionResult.Parser();
+            int i = 0;
+            while (i < response.length()) {
+                int end = Math.min(response.length(), i + 1 + rnd.nextInt(40));
+                p.feed(response.subSequence(i, end));
+                i = end;
+            }
+            DetectionResult r = p.finish();
+            assertEquals(whole.floodDetected, r.floodDetected);
+            assertEquals(whole.severity, r.severity);
+            assertEquals(whole.description, r.description);
+            assertEquals(whole.safetyTip, r.safetyTip);
+        }
+    }
+
+    @Test
+    public void forecastAnalysis_sectionsAndLevel() {
+        ForecastAnalysis a = ForecastAnalysis.parse(forecastResponse(new Random(3), 600));
+        assertEquals("MEDIUM RISK 🟡", a.riskLevel);
+        assertEquals(DetectionResult.MEDIUM, a.level());
+        assertTrue(a.hotspots.startsWith("• Kampung Baru"));
+        assertEquals("Stay safe.", a.staySafe);
+
+        assertNull(ForecastAnalysis.levelOf("Water levels are below the bank"));
+        assertEquals(DetectionResult.LOW, ForecastAnalysis.levelOf("low risk 🟢"));
+    }
+
+    @Test
+    public void levelOf_skipsWordsThatOnlyStartWithALevel() {
+        assertEquals(DetectionResult.MEDIUM, ForecastAnalysis.levelOf("Lowland areas: MEDIUM"));
+        assertNull(ForecastAnalysis.levelOf("Lower risk than yesterday"));
+        assertNull(ForecastAnalysis.levelOf("Higher ground advised"));
+        assertEquals(DetectionResult.HIGH, ForecastAnalysis.levelOf("HIGH"));
+    }
+
+    // ── Realistic multi-KB responses, checked against the old scans ──
+
+    private static final String[] WORDS = {
+            "rainfall", "drainage", "monsoon", "river", "level", "water", "junction", "road",
+            "residents", "evacuation", "expected", "heavy", "overflow", "low-lying", "areas"
+    };
+
+    private static String preamble(Random rnd, int chars) {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < chars) {
+            for (int w = 0; w < 12; w++) sb.append(WORDS[rnd.nextInt(WORDS.length)]).append(' ');
+            sb.append(".\n");
+        }
+        return sb.toString();
+    }
+
+    private static String forecastResponse(Random rnd, int sectionChars) {
+        return "[RISK_LEVEL]\nMEDIUM RISK 🟡\n\n"
+                + "[FORECAST_DATA]\n" + preamble(rnd, sectionChars)
+                + "[HOTSPOT_AREAS]\n• Kampung Baru\n" + preamble(rnd, sectionChars)
+                + "[RECOMMENDATIONS]\n" + preamble(rnd, sectionChars)
+                + "[STAY_SAFE]\nStay safe.";
+    }
+
+    /** The parsing MainActivity and FloodReportActivity used to do, for comparison. */
+    private static String[] legacyDetection(String response) {
+        String upper = response.toUpperCase();
+        String flood = null, severity = null, tip = null, desc = null;
+        if (upper.contains("FLOOD_DETECTED: YES") || upper.contains("FLOOD_DETECTED:YES")) flood = "YES";
+        else if (upper.contains("FLOOD_DETECTED: NO") || upper.contains("FLOOD_DETECTED:NO")) flood = "NO";
+        if (upper.contains("SEVERITY: HIGH") || upper.contains("SEVERITY:HIGH")) severity = "HIGH";
+        else if (upper.contains("SEVERITY: MEDIUM") || upper.contains("SEVERITY:MEDIUM")) severity = "MEDIUM";
+        else if (upper.contains("SEVERITY: LOW") || upper.contains("SEVERITY:LOW")) severity = "LOW";
+        int tipIndex = upper.indexOf("SAFETY_TIP:");
+        if (tipIndex != -1) {
+            tip = response.substring(tipIndex + 11).trim();
+            int nl = tip.indexOf('\n');
+            if (nl != -1) tip = tip.substring(0, nl);
+        }
+        int descIdx = upper.indexOf("DESCRIPTION:");
+        if (descIdx != -1) {
+            desc = response.substring(descIdx + 12).trim();
+            int nl = desc.indexOf('\n');
+            desc = nl != -1 ? desc.substring(0, nl).trim() : desc.trim();
+        }
+        return new String[] { flood, severity, tip, desc };
+    }
+
+    private static String legacySection(String text, String startTag, String endTag) {
+        int start = text.indexOf(startTag);
+        if (start == -1) return "";
+        start += startTag.length();
+        int end = endTag != null ? text.indexOf(endTag, start) : text.length();
+        if (end == -1) end = text.length();
+        return text.substring(start, end).trim();
+    }
+
+    private static String[] legacyForecast(String r) {
+        String risk = legacySection(r, "[RISK_LEVEL]", "[FORECAST_DATA]");
+        String upper = risk.toUpperCase();
+        String level = upper.contains("HIGH") ? "HIGH" : upper.contains("MEDIUM") ? "MEDIUM" : "LOW";
+        return new String[] {
+                level,
+                legacySection(r, "[FORECAST_DATA]", "[HOTSPOT_AREAS]"),
+                legacySection(r, "[HOTSPOT_AREAS]", "[RECOMMENDATIONS]"),
+                legacySection(r, "[RECOMMENDATIONS]", "[STAY_SAFE]"),
+                legacySection(r, "[STAY_SAFE]", null)
+        };
+    }
+
+    @Test
+    public void multiKbResponses_matchOldScans_inUnderAMillisecond() {
+        Random rnd = new Random(9);
+        String[] detections = new String[50];
+        String[] forecasts = new String[50];
+        for (int i = 0; i < 50; i++) {
+            detections[i] = preamble(rnd, 2000 + rnd.nextInt(4000)) + VERDICT;
+            forecasts[i] = forecastResponse(rnd, 800 + rnd.nextInt(1200));
+        }
+
+        // Same answers as before
+        for (int i = 0; i < 50; i++) {
+            DetectionResult d = DetectionResult.parse(detections[i]);
+            String[] old = legacyDetection(detections[i]);
+            assertEquals(old[0], d.isFlood() ? "YES" : "NO");
+            assertEquals(old[1], d.severity);
+            assertEquals(old[2], d.safetyTip);
+            assertEquals(old[3], d.description);
+
+            ForecastAnalysis f = ForecastAnalysis.parse(forecasts[i]);
+            String[] oldF = legacyForecast(forecasts[i]);
+            assertEquals(oldF[0], f.level());
+            assertEquals(oldF[1], f.forecastData);
+            assertEquals(oldF[4], f.staySafe);
+        }
+
+        long sink = 0;
+        for (int warm = 0; warm < 200; warm++) {
+            for (int i = 0; i < 50; i++) {
+                sink += DetectionResult.parse(detections[i]).confidence;
+                sink += ForecastAnalysis.parse(forecasts[i]).staySafe.length();
+            }
+        }
+
+        int rounds = 400;
+        long t0 = System.nanoTime();
+        for (int k = 0; k < rounds; k++) for (String s : detections) sink += DetectionResult.parse(s).confidence;
+        long t1 = System.nanoTime();
+        for (int k = 0; k < rounds; k++) for (String s : forecasts) sink += ForecastAnalysis.parse(s).staySafe.length();
+        long t2 = System.nanoTime();
+
+        double n = rounds * 50.0;
+        assertTrue(sink != 0);
+        assertTrue("detection parse should stay well under 1 ms", (t1 - t0) / n < 1_000_000);
+        assertTrue("forecast parse should stay well under 1 ms", (t2 - t1) / n < 1_000_000);
+    }
+}
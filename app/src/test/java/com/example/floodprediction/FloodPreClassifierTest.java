@@ -0,0 +1,325 @@
+package com.example.floodprediction;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+public class FloodPreClassifierTest {
+
+    private static final int W = 640, H = 480;
+
+    /** One labelled test photo; {@code hard} scenes may go either way or to the model. */
+    static class Scene {
+        final String kind;
+        final boolean flood;
+        final boolean hard;
+        final int[] argb;
+
+        Scene(String kind, boolean flood, boolean hard, int[] argb) {
+            this.kind = kind;
+            this.flood = flood;
+            this.hard = hard;
+            this.argb = argb;
+        }
+    }
+
+    // ── Test set: seeded procedural scenes in the shapes of real reports ──
+
+    static List<Scene> testSet() {
+        List<Scene> set = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            set.add(new Scene("muddy-flood", true, false, muddyFlood(new Random(100 + i))));
+            set.add(new Scene("grey-flood", true, true, greyFlood(new Random(200 + i))));
+            set.add(new Scene("dry-street", false, false, dryStreet(new Random(300 + i))));
+            set.add(new Scene("selfie", false, false, selfie(new Random(400 + i))));
+            set.add(new Scene("park", false, false, park(new Random(500 + i))));
+            set.add(new Scene("dirt-road", false, true, dirtRoad(new Random(600 + i))));
+        }
+        return set;
+    }
+
+    private static int rgb(int r, int g, int b) {
+        return 0xFF000000 | clamp(r) << 16 | clamp(g) << 8 | clamp(b);
+    }
+
+    private static int clamp(int v) {
+        return Math.max(0, Math.min(255, v));
+    }
+
+    private static void sky(int[] px, Random rnd, int toY) {
+        int r0 = 110 + rnd.nextInt(60), g0 = 150 + rnd.nextInt(50), b0 = 200 + rnd.nextInt(50);
+        for (int y = 0; y < toY; y++)
+            for (int x = 0; x < W; x++)
+                px[y * W + x] = rgb(r0 + y / 6 + rnd.nextInt(5), g0 + y / 8 + rnd.nextInt(5), b0 + rnd.nextInt(5));
+    }
+
+    private static void buildings(int[] px, Random rnd, int fromY, int toY) {
+        int x = 0;
+        while (x < W) {
+            int w = 40 + rnd.nextInt(100), top = fromY + rnd.nextInt(Math.max(1, (toY - fromY) / 2));
+            int base = 90 + rnd.nextInt(100);
+            for (int y = top; y < toY; y++)
+                for (int xx = x; xx < Math.min(W, x + w); xx++) {
+                    boolean window = (xx - x) % 14 < 7 && (y - top) % 18 < 9;
+                    int v = window ? base - 50 : base;
+                    px[y * W + xx] = rgb(v + rnd.nextInt(9), v + rnd.nextInt(9), v + 5 + rnd.nextInt(9));
+                }
+            x += w;
+        }
+    }
+
+    /** Blotchy texture at {@code cell}-pixel scale, so it survives downsampling like real ground does. */
+    private static int[][] coarseNoise(Random rnd, int cell, int amplitude) {
+        int[][] grid = new int[H / cell + 2][W / cell + 2];
+        for (int[] row : grid)
+            for (int i = 0; i < row.length; i++) row[i] = rnd.nextInt(2 * amplitude + 1) - amplitude;
+        return grid;
+    }
+
+    static int[] muddyFlood(Random rnd) {
+        int[] px = new int[W * H];
+        int horizon = H * (30 + rnd.nextInt(15)) / 100;
+        sky(px, rnd, horizon / 2);
+        buildings(px, rnd, horizon / 2, horizon);
+        int r = 130 + rnd.nextInt(40), g = r - 25 - rnd.nextInt(15), b = g - 30 - rnd.nextInt(15);
+        for (int y = horizon; y < H; y++)
+            for (int x = 0; x < W; x++) {
+                int ripple = (int) (6 * Math.sin(x / 23.0 + y / 3.5));
+                int n = rnd.nextInt(7) - 3;
+                px[y * W + x] = rgb(r + ripple + n, g + ripple + n, b + ripple + n);
+            }
+        // A half-submerged car
+        int cx = rnd.nextInt(W - 120), cy = horizon + 20 + rnd.nextInt(H / 4);
+        for (int y = cy; y < cy + 30; y++)
+            for (int x = cx; x < cx + 120; x++) px[y * W + x] = rgb(170, 30, 30);
+        return px;
+    }
+
+    static int[] greyFlood(Random rnd) {
+        int[] px = new int[W * H];
+        int horizon = H * (35 + rnd.nextInt(15)) / 100;
+        sky(px, rnd, horizon / 2);
+        buildings(px, rnd, horizon / 2, horizon);
+        int v = 120 + rnd.nextInt(50);
+        for (int y = horizon; y < H; y++)
+            for (int x = 0; x < W; x++) {
+                int ripple = (int) (5 * Math.sin(x / 31.0 + y / 4.0));
+                px[y * W + x] = rgb(v + ripple, v + 6 + ripple, v + 12 + ripple + rnd.nextInt(4));
+            }
+        return px;
+    }
+
+    static int[] dryStreet(Random rnd) {
+        int[] px = new int[W * H];
+        int horizon = H * (35 + rnd.nextInt(15)) / 100;
+        sky(px, rnd, horizon / 2);
+        buildings(px, rnd, horizon / 2, horizon);
+        int v = 80 + rnd.nextInt(40);
+        int[][] patches = coarseNoise(rnd, 10, 25); // patched, cracked asphalt
+        for (int y = horizon; y < H; y++)
+            for (int x = 0; x < W; x++) {
+                int n = patches[y / 10][x / 10] + rnd.nextInt(21) - 10;
+                boolean lane = Math.abs(x - W / 2) < 6 && (y / 20) % 2 == 0;
+                boolean kerb = x < 40 || x > W - 40;
+                int c = lane ? 230 : kerb ? v + 60 : v;
+                px[y * W + x] = rgb(c + n, c + n, c + n + 4);
+            }
+        return px;
+    }
+
+    static int[] selfie(Random rnd) {
+        int[] px = new int[W * H];
+        int wr = 120 + rnd.nextInt(100), wg = 120 + rnd.nextInt(100), wb = 120 + rnd.nextInt(100);
+        for (int i = 0; i < px.length; i++) px[i] = rgb(wr + rnd.nextInt(20), wg + rnd.nextInt(20), wb + rnd.nextInt(20));
+        int sr = 200 + rnd.nextInt(40), sg = sr - 40 - rnd.nextInt(20), sb = sg - 30 - rnd.nextInt(15);
+        double cx = W / 2.0, cy = H * 0.55, rx = W * 0.28, ry = H * 0.45;
+        for (int y = 0; y < H; y++)
+            for (int x = 0; x < W; x++) {
+                double dx = (x - cx) / rx, dy = (y - cy) / ry;
+                double d = dx * dx + dy * dy;
+                if (d < 1) {
+                    boolean hair = y < cy - ry * 0.6;
+                    boolean eye = Math.abs(y - (cy - ry * 0.15)) < 8 && (Math.abs(x - (cx - rx * 0.35)) < 14 || Math.abs(x - (cx + rx * 0.35)) < 14);
+                    int n = rnd.nextInt(7) - 3;
+                    px[y * W + x] = hair ? rgb(40 + n, 30 + n, 25 + n) : eye ? rgb(50, 40, 35) : rgb(sr + n, sg + n, sb + n);
+                }
+            }
+        return px;
+    }
+
+    static int[] park(Random rnd) {
+        int[] px = new int[W * H];
+        int horizon = H * (25 + rnd.nextInt(20)) / 100;
+        sky(px, rnd, horizon);
+        for (int y = horizon; y < H; y++)
+            for (int x = 0; x < W; x++) {
+                int n = rnd.nextInt(51) - 25;
+                px[y * W + x] = rgb(60 + n, 130 + n + rnd.nextInt(30), 50 + n);
+            }
+        return px;
+    }
+
+    static int[] dirtRoad(Random rnd) {
+        int[] px = new int[W * H];
+        int horizon = H * (35 + rnd.nextInt(15)) / 100;
+        sky(px, rnd, horizon);
+        int r = 150 + rnd.nextInt(30), g = r - 30, b = g - 40;
+        int[][] ruts = coarseNoise(rnd, 12, 35); // gravel and ruts
+        for (int y = horizon; y < H; y++)
+            for (int x = 0; x < W; x++) {
+                int n = ruts[y / 12][x / 12] + rnd.nextInt(21) - 10;
+                px[y * W + x] = rgb(r + n, g + n, b + n);
+            }
+        return px;
+    }
+
+    // ── Decisions ──
+
+    // Same generator the default weights were fit on: a consistency check, not an accuracy estimate
+    @Test
+    public void confidentDecisions_matchSyntheticScenes() {
+        FloodPreClassifier c = new FloodPreClassifier();
+        int local = 0, wrong = 0, easy = 0, easyLocal = 0;
+        StringBuilder errors = new StringBuilder();
+        List<Scene> set = testSet();
+        for (Scene s : set) {
+            int[] small = FloodPreClassifier.downsample(s.argb, W, H);
+            FloodPreClassifier.Result r = c.classify(small, FloodPreClassifier.SIZE, FloodPreClassifier.SIZE);
+            if (!s.hard) easy++;
+            if (r.decision == FloodPreClassifier.Decision.UNSURE) continue;
+            local++;
+            if (!s.hard) easyLocal++;
+            if ((r.decision == FloodPreClassifier.Decision.FLOOD) != s.flood) {
+                wrong++;
+                errors.append(s.kind).append(" p=").append(r.probability).append('\n');
+            }
+        }
+        assertEquals(errors.toString(), 0, wrong);
+        assertTrue("easy photos decided locally: " + easyLocal + "/" + easy, easyLocal >= easy * 9 / 10);
+    }
+
+    @Test
+    public void ambiguousPhotos_goToTheModel() {
+        FloodPreClassifier c = new FloodPreClassifier();
+        int unsure = 0;
+        for (int i = 0; i < 20; i++) {
+            int[] px = FloodPreClassifier.downsample(dirtRoad(new Random(600 + i)), W, H);
+            FloodPreClassifier.Result r = c.classify(px, FloodPreClassifier.SIZE, FloodPreClassifier.SIZE);
+            assertNotEquals(FloodPreClassifier.Decision.FLOOD, r.decision);
+            if (r.decision == FloodPreClassifier.Decision.UNSURE) unsure++;
+        }
+        assertTrue(unsure > 0);
+    }
+
+    @Test
+    public void onlyValidatedDecisions_standInForTheModel() {
+        FloodPreClassifier.Result flood = new FloodPreClassifier.Result(FloodPreClassifier.Decision.FLOOD, 0.99f);
+        FloodPreClassifier.Result dry = new FloodPreClassifier.Result(FloodPreClassifier.Decision.NOT_FLOOD, 0.01f);
+        FloodPreClassifier.Result unsure = new FloodPreClassifier.Result(FloodPreClassifier.Decision.UNSURE, 0.5f);
+
+        FloodPreClassifier validated = new FloodPreClassifier();
+        assertTrue(validated.answersLocally(flood));
+        assertTrue(validated.answersLocally(dry));
+        assertFalse(validated.answersLocally(unsure));
+
+        FloodPreClassifier custom = new FloodPreClassifier(new float[FloodPreClassifier.FEATURE_COUNT], 0f);
+        assertFalse(custom.answersLocally(flood));
+        assertFalse(custom.answersLocally(dry));
+    }
+
+    // ── Labelled sample photos (test resources, preclassifier/labels.csv) ──
+
+    static class Photo {
+        final String name;
+        final boolean flood;
+        final int[] argb;
+        final int width, height;
+
+        Photo(String name, boolean flood, BufferedImage img) {
+            this.name = name;
+            this.flood = flood;
+            this.width = img.getWidth();
+            this.height = img.getHeight();
+            this.argb = img.getRGB(0, 0, width, height, null, 0, width);
+        }
+    }
+
+    static List<Photo> samplePhotos() throws Exception {
+        List<Photo> photos = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                FloodPreClassifierTest.class.getResourceAsStream("/preclassifier/labels.csv"), "UTF-8"))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split(",");
+                try (InputStream img = FloodPreClassifierTest.class.getResourceAsStream("/preclassifier/" + parts[0])) {
+                    assertNotNull(parts[0], img);
+                    photos.add(new Photo(parts[0], parts[1].trim().equals("flood"), ImageIO.read(img)));
+                }
+            }
+        }
+        return photos;
+    }
+
+    private static FloodPreClassifier.Result classify(FloodPreClassifier c, Photo p) {
+        int[] small = FloodPreClassifier.downsample(p.argb, p.width, p.height);
+        return c.classify(small, FloodPreClassifier.SIZE, FloodPreClassifier.SIZE);
+    }
+
+    @Test
+    public void thresholds_separateTheSamplePhotos() throws Exception {
+        FloodPreClassifier c = new FloodPreClassifier();
+        List<Photo> photos = samplePhotos();
+        assertFalse(photos.isEmpty());
+        float lowestFlood = 1f, highestDry = 0f;
+        int local = 0;
+        StringBuilder errors = new StringBuilder();
+        for (Photo p : photos) {
+            FloodPreClassifier.Result r = classify(c, p);
+            if (p.flood) lowestFlood = Math.min(lowestFlood, r.probability);
+            else highestDry = Math.max(highestDry, r.probability);
+            if (!c.answersLocally(r)) continue;
+            local++;
+            if ((r.decision == FloodPreClassifier.Decision.FLOOD) != p.flood) {
+                errors.append(p.name).append(" p=").append(r.probability).append('\n');
+            }
+        }
+        // No sample on the wrong side of a threshold, and most clear of both
+        assertEquals("", errors.toString());
+        assertTrue("answered locally: " + local + "/" + photos.size() + ", lowest flood p=" + lowestFlood
+                + ", highest dry p=" + highestDry, local >= photos.size() * 3 / 4);
+    }
+
+    @Test
+    public void samplePhotos_classifyUnder20ms() throws Exception {
+        FloodPreClassifier c = new FloodPreClassifier();
+        List<Photo> photos = samplePhotos();
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long worst = 0;
+            for (Photo p : photos) {
+                long t0 = System.nanoTime();
+                classify(c, p);
+                worst = Math.max(worst, System.nanoTime() - t0);
+            }
+            best = Math.min(best, worst);
+        }
+        assertTrue("slowest photo took " + best / 1_000_000 + " ms", best < 20_000_000L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongWeightCount_rejected() {
+        new FloodPreClassifier(new float[3], 0f);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.floodprediction;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ForecastDiffTest {
+
+    private static final long STEP = 3 * 60 * 60 * 1000L;
+
+    private static ForecastTable forecast(int firstStep, int steps, double rainAtStep5) {
+        ForecastTable table = new ForecastTable(1, 40);
+        int city = table.addCity("Ipoh");
+        for (int s = firstStep; s < firstStep + steps; s++) {
+            double rain = s == 5 ? rainAtStep5 : 1;
+            table.addStep(city, s * STEP, 28.2, 80, 4, 6, 90, rain, 60, 500, "light rain", "10d");
+        }
+        table.scoreCity(city);
+        return table;
+    }
+
+    @Test
+    public void stableForecast_hasNoChanges() {
+        assertTrue(ForecastDiff.diff(forecast(0, 16, 1), 0, forecast(0, 16, 1.2), 0).isEmpty());
+    }
+
+    @Test
+    public void firstLoad_addsEveryStep() {
+        List<ForecastDiff.Change> changes = ForecastDiff.diff(null, 0, forecast(0, 8, 1), 0);
+        assertEquals(8, changes.size());
+        for (ForecastDiff.Change c : changes) assertEquals(ForecastDiff.Type.ADDED, c.type);
+    }
+
+    @Test
+    public void timeMovingOn_expiresAndAdds() {
+        List<ForecastDiff.Change> changes = ForecastDiff.diff(forecast(0, 16, 1), 0, forecast(2, 16, 1), 0);
+        assertEquals(4, changes.size());
+        assertEquals(ForecastDiff.Type.EXPIRED, changes.get(0).type);
+        assertEquals(1, changes.get(0).position); // descending, safe to remove in order
+        assertEquals(ForecastDiff.Type.ADDED, changes.get(3).type);
+        assertEquals(15, changes.get(3).position);
+    }
+
+    @Test
+    public void heavierRain_updatesOneStepAndFlagsRisk() {
+        List<ForecastDiff.Change> changes = ForecastDiff.diff(forecast(0, 16, 1), 0, forecast(0, 16, 40), 0);
+        assertEquals(1, changes.size());
+        assertEquals(ForecastDiff.Type.UPDATED, changes.get(0).type);
+        assertEquals(5, changes.get(0).position);
+        assertTrue(ForecastDiff.affectsRisk(changes));
+    }
+
+    @Test
+    public void applyingChanges_reproducesNewList() {
+        ForecastTable old = forecast(0, 16, 1);
+        ForecastTable next = forecast(3, 14, 30);
+        List<Long> shown = new ArrayList<>();
+        for (int s = 0; s < old.getStepCount(0); s++) shown.add(old.getTime(old.row(0, s)));
+
+        for (ForecastDiff.Change c : ForecastDiff.diff(old, 0, next, 0)) {
+            switch (c.type) {
+                case EXPIRED: shown.remove(c.position); break;
+                case ADDED: shown.add(c.position, c.time); break;
+                case UPDATED: assertEquals(c.time, (long) shown.get(c.position)); break;
+            }
+        }
+        assertEquals(next.getStepCount(0), shown.size());
+        for (int s = 0; s < shown.size(); s++) assertEquals(next.getTime(next.row(0, s)), (long) shown.get(s));
+    }
+}
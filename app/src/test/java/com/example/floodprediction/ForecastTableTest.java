@@ -0,0 +1,117 @@
+package com.example.floodprediction;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ForecastTableTest {
+
+    private static final long STEP = 3 * 60 * 60 * 1000L;
+
+    @Test
+    public void stepsAreScoredAndLevelled() {
+        ForecastTable table = new ForecastTable(1, 40);
+        int city = table.addCity("Kuala Lumpur");
+        table.addStep(city, 0, 31, 60, 3, 5, 90, 0, 10, 800, "clear sky", "01d");
+        table.addStep(city, STEP, 25, 95, 18, 25, 180, 45, 100, 211, "thunderstorm", "11d");
+        table.scoreCity(city);
+
+        int calm = table.row(city, 0), storm = table.row(city, 1);
+        assertEquals(RiskScorer.score(0, 60, 3, 10, 800), table.getRiskScore(calm));
+        assertEquals(ForecastTable.LEVEL_LOW, table.getRiskLevel(calm));
+        assertEquals(ForecastTable.LEVEL_HIGH, table.getRiskLevel(storm));
+        assertEquals(ForecastTable.WIND_STRONG, table.getWindLevel(storm));
+        assertEquals("thunderstorm", table.getDescription(storm));
+        assertEquals(table.getRiskScore(storm), table.maxRisk(city));
+    }
+
+    @Test
+    public void history_isRolledForwardThroughTheSteps() {
+        long t0 = 480_000 * 60 * 60 * 1000L;
+        ObservationHistory observed = new ObservationHistory();
+        for (int h = 0; h < 12; h++) observed.record(t0 + h * 60 * 60 * 1000L, 6f, 1, 90);  // 72 mm
+
+        ForecastTable table = new ForecastTable(1, 40);
+        int city = table.addCity("Kuala Lumpur");
+        for (int s = 1; s <= 4; s++) {
+            table.addStep(city, t0 + 11 * 60 * 60 * 1000L + s * STEP, 26, 90, 5, 8, 180, 12, 90, 501,
+                    "moderate rain", "10d");
+        }
+        ObservationHistory expected = observed.copy();
+        table.scoreCity(city, observed);
+
+        for (int s = 0; s < 4; s++) {
+            expected.record(table.getTime(table.row(city, s)), 12f, 3, 90);
+            assertEquals(RiskScorer.score(12, 90, 5, 90, 501, expected.features()),
+                    table.getRiskScore(table.row(city, s)));
+        }
+        // 72 mm observed plus 48 mm forecast before the last step
+        assertEquals(120f, observed.rain24h(), 1e-3);
+        assertTrue(table.getRiskScore(table.row(city, 3)) >= RiskScorer.score(12, 90, 5, 90, 501));
+    }
+
+    @Test
+    public void manyCities_growAndShareStrings() {
+        ForecastTable table = new ForecastTable(2, 40);
+        for (int c = 0; c < 300; c++) {
+            int city = table.addCity("City " + c);
+            for (int s = 0; s < 40; s++) {
+                table.addStep(city, s * STEP, 28, 80, s % 20, s % 25, 0, s, 90, 500, "light rain", "10d");
+            }
+            assertEquals(-1, table.addStep(city, 0, 0, 0, 0, 0, 0, 0, 0, 800, "", ""));
+            table.scoreCity(city);
+        }
+        assertEquals(300, table.getCityCount());
+        assertEquals(299, table.cityIndex("City 299"));
+        assertEquals(40, table.getStepCount(150));
+        int row = table.row(150, 39);
+        assertEquals(39f, table.getRainfall(row), 0);
+        assertEquals("light rain", table.getDescription(row));
+        assertSame(table.getDescription(row), table.getDescription(table.row(3, 0)));
+    }
+
+    @Test
+    public void outOfRangeScores_areClamped() {
+        RiskEvaluator original = RiskScorer.getModel();
+        RiskScorer.install(new RiskEvaluator() {
+            @Override
+            public int version() {
+                return 0;
+            }
+
+            @Override
+            public int score(float rain, float humidity, float wind, float clouds, int condition) {
+                return rain > 0 ? 150 : -5;
+            }
+
+            @Override
+            public String level(int score) {
+                return score >= 60 ? "HIGH" : "LOW";
+            }
+        });
+        try {
+            ForecastTable table = new ForecastTable(1, 40);
+            int city = table.addCity("Kuala Lumpur");
+            table.addStep(city, 0, 25, 95, 18, 25, 180, 45, 100, 211, "thunderstorm", "11d");
+            table.addStep(city, STEP, 31, 60, 3, 5, 90, 0, 10, 800, "clear sky", "01d");
+            table.scoreCity(city);
+            assertEquals(100, table.getRiskScore(table.row(city, 0)));
+            assertEquals(ForecastTable.LEVEL_HIGH, table.getRiskLevel(table.row(city, 0)));
+            assertEquals(0, table.getRiskScore(table.row(city, 1)));
+            assertEquals(100, table.maxRisk(city));
+        } finally {
+            RiskScorer.install(original);
+        }
+    }
+
+    @Test
+    public void timeLabel_isStableAcrossCalls() {
+        ForecastTable table = new ForecastTable(1, 40);
+        int city = table.addCity("Ipoh");
+        table.addStep(city, 0, 28, 80, 3, 5, 0, 0, 50, 800, "clear sky", "01d");
+        table.addStep(city, STEP, 28, 80, 3, 5, 0, 0, 50, 800, "clear sky", "01d");
+        String first = table.timeLabel(table.row(city, 0));
+        assertNotEquals(first, table.timeLabel(table.row(city, 1)));
+        assertEquals(first, table.timeLabel(table.row(city, 0)));
+    }
+}
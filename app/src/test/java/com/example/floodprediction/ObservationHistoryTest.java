@@ -0,0 +1,109 @@
+package com.example.floodprediction;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ObservationHistoryTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long T0 = 480_000 * HOUR; // arbitrary epoch hour
+
+    @Test
+    public void repeatedPolling_doesNotDoubleCount() {
+        ObservationHistory h = new ObservationHistory();
+        for (int i = 0; i < 6; i++) h.record(T0 + i * 10 * 60 * 1000L, 4f, 1, 80); // same hour
+        assertEquals(4f, h.rain24h(), 1e-4);
+        h.record(T0 + 2 * HOUR, 9f, 3, 80); // 3 mm/h over hours 0..2
+        assertEquals(4f + 3f + 3f, h.rain24h(), 1e-4);
+    }
+
+    @Test
+    public void windows_expireOldHours() {
+        ObservationHistory h = new ObservationHistory();
+        h.record(T0, 10f, 1, 70);
+        h.record(T0 + 30 * HOUR, 5f, 1, 70);
+        assertEquals(5f, h.rain24h(), 1e-4);
+        assertEquals(15f, h.rain72h(), 1e-4);
+        h.record(T0 + 72 * HOUR, 0f, 1, 70);
+        assertEquals(5f, h.rain72h(), 1e-4);
+        h.record(T0 + 500 * HOUR, 1f, 1, 70); // long gap resets
+        assertEquals(1f, h.rain72h(), 1e-4);
+    }
+
+    @Test
+    public void rollingSums_matchBruteForce() {
+        Random rnd = new Random(9);
+        ObservationHistory h = new ObservationHistory();
+        float[] perHour = new float[400];
+        int hour = 0;
+        for (int step = 0; step < 2000; step++) {
+            hour = Math.min(perHour.length - 1, hour + (rnd.nextInt(4) == 0 ? 1 + rnd.nextInt(3) : 0));
+            float mm = rnd.nextInt(3) == 0 ? rnd.nextInt(200) / 10f : 0f;
+            h.record(T0 + hour * HOUR + rnd.nextInt(3600) * 1000L, mm, 1, 50 + rnd.nextInt(50));
+            perHour[hour] = Math.max(perHour[hour], mm);
+
+            float s24 = 0, s72 = 0;
+            for (int k = 0; k < 72 && hour - k >= 0; k++) {
+                if (k < 24) s24 += perHour[hour - k];
+                s72 += perHour[hour - k];
+            }
+            assertEquals(s24, h.rain24h(), 1e-2);
+            assertEquals(s72, h.rain72h(), 1e-2);
+        }
+    }
+
+    @Test
+    public void humidityTrend_isLatestMinusDailyMean() {
+        ObservationHistory h = new ObservationHistory();
+        for (int i = 0; i < 4; i++) h.record(T0 + i * HOUR, 0f, 1, 70);
+        h.record(T0 + 4 * HOUR, 0f, 1, 95);
+        assertEquals(95 - (70 * 4 + 95) / 5f, h.humidityTrend(), 1e-4);
+    }
+
+    @Test
+    public void persistence_roundTrips() throws IOException {
+        ObservationHistory h = new ObservationHistory();
+        for (int i = 0; i < 50; i++) h.record(T0 + i * HOUR, (i % 7) * 1.5f, 1, 60 + i % 30);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        h.writeTo(new DataOutputStream(bytes));
+        ObservationHistory read = ObservationHistory.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(4 + 72 * 3, bytes.size());
+        assertEquals(h.rain24h(), read.rain24h(), 1e-3);
+        assertEquals(h.rain72h(), read.rain72h(), 1e-3);
+        assertEquals(h.humidityTrend(), read.humidityTrend(), 1e-3);
+    }
+
+    @Test
+    public void antecedentRain_raisesRisk() {
+        ObservationHistory.Features wet = new ObservationHistory.Features(120f, 200f, 12f);
+        int dry = RiskScorer.score(6, 85, 5, 80, 500);
+        assertEquals(dry, RiskScorer.score(6, 85, 5, 80, 500, null));
+        assertEquals(dry + 15 + 10 + 5, RiskScorer.score(6, 85, 5, 80, 500, wet));
+    }
+
+    @Test
+    public void copy_isIndependent() {
+        ObservationHistory h = new ObservationHistory();
+        h.record(T0, 10f, 1, 70);
+        h.record(T0 + HOUR, 2f, 1, 90);
+        ObservationHistory c = h.copy();
+        assertEquals(h.rain24h(), c.rain24h(), 0f);
+        assertEquals(h.humidityTrend(), c.humidityTrend(), 0f);
+
+        c.record(T0 + 30 * HOUR, 5f, 1, 70);
+        assertEquals(12f, h.rain24h(), 1e-4);
+        assertEquals(5f, c.rain24h(), 1e-4);
+        assertEquals(17f, c.rain72h(), 1e-4);
+    }
+}
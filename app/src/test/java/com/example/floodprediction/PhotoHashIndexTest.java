@@ -0,0 +1,139 @@
+package com.example.floodprediction;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PhotoHashIndexTest {
+
+    private static final int W = 640, H = 480;
+
+    private long now = 1_000_000L;
+
+    /** Same scene re-shot: slightly brighter, shifted a few pixels, re-noised. */
+    private static int[] reshoot(int[] argb, Random rnd) {
+        int[] out = new int[argb.length];
+        int dx = 3 + rnd.nextInt(4), dy = 2 + rnd.nextInt(3);
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                int c = argb[Math.min(H - 1, y + dy) * W + Math.min(W - 1, x + dx)];
+                int n = 12 + rnd.nextInt(5);
+                int r = Math.min(255, ((c >> 16) & 0xFF) + n);
+                int g = Math.min(255, ((c >> 8) & 0xFF) + n);
+                int b = Math.min(255, (c & 0xFF) + n);
+                out[y * W + x] = 0xFF000000 | r << 16 | g << 8 | b;
+            }
+        }
+        return out;
+    }
+
+    private static long hash(int[] argb) {
+        int s = FloodPreClassifier.SIZE;
+        return PerceptualHash.pHash(FloodPreClassifier.downsample(argb, W, H), s, s);
+    }
+
+    @Test
+    public void reshotScene_isNearDuplicate_otherScenesAreNot() {
+        int close = 0, far = 0;
+        for (int i = 0; i < 10; i++) {
+            int[] a = FloodPreClassifierTest.muddyFlood(new Random(700 + i));
+            long h = hash(a);
+            if (PerceptualHash.distance(h, hash(reshoot(a, new Random(i)))) <= PerceptualHash.DUPLICATE_DISTANCE) close++;
+
+            long other = hash(FloodPreClassifierTest.muddyFlood(new Random(800 + i)));
+            if (PerceptualHash.distance(h, other) > PerceptualHash.DUPLICATE_DISTANCE) far++;
+        }
+        assertEquals(10, close);
+        assertEquals(10, far);
+    }
+
+    @Test
+    public void exposureChange_keepsHash() {
+        int[] a = FloodPreClassifierTest.dryStreet(new Random(900));
+        int[] brighter = new int[a.length];
+        for (int i = 0; i < a.length; i++) {
+            int c = a[i];
+            brighter[i] = 0xFF000000
+                    | Math.min(255, ((c >> 16) & 0xFF) * 11 / 10) << 16
+                    | Math.min(255, ((c >> 8) & 0xFF) * 11 / 10) << 8
+                    | Math.min(255, (c & 0xFF) * 11 / 10);
+        }
+        assertTrue(PerceptualHash.distance(hash(a), hash(brighter)) <= 2);
+    }
+
+    @Test
+    public void nearest_matchesBruteForce() {
+        PhotoHashIndex<Integer> index = new PhotoHashIndex<>(Long.MAX_VALUE / 2, 10_000, () -> now);
+        Random rnd = new Random(5);
+        long[] hashes = new long[2000];
+        for (int i = 0; i < hashes.length; i++) {
+            // Clusters of similar hashes, like bursts of photos of one junction
+            hashes[i] = i % 10 == 0 ? rnd.nextLong() : hashes[i - i % 10] ^ (1L << rnd.nextInt(64));
+            index.add(hashes[i], i);
+        }
+        for (int q = 0; q < 300; q++) {
+            long query = hashes[rnd.nextInt(hashes.length)] ^ (1L << rnd.nextInt(64)) ^ (1L << rnd.nextInt(64));
+            int best = Integer.MAX_VALUE;
+            for (long h : hashes) best = Math.min(best, PerceptualHash.distance(query, h));
+
+            Integer found = index.nearest(query, 8);
+            if (best > 8) {
+                assertNull(found);
+            } else {
+                assertNotNull(found);
+                assertEquals(best, PerceptualHash.distance(query, hashes[found]));
+            }
+        }
+    }
+
+    @Test
+    public void entriesExpire_andTreeIsRebuilt() {
+        PhotoHashIndex<String> index = new PhotoHashIndex<>(1000, 100, () -> now);
+        index.add(0xF0F0L, "old");
+        now += 500;
+        for (int i = 0; i < 10; i++) index.add(0xFFFF_0000_0000L << (i % 4) ^ i, "x" + i);
+        assertEquals("old", index.nearest(0xF0F1L, 4));
+
+        now += 600; // "old" is past the window, the rest aren't
+        assertNull(index.nearest(0xF0F1L, 4));
+        now += 1000;
+        index.nearest(0, 0); // oldest is half a window past expiry: rebuild drops every expired entry
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void sizeLimit_keepsNewestHalf() {
+        PhotoHashIndex<Integer> index = new PhotoHashIndex<>(Long.MAX_VALUE / 2, 100, () -> now);
+        for (int i = 0; i < 100; i++) {
+            now++;
+            index.add(i * 0x0101_0101_0101_0101L, i);
+        }
+        now++;
+        index.add(-1L, 100);
+        assertEquals(51, index.size());
+        assertNull(index.nearest(0L, 0));
+        assertEquals(Integer.valueOf(99), index.nearest(99 * 0x0101_0101_0101_0101L, 0));
+    }
+
+    @Test
+    public void ties_preferNewest() {
+        PhotoHashIndex<String> index = new PhotoHashIndex<>(10_000, 100, () -> now);
+        index.add(0b0001L, "first");
+        now++;
+        index.add(0b0010L, "second");
+        assertEquals("second", index.nearest(0b0011L, 2));
+    }
+
+    @Test
+    public void filter_skipsCloserEntriesItRejects() {
+        PhotoHashIndex<String> index = new PhotoHashIndex<>(10_000, 100, () -> now);
+        index.add(0b0001L, "Shah Alam");
+        index.add(0b0111L, "Klang");
+        // The closest hash is from elsewhere: the filtered lookup finds the farther one
+        assertEquals("Shah Alam", index.nearest(0b0001L, 3));
+        assertEquals("Klang", index.nearest(0b0001L, 3, "Klang"::equals));
+        assertNull(index.nearest(0b0001L, 3, "Ipoh"::equals));
+    }
+}
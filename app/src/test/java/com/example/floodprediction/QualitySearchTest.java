@@ -0,0 +1,116 @@
+package com.example.floodprediction;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import static org.junit.Assert.*;
+
+public class QualitySearchTest {
+
+    private static final int BUDGET = 120 * 1024;
+
+    /** Synthetic 768x576 "flood photo": sky gradient, textured water, noise. */
+    private static BufferedImage samplePhoto(long seed) {
+        BufferedImage img = new BufferedImage(768, 576, BufferedImage.TYPE_INT_RGB);
+        Random rnd = new Random(seed);
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                int r, g, b;
+                if (y < 220) {
+                    r = 120 + y / 4; g = 150 + y / 5; b = 200;
+                } else {
+                    int wave = (int) (20 * Math.sin(x / 9.0 + y / 5.0));
+                    r = 110 + wave; g = 90 + wave; b = 60;
+                }
+                int n = rnd.nextInt(41) - 20;
+                img.setRGB(x, y, (clamp(r + n) << 16) | (clamp(g + n) << 8) | clamp(b + n));
+            }
+        }
+        return img;
+    }
+
+    private static int clamp(int v) {
+        return Math.max(0, Math.min(255, v));
+    }
+
+    private static QualitySearch.Encoder jpeg(BufferedImage img) {
+        return (quality, out) -> writeJpeg(img, quality, out);
+    }
+
+    private static void writeJpeg(BufferedImage img, int quality, OutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality / 100f);
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(img, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static int sizeAt(BufferedImage img, int quality) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeJpeg(img, quality, out);
+        return out.size();
+    }
+
+    @Test
+    public void picksHighestQualityWithinBudget() throws IOException {
+        BufferedImage img = samplePhoto(1);
+        QualitySearch search = new QualitySearch(BUDGET);
+        int q = search.search(jpeg(img), BUDGET, 40, 90);
+
+        assertTrue("sample should need a quality below max", q > 40 && q < 90);
+        assertTrue(search.size() <= BUDGET);
+        assertEquals(search.size(), sizeAt(img, q));
+        assertTrue(sizeAt(img, q + 1) > BUDGET);
+        assertTrue("binary search, not a scan", search.attempts() <= 8);
+
+        byte[] copy = search.toByteArray();
+        assertEquals((byte) 0xFF, copy[0]);
+        assertEquals((byte) 0xD8, copy[1]); // JPEG SOI
+    }
+
+    @Test
+    public void smallImage_keepsMaxQuality() throws IOException {
+        BufferedImage img = samplePhoto(2).getSubimage(0, 0, 128, 96);
+        QualitySearch search = new QualitySearch(1024);
+        assertEquals(90, search.search(jpeg(img), BUDGET, 40, 90));
+        assertEquals(1, search.attempts());
+    }
+
+    @Test
+    public void impossibleBudget_reportsMinus1() throws IOException {
+        QualitySearch search = new QualitySearch(1024);
+        assertEquals(-1, search.search(jpeg(samplePhoto(3)), 2 * 1024, 40, 90));
+        assertEquals(-1, search.quality());
+        assertTrue(search.size() > 2 * 1024);
+    }
+
+    @Test
+    public void buffersAreReusedAcrossPhotos() throws IOException {
+        QualitySearch search = new QualitySearch(BUDGET + BUDGET / 4);
+        Set<byte[]> arrays = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (long seed = 4; seed < 10; seed++) {
+            search.search(jpeg(samplePhoto(seed)), BUDGET, 40, 90);
+            arrays.add(search.data());
+        }
+        assertEquals(2, arrays.size());
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.floodprediction;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+/**
+ * Decodes locally stored precipitation tiles (OWM precipitation_new palette)
+ * into a {@link RainfallRaster}. The striped sample tile has four 64 px
+ * bands: transparent, 1 mm, 10 mm and 140 mm palette colours.
+ */
+public class RainfallRasterTest {
+
+    private static final int ZOOM = 6;
+
+    private static int[] loadTile(String name) throws Exception {
+        try (InputStream in = RainfallRasterTest.class.getResourceAsStream("/tiles/" + name)) {
+            BufferedImage img = ImageIO.read(in);
+            int size = RainfallRaster.TILE_SIZE;
+            return img.getRGB(0, 0, size, size, null, 0, size);
+        }
+    }
+
+    @Test
+    public void paletteStops_mapBackToMillimetres() {
+        assertEquals(0f, RainfallRaster.mmPerHour(0x00E1C864), 0f);
+        assertEquals(1f, RainfallRaster.mmPerHour(0x4D6E6ECD), 0.01f);
+        assertEquals(10f, RainfallRaster.mmPerHour(0xB35050E1), 0.01f);
+        assertEquals(140f, RainfallRaster.mmPerHour(0xE61414FF), 0.01f);
+        assertEquals(140f, RainfallRaster.mmPerHour(0xFF1414FF), 0.01f);
+    }
+
+    @Test
+    public void paletteInversion_isMonotonic() {
+        float prev = -1;
+        for (int a = 0; a < 256; a++) {
+            float mm = RainfallRaster.mmPerHour(a << 24);
+            assertTrue(mm >= prev);
+            prev = mm;
+        }
+    }
+
+    @Test
+    public void stripedTile_fillsCellsFromBands() throws Exception {
+        RainfallRaster raster = new RainfallRaster(60, 40, ZOOM);
+        int[] pixels = loadTile("precipitation_6_50_31.png");
+        raster.sampleTile(50, 31, pixels);
+
+        float[] expected = {0f, 1f, 10f, 140f};
+        int filled = 0;
+        for (int row = 0; row < raster.rows; row++) {
+            for (int col = 0; col < raster.cols; col++) {
+                int px = raster.cellPixelX(row, col);
+                int py = raster.cellPixelY(row, col);
+                boolean inTile = px / 256 == 50 && py / 256 == 31;
+                float mm = raster.get(row, col);
+                if (inTile) {
+                    assertEquals(expected[(px % 256) / 64], mm, 0.01f);
+                    filled++;
+                } else {
+                    assertTrue(Float.isNaN(mm));
+                }
+            }
+        }
+        assertTrue("tile should cover part of the grid", filled > 0);
+        assertTrue(raster.hasData());
+    }
+
+    @Test
+    public void dryTile_isZeroNotMissing() throws Exception {
+        RainfallRaster raster = new RainfallRaster(60, 40, ZOOM);
+        raster.sampleTile(51, 31, loadTile("precipitation_6_51_31_dry.png"));
+
+        for (int row = 0; row < raster.rows; row++) {
+            for (int col = 0; col < raster.cols; col++) {
+                if (raster.cellPixelX(row, col) / 256 == 51 && raster.cellPixelY(row, col) / 256 == 31) {
+                    assertEquals(0f, raster.get(row, col), 0f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void tileRange_coversMalaysia() {
+        RainfallRaster raster = new RainfallRaster(60, 40, ZOOM);
+        assertEquals(49, raster.minTileX());
+        assertEquals(53, raster.maxTileX());
+        assertEquals(30, raster.minTileY());
+        assertEquals(31, raster.maxTileY());
+    }
+
+    @Test
+    public void riskForRate_rampsToHundred() {
+        assertEquals(0, RainfallRaster.riskForRate(0f), 0);
+        assertEquals(30, RainfallRaster.riskForRate(2.5f), 0.01);
+        assertEquals(60, RainfallRaster.riskForRate(10f), 0.01);
+        assertEquals(100, RainfallRaster.riskForRate(80f), 0);
+    }
+}
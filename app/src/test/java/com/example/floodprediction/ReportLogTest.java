@@ -0,0 +1,292 @@
+package com.example.floodprediction;
+
+import com.example.floodprediction.FloodReportManager.FloodReport;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReportLogTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final String[] SEVERITIES = {"LOW", "MEDIUM", "HIGH"};
+
+    private static FloodReport report(Random rnd, long timestamp) {
+        FloodReport r = new FloodReport(
+                1.2 + rnd.nextDouble() * 5.5,
+                100.0 + rnd.nextDouble() * 19,
+                SEVERITIES[rnd.nextInt(3)],
+                "Water at knee height near the market, report " + timestamp,
+                rnd.nextBoolean() ? "Kuala Lumpur" : "Shah Alam",
+                timestamp);
+        if (rnd.nextBoolean()) r.photoHash = rnd.nextLong();
+        return r;
+    }
+
+    private static void assertSame(FloodReport expected, FloodReport actual) {
+        assertEquals(expected.id, actual.id);
+        assertEquals(expected.lat, actual.lat, 0);
+        assertEquals(expected.lon, actual.lon, 0);
+        assertEquals(expected.severity, actual.severity);
+        assertEquals(expected.description, actual.description);
+        assertEquals(expected.locationName, actual.locationName);
+        assertEquals(expected.timestamp, actual.timestamp);
+        assertEquals(expected.confirmations, actual.confirmations);
+        assertEquals(expected.photoHash, actual.photoHash);
+    }
+
+    @Test
+    public void reportsAndConfirmations_surviveReopen() throws Exception {
+        File dir = tmp.newFolder();
+        Random rnd = new Random(1);
+        List<FloodReport> saved = new ArrayList<>();
+        try (ReportLog log = new ReportLog(dir)) {
+            for (int i = 0; i < 20; i++) {
+                FloodReport r = report(rnd, 1000 + i);
+                log.insert(r);
+                saved.add(r);
+            }
+            FloodReport noText = new FloodReport(3, 101, "LOW", null, null, 2000);
+            log.insert(noText);
+            assertTrue(log.link(saved.get(4).id, "HIGH"));
+            assertTrue(log.link(saved.get(4).id, "LOW"));
+            assertFalse(log.link(9999, "HIGH"));
+        }
+        saved.get(4).confirmations = 3;
+        saved.get(4).severity = "HIGH";
+
+        try (ReportLog log = new ReportLog(dir)) {
+            List<FloodReport> all = log.all();
+            assertEquals(21, all.size());
+            for (int i = 0; i < 20; i++) assertSame(saved.get(i), all.get(i));
+            assertNull(all.get(20).description);
+            assertEquals("Unknown", all.get(20).locationName);
+            assertEquals(23, log.recordCount());
+        }
+    }
+
+    @Test
+    public void tornAppend_isDroppedOnOpen() throws Exception {
+        File dir = tmp.newFolder();
+        Random rnd = new Random(2);
+        try (ReportLog log = new ReportLog(dir)) {
+            for (int i = 0; i < 10; i++) log.insert(report(rnd, i));
+        }
+        // Half-written 9th record: one byte differs from what was sealed
+        try (RandomAccessFile f = new RandomAccessFile(new File(dir, "reports.log"), "rw")) {
+            long at = 9L * ReportLog.RECORD_SIZE + 3;
+            f.seek(at);
+            int b = f.read();
+            f.seek(at);
+            f.write(b ^ 0x40);
+        }
+        try (ReportLog log = new ReportLog(dir)) {
+            assertEquals(8, log.size());
+            log.insert(report(rnd, 100));
+            assertEquals(9, log.size());
+        }
+        try (ReportLog log = new ReportLog(dir)) {
+            List<FloodReport> all = log.all();
+            assertEquals(9, all.size());
+            assertEquals(100, all.get(8).timestamp);
+        }
+    }
+
+    @Test
+    public void clear_keepsOldRecordsFromComingBack() throws Exception {
+        File dir = tmp.newFolder();
+        Random rnd = new Random(3);
+        try (ReportLog log = new ReportLog(dir)) {
+            for (int i = 0; i < 5; i++) log.insert(report(rnd, i));
+            log.clear();
+            log.insert(report(rnd, 50));
+            log.insert(report(rnd, 51));
+        }
+        try (ReportLog log = new ReportLog(dir)) {
+            assertEquals(2, log.size());
+            assertEquals(50, log.all().get(0).timestamp);
+        }
+    }
+
+    @Test
+    public void queries_matchBruteForce_evenOutOfTimeOrder() throws Exception {
+        File dir = tmp.newFolder();
+        Random rnd = new Random(4);
+        List<FloodReport> saved = new ArrayList<>();
+        try (ReportLog log = new ReportLog(dir)) {
+            for (int i = 0; i < 500; i++) {
+                // Mostly increasing, with some clock skew and equal timestamps
+                FloodReport r = report(rnd, i * 10L + (i % 7 == 0 ? -95 : 0) - (i % 5 == 0 ? i % 10 : 0));
+                log.insert(r);
+                saved.add(r);
+            }
+        }
+        saved.sort((a, b) -> a.timestamp != b.timestamp
+                ? Long.compare(a.timestamp, b.timestamp) : Long.compare(a.id, b.id));
+
+        try (ReportLog log = new ReportLog(dir)) {
+            List<FloodReport> all = log.all();
+            for (int i = 0; i < saved.size(); i++) assertSame(saved.get(i), all.get(i));
+
+            List<FloodReport> window = log.between(1200, 3400);
+            int expected = 0;
+            for (FloodReport r : saved) if (r.timestamp >= 1200 && r.timestamp < 3400) expected++;
+            assertEquals(expected, window.size());
+
+            List<FloodReport> box = log.in(2.0, 101.0, 4.0, 104.0, 1000);
+            expected = 0;
+            for (FloodReport r : saved) {
+                if (r.lat >= 2 && r.lat <= 4 && r.lon >= 101 && r.lon <= 104 && r.timestamp >= 1000) expected++;
+            }
+            assertEquals(expected, box.size());
+
+            // Pages walk the whole history newest first, without gaps or repeats
+            List<FloodReport> paged = new ArrayList<>();
+            FloodReport after = null;
+            List<FloodReport> page;
+            while (!(page = log.page(after, 37)).isEmpty()) {
+                paged.addAll(page);
+                after = page.get(page.size() - 1);
+            }
+            assertEquals(saved.size(), paged.size());
+            for (int i = 0; i < saved.size(); i++) {
+                assertEquals(saved.get(saved.size() - 1 - i).id, paged.get(i).id);
+            }
+        }
+    }
+
+    @Test
+    public void compact_dropsExpiredAndSwitchesGeneration() throws Exception {
+        File dir = tmp.newFolder();
+        long now = 1_700_000_000_000L;
+        RetentionPolicy policy = RetentionPolicy.DEFAULT;
+        Random rnd = new Random(6);
+        List<FloodReport> expected = new ArrayList<>();
+        try (ReportLog log = new ReportLog(dir)) {
+            for (int i = 0; i < 300; i++) {
+                FloodReport r = report(rnd, now - (300 - i) * RetentionPolicy.DAY_MS / 10);
+                log.insert(r);
+                if (!policy.isExpired(r, now)) expected.add(r);
+            }
+            FloodReport last = expected.get(expected.size() - 1);
+            assertTrue(log.link(last.id, "HIGH"));
+            last.confirmations = 2;
+            last.severity = "HIGH";
+
+            assertEquals(300 - expected.size(), log.compact(policy, now));
+            assertEquals(expected.size(), log.size());
+            assertEquals(0, log.compact(policy, now));
+
+            // Ids are renumbered but links still find the right report
+            List<FloodReport> all = log.all();
+            FloodReport moved = all.get(all.size() - 1);
+            assertTrue(log.link(moved.id, "LOW"));
+            last.confirmations = 3;
+        }
+        assertTrue(new File(dir, "CURRENT").exists());
+        assertFalse(new File(dir, "reports.log").exists());
+
+        try (ReportLog log = new ReportLog(dir)) {
+            List<FloodReport> all = log.all();
+            assertEquals(expected.size(), all.size());
+            for (int i = 0; i < all.size(); i++) {
+                expected.get(i).id = all.get(i).id;
+                assertSame(expected.get(i), all.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void compact_keepsWhatIsAppendedMeanwhile() throws Exception {
+        File dir = tmp.newFolder();
+        long now = 1_700_000_000_000L;
+        RetentionPolicy policy = new RetentionPolicy(
+                RetentionPolicy.DAY_MS, RetentionPolicy.DAY_MS, RetentionPolicy.DAY_MS, 0.1, 1000);
+        Random rnd = new Random(7);
+        int writes = 3000;
+        try (ReportLog log = new ReportLog(dir)) {
+            for (int i = 0; i < 2000; i++) log.insert(report(rnd, now - 2 * RetentionPolicy.DAY_MS));
+
+            // One thread keeps reporting and confirming its newest report while
+            // the other compacts over and over
+            Thread writer = new Thread(() -> {
+                Random w = new Random(8);
+                for (int i = 0; i < writes; i++) {
+                    FloodReport r = report(w, now - 1000 + i % 500);
+                    r.severity = "LOW";
+                    log.insert(r);
+                    List<FloodReport> page = log.page(null, 1);
+                    log.link(page.get(0).id, "MEDIUM");
+                }
+            });
+            writer.start();
+            int dropped = 0;
+            while (writer.isAlive()) dropped += log.compact(policy, now);
+            writer.join();
+            dropped += log.compact(policy, now);
+
+            assertEquals(2000, dropped);
+            List<FloodReport> all = log.all();
+            assertEquals(writes, all.size());
+            int confirmations = 0;
+            for (FloodReport r : all) {
+                assertTrue(r.timestamp > now - 1000 - 1);
+                confirmations += r.confirmations;
+            }
+            // Every link landed on some surviving report
+            assertEquals(2 * writes, confirmations);
+        }
+        try (ReportLog log = new ReportLog(dir)) {
+            assertEquals(writes, log.size());
+        }
+    }
+
+    @Test
+    public void openAndScan100k_takeMilliseconds() throws Exception {
+        File dir = tmp.newFolder();
+        Random rnd = new Random(5);
+        int n = 100_000;
+        try (ReportLog log = new ReportLog(dir)) {
+            List<FloodReport> batch = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                batch.add(report(rnd, 1_700_000_000_000L + i * 1000L));
+                if (batch.size() == 5000) {
+                    log.insertAll(batch);
+                    batch.clear();
+                }
+            }
+        }
+
+        // Best of a few opens: the app runs this code AOT-compiled, not interpreted
+        double openMs = Double.MAX_VALUE, scanMs = Double.MAX_VALUE;
+        int[] visited = new int[1];
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            ReportLog log = new ReportLog(dir);
+            long t1 = System.nanoTime();
+            visited[0] = 0;
+            log.scan(0, (id, lat, lon, severity, timestamp) -> {
+                visited[0]++;
+                return true;
+            });
+            long t2 = System.nanoTime();
+            log.close();
+            openMs = Math.min(openMs, (t1 - t0) / 1e6);
+            scanMs = Math.min(scanMs, (t2 - t1) / 1e6);
+        }
+
+        assertEquals(n, visited[0]);
+        assertTrue("open should take milliseconds", openMs < 200);
+        assertTrue("scan should take milliseconds", scanMs < 50);
+    }
+}
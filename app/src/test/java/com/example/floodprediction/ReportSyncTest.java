@@ -0,0 +1,330 @@
+package com.example.floodprediction;
+
+import com.example.floodprediction.FloodReportManager.FloodReport;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ReportSyncTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final Object LOCK = new Object();
+
+    /** Firestore as far as sync can tell: batches, server times, merged maps, billed reads. */
+    static class FakeCloud implements ReportCloud {
+        static class Doc {
+            FloodReport report;
+            String cell;
+            long changed;
+            final Map<String, String> confirmedBy = new HashMap<>();
+        }
+
+        final Map<String, Doc> docs = new HashMap<>();
+        long clock = NOW * 1000;
+        int commits, writes, reads;
+        boolean offline;
+        boolean loseAck;  // commit, then fail as if the acknowledgement was lost
+
+        @Override
+        public synchronized void commit(List<Write> batch) throws Exception {
+            if (offline) throw new IOException("offline");
+            assertTrue(batch.size() <= MAX_BATCH);
+            clock += 1000;  // one server timestamp per batch
+            for (Write w : batch) {
+                Doc doc = docs.get(w.docId);
+                if (w.report != null) {
+                    if (doc == null) doc = new Doc();
+                    doc.report = copy(w.report);
+                    doc.cell = Geohash.encode(w.report.lat, w.report.lon, CELL_PRECISION);
+                    docs.put(w.docId, doc);
+                }
+                // Merged by id: the stored severity field is never rewritten
+                doc.confirmedBy.putAll(w.confirmations);
+                doc.changed = clock;
+            }
+            commits++;
+            writes += batch.size();
+            if (loseAck) throw new IOException("deadline exceeded");
+        }
+
+        @Override
+        public synchronized List<Change> changedSince(List<String> cells, long afterMicros,
+                                                      String afterDocId, int limit) throws Exception {
+            if (offline) throw new IOException("offline");
+            if (afterDocId != null && afterDocId.isEmpty()) {
+                throw new IllegalArgumentException("Invalid document ID: empty");
+            }
+            List<Map.Entry<String, Doc>> matches = new ArrayList<>();
+            for (Map.Entry<String, Doc> e : docs.entrySet()) {
+                Doc d = e.getValue();
+                if (!cells.contains(d.cell)) continue;
+                if (d.changed < afterMicros) continue;
+                if (d.changed == afterMicros
+                        && (afterDocId == null || e.getKey().compareTo(afterDocId) <= 0)) continue;
+                matches.add(e);
+            }
+            matches.sort((a, b) -> a.getValue().changed != b.getValue().changed
+                    ? Long.compare(a.getValue().changed, b.getValue().changed)
+                    : a.getKey().compareTo(b.getKey()));
+            List<Change> page = new ArrayList<>();
+            for (Map.Entry<String, Doc> e : matches.subList(0, Math.min(limit, matches.size()))) {
+                Doc d = e.getValue();
+                FloodReport r = copy(d.report);
+                for (String severity : d.confirmedBy.values()) {
+                    r.confirmations++;
+                    if (FloodReportManager.severityRank(severity) > FloodReportManager.severityRank(r.severity)) {
+                        r.severity = severity;
+                    }
+                }
+                page.add(new Change(e.getKey(), r, d.changed));
+            }
+            reads += page.size();
+            return page;
+        }
+    }
+
+    private static FloodReport copy(FloodReport r) {
+        FloodReport c = new FloodReport(r.lat, r.lon, r.severity, r.description, r.locationName, r.timestamp);
+        c.confirmations = r.confirmations;
+        c.photoHash = r.photoHash;
+        return c;
+    }
+
+    private static FloodReport report(double lat, double lon, String severity, long timestamp) {
+        return new FloodReport(lat, lon, severity, "Road flooded", "Shah Alam", timestamp);
+    }
+
+    /** One phone: its own store and sync directory, the shared cloud. */
+    private class Device {
+        final ReportLog store;
+        final File syncDir;
+        ReportSync sync;
+
+        Device(FakeCloud cloud) throws IOException {
+            store = new ReportLog(tmp.newFolder());
+            syncDir = tmp.newFolder();
+            sync = new ReportSync(store, LOCK, cloud, syncDir);
+        }
+
+        FloodReport save(FloodReport r) throws IOException {
+            store.insert(r);
+            sync.setRegion(r.lat, r.lon);
+            sync.queueReport(r);
+            return r;
+        }
+    }
+
+    @Test
+    public void geohash_matchesReferenceAndCoversBox() {
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+
+        List<String> cells = ReportSync.regionCells(3.07, 101.52);
+        assertTrue(cells.size() <= 30);  // Firestore's limit for whereIn
+        for (double lat = 2.83; lat <= 3.31; lat += 0.01) {
+            for (double lon = 101.28; lon <= 101.76; lon += 0.01) {
+                assertTrue(cells.contains(Geohash.encode(lat, lon, ReportCloud.CELL_PRECISION)));
+            }
+        }
+    }
+
+    @Test
+    public void reports_reachOtherDevicesInRegionOnly() throws Exception {
+        FakeCloud cloud = new FakeCloud();
+        Device a = new Device(cloud), b = new Device(cloud);
+        FloodReport near = a.save(report(3.07, 101.52, "HIGH", NOW - 60_000));
+        a.save(report(5.41, 100.33, "LOW", NOW - 30_000));  // Penang, far from b
+        b.sync.setRegion(3.10, 101.55);
+
+        assertEquals(2, a.sync.push());
+        assertEquals(0, a.sync.pendingWrites());
+        assertEquals(1, b.sync.pull(RetentionPolicy.DEFAULT, NOW));
+        List<FloodReport> seen = b.store.all();
+        assertEquals(1, seen.size());
+        assertEquals(ReportSync.documentId(near), ReportSync.documentId(seen.get(0)));
+        assertEquals("Road flooded", seen.get(0).description);
+
+        // a pulls its own report back without storing it twice
+        assertEquals(0, a.sync.pull(RetentionPolicy.DEFAULT, NOW));
+        assertEquals(2, a.store.size());
+    }
+
+    @Test
+    public void confirmations_foldIntoNewReportsAndAddUpAcrossDevices() throws Exception {
+        FakeCloud cloud = new FakeCloud();
+        Device a = new Device(cloud), b = new Device(cloud);
+        FloodReport r = a.save(report(3.07, 101.52, "LOW", NOW - 60_000));
+        a.store.link(r.id, "MEDIUM");
+        a.sync.queueConfirmation(r, "MEDIUM");
+        a.store.link(r.id, "LOW");
+        a.sync.queueConfirmation(r, "LOW");
+
+        assertEquals(3, a.sync.push());
+        assertEquals(1, cloud.writes);  // one document write for the report and its photos
+        b.sync.setRegion(3.07, 101.52);
+        b.sync.pull(RetentionPolicy.DEFAULT, NOW);
+        FloodReport atB = b.store.all().get(0);
+        assertEquals(3, atB.confirmations);
+        assertEquals("MEDIUM", atB.severity);
+
+        b.store.link(atB.id, "HIGH");
+        b.sync.queueConfirmation(atB, "HIGH");
+        b.sync.push();
+        assertEquals(1, a.sync.pull(RetentionPolicy.DEFAULT, NOW));
+        FloodReport atA = a.store.all().get(0);
+        assertEquals(4, atA.confirmations);
+        assertEquals("HIGH", atA.severity);
+    }
+
+    @Test
+    public void lowConfirmation_neverDowngradesSharedReport() throws Exception {
+        FakeCloud cloud = new FakeCloud();
+        Device a = new Device(cloud), b = new Device(cloud), c = new Device(cloud);
+        a.save(report(3.07, 101.52, "HIGH", NOW - 60_000));
+        a.sync.push();
+        b.sync.setRegion(3.07, 101.52);
+        b.sync.pull(RetentionPolicy.DEFAULT, NOW);
+
+        FloodReport atB = b.store.all().get(0);
+        b.store.link(atB.id, "LOW");
+        b.sync.queueConfirmation(atB, "LOW");
+        b.sync.push();
+
+        c.sync.setRegion(3.07, 101.52);
+        assertEquals(1, c.sync.pull(RetentionPolicy.DEFAULT, NOW));
+        FloodReport atC = c.store.all().get(0);
+        assertEquals(2, atC.confirmations);
+        assertEquals("HIGH", atC.severity);
+        assertEquals(1, a.sync.pull(RetentionPolicy.DEFAULT, NOW));
+        assertEquals("HIGH", a.store.all().get(0).severity);
+    }
+
+    @Test
+    public void resentBatch_afterLostAck_countsEachConfirmationOnce() throws Exception {
+        FakeCloud cloud = new FakeCloud();
+        Device a = new Device(cloud), b = new Device(cloud), c = new Device(cloud);
+        FloodReport r = a.save(report(3.07, 101.52, "LOW", NOW - 60_000));
+        a.sync.push();
+        b.sync.setRegion(3.07, 101.52);
+        b.sync.pull(RetentionPolicy.DEFAULT, NOW);
+
+        FloodReport atB = b.store.all().get(0);
+        b.store.link(atB.id, "MEDIUM");
+        b.sync.queueConfirmation(atB, "MEDIUM");
+        cloud.loseAck = true;
+        try {
+            b.sync.push();
+            fail("acknowledged");
+        } catch (IOException expected) {}
+        assertEquals(1, b.sync.pendingWrites());
+
+        // Sent again after a restart
+        cloud.loseAck = false;
+        b.sync = new ReportSync(b.store, LOCK, cloud, b.syncDir);
+        assertEquals(1, b.sync.push());
+        a.sync.queueReport(r);  // the creator's report resent as well
+        a.sync.push();
+
+        c.sync.setRegion(3.07, 101.52);
+        c.sync.pull(RetentionPolicy.DEFAULT, NOW);
+        FloodReport atC = c.store.all().get(0);
+        assertEquals(2, atC.confirmations);
+        assertEquals("MEDIUM", atC.severity);
+    }
+
+    @Test
+    public void firstPull_ofMovedRegion_hasNoDocumentCursor() throws Exception {
+        FakeCloud cloud = new FakeCloud();
+        Device a = new Device(cloud), b = new Device(cloud);
+        a.save(report(3.07, 101.52, "MEDIUM", NOW - 60_000));
+        a.save(report(5.41, 100.33, "MEDIUM", NOW - 60_000));
+        a.sync.push();  // one batch: both share a server time
+
+        b.sync.setRegion(3.07, 101.52);
+        assertEquals(1, b.sync.pull(RetentionPolicy.DEFAULT, NOW));
+        b.sync.setRegion(5.41, 100.33);
+        assertEquals(1, b.sync.pull(RetentionPolicy.DEFAULT, NOW));
+        assertEquals(2, b.store.size());
+    }
+
+    @Test
+    public void pull_readsOnlyWhatChanged() throws Exception {
+        FakeCloud cloud = new FakeCloud();
+        Device a = new Device(cloud), b = new Device(cloud);
+        b.sync.setRegion(3.07, 101.52);
+        for (int i = 0; i < 450; i++) {
+            a.save(report(3.0 + i * 0.0003, 101.5, "MEDIUM", NOW - 100_000 + i));
+        }
+        a.sync.push();
+        assertEquals(450, b.sync.pull(RetentionPolicy.DEFAULT, NOW));
+        assertEquals(450, cloud.reads);
+
+        cloud.reads = 0;
+        assertEquals(0, b.sync.pull(RetentionPolicy.DEFAULT, NOW));
+        assertEquals(0, cloud.reads);
+
+        for (int i = 0; i < 3; i++) a.save(report(3.1, 101.5 + i * 0.001, "HIGH", NOW - 10 + i));
+        a.sync.push();
+        // A restarted b picks up where it stopped
+        b.sync = new ReportSync(b.store, LOCK, cloud, b.syncDir);
+        assertEquals(3, b.sync.pull(RetentionPolicy.DEFAULT, NOW));
+        assertEquals(3, cloud.reads);
+        assertEquals(453, b.store.size());
+    }
+
+    @Test
+    public void pull_skipsExpiredReports() throws Exception {
+        FakeCloud cloud = new FakeCloud();
+        Device a = new Device(cloud), b = new Device(cloud);
+        a.save(report(3.07, 101.52, "LOW", NOW - 5 * RetentionPolicy.DAY_MS));
+        a.save(report(3.07, 101.53, "HIGH", NOW - 5 * RetentionPolicy.DAY_MS));
+        a.sync.push();
+        b.sync.setRegion(3.07, 101.52);
+        assertEquals(1, b.sync.pull(RetentionPolicy.DEFAULT, NOW));
+        assertEquals("HIGH", b.store.all().get(0).severity);
+    }
+
+    @Test
+    public void outbox_survivesOfflineRestartsAndTornWrites() throws Exception {
+        FakeCloud cloud = new FakeCloud();
+        Device a = new Device(cloud);
+        cloud.offline = true;
+        for (int i = 0; i < 1200; i++) {
+            a.save(report(3.0 + i * 0.0001, 101.5, "LOW", NOW - 1_000_000 + i));
+        }
+        try {
+            a.sync.push();
+            fail("pushed while offline");
+        } catch (IOException expected) {}
+        assertEquals(1200, a.sync.pendingWrites());
+
+        // Crash halfway through the next append
+        File outbox = new File(a.syncDir, "outbox");
+        try (RandomAccessFile f = new RandomAccessFile(outbox, "rw")) {
+            f.seek(f.length());
+            f.write(new byte[]{0, 0, 0, 40, 1, 2, 3});
+        }
+        a.sync = new ReportSync(a.store, LOCK, cloud, a.syncDir);
+        assertEquals(1200, a.sync.pendingWrites());
+        a.sync.queueReport(report(3.5, 101.5, "HIGH", NOW));
+
+        cloud.offline = false;
+        assertEquals(1201, a.sync.push());
+        assertEquals(3, cloud.commits);  // 500 + 500 + 201
+        assertEquals(1201, cloud.docs.size());
+        assertEquals(0, new ReportSync(a.store, LOCK, cloud, a.syncDir).pendingWrites());
+    }
+}
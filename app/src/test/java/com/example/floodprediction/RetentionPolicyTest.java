@@ -0,0 +1,65 @@
+package com.example.floodprediction;
+
+import com.example.floodprediction.FloodReportManager.FloodReport;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.floodprediction.RetentionPolicy.DAY_MS;
+import static org.junit.Assert.*;
+
+public class RetentionPolicyTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private static FloodReport report(long id, double lat, double lon, String severity, long ageMs) {
+        FloodReport r = new FloodReport(lat, lon, severity, "", "Kuala Lumpur", NOW - ageMs);
+        r.id = id;
+        return r;
+    }
+
+    @Test
+    public void ttl_dependsOnSeverity() {
+        RetentionPolicy policy = RetentionPolicy.DEFAULT;
+        assertFalse(policy.isExpired(report(1, 3, 101, "LOW", 2 * DAY_MS), NOW));
+        assertTrue(policy.isExpired(report(2, 3, 101, "LOW", 3 * DAY_MS), NOW));
+        assertFalse(policy.isExpired(report(3, 3, 101, "MEDIUM", 6 * DAY_MS), NOW));
+        assertTrue(policy.isExpired(report(4, 3, 101, "MEDIUM", 8 * DAY_MS), NOW));
+        assertFalse(policy.isExpired(report(5, 3, 101, "HIGH", 20 * DAY_MS), NOW));
+        assertTrue(policy.isExpired(report(6, 3, 101, "HIGH", 31 * DAY_MS), NOW));
+
+        assertEquals(NOW - 30 * DAY_MS, policy.oldestKept(NOW));
+        assertEquals(NOW - 3 * DAY_MS, policy.firstExpiry(NOW));
+    }
+
+    @Test
+    public void areaCap_keepsMostSevereThenNewest_inOriginalOrder() {
+        RetentionPolicy policy = new RetentionPolicy(10 * DAY_MS, 10 * DAY_MS, 10 * DAY_MS, 0.1, 3);
+        List<FloodReport> reports = new ArrayList<>();
+        reports.add(report(1, 3.01, 101.01, "LOW", 5 * 60_000));      // newest LOW
+        reports.add(report(2, 3.02, 101.02, "HIGH", DAY_MS));        // kept: HIGH
+        reports.add(report(3, 3.03, 101.03, "MEDIUM", 2 * DAY_MS));  // kept: MEDIUM
+        reports.add(report(4, 3.04, 101.04, "LOW", 60_000));         // kept: newest LOW
+        reports.add(report(5, 3.05, 101.05, "LOW", 3 * DAY_MS));
+        reports.add(report(6, 3.51, 101.51, "LOW", 9 * DAY_MS));     // other area, kept
+        reports.add(report(7, 3.52, 101.52, "HIGH", 11 * DAY_MS));   // expired
+
+        List<FloodReport> kept = policy.keep(reports, NOW);
+        long[] ids = new long[kept.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = kept.get(i).id;
+        assertArrayEquals(new long[]{2, 3, 4, 6}, ids);
+    }
+
+    @Test
+    public void sameTimestamp_breaksTiesByNewestId() {
+        RetentionPolicy policy = new RetentionPolicy(DAY_MS, DAY_MS, DAY_MS, 1, 1);
+        List<FloodReport> reports = new ArrayList<>();
+        reports.add(report(8, 3.1, 101.1, "MEDIUM", 1000));
+        reports.add(report(9, 3.2, 101.2, "MEDIUM", 1000));
+        List<FloodReport> kept = policy.keep(reports, NOW);
+        assertEquals(1, kept.size());
+        assertEquals(9, kept.get(0).id);
+    }
+}
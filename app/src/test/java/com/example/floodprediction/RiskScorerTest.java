@@ -0,0 +1,141 @@
+package com.example.floodprediction;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RiskScorerTest {
+
+    @Test
+    public void dryClearDay_isZero() {
+        assertEquals(0, RiskScorer.score(0, 60, 3, 10, 800));
+        assertEquals("LOW", RiskScorer.level(0));
+    }
+
+    @Test
+    public void worstCase_isCappedAtHundred() {
+        assertEquals(100, RiskScorer.score(80, 98, 25, 100, 211));
+    }
+
+    @Test
+    public void thresholds_stepAsDocumented() {
+        assertEquals(10, RiskScorer.score(6, 0, 0, 0, 800));
+        assertEquals(40, RiskScorer.score(51, 0, 0, 0, 800));
+        assertEquals(8, RiskScorer.score(0, 71, 0, 0, 800));
+        assertEquals(25, RiskScorer.score(0, 91, 0, 0, 800));
+        assertEquals(20, RiskScorer.score(0, 0, 14, 0, 800));
+        assertEquals(8, RiskScorer.score(0, 0, 0, 95, 800));   // overcast but dry
+        assertEquals(15 + 10, RiskScorer.score(6, 0, 0, 95, 800));
+        assertEquals(8, RiskScorer.score(0, 0, 0, 0, 500));    // light rain
+        assertEquals(15, RiskScorer.score(0, 0, 0, 0, 502));   // heavy rain
+        assertEquals(15, RiskScorer.score(0, 0, 0, 0, 211));   // thunderstorm
+    }
+
+    @Test
+    public void levels_matchThresholds() {
+        assertEquals("HIGH", RiskScorer.level(60));
+        assertEquals("MEDIUM", RiskScorer.level(59));
+        assertEquals("MEDIUM", RiskScorer.level(30));
+        assertEquals("LOW", RiskScorer.level(29));
+    }
+
+    @Test
+    public void conditionCode_fromDescription() {
+        assertEquals(211, RiskScorer.conditionCode("thunderstorm"));
+        assertEquals(502, RiskScorer.conditionCode("heavy rain"));
+        assertEquals(500, RiskScorer.conditionCode("light rain"));
+        assertEquals(802, RiskScorer.conditionCode("scattered clouds"));
+        assertEquals(800, RiskScorer.conditionCode("clear sky"));
+        assertEquals(0, RiskScorer.score(0, 0, 0, 0, -1)); // unknown codes score nothing
+    }
+
+    @Test
+    public void batch_matchesScalar() {
+        Random rnd = new Random(42);
+        RiskScorer.Observations obs = new RiskScorer.Observations(4); // forces growth
+        for (int i = 0; i < 1000; i++) {
+            obs.add(rnd.nextFloat() * 80, rnd.nextFloat() * 100, rnd.nextFloat() * 30,
+                    rnd.nextFloat() * 100, 200 + rnd.nextInt(700));
+        }
+        int[] out = new int[obs.size];
+        RiskScorer.scoreBatch(obs, out);
+        for (int i = 0; i < obs.size; i++) {
+            assertEquals(RiskScorer.score(obs.rain[i], obs.humidity[i], obs.wind[i],
+                    obs.clouds[i], obs.condition[i]), out[i]);
+        }
+    }
+
+    @Test
+    public void compiledTables_matchThresholdRules() {
+        RiskModel model = RiskModel.defaults();
+        Random rnd = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            // Values on the 0.1 grid plus exact thresholds, where off-by-one bins would show
+            float r = rnd.nextInt(800) / 10f, w = rnd.nextInt(300) / 10f;
+            float h = rnd.nextInt(101), c = rnd.nextInt(101);
+            int cond = 200 + rnd.nextInt(700);
+            assertEquals(reference(r, h, w, c, cond), model.score(r, h, w, c, cond));
+        }
+        assertEquals(0, model.score(5f, 70f, 7.9f, 70f, 800));
+        assertEquals(10 + 8 + 10 + 8, model.score(5.1f, 71f, 8f, 71f, 800));
+    }
+
+    @Test
+    public void install_swapsModelAtomically() {
+        RiskEvaluator original = RiskScorer.getModel();
+        try {
+            RiskScorer.install(RiskModel.builder(2, "test")
+                    .levels(50, 20)
+                    .factor(RiskModel.RAIN, true, new float[]{10}, new int[]{55})
+                    .build());
+            assertEquals(55, RiskScorer.score(10, 0, 0, 0, 800));
+            assertEquals(0, RiskScorer.score(0, 99, 20, 100, 211)); // unlisted factors score nothing
+            assertEquals("HIGH", RiskScorer.level(50));
+        } finally {
+            RiskScorer.install(original);
+        }
+        assertEquals(10, RiskScorer.score(6, 0, 0, 0, 800));
+    }
+
+    /** The original hard-coded rules the default model must reproduce. */
+    private static int reference(float r, float h, float w, float c, int cond) {
+        int s = (r > 5f ? 10 : 0) + (r > 15f ? 10 : 0) + (r > 30f ? 10 : 0) + (r > 50f ? 10 : 0)
+                + (h > 70f ? 8 : 0) + (h > 80f ? 7 : 0) + (h > 90f ? 10 : 0)
+                + (w >= 8f ? 10 : 0) + (w >= 14f ? 10 : 0)
+                + (c > 70f ? 8 : 0) + (c > 90f && r > 0f ? 7 : 0);
+        if (cond >= 200 && cond < 300) s += 15;
+        else if (cond == 502 || cond == 503 || cond == 504 || cond == 522 || cond == 531) s += 15;
+        else if ((cond >= 300 && cond < 400) || (cond >= 500 && cond < 600)) s += 8;
+        return Math.min(s, 100);
+    }
+
+    /** Throughput check at 1M observations. */
+    @Test
+    public void oneMillionObservations_scoreInUnderASecond() {
+        final int n = 1_000_000;
+        Random rnd = new Random(7);
+        RiskScorer.Observations obs = new RiskScorer.Observations(n);
+        for (int i = 0; i < n; i++) {
+            obs.add(rnd.nextFloat() * 80, rnd.nextFloat() * 100, rnd.nextFloat() * 30,
+                    rnd.nextFloat() * 100, 200 + rnd.nextInt(700));
+        }
+        int[] out = new int[n];
+
+        for (int warm = 0; warm < 5; warm++) RiskScorer.scoreBatch(obs, out);
+
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long t0 = System.nanoTime();
+            RiskScorer.scoreBatch(obs, out);
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        long checksum = 0;
+        for (int v : out) checksum += v;
+
+        assertTrue(checksum > 0);
+        // Generous bound so slow CI machines don't flake; typical is a few ms
+        assertTrue("1M observations should score in well under a second", best < 1_000_000_000L);
+    }
+}